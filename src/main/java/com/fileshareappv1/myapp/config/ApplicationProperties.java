@@ -1,6 +1,10 @@
 package com.fileshareappv1.myapp.config;
 
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
 import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.util.unit.DataSize;
 
 /**
  * Properties specific to File Share App V 1.
@@ -13,12 +17,48 @@ public class ApplicationProperties {
 
     private final Liquibase liquibase = new Liquibase();
 
+    private final Compression compression = new Compression();
+
+    private final Bandwidth bandwidth = new Bandwidth();
+
+    private final SignedUrls signedUrls = new SignedUrls();
+
+    private final Idempotency idempotency = new Idempotency();
+
+    private final UploadAdmission uploadAdmission = new UploadAdmission();
+
+    private final Trash trash = new Trash();
+
     // jhipster-needle-application-properties-property
 
     public Liquibase getLiquibase() {
         return liquibase;
     }
 
+    public Compression getCompression() {
+        return compression;
+    }
+
+    public Bandwidth getBandwidth() {
+        return bandwidth;
+    }
+
+    public SignedUrls getSignedUrls() {
+        return signedUrls;
+    }
+
+    public Idempotency getIdempotency() {
+        return idempotency;
+    }
+
+    public UploadAdmission getUploadAdmission() {
+        return uploadAdmission;
+    }
+
+    public Trash getTrash() {
+        return trash;
+    }
+
     // jhipster-needle-application-properties-property-getter
 
     public static class Liquibase {
@@ -33,5 +73,344 @@ public class ApplicationProperties {
             this.asyncStart = asyncStart;
         }
     }
+
+    public static class Compression {
+
+        /**
+         * Whether responses are compressed at all.
+         */
+        private boolean enabled = true;
+
+        /**
+         * Media types worth compressing. Already-compressed formats (images, video, archives)
+         * only waste CPU and would break zero-copy file transfers.
+         */
+        private List<String> mimeTypes = new ArrayList<>(
+            List.of(
+                "text/html",
+                "text/css",
+                "text/plain",
+                "text/xml",
+                "text/javascript",
+                "application/javascript",
+                "application/json",
+                "application/*+json",
+                "application/xml",
+                "application/*+xml",
+                "image/svg+xml"
+            )
+        );
+
+        /**
+         * Responses smaller than this are sent uncompressed.
+         */
+        private DataSize minResponseSize = DataSize.ofKilobytes(2);
+
+        public boolean isEnabled() {
+            return enabled;
+        }
+
+        public void setEnabled(boolean enabled) {
+            this.enabled = enabled;
+        }
+
+        public List<String> getMimeTypes() {
+            return mimeTypes;
+        }
+
+        public void setMimeTypes(List<String> mimeTypes) {
+            this.mimeTypes = mimeTypes;
+        }
+
+        public DataSize getMinResponseSize() {
+            return minResponseSize;
+        }
+
+        public void setMinResponseSize(DataSize minResponseSize) {
+            this.minResponseSize = minResponseSize;
+        }
+    }
+    /**
+     * Bandwidth limits of file transfers, in bytes per second and per direction (uploads and
+     * downloads are limited separately). A transfer is held to the lowest limit that applies to it;
+     * {@code 0} disables a limit.
+     */
+    public static class Bandwidth {
+
+        /**
+         * Limit of all transfers together, to keep some of the uplink for the API itself.
+         */
+        private DataSize global = DataSize.ofBytes(0);
+
+        /**
+         * Limit of all transfers of one authenticated user.
+         */
+        private DataSize perUser = DataSize.ofBytes(0);
+
+        /**
+         * Limit of all transfers from one client address, authenticated or not. Behind a proxy, the
+         * address is only the client's with {@code server.forward-headers-strategy} set.
+         */
+        private DataSize perIp = DataSize.ofBytes(0);
+
+        /**
+         * How long an idle client may transfer at full speed before it is held to its limit.
+         */
+        private Duration burst = Duration.ofSeconds(1);
+
+        public DataSize getGlobal() {
+            return global;
+        }
+
+        public void setGlobal(DataSize global) {
+            this.global = global;
+        }
+
+        public DataSize getPerUser() {
+            return perUser;
+        }
+
+        public void setPerUser(DataSize perUser) {
+            this.perUser = perUser;
+        }
+
+        public DataSize getPerIp() {
+            return perIp;
+        }
+
+        public void setPerIp(DataSize perIp) {
+            this.perIp = perIp;
+        }
+
+        public Duration getBurst() {
+            return burst;
+        }
+
+        public void setBurst(Duration burst) {
+            this.burst = burst;
+        }
+    }
+    /**
+     * Expiring signed download URLs, handed out in posts instead of plain download URLs, which
+     * are checked without authenticating the request.
+     */
+    public static class SignedUrls {
+
+        /**
+         * Whether posts link to their files with signed URLs, and plain download URLs require
+         * authentication. Off by default, since the {@code fileUrl} of files is still a plain
+         * download URL, which anonymous clients such as image tags could then no longer load.
+         */
+        private boolean enabled = false;
+
+        /**
+         * Base64-encoded HMAC key of the signatures. When empty, a key is derived from the JWT
+         * secret, so the links of all instances sharing that secret are accepted by each of them.
+         */
+        private String secret;
+
+        /**
+         * How long a signed URL stays valid, at least; expiry times are rounded up to the hour so
+         * a file keeps the same URL, and stays in browser caches, for an hour at a time.
+         */
+        private Duration validity = Duration.ofHours(6);
+
+        public boolean isEnabled() {
+            return enabled;
+        }
+
+        public void setEnabled(boolean enabled) {
+            this.enabled = enabled;
+        }
+
+        public String getSecret() {
+            return secret;
+        }
+
+        public void setSecret(String secret) {
+            this.secret = secret;
+        }
+
+        public Duration getValidity() {
+            return validity;
+        }
+
+        public void setValidity(Duration validity) {
+            this.validity = validity;
+        }
+    }
+    /**
+     * Replays of upload requests carrying an {@code Idempotency-Key} header.
+     */
+    public static class Idempotency {
+
+        /**
+         * How long the response to a request is kept for replays of that request.
+         */
+        private Duration ttl = Duration.ofHours(24);
+
+        /**
+         * How many responses are kept at most; the oldest are dropped first.
+         */
+        private long maximumKeys = 10_000;
+
+        /**
+         * How long a duplicate waits for the request still in progress before it is refused.
+         */
+        private Duration waitTimeout = Duration.ofMinutes(5);
+
+        public Duration getTtl() {
+            return ttl;
+        }
+
+        public void setTtl(Duration ttl) {
+            this.ttl = ttl;
+        }
+
+        public long getMaximumKeys() {
+            return maximumKeys;
+        }
+
+        public void setMaximumKeys(long maximumKeys) {
+            this.maximumKeys = maximumKeys;
+        }
+
+        public Duration getWaitTimeout() {
+            return waitTimeout;
+        }
+
+        public void setWaitTimeout(Duration waitTimeout) {
+            this.waitTimeout = waitTimeout;
+        }
+    }
+    /**
+     * Admission control of upload requests, so a burst of large uploads cannot take every worker
+     * thread and the whole disk bandwidth from the rest of the API. {@code 0} disables a limit.
+     */
+    public static class UploadAdmission {
+
+        /**
+         * Uploads in progress at most, of all users together.
+         */
+        private int maxConcurrent = 16;
+
+        /**
+         * Uploads in progress at most, of one user (or client address when not authenticated).
+         */
+        private int maxConcurrentPerUser = 2;
+
+        /**
+         * Uploads waiting for a slot at most; any further upload is refused right away.
+         */
+        private int maxQueued = 32;
+
+        /**
+         * How long an upload waits for a slot before it is refused.
+         */
+        private Duration maxWait = Duration.ofSeconds(5);
+
+        /**
+         * How long refused clients are told to wait before trying again.
+         */
+        private Duration retryAfter = Duration.ofSeconds(10);
+
+        public int getMaxConcurrent() {
+            return maxConcurrent;
+        }
+
+        public void setMaxConcurrent(int maxConcurrent) {
+            this.maxConcurrent = maxConcurrent;
+        }
+
+        public int getMaxConcurrentPerUser() {
+            return maxConcurrentPerUser;
+        }
+
+        public void setMaxConcurrentPerUser(int maxConcurrentPerUser) {
+            this.maxConcurrentPerUser = maxConcurrentPerUser;
+        }
+
+        public int getMaxQueued() {
+            return maxQueued;
+        }
+
+        public void setMaxQueued(int maxQueued) {
+            this.maxQueued = maxQueued;
+        }
+
+        public Duration getMaxWait() {
+            return maxWait;
+        }
+
+        public void setMaxWait(Duration maxWait) {
+            this.maxWait = maxWait;
+        }
+
+        public Duration getRetryAfter() {
+            return retryAfter;
+        }
+
+        public void setRetryAfter(Duration retryAfter) {
+            this.retryAfter = retryAfter;
+        }
+    }
+    /**
+     * Deleted posts are moved to a trash, from which they can be restored, and only removed for good
+     * (rows, search documents and stored files) by a background purge during off-peak hours.
+     */
+    public static class Trash {
+
+        /**
+         * Move deleted posts to the trash; when disabled, posts are removed as soon as they are deleted.
+         */
+        private boolean enabled = true;
+
+        /**
+         * How long deleted posts can be restored before they are purged.
+         */
+        private Duration retention = Duration.ofDays(7);
+
+        /**
+         * When the purge runs, as a cron expression in the server time zone; keep it to off-peak hours.
+         */
+        private String purgeCron = "0 */5 1-5 * * ?";
+
+        /**
+         * Posts purged at most per run of the purge.
+         */
+        private int purgeBatchSize = 100;
+
+        public boolean isEnabled() {
+            return enabled;
+        }
+
+        public void setEnabled(boolean enabled) {
+            this.enabled = enabled;
+        }
+
+        public Duration getRetention() {
+            return retention;
+        }
+
+        public void setRetention(Duration retention) {
+            this.retention = retention;
+        }
+
+        public String getPurgeCron() {
+            return purgeCron;
+        }
+
+        public void setPurgeCron(String purgeCron) {
+            this.purgeCron = purgeCron;
+        }
+
+        public int getPurgeBatchSize() {
+            return purgeBatchSize;
+        }
+
+        public void setPurgeBatchSize(int purgeBatchSize) {
+            this.purgeBatchSize = purgeBatchSize;
+        }
+    }
     // jhipster-needle-application-properties-property-class
 }
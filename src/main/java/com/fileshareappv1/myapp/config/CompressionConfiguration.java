@@ -0,0 +1,39 @@
+package com.fileshareappv1.myapp.config;
+
+import com.fileshareappv1.myapp.web.filter.ResponseCompressionPolicy;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.web.embedded.undertow.UndertowServletWebServerFactory;
+import org.springframework.boot.web.server.WebServerFactoryCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * HTTP response compression, applied by Undertow according to the {@link ResponseCompressionPolicy}.
+ * <p>
+ * This replaces {@code server.compression}, which cannot leave range responses alone.
+ */
+@Configuration
+@ConditionalOnProperty(prefix = "application.compression", name = "enabled", havingValue = "true", matchIfMissing = true)
+public class CompressionConfiguration {
+
+    private static final Logger LOG = LoggerFactory.getLogger(CompressionConfiguration.class);
+
+    @Bean
+    public WebServerFactoryCustomizer<UndertowServletWebServerFactory> compressionCustomizer(
+        ApplicationProperties applicationProperties,
+        MeterRegistry meterRegistry
+    ) {
+        ApplicationProperties.Compression compression = applicationProperties.getCompression();
+        ResponseCompressionPolicy policy = new ResponseCompressionPolicy(
+            compression.getMimeTypes(),
+            compression.getMinResponseSize().toBytes(),
+            meterRegistry
+        );
+        LOG.debug("Compressing {} responses from {}", compression.getMimeTypes(), compression.getMinResponseSize());
+        return factory ->
+            factory.addDeploymentInfoCustomizers(deploymentInfo -> deploymentInfo.addOuterHandlerChainWrapper(policy.handlerWrapper()));
+    }
+}
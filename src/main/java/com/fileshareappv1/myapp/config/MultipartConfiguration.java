@@ -0,0 +1,40 @@
+package com.fileshareappv1.myapp.config;
+
+import jakarta.servlet.http.HttpServletRequest;
+import java.util.Set;
+import org.springframework.boot.autoconfigure.web.servlet.MultipartProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.web.multipart.support.StandardServletMultipartResolver;
+import org.springframework.web.servlet.DispatcherServlet;
+
+/**
+ * Multipart handling configuration.
+ * <p>
+ * Requests to the streaming upload endpoints are not resolved as multipart by Spring MVC:
+ * resolving them would make Undertow spool every part to a temporary file before the controller
+ * runs. Those controllers parse the request body themselves and write each part directly to
+ * storage.
+ */
+@Configuration
+public class MultipartConfiguration {
+
+    private static final Set<String> STREAMING_UPLOAD_PATHS = Set.of("/api/files/upload-stream");
+
+    @Bean(name = DispatcherServlet.MULTIPART_RESOLVER_BEAN_NAME)
+    public StandardServletMultipartResolver multipartResolver(MultipartProperties multipartProperties) {
+        StandardServletMultipartResolver multipartResolver = new StandardServletMultipartResolver() {
+            @Override
+            public boolean isMultipart(HttpServletRequest request) {
+                return super.isMultipart(request) && !isStreamingUpload(request);
+            }
+        };
+        multipartResolver.setResolveLazily(multipartProperties.isResolveLazily());
+        return multipartResolver;
+    }
+
+    private static boolean isStreamingUpload(HttpServletRequest request) {
+        String path = request.getRequestURI().substring(request.getContextPath().length());
+        return STREAMING_UPLOAD_PATHS.contains(path);
+    }
+}
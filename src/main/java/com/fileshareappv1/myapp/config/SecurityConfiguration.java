@@ -4,11 +4,16 @@ import static org.springframework.security.config.Customizer.withDefaults;
 
 import com.fileshareappv1.myapp.security.*;
 import com.fileshareappv1.myapp.service.FirebaseUserService;
+import com.fileshareappv1.myapp.web.filter.SignedDownloadFilter;
 import com.fileshareappv1.myapp.web.filter.SpaWebFilter;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.core.annotation.Order;
 import org.springframework.http.HttpMethod;
+import org.springframework.security.authorization.AuthenticatedAuthorizationManager;
+import org.springframework.security.authorization.AuthorizationDecision;
+import org.springframework.security.authorization.AuthorizationManager;
+import org.springframework.security.authorization.AuthorizationManagers;
 import org.springframework.security.config.annotation.method.configuration.EnableMethodSecurity;
 import org.springframework.security.config.annotation.web.builders.HttpSecurity;
 import org.springframework.security.config.annotation.web.configurers.HeadersConfigurer.FrameOptionsConfig;
@@ -18,6 +23,7 @@ import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.security.oauth2.server.resource.web.BearerTokenAuthenticationEntryPoint;
 import org.springframework.security.oauth2.server.resource.web.access.BearerTokenAccessDeniedHandler;
 import org.springframework.security.web.SecurityFilterChain;
+import org.springframework.security.web.access.intercept.RequestAuthorizationContext;
 import org.springframework.security.web.authentication.www.BasicAuthenticationFilter;
 import org.springframework.security.web.header.writers.ReferrerPolicyHeaderWriter;
 import org.springframework.security.web.servlet.util.matcher.MvcRequestMatcher;
@@ -30,8 +36,11 @@ public class SecurityConfiguration {
 
     private final JHipsterProperties jHipsterProperties;
 
-    public SecurityConfiguration(JHipsterProperties jHipsterProperties) {
+    private final boolean signedUrls;
+
+    public SecurityConfiguration(JHipsterProperties jHipsterProperties, ApplicationProperties applicationProperties) {
         this.jHipsterProperties = jHipsterProperties;
+        this.signedUrls = applicationProperties.getSignedUrls().isEnabled();
     }
 
     @Bean
@@ -98,7 +107,7 @@ public class SecurityConfiguration {
                     .requestMatchers(mvc.pattern("/swagger-ui/**")).permitAll()
                     .requestMatchers(mvc.pattern(HttpMethod.POST, "/api/authenticate")).permitAll()
                     .requestMatchers(mvc.pattern(HttpMethod.GET, "/api/authenticate")).permitAll()
-                    .requestMatchers(mvc.pattern(HttpMethod.GET, "/api/files/download/**")).permitAll()
+                    .requestMatchers(mvc.pattern(HttpMethod.GET, "/api/files/download/**")).access(downloadAccess())
                     .requestMatchers(mvc.pattern("/api/register")).permitAll()
                     .requestMatchers(mvc.pattern("/api/activate")).permitAll()
                     .requestMatchers(mvc.pattern("/api/account/reset-password/init")).permitAll()
@@ -122,6 +131,20 @@ public class SecurityConfiguration {
         return http.build();
     }
 
+    /**
+     * With signed URLs, anonymous clients only download files through a signed URL, which the
+     * {@link SignedDownloadFilter} forwards to the download endpoint once it has checked it,
+     * marking the forwarded request as verified.
+     */
+    private AuthorizationManager<RequestAuthorizationContext> downloadAccess() {
+        if (!signedUrls) {
+            return (authentication, context) -> new AuthorizationDecision(true);
+        }
+        AuthorizationManager<RequestAuthorizationContext> verifiedSignature = (authentication, context) ->
+            new AuthorizationDecision(context.getRequest().getAttribute(SignedDownloadFilter.VERIFIED_ATTRIBUTE) != null);
+        return AuthorizationManagers.anyOf(verifiedSignature, AuthenticatedAuthorizationManager.authenticated());
+    }
+
     @Bean
     MvcRequestMatcher.Builder mvc(HandlerMappingIntrospector introspector) {
         return new MvcRequestMatcher.Builder(introspector);
@@ -7,6 +7,7 @@ import org.springframework.http.CacheControl;
 import org.springframework.web.servlet.config.annotation.ResourceHandlerRegistration;
 import org.springframework.web.servlet.config.annotation.ResourceHandlerRegistry;
 import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+import org.springframework.web.servlet.resource.EncodedResourceResolver;
 import tech.jhipster.config.JHipsterConstants;
 import tech.jhipster.config.JHipsterProperties;
 
@@ -34,7 +35,12 @@ public class StaticResourcesWebConfiguration implements WebMvcConfigurer {
     }
 
     protected void initializeResourceHandler(ResourceHandlerRegistration resourceHandlerRegistration) {
-        resourceHandlerRegistration.addResourceLocations(RESOURCE_LOCATIONS).setCacheControl(getCacheControl());
+        // Serve precompressed .br / .gz siblings of the static assets when the build produced them
+        resourceHandlerRegistration
+            .addResourceLocations(RESOURCE_LOCATIONS)
+            .setCacheControl(getCacheControl())
+            .resourceChain(true)
+            .addResolver(new EncodedResourceResolver());
     }
 
     protected CacheControl getCacheControl() {
@@ -1,7 +1,10 @@
 package com.fileshareappv1.myapp.config;
 
+import java.net.URI;
 import java.nio.file.Path;
+import java.time.Duration;
 import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.util.unit.DataSize;
 
 @ConfigurationProperties(prefix = "app.storage")
 public class StorageProperties {
@@ -11,6 +14,114 @@ public class StorageProperties {
      */
     private Path location;
 
+    /**
+     * Storage backend: "local" stores every upload as its own file, "content-addressed" stores
+     * identical uploads once and hard links each stored filename to the shared blob, so its
+     * location must support hard links, "s3" stores uploads as objects of an S3-compatible
+     * bucket, shared by all application nodes.
+     */
+    private String type = "local";
+
+    /**
+     * Uploads up to this size are hashed in memory by the content-addressed backend, so a
+     * duplicate is detected before anything is written to disk.
+     */
+    private DataSize inMemoryHashThreshold = DataSize.ofMegabytes(1);
+
+    /**
+     * How long an unfinished resumable upload is kept before its received chunks are discarded.
+     */
+    private Duration uploadSessionTtl = Duration.ofHours(24);
+
+    /**
+     * Store files in {@code ab/cd/<filename>} shard directories instead of directly under the
+     * location. Files already stored directly under the location keep being served and are moved
+     * into their shard by a background job.
+     */
+    private boolean sharded = true;
+
+    /**
+     * Maximum number of files moved into the sharded layout per run of the migration job.
+     */
+    private int layoutMigrationBatchSize = 1000;
+
+    /**
+     * Maximum number of files written to storage concurrently, across all multi-file uploads.
+     */
+    private int uploadParallelism = 8;
+
+    /**
+     * Memory, held off-heap, for the most downloaded stored files. {@code 0} disables the cache.
+     * Counts against {@code -XX:MaxDirectMemorySize}.
+     */
+    private DataSize hotCacheSize = DataSize.ofMegabytes(64);
+
+    /**
+     * Larger stored files are never held in memory; they are sent with sendfile instead.
+     */
+    private DataSize hotCacheMaxFileSize = DataSize.ofMegabytes(2);
+
+    /**
+     * Number of requests within ten minutes after which a stored file is read into memory.
+     */
+    private int hotCacheAdmissionThreshold = 3;
+
+    /**
+     * Folder on cheaper storage that files nobody read for {@code coldAfter} are moved to by the
+     * local backends; they are moved back on their next download. Unset disables tiering.
+     */
+    private Path coldLocation;
+
+    /**
+     * Stored files neither uploaded nor downloaded for this long are moved to the cold location.
+     */
+    private Duration coldAfter = Duration.ofDays(7);
+
+    /**
+     * Compress files moved to the cold location, keeping the compressed copy only when it saves space.
+     */
+    private boolean coldCompression = true;
+
+    /**
+     * Number of stored files examined per run of the tiering job, which runs every five minutes.
+     */
+    private int tieringBatchSize = 1000;
+
+    /**
+     * Delete stored files that no post or file row references, in the background.
+     */
+    private boolean orphanCollectionEnabled = true;
+
+    /**
+     * Unreferenced stored files younger than this are kept, since the upload that stored them may
+     * still be about to reference them.
+     */
+    private Duration orphanGracePeriod = Duration.ofHours(24);
+
+    /**
+     * Number of stored files examined per run of the orphan collector, which runs every five minutes.
+     */
+    private int orphanScanBatchSize = 1000;
+
+    /**
+     * Stored files of deleted posts and files removed per second, on average, by the background
+     * deletion queue (0 pauses it; the queue is kept).
+     */
+    private int blobDeletionRate = 20;
+
+    /**
+     * Read bandwidth the integrity scrubber may use, per second, to re-verify stored files against
+     * their checksums in the background (0 disables it).
+     */
+    private DataSize scrubRate = DataSize.ofMegabytes(4);
+
+    /**
+     * Total size of the files each user may upload (0 for no limit).
+     */
+    private DataSize userQuota = DataSize.ofGigabytes(5);
+
+    private final S3 s3 = new S3();
+
     public Path getLocation() {
         return location;
     }
@@ -18,4 +129,270 @@ public class StorageProperties {
     public void setLocation(Path location) {
         this.location = location;
     }
+
+    public String getType() {
+        return type;
+    }
+
+    public void setType(String type) {
+        this.type = type;
+    }
+
+    public DataSize getInMemoryHashThreshold() {
+        return inMemoryHashThreshold;
+    }
+
+    public void setInMemoryHashThreshold(DataSize inMemoryHashThreshold) {
+        this.inMemoryHashThreshold = inMemoryHashThreshold;
+    }
+
+    public Duration getUploadSessionTtl() {
+        return uploadSessionTtl;
+    }
+
+    public void setUploadSessionTtl(Duration uploadSessionTtl) {
+        this.uploadSessionTtl = uploadSessionTtl;
+    }
+
+    public boolean isSharded() {
+        return sharded;
+    }
+
+    public void setSharded(boolean sharded) {
+        this.sharded = sharded;
+    }
+
+    public int getLayoutMigrationBatchSize() {
+        return layoutMigrationBatchSize;
+    }
+
+    public void setLayoutMigrationBatchSize(int layoutMigrationBatchSize) {
+        this.layoutMigrationBatchSize = layoutMigrationBatchSize;
+    }
+
+    public int getUploadParallelism() {
+        return uploadParallelism;
+    }
+
+    public void setUploadParallelism(int uploadParallelism) {
+        this.uploadParallelism = uploadParallelism;
+    }
+
+    public DataSize getHotCacheSize() {
+        return hotCacheSize;
+    }
+
+    public void setHotCacheSize(DataSize hotCacheSize) {
+        this.hotCacheSize = hotCacheSize;
+    }
+
+    public DataSize getHotCacheMaxFileSize() {
+        return hotCacheMaxFileSize;
+    }
+
+    public void setHotCacheMaxFileSize(DataSize hotCacheMaxFileSize) {
+        this.hotCacheMaxFileSize = hotCacheMaxFileSize;
+    }
+
+    public int getHotCacheAdmissionThreshold() {
+        return hotCacheAdmissionThreshold;
+    }
+
+    public void setHotCacheAdmissionThreshold(int hotCacheAdmissionThreshold) {
+        this.hotCacheAdmissionThreshold = hotCacheAdmissionThreshold;
+    }
+
+    public Path getColdLocation() {
+        return coldLocation;
+    }
+
+    public void setColdLocation(Path coldLocation) {
+        this.coldLocation = coldLocation;
+    }
+
+    public Duration getColdAfter() {
+        return coldAfter;
+    }
+
+    public void setColdAfter(Duration coldAfter) {
+        this.coldAfter = coldAfter;
+    }
+
+    public boolean isColdCompression() {
+        return coldCompression;
+    }
+
+    public void setColdCompression(boolean coldCompression) {
+        this.coldCompression = coldCompression;
+    }
+
+    public int getTieringBatchSize() {
+        return tieringBatchSize;
+    }
+
+    public void setTieringBatchSize(int tieringBatchSize) {
+        this.tieringBatchSize = tieringBatchSize;
+    }
+
+    public boolean isOrphanCollectionEnabled() {
+        return orphanCollectionEnabled;
+    }
+
+    public void setOrphanCollectionEnabled(boolean orphanCollectionEnabled) {
+        this.orphanCollectionEnabled = orphanCollectionEnabled;
+    }
+
+    public Duration getOrphanGracePeriod() {
+        return orphanGracePeriod;
+    }
+
+    public void setOrphanGracePeriod(Duration orphanGracePeriod) {
+        this.orphanGracePeriod = orphanGracePeriod;
+    }
+
+    public int getOrphanScanBatchSize() {
+        return orphanScanBatchSize;
+    }
+
+    public void setOrphanScanBatchSize(int orphanScanBatchSize) {
+        this.orphanScanBatchSize = orphanScanBatchSize;
+    }
+
+    public int getBlobDeletionRate() {
+        return blobDeletionRate;
+    }
+
+    public void setBlobDeletionRate(int blobDeletionRate) {
+        this.blobDeletionRate = blobDeletionRate;
+    }
+
+    public DataSize getScrubRate() {
+        return scrubRate;
+    }
+
+    public void setScrubRate(DataSize scrubRate) {
+        this.scrubRate = scrubRate;
+    }
+
+    public DataSize getUserQuota() {
+        return userQuota;
+    }
+
+    public void setUserQuota(DataSize userQuota) {
+        this.userQuota = userQuota;
+    }
+
+    public S3 getS3() {
+        return s3;
+    }
+
+    /**
+     * Connection to the S3-compatible object store used by the "s3" backend.
+     */
+    public static class S3 {
+
+        /**
+         * Base URL of the S3 API, e.g. {@code https://s3.eu-west-1.amazonaws.com} or {@code http://minio:9000}.
+         */
+        private URI endpoint;
+
+        private String region = "us-east-1";
+
+        private String bucket;
+
+        private String accessKey;
+
+        private String secretKey;
+
+        /**
+         * Address the bucket as the first path segment ({@code endpoint/bucket/key}) rather than
+         * as a subdomain of the endpoint. MinIO and most other S3-compatible stores need this.
+         */
+        private boolean pathStyleAccess = true;
+
+        /**
+         * Uploads larger than this are sent as multipart uploads in parts of this size, buffered
+         * one part at a time. S3 requires at least 5MB.
+         */
+        private DataSize partSize = DataSize.ofMegabytes(8);
+
+        /**
+         * Maximum number of requests in flight to the object store, across all uploads and downloads.
+         */
+        private int maxConnections = 64;
+
+        private Duration connectTimeout = Duration.ofSeconds(5);
+
+        public URI getEndpoint() {
+            return endpoint;
+        }
+
+        public void setEndpoint(URI endpoint) {
+            this.endpoint = endpoint;
+        }
+
+        public String getRegion() {
+            return region;
+        }
+
+        public void setRegion(String region) {
+            this.region = region;
+        }
+
+        public String getBucket() {
+            return bucket;
+        }
+
+        public void setBucket(String bucket) {
+            this.bucket = bucket;
+        }
+
+        public String getAccessKey() {
+            return accessKey;
+        }
+
+        public void setAccessKey(String accessKey) {
+            this.accessKey = accessKey;
+        }
+
+        public String getSecretKey() {
+            return secretKey;
+        }
+
+        public void setSecretKey(String secretKey) {
+            this.secretKey = secretKey;
+        }
+
+        public boolean isPathStyleAccess() {
+            return pathStyleAccess;
+        }
+
+        public void setPathStyleAccess(boolean pathStyleAccess) {
+            this.pathStyleAccess = pathStyleAccess;
+        }
+
+        public DataSize getPartSize() {
+            return partSize;
+        }
+
+        public void setPartSize(DataSize partSize) {
+            this.partSize = partSize;
+        }
+
+        public int getMaxConnections() {
+            return maxConnections;
+        }
+
+        public void setMaxConnections(int maxConnections) {
+            this.maxConnections = maxConnections;
+        }
+
+        public Duration getConnectTimeout() {
+            return connectTimeout;
+        }
+
+        public void setConnectTimeout(Duration connectTimeout) {
+            this.connectTimeout = connectTimeout;
+        }
+    }
 }
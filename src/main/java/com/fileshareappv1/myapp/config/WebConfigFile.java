@@ -1,10 +1,13 @@
 package com.fileshareappv1.myapp.config;
 
+import com.fileshareappv1.myapp.web.rest.upload.StorageQuotaInterceptor;
+import com.fileshareappv1.myapp.web.rest.upload.UploadAdmissionInterceptor;
 import java.nio.file.Path;
 import java.util.concurrent.TimeUnit;
 import org.springframework.boot.context.properties.EnableConfigurationProperties;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.http.CacheControl;
+import org.springframework.web.servlet.config.annotation.InterceptorRegistry;
 import org.springframework.web.servlet.config.annotation.ResourceHandlerRegistry;
 import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
 
@@ -14,9 +17,29 @@ public class WebConfigFile implements WebMvcConfigurer {
 
     private final Path rootLocation;
 
-    public WebConfigFile(StorageProperties storageProperties) {
+    private final StorageQuotaInterceptor storageQuotaInterceptor;
+
+    private final UploadAdmissionInterceptor uploadAdmissionInterceptor;
+
+    public WebConfigFile(
+        StorageProperties storageProperties,
+        StorageQuotaInterceptor storageQuotaInterceptor,
+        UploadAdmissionInterceptor uploadAdmissionInterceptor
+    ) {
         // normalize & resolve to absolute path so we don’t get any surprises
         this.rootLocation = storageProperties.getLocation().toAbsolutePath().normalize();
+        this.storageQuotaInterceptor = storageQuotaInterceptor;
+        this.uploadAdmissionInterceptor = uploadAdmissionInterceptor;
+    }
+
+    @Override
+    public void addInterceptors(InterceptorRegistry registry) {
+        // Admitted first, so uploads waiting for a slot do not hold on to quota reservations
+        registry
+            .addInterceptor(uploadAdmissionInterceptor)
+            .addPathPatterns(StorageQuotaInterceptor.UPLOAD_PATHS)
+            .addPathPatterns(UploadAdmissionInterceptor.CHUNK_PATHS);
+        registry.addInterceptor(storageQuotaInterceptor).addPathPatterns(StorageQuotaInterceptor.UPLOAD_PATHS);
     }
 
     @Override
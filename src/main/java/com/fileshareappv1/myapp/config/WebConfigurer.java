@@ -2,13 +2,18 @@ package com.fileshareappv1.myapp.config;
 
 import static java.net.URLDecoder.decode;
 
+import com.fileshareappv1.myapp.security.DownloadUrlSigner;
+import com.fileshareappv1.myapp.web.filter.SignedDownloadFilter;
+import io.micrometer.core.instrument.MeterRegistry;
 import jakarta.servlet.*;
 import java.io.File;
 import java.nio.charset.StandardCharsets;
 import java.nio.file.Path;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.boot.autoconfigure.security.SecurityProperties;
 import org.springframework.boot.web.server.*;
+import org.springframework.boot.web.servlet.FilterRegistrationBean;
 import org.springframework.boot.web.servlet.ServletContextInitializer;
 import org.springframework.boot.web.servlet.server.ConfigurableServletWebServerFactory;
 import org.springframework.context.annotation.Bean;
@@ -93,4 +98,17 @@ public class WebConfigurer implements ServletContextInitializer, WebServerFactor
         }
         return new CorsFilter(source);
     }
+
+    /**
+     * Check signed download URLs before the security filter chain, so they cost no authentication.
+     */
+    @Bean
+    public FilterRegistrationBean<SignedDownloadFilter> signedDownloadFilter(DownloadUrlSigner signer, MeterRegistry meterRegistry) {
+        FilterRegistrationBean<SignedDownloadFilter> registration = new FilterRegistrationBean<>(
+            new SignedDownloadFilter(signer, meterRegistry)
+        );
+        registration.addUrlPatterns(SignedDownloadFilter.SIGNED_PATH + "*");
+        registration.setOrder(SecurityProperties.DEFAULT_FILTER_ORDER - 1);
+        return registration;
+    }
 }
@@ -0,0 +1,136 @@
+package com.fileshareappv1.myapp.domain;
+
+import jakarta.persistence.*;
+import jakarta.validation.constraints.*;
+import java.io.Serializable;
+import java.time.Instant;
+
+/**
+ * A stored file waiting to be deleted in the background, once the post or file row that
+ * referenced it has been deleted.
+ */
+@Entity
+@Table(name = "blob_deletion", indexes = @Index(name = "idx_blob_deletion_next_attempt_at", columnList = "next_attempt_at"))
+@SuppressWarnings("common-java:DuplicatedBlocks")
+public class BlobDeletion implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @Column(name = "id")
+    private Long id;
+
+    @NotNull
+    @Column(name = "stored_name", nullable = false)
+    private String storedName;
+
+    @NotNull
+    @Column(name = "enqueued_at", nullable = false)
+    private Instant enqueuedAt;
+
+    /**
+     * Failed attempts to delete the stored file so far.
+     */
+    @NotNull
+    @Column(name = "attempts", nullable = false)
+    private Integer attempts;
+
+    @NotNull
+    @Column(name = "next_attempt_at", nullable = false)
+    private Instant nextAttemptAt;
+
+    public Long getId() {
+        return this.id;
+    }
+
+    public BlobDeletion id(Long id) {
+        this.setId(id);
+        return this;
+    }
+
+    public void setId(Long id) {
+        this.id = id;
+    }
+
+    public String getStoredName() {
+        return this.storedName;
+    }
+
+    public BlobDeletion storedName(String storedName) {
+        this.setStoredName(storedName);
+        return this;
+    }
+
+    public void setStoredName(String storedName) {
+        this.storedName = storedName;
+    }
+
+    public Instant getEnqueuedAt() {
+        return this.enqueuedAt;
+    }
+
+    public BlobDeletion enqueuedAt(Instant enqueuedAt) {
+        this.setEnqueuedAt(enqueuedAt);
+        return this;
+    }
+
+    public void setEnqueuedAt(Instant enqueuedAt) {
+        this.enqueuedAt = enqueuedAt;
+    }
+
+    public Integer getAttempts() {
+        return this.attempts;
+    }
+
+    public BlobDeletion attempts(Integer attempts) {
+        this.setAttempts(attempts);
+        return this;
+    }
+
+    public void setAttempts(Integer attempts) {
+        this.attempts = attempts;
+    }
+
+    public Instant getNextAttemptAt() {
+        return this.nextAttemptAt;
+    }
+
+    public BlobDeletion nextAttemptAt(Instant nextAttemptAt) {
+        this.setNextAttemptAt(nextAttemptAt);
+        return this;
+    }
+
+    public void setNextAttemptAt(Instant nextAttemptAt) {
+        this.nextAttemptAt = nextAttemptAt;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (!(o instanceof BlobDeletion)) {
+            return false;
+        }
+        return getId() != null && getId().equals(((BlobDeletion) o).getId());
+    }
+
+    @Override
+    public int hashCode() {
+        // see https://vladmihalcea.com/how-to-implement-equals-and-hashcode-using-the-jpa-entity-identifier/
+        return getClass().hashCode();
+    }
+
+    // prettier-ignore
+    @Override
+    public String toString() {
+        return "BlobDeletion{" +
+            "id=" + getId() +
+            ", storedName='" + getStoredName() + "'" +
+            ", enqueuedAt='" + getEnqueuedAt() + "'" +
+            ", attempts=" + getAttempts() +
+            ", nextAttemptAt='" + getNextAttemptAt() + "'" +
+            "}";
+    }
+}
@@ -12,7 +12,15 @@ import org.springframework.data.jpa.domain.support.AuditingEntityListener;
  * A File.
  */
 @Entity
-@Table(name = "file")
+@Table(
+    name = "file",
+    indexes = {
+        @Index(name = "idx_file_sha256", columnList = "sha256"),
+        @Index(name = "idx_file_stored_name", columnList = "stored_name"),
+        @Index(name = "idx_file_thumbnail_name", columnList = "thumbnail_name"),
+        @Index(name = "idx_file_preview_name", columnList = "preview_name"),
+    }
+)
 @org.springframework.data.elasticsearch.annotations.Document(indexName = "file")
 @SuppressWarnings("common-java:DuplicatedBlocks")
 @EntityListeners(AuditingEntityListener.class)
@@ -49,6 +57,49 @@ public class File implements Serializable {
     @Column(name = "uploaded_at", nullable = false)
     private Instant uploadedAt;
 
+    /**
+     * Stored filename of the downscaled thumbnail, once generated (images only).
+     */
+    @Column(name = "thumbnail_name")
+    private String thumbnailName;
+
+    /**
+     * Stored filename of the medium-size preview, once generated (images only).
+     */
+    @Column(name = "preview_name")
+    private String previewName;
+
+    /**
+     * SHA-256 of the stored bytes in lower-case hex, computed while they were written.
+     */
+    @Column(name = "sha256", length = 64)
+    private String sha256;
+
+    /**
+     * CRC32C of the stored bytes as 8 lower-case hex digits, computed while they were written.
+     */
+    @Column(name = "crc32c", length = 8)
+    private String crc32c;
+
+    /**
+     * When the integrity scrubber found the stored bytes missing or no longer matching their checksum.
+     */
+    @Column(name = "checksum_mismatch_at")
+    private Instant checksumMismatchAt;
+
+    /**
+     * Login of the user whose storage quota the file counts against.
+     */
+    @Column(name = "uploaded_by", length = 50)
+    private String uploadedBy;
+
+    /**
+     * Stored filename, the last segment of the download URL, kept in step with it so the row can be
+     * looked up by it: {@code fileName} holds the client-side name for some uploads.
+     */
+    @Column(name = "stored_name")
+    private String storedName;
+
     @ManyToOne(fetch = FetchType.LAZY)
     @JsonIgnoreProperties(value = { "user", "tags" }, allowSetters = true)
     private Post post;
@@ -133,6 +184,98 @@ public class File implements Serializable {
         this.uploadedAt = uploadedAt;
     }
 
+    public String getThumbnailName() {
+        return this.thumbnailName;
+    }
+
+    public File thumbnailName(String thumbnailName) {
+        this.setThumbnailName(thumbnailName);
+        return this;
+    }
+
+    public void setThumbnailName(String thumbnailName) {
+        this.thumbnailName = thumbnailName;
+    }
+
+    public String getPreviewName() {
+        return this.previewName;
+    }
+
+    public File previewName(String previewName) {
+        this.setPreviewName(previewName);
+        return this;
+    }
+
+    public void setPreviewName(String previewName) {
+        this.previewName = previewName;
+    }
+
+    public String getSha256() {
+        return this.sha256;
+    }
+
+    public File sha256(String sha256) {
+        this.setSha256(sha256);
+        return this;
+    }
+
+    public void setSha256(String sha256) {
+        this.sha256 = sha256;
+    }
+
+    public String getCrc32c() {
+        return this.crc32c;
+    }
+
+    public File crc32c(String crc32c) {
+        this.setCrc32c(crc32c);
+        return this;
+    }
+
+    public void setCrc32c(String crc32c) {
+        this.crc32c = crc32c;
+    }
+
+    public Instant getChecksumMismatchAt() {
+        return this.checksumMismatchAt;
+    }
+
+    public File checksumMismatchAt(Instant checksumMismatchAt) {
+        this.setChecksumMismatchAt(checksumMismatchAt);
+        return this;
+    }
+
+    public void setChecksumMismatchAt(Instant checksumMismatchAt) {
+        this.checksumMismatchAt = checksumMismatchAt;
+    }
+
+    public String getUploadedBy() {
+        return this.uploadedBy;
+    }
+
+    public File uploadedBy(String uploadedBy) {
+        this.setUploadedBy(uploadedBy);
+        return this;
+    }
+
+    public void setUploadedBy(String uploadedBy) {
+        this.uploadedBy = uploadedBy;
+    }
+
+    public String getStoredName() {
+        return this.storedName;
+    }
+
+    public void setStoredName(String storedName) {
+        this.storedName = storedName;
+    }
+
+    @PrePersist
+    @PreUpdate
+    public void fillStoredName() {
+        this.storedName = fileUrl == null ? fileName : fileUrl.substring(fileUrl.lastIndexOf('/') + 1);
+    }
+
     public Post getPost() {
         return this.post;
     }
@@ -175,6 +318,13 @@ public class File implements Serializable {
             ", mimeType='" + getMimeType() + "'" +
             ", fileSize=" + getFileSize() +
             ", uploadedAt='" + getUploadedAt() + "'" +
+            ", thumbnailName='" + getThumbnailName() + "'" +
+            ", previewName='" + getPreviewName() + "'" +
+            ", sha256='" + getSha256() + "'" +
+            ", crc32c='" + getCrc32c() + "'" +
+            ", checksumMismatchAt='" + getChecksumMismatchAt() + "'" +
+            ", uploadedBy='" + getUploadedBy() + "'" +
+            ", storedName='" + getStoredName() + "'" +
             "}";
     }
 }
@@ -11,6 +11,7 @@ import java.util.ArrayList;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Set;
+import org.hibernate.annotations.SQLRestriction;
 import org.springframework.data.annotation.CreatedDate;
 import org.springframework.data.annotation.LastModifiedDate;
 import org.springframework.data.jpa.domain.support.AuditingEntityListener;
@@ -19,7 +20,8 @@ import org.springframework.data.jpa.domain.support.AuditingEntityListener;
  * A Post.
  */
 @Entity
-@Table(name = "post")
+@Table(name = "post", indexes = @Index(name = "idx_post_deleted_at", columnList = "deleted_at"))
+@SQLRestriction("deleted_at is null")
 @org.springframework.data.elasticsearch.annotations.Document(indexName = "post")
 @SuppressWarnings("common-java:DuplicatedBlocks")
 @EntityListeners(AuditingEntityListener.class)
@@ -93,6 +95,19 @@ public class Post implements Serializable {
 
     private Integer numFiles = 0;
 
+    /**
+     * When the post was moved to the trash. Trashed posts are left out of every query until they
+     * are restored, or purged once the retention of the trash has passed.
+     */
+    @Column(name = "deleted_at")
+    private Instant deletedAt;
+
+    /**
+     * When purging the trashed post may be tried again, after an attempt failed.
+     */
+    @Column(name = "purge_retry_at")
+    private Instant purgeRetryAt;
+
     // jhipster-needle-entity-add-field - JHipster will add fields here
 
     public Long getId() {
@@ -354,4 +369,20 @@ public class Post implements Serializable {
     public void setNumFiles(Integer numFiles) {
         this.numFiles = numFiles;
     }
+
+    public Instant getDeletedAt() {
+        return deletedAt;
+    }
+
+    public void setDeletedAt(Instant deletedAt) {
+        this.deletedAt = deletedAt;
+    }
+
+    public Instant getPurgeRetryAt() {
+        return purgeRetryAt;
+    }
+
+    public void setPurgeRetryAt(Instant purgeRetryAt) {
+        this.purgeRetryAt = purgeRetryAt;
+    }
 }
@@ -0,0 +1,79 @@
+package com.fileshareappv1.myapp.domain;
+
+import jakarta.persistence.*;
+import jakarta.validation.constraints.*;
+import java.io.Serializable;
+
+/**
+ * Bytes of files a user has uploaded, kept up to date as files are saved and deleted, so that
+ * quota checks never have to sum the file table.
+ */
+@Entity
+@Table(name = "storage_usage")
+@SuppressWarnings("common-java:DuplicatedBlocks")
+public class StorageUsage implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    @NotNull
+    @Size(max = 50)
+    @Id
+    @Column(name = "login", length = 50, nullable = false)
+    private String login;
+
+    @NotNull
+    @Column(name = "used_bytes", nullable = false)
+    private Long usedBytes;
+
+    public String getLogin() {
+        return this.login;
+    }
+
+    public StorageUsage login(String login) {
+        this.setLogin(login);
+        return this;
+    }
+
+    public void setLogin(String login) {
+        this.login = login;
+    }
+
+    public Long getUsedBytes() {
+        return this.usedBytes;
+    }
+
+    public StorageUsage usedBytes(Long usedBytes) {
+        this.setUsedBytes(usedBytes);
+        return this;
+    }
+
+    public void setUsedBytes(Long usedBytes) {
+        this.usedBytes = usedBytes;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (!(o instanceof StorageUsage)) {
+            return false;
+        }
+        return getLogin() != null && getLogin().equals(((StorageUsage) o).getLogin());
+    }
+
+    @Override
+    public int hashCode() {
+        // see https://vladmihalcea.com/how-to-implement-equals-and-hashcode-using-the-jpa-entity-identifier/
+        return getClass().hashCode();
+    }
+
+    // prettier-ignore
+    @Override
+    public String toString() {
+        return "StorageUsage{" +
+            "login='" + getLogin() + "'" +
+            ", usedBytes=" + getUsedBytes() +
+            "}";
+    }
+}
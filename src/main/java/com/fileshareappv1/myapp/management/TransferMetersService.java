@@ -0,0 +1,156 @@
+package com.fileshareappv1.myapp.management;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.Timer;
+import java.util.EnumMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.springframework.stereotype.Service;
+import org.springframework.util.unit.DataSize;
+
+/**
+ * Meters of the storage path: file uploads and downloads, and the stages of recording uploaded files.
+ * <p>
+ * Metrics:
+ * <ul>
+ * <li>{@code storage.transfer.duration}, a timer of each transfer by {@code direction}, by
+ * {@code size} bucket, named after its upper bound ({@code 64KB} up to {@code 128MB}, then
+ * {@code larger}), so slow large files do not hide in the latency of small ones, and by
+ * {@code outcome} ({@code success}, {@code error});</li>
+ * <li>{@code storage.transfer.bytes}, the bytes transferred by {@code direction}, whose rate is
+ * the throughput;</li>
+ * <li>{@code storage.transfer.active}, the transfers in progress by {@code direction};</li>
+ * <li>{@code storage.upload.stage}, a timer of each stage of recording uploaded files by
+ * {@code stage} ({@code store}, {@code db}, {@code index}).</li>
+ * </ul>
+ * Timers publish histogram buckets as configured by {@code management.metrics.distribution}.
+ */
+@Service
+public class TransferMetersService {
+
+    public static final String TRANSFER_DURATION_METER_NAME = "storage.transfer.duration";
+    public static final String TRANSFER_BYTES_METER_NAME = "storage.transfer.bytes";
+    public static final String TRANSFER_ACTIVE_METER_NAME = "storage.transfer.active";
+    public static final String UPLOAD_STAGE_METER_NAME = "storage.upload.stage";
+
+    public static final String STAGE_STORE = "store";
+    public static final String STAGE_DB = "db";
+    public static final String STAGE_INDEX = "index";
+
+    private static final long[] SIZE_BUCKETS = {
+        DataSize.ofKilobytes(64).toBytes(),
+        DataSize.ofMegabytes(1).toBytes(),
+        DataSize.ofMegabytes(16).toBytes(),
+        DataSize.ofMegabytes(128).toBytes(),
+    };
+
+    private static final String[] SIZE_BUCKET_NAMES = { "64KB", "1MB", "16MB", "128MB", "larger" };
+
+    /**
+     * The direction of a transfer, as seen from the client.
+     */
+    public enum Direction {
+        UPLOAD,
+        DOWNLOAD,
+    }
+
+    private final MeterRegistry registry;
+
+    private final Map<Direction, AtomicInteger> active = new EnumMap<>(Direction.class);
+
+    private final Map<Direction, Counter> bytes = new EnumMap<>(Direction.class);
+
+    public TransferMetersService(MeterRegistry registry) {
+        this.registry = registry;
+        for (Direction direction : Direction.values()) {
+            String tag = direction.name().toLowerCase(Locale.ROOT);
+            active.put(direction, registry.gauge(TRANSFER_ACTIVE_METER_NAME, Tags.of("direction", tag), new AtomicInteger()));
+            bytes.put(
+                direction,
+                Counter.builder(TRANSFER_BYTES_METER_NAME)
+                    .description("Bytes of files transferred")
+                    .baseUnit("bytes")
+                    .tag("direction", tag)
+                    .register(registry)
+            );
+        }
+    }
+
+    /**
+     * Start metering a transfer, to be closed once it is over.
+     *
+     * @param direction the direction of the transfer.
+     * @return the transfer.
+     */
+    public Transfer start(Direction direction) {
+        active.get(direction).incrementAndGet();
+        return new Transfer(direction, System.nanoTime());
+    }
+
+    /**
+     * @param stage the stage of recording uploaded files: {@link #STAGE_STORE}, {@link #STAGE_DB} or {@link #STAGE_INDEX}.
+     * @return the timer of the stage.
+     */
+    public Timer stage(String stage) {
+        return Timer.builder(UPLOAD_STAGE_METER_NAME)
+            .description("Time spent in each stage of recording uploaded files")
+            .tag("stage", stage)
+            .register(registry);
+    }
+
+    static String sizeBucket(long size) {
+        for (int i = 0; i < SIZE_BUCKETS.length; i++) {
+            if (size < SIZE_BUCKETS[i]) {
+                return SIZE_BUCKET_NAMES[i];
+            }
+        }
+        return SIZE_BUCKET_NAMES[SIZE_BUCKETS.length];
+    }
+
+    /**
+     * A transfer in progress.
+     */
+    public final class Transfer implements AutoCloseable {
+
+        private final Direction direction;
+
+        private final long start;
+
+        private long size = -1;
+
+        private Transfer(Direction direction, long start) {
+            this.direction = direction;
+            this.start = start;
+        }
+
+        /**
+         * Mark the transfer as successful.
+         *
+         * @param size the number of bytes transferred.
+         */
+        public void completed(long size) {
+            this.size = size;
+        }
+
+        @Override
+        public void close() {
+            long duration = System.nanoTime() - start;
+            active.get(direction).decrementAndGet();
+            boolean succeeded = size >= 0;
+            if (succeeded) {
+                bytes.get(direction).increment(size);
+            }
+            Timer.builder(TRANSFER_DURATION_METER_NAME)
+                .description("Duration of file transfers")
+                .tag("direction", direction.name().toLowerCase(Locale.ROOT))
+                .tag("size", succeeded ? sizeBucket(size) : "unknown")
+                .tag("outcome", succeeded ? "success" : "error")
+                .register(registry)
+                .record(duration, TimeUnit.NANOSECONDS);
+        }
+    }
+}
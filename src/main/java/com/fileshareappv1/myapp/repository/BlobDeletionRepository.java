@@ -0,0 +1,16 @@
+package com.fileshareappv1.myapp.repository;
+
+import com.fileshareappv1.myapp.domain.BlobDeletion;
+import java.time.Instant;
+import java.util.List;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.*;
+import org.springframework.stereotype.Repository;
+
+/**
+ * Spring Data JPA repository for the {@link BlobDeletion} entity.
+ */
+@Repository
+public interface BlobDeletionRepository extends JpaRepository<BlobDeletion, Long> {
+    List<BlobDeletion> findByNextAttemptAtLessThanEqualOrderByIdAsc(Instant now, Pageable pageable);
+}
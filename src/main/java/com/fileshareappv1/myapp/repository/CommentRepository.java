@@ -44,4 +44,10 @@ public interface CommentRepository extends JpaRepository<Comment, Long> {
 
     @Query("select comment from Comment comment where comment.post.id = :postId")
     Page<Comment> findAllByPostId(Long postId, Pageable pageable);
+
+    List<Comment> findAllByPostId(Long postId);
+
+    @Modifying
+    @Query("update Comment comment set comment.parentComment = null where comment.post.id = :postId")
+    void detachRepliesByPostId(@Param("postId") Long postId);
 }
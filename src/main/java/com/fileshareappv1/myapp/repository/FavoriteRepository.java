@@ -43,4 +43,6 @@ public interface FavoriteRepository extends JpaRepository<Favorite, Long> {
 
     @Query("select favorite from Favorite favorite where favorite.user.login = ?#{authentication.name}")
     Page<Favorite> findAllByCurrentUser(Pageable pageable);
+
+    List<Favorite> findAllByPostId(Long postId);
 }
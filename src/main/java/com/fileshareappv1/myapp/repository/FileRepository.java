@@ -2,9 +2,16 @@ package com.fileshareappv1.myapp.repository;
 
 import com.fileshareappv1.myapp.domain.File;
 import java.nio.channels.FileChannel;
+import java.time.Instant;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+import java.util.stream.Stream;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
 import org.springframework.data.jpa.repository.*;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 /**
@@ -12,6 +19,60 @@ import org.springframework.stereotype.Repository;
  */
 @SuppressWarnings("unused")
 @Repository
-public interface FileRepository extends JpaRepository<File, Long> {
+public interface FileRepository extends FileRepositoryWithBatchInsert, JpaRepository<File, Long> {
     Page<File> findAllByPostId(Long postId, Pageable pageable);
+
+    /**
+     * The file rows of a post: those attached to it, and those recorded for its stored files, which
+     * post uploads name after the stored file without attaching.
+     */
+    List<File> findAllByPostIdOrFileNameIn(Long postId, Collection<String> fileNames);
+
+    Optional<File> findFirstByStoredNameOrderByIdAsc(String storedName);
+
+    Slice<File> findByStoredNameIsNull(Pageable pageable);
+
+    Optional<File> findFirstBySha256AndFileSizeAndChecksumMismatchAtIsNullOrderByIdAsc(String sha256, Long fileSize);
+
+    /**
+     * Whether another file row shares the stored content of a file, as rows recorded by an instant
+     * upload do: they copy the URL of the row whose content they reuse.
+     */
+    boolean existsBySha256AndFileUrlAndIdNot(String sha256, String fileUrl, Long id);
+
+    @Query("select file.fileUrl from File file where file.fileUrl is not null")
+    Stream<String> streamAllFileUrls();
+
+    @Query("select file.thumbnailName from File file where file.thumbnailName is not null")
+    Stream<String> streamAllThumbnailNames();
+
+    @Query("select file.previewName from File file where file.previewName is not null")
+    Stream<String> streamAllPreviewNames();
+
+    /**
+     * The stored names, thumbnails and previews among {@code names} that a file row refers to, all
+     * looked up through their indexes. Rows recorded before the stored name was kept are matched on
+     * their filename until it is filled in.
+     */
+    @Query(
+        "select coalesce(file.storedName, file.fileName), file.thumbnailName, file.previewName from File file" +
+        " where file.storedName in :names or file.thumbnailName in :names or file.previewName in :names" +
+        " or (file.storedName is null and file.fileName in :names)"
+    )
+    List<Object[]> findReferencingNames(@Param("names") Collection<String> names);
+
+    @Query("select file.uploadedBy, sum(file.fileSize) from File file where file.uploadedBy is not null group by file.uploadedBy")
+    List<Object[]> sumFileSizeByUploader();
+
+    Slice<File> findByIdGreaterThanOrderByIdAsc(Long id, Pageable pageable);
+
+    Page<File> findAllByChecksumMismatchAtIsNotNull(Pageable pageable);
+
+    @Modifying
+    @Query("update File file set file.sha256 = :sha256, file.crc32c = :crc32c where file.id = :id")
+    void updateChecksums(@Param("id") Long id, @Param("sha256") String sha256, @Param("crc32c") String crc32c);
+
+    @Modifying
+    @Query("update File file set file.checksumMismatchAt = :at where file.id = :id")
+    void updateChecksumMismatchAt(@Param("id") Long id, @Param("at") Instant at);
 }
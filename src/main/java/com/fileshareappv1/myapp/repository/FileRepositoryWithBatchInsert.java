@@ -0,0 +1,16 @@
+package com.fileshareappv1.myapp.repository;
+
+import com.fileshareappv1.myapp.domain.File;
+import java.util.List;
+
+public interface FileRepositoryWithBatchInsert {
+    /**
+     * Insert new files with one multi-row statement, instead of one statement per file: their
+     * identity ids keep Hibernate from batching the inserts itself. The files get their generated
+     * ids, but are not attached to the persistence context.
+     *
+     * @param files the new files, without ids.
+     * @return the same files, in the same order.
+     */
+    List<File> insertAll(List<File> files);
+}
@@ -0,0 +1,126 @@
+package com.fileshareappv1.myapp.repository;
+
+import com.fileshareappv1.myapp.domain.File;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import jakarta.validation.ConstraintViolation;
+import jakarta.validation.ConstraintViolationException;
+import jakarta.validation.Validator;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.time.Instant;
+import java.util.Calendar;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.TimeZone;
+import org.hibernate.Session;
+
+/**
+ * Inserts new files in bulk, with a single round-trip for up to {@value #MAX_ROWS_PER_STATEMENT}
+ * files.
+ * <p>
+ * The rows bypass the JPA lifecycle, so what it would do on persist is done here: the files are
+ * validated, and the upload time the auditing listener fills is set when missing.
+ */
+public class FileRepositoryWithBatchInsertImpl implements FileRepositoryWithBatchInsert {
+
+    static final int MAX_ROWS_PER_STATEMENT = 500;
+
+    private static final String INSERT =
+        "insert into file (file_name, file_url, mime_type, file_size, uploaded_at, thumbnail_name, preview_name," +
+        " sha256, crc32c, checksum_mismatch_at, uploaded_by, stored_name, post_id) values ";
+
+    private static final String ROW = "(?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?)";
+
+    // Instants are stored in UTC, as configured by hibernate.jdbc.time_zone
+    private static final TimeZone UTC = TimeZone.getTimeZone("UTC");
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    private final Validator validator;
+
+    public FileRepositoryWithBatchInsertImpl(Validator validator) {
+        this.validator = validator;
+    }
+
+    @Override
+    public List<File> insertAll(List<File> files) {
+        if (files.isEmpty()) {
+            return files;
+        }
+        Instant now = Instant.now();
+        for (File file : files) {
+            if (file.getId() != null) {
+                throw new IllegalArgumentException("File " + file.getId() + " is not new");
+            }
+            Set<ConstraintViolation<File>> violations = validator.validate(file);
+            if (!violations.isEmpty()) {
+                throw new ConstraintViolationException(violations);
+            }
+            if (file.getUploadedAt() == null) {
+                file.setUploadedAt(now);
+            }
+            file.fillStoredName();
+        }
+        // The rows may reference entities that are still pending in the persistence context
+        entityManager.flush();
+        entityManager
+            .unwrap(Session.class)
+            .doWork(connection -> {
+                for (int from = 0; from < files.size(); from += MAX_ROWS_PER_STATEMENT) {
+                    insert(connection, files.subList(from, Math.min(files.size(), from + MAX_ROWS_PER_STATEMENT)));
+                }
+            });
+        return files;
+    }
+
+    private static void insert(Connection connection, List<File> files) throws SQLException {
+        String sql = INSERT + String.join(", ", Collections.nCopies(files.size(), ROW));
+        try (PreparedStatement statement = connection.prepareStatement(sql, Statement.RETURN_GENERATED_KEYS)) {
+            int index = 1;
+            for (File file : files) {
+                statement.setString(index++, file.getFileName());
+                statement.setString(index++, file.getFileUrl());
+                statement.setString(index++, file.getMimeType());
+                statement.setLong(index++, file.getFileSize());
+                setInstant(statement, index++, file.getUploadedAt());
+                statement.setString(index++, file.getThumbnailName());
+                statement.setString(index++, file.getPreviewName());
+                statement.setString(index++, file.getSha256());
+                statement.setString(index++, file.getCrc32c());
+                setInstant(statement, index++, file.getChecksumMismatchAt());
+                statement.setString(index++, file.getUploadedBy());
+                statement.setString(index++, file.getStoredName());
+                if (file.getPost() != null) {
+                    statement.setLong(index++, file.getPost().getId());
+                } else {
+                    statement.setNull(index++, Types.BIGINT);
+                }
+            }
+            statement.executeUpdate();
+            try (ResultSet keys = statement.getGeneratedKeys()) {
+                for (File file : files) {
+                    if (!keys.next()) {
+                        throw new SQLException("No generated id for file " + file.getFileName());
+                    }
+                    file.setId(keys.getLong(1));
+                }
+            }
+        }
+    }
+
+    private static void setInstant(PreparedStatement statement, int index, Instant instant) throws SQLException {
+        if (instant != null) {
+            statement.setTimestamp(index, Timestamp.from(instant), Calendar.getInstance(UTC));
+        } else {
+            statement.setNull(index, Types.TIMESTAMP);
+        }
+    }
+}
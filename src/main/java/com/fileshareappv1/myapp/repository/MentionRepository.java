@@ -40,4 +40,6 @@ public interface MentionRepository extends JpaRepository<Mention, Long> {
 
     @Query("select mention from Mention mention left join fetch mention.user where mention.id =:id")
     Optional<Mention> findOneWithToOneRelationships(@Param("id") Long id);
+
+    List<Mention> findAllByPostId(Long postId);
 }
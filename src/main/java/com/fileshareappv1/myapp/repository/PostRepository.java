@@ -1,8 +1,11 @@
 package com.fileshareappv1.myapp.repository;
 
 import com.fileshareappv1.myapp.domain.Post;
+import java.time.Instant;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
+import java.util.stream.Stream;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.*;
@@ -46,4 +49,35 @@ public interface PostRepository extends PostRepositoryWithBagRelationships, JpaR
 
     @Query("select distinct post from Post post left join post.tags tag where tag.name in :tagNames")
     Page<Post> findByTags(@Param("tagNames") List<String> tagNames, Pageable pageable);
+
+    // The files of trashed posts stay referenced until the post is purged, so these read post_files directly
+    @Query(value = "select count(*) from post_files", nativeQuery = true)
+    long countAllFileNames();
+
+    @Query(value = "select file_name from post_files", nativeQuery = true)
+    Stream<String> streamAllFileNames();
+
+    @Query(value = "select distinct file_name from post_files where file_name in :names", nativeQuery = true)
+    List<String> findReferencedFileNames(@Param("names") Collection<String> names);
+
+    /**
+     * Trashed posts are left out of every other query, so they are only found by these.
+     */
+    @Query(value = "select * from post where id = :id and deleted_at is not null", nativeQuery = true)
+    Optional<Post> findTrashedById(@Param("id") Long id);
+
+    /**
+     * The posts trashed before a cutoff, oldest first, leaving out those whose purge failed until
+     * it may be retried.
+     */
+    @Query(
+        value = "select id from post where deleted_at < :cutoff and (purge_retry_at is null or purge_retry_at <= :now)" +
+        " order by deleted_at, id limit :limit",
+        nativeQuery = true
+    )
+    List<Long> findIdsTrashedBefore(@Param("cutoff") Instant cutoff, @Param("now") Instant now, @Param("limit") int limit);
+
+    @Modifying
+    @Query(value = "update post set purge_retry_at = :retryAt where id = :id and deleted_at is not null", nativeQuery = true)
+    void updatePurgeRetryAt(@Param("id") Long id, @Param("retryAt") Instant retryAt);
 }
@@ -44,5 +44,7 @@ public interface ReactionRepository extends JpaRepository<Reaction, Long> {
 
     Page<Reaction> findAllByPostId(Long postId, Pageable pageable);
 
+    List<Reaction> findAllByPostId(Long postId);
+
     boolean existsByPostIdAndUserId(Long postId, Long userId);
 }
@@ -39,4 +39,6 @@ public interface ShareRepository extends JpaRepository<Share, Long> {
     Optional<Share> findOneWithToOneRelationships(@Param("id") Long id);
 
     Page<Share> findByPostId(Long postId, Pageable pageable);
+
+    List<Share> findAllByPostId(Long postId);
 }
@@ -0,0 +1,29 @@
+package com.fileshareappv1.myapp.repository;
+
+import com.fileshareappv1.myapp.domain.StorageUsage;
+import java.util.Optional;
+import org.springframework.data.jpa.repository.*;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+/**
+ * Spring Data JPA repository for the {@link StorageUsage} entity.
+ */
+@Repository
+public interface StorageUsageRepository extends JpaRepository<StorageUsage, String> {
+    @Query("select storageUsage.usedBytes from StorageUsage storageUsage where storageUsage.login = :login")
+    Optional<Long> findUsedBytes(@Param("login") String login);
+
+    /**
+     * Add to a user's usage in a single statement, so that concurrent uploads and deletes never
+     * lose an update.
+     *
+     * @return the number of rows updated, {@code 0} if the user has no usage row yet.
+     */
+    @Modifying
+    @Query(
+        "update StorageUsage storageUsage set storageUsage.usedBytes = storageUsage.usedBytes + :delta" +
+        " where storageUsage.login = :login"
+    )
+    int addUsedBytes(@Param("login") String login, @Param("delta") long delta);
+}
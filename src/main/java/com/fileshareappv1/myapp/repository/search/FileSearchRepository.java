@@ -27,6 +27,8 @@ interface FileSearchRepositoryInternal {
 
     void index(File entity);
 
+    void indexAll(List<File> entities);
+
     void deleteFromIndexById(Long id);
 }
 
@@ -58,6 +60,13 @@ class FileSearchRepositoryInternalImpl implements FileSearchRepositoryInternal {
         repository.findById(entity.getId()).ifPresent(elasticsearchTemplate::save);
     }
 
+    @Override
+    public void indexAll(List<File> entities) {
+        if (!entities.isEmpty()) {
+            elasticsearchTemplate.save(entities);
+        }
+    }
+
     @Override
     public void deleteFromIndexById(Long id) {
         elasticsearchTemplate.delete(String.valueOf(id), File.class);
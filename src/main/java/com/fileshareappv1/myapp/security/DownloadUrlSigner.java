@@ -0,0 +1,118 @@
+package com.fileshareappv1.myapp.security;
+
+import com.fileshareappv1.myapp.config.ApplicationProperties;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.time.Clock;
+import java.time.Duration;
+import java.util.Base64;
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.util.StringUtils;
+
+/**
+ * Signs and verifies expiring download URLs.
+ * <p>
+ * A signed URL carries the stored filename, an expiry time in epoch seconds and an HMAC-SHA256 of
+ * both, so it can be checked without any session, token or database lookup. Expiry times are
+ * rounded up to the hour: the URLs handed out for a file during that hour are identical, and
+ * browsers keep hitting their cache.
+ */
+@Component
+public class DownloadUrlSigner {
+
+    private static final String ALGORITHM = "HmacSHA256";
+
+    private static final long EXPIRY_ROUNDING_SECONDS = Duration.ofHours(1).toSeconds();
+
+    /**
+     * The outcome of verifying a signed URL.
+     */
+    public enum Verification {
+        VALID,
+        EXPIRED,
+        INVALID,
+    }
+
+    private final Mac prototype;
+
+    private final Duration validity;
+
+    private final Clock clock;
+
+    @Autowired
+    public DownloadUrlSigner(
+        ApplicationProperties applicationProperties,
+        @Value("${jhipster.security.authentication.jwt.base64-secret}") String jwtKey
+    ) {
+        this(applicationProperties, jwtKey, Clock.systemUTC());
+    }
+
+    DownloadUrlSigner(ApplicationProperties applicationProperties, String jwtKey, Clock clock) {
+        ApplicationProperties.SignedUrls signedUrls = applicationProperties.getSignedUrls();
+        byte[] key = StringUtils.hasText(signedUrls.getSecret())
+            ? Base64.getDecoder().decode(signedUrls.getSecret())
+            // A key of its own, so a URL signature can never pass for a JWT signature or the reverse
+            : newMac(Base64.getDecoder().decode(jwtKey)).doFinal("signed-download-urls".getBytes(StandardCharsets.UTF_8));
+        this.prototype = newMac(key);
+        this.validity = signedUrls.getValidity();
+        this.clock = clock;
+    }
+
+    /**
+     * @return the expiry time, in epoch seconds, to sign URLs handed out now with.
+     */
+    public long expiresAt() {
+        long earliest = clock.instant().plus(validity).getEpochSecond();
+        return -Math.floorDiv(-earliest, EXPIRY_ROUNDING_SECONDS) * EXPIRY_ROUNDING_SECONDS;
+    }
+
+    /**
+     * @param filename the stored filename.
+     * @param expiresAt the expiry time, in epoch seconds.
+     * @return the URL-safe signature of the filename and expiry time.
+     */
+    public String sign(String filename, long expiresAt) {
+        byte[] message = (filename + '\n' + expiresAt).getBytes(StandardCharsets.UTF_8);
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(copyOfPrototype().doFinal(message));
+    }
+
+    /**
+     * @param filename the stored filename.
+     * @param expiresAt the expiry time, in epoch seconds.
+     * @param signature the signature from the URL, possibly {@code null}.
+     * @return whether the URL is valid, and if not why.
+     */
+    public Verification verify(String filename, long expiresAt, String signature) {
+        if (signature == null) {
+            return Verification.INVALID;
+        }
+        byte[] expected = sign(filename, expiresAt).getBytes(StandardCharsets.US_ASCII);
+        if (!MessageDigest.isEqual(expected, signature.getBytes(StandardCharsets.US_ASCII))) {
+            return Verification.INVALID;
+        }
+        return clock.instant().getEpochSecond() < expiresAt ? Verification.VALID : Verification.EXPIRED;
+    }
+
+    private Mac copyOfPrototype() {
+        try {
+            return (Mac) prototype.clone();
+        } catch (CloneNotSupportedException e) {
+            throw new IllegalStateException(ALGORITHM + " cannot be cloned", e);
+        }
+    }
+
+    private static Mac newMac(byte[] key) {
+        try {
+            Mac mac = Mac.getInstance(ALGORITHM);
+            mac.init(new SecretKeySpec(key, ALGORITHM));
+            return mac;
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException(ALGORITHM + " is not available", e);
+        }
+    }
+}
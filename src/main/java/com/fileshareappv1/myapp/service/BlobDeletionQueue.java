@@ -0,0 +1,224 @@
+package com.fileshareappv1.myapp.service;
+
+import com.fileshareappv1.myapp.config.StorageProperties;
+import com.fileshareappv1.myapp.domain.BlobDeletion;
+import com.fileshareappv1.myapp.repository.BlobDeletionRepository;
+import com.fileshareappv1.myapp.repository.FileRepository;
+import com.fileshareappv1.myapp.repository.PostRepository;
+import com.fileshareappv1.myapp.service.storage.StorageRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Objects;
+import java.util.Set;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+/**
+ * Deletes the stored files of deleted posts and files in the background, so that deleting them
+ * does not wait for the storage.
+ * <p>
+ * The stored filenames are queued as {@link BlobDeletion} rows in the transaction that deletes
+ * their post or file, so they are only picked up once it commits, and never lost by a restart.
+ * Every ten seconds the queue is worked off in a batch of {@code storage.blob-deletion-rate}
+ * deletions per second. A stored file is only deleted if no post or file row references it any
+ * more, since instant uploads and variants share stored files, together with its precompressed
+ * siblings ({@code name.gz}, {@code name.br}). Failed deletions are retried with exponential
+ * backoff and given up after {@value #MAXIMUM_ATTEMPTS} attempts, leaving the stored file to the
+ * {@link OrphanedFileCollector}.
+ * <p>
+ * Metrics: {@code storage.deletions.enqueued} and {@code storage.deletions} by {@code result}
+ * ({@code deleted}, {@code referenced}, {@code retried}, {@code abandoned}).
+ */
+@Service
+public class BlobDeletionQueue {
+
+    private static final Logger LOG = LoggerFactory.getLogger(BlobDeletionQueue.class);
+
+    private static final Duration RUN_INTERVAL = Duration.ofSeconds(10);
+
+    static final int MAXIMUM_ATTEMPTS = 10;
+
+    private static final Duration FIRST_RETRY_DELAY = Duration.ofMinutes(1);
+
+    private static final Duration MAXIMUM_RETRY_DELAY = Duration.ofHours(6);
+
+    private static final List<String> PRECOMPRESSED_SUFFIXES = List.of(".br", ".gz");
+
+    private final BlobDeletionRepository blobDeletionRepository;
+
+    private final StorageRepository storageRepository;
+
+    private final PostRepository postRepository;
+
+    private final FileRepository fileRepository;
+
+    private final TransactionTemplate transaction;
+
+    private final Clock clock;
+
+    private final int batchSize;
+
+    private final Counter enqueued;
+
+    private final MeterRegistry meterRegistry;
+
+    @Autowired
+    public BlobDeletionQueue(
+        BlobDeletionRepository blobDeletionRepository,
+        StorageRepository storageRepository,
+        PostRepository postRepository,
+        FileRepository fileRepository,
+        PlatformTransactionManager transactionManager,
+        StorageProperties storageProperties,
+        MeterRegistry meterRegistry
+    ) {
+        this(
+            blobDeletionRepository,
+            storageRepository,
+            postRepository,
+            fileRepository,
+            transactionManager,
+            storageProperties,
+            meterRegistry,
+            Clock.systemUTC()
+        );
+    }
+
+    BlobDeletionQueue(
+        BlobDeletionRepository blobDeletionRepository,
+        StorageRepository storageRepository,
+        PostRepository postRepository,
+        FileRepository fileRepository,
+        PlatformTransactionManager transactionManager,
+        StorageProperties storageProperties,
+        MeterRegistry meterRegistry,
+        Clock clock
+    ) {
+        this.blobDeletionRepository = blobDeletionRepository;
+        this.storageRepository = storageRepository;
+        this.postRepository = postRepository;
+        this.fileRepository = fileRepository;
+        this.transaction = new TransactionTemplate(transactionManager);
+        this.clock = clock;
+        this.batchSize = (int) (storageProperties.getBlobDeletionRate() * RUN_INTERVAL.toSeconds());
+        this.meterRegistry = meterRegistry;
+        this.enqueued = Counter.builder("storage.deletions.enqueued")
+            .description("Stored files queued for deletion")
+            .baseUnit("files")
+            .register(meterRegistry);
+    }
+
+    /**
+     * Queue stored files for deletion once the current transaction commits.
+     *
+     * @param storedNames the stored filenames; {@code null} entries are ignored.
+     */
+    @Transactional
+    public void enqueue(Collection<String> storedNames) {
+        Instant now = clock.instant();
+        List<BlobDeletion> deletions = storedNames
+            .stream()
+            .filter(Objects::nonNull)
+            .distinct()
+            .map(name -> new BlobDeletion().storedName(name).enqueuedAt(now).attempts(0).nextAttemptAt(now))
+            .toList();
+        if (deletions.isEmpty()) {
+            return;
+        }
+        LOG.debug("Queueing {} stored files for deletion", deletions.size());
+        blobDeletionRepository.saveAll(deletions);
+        enqueued.increment(deletions.size());
+    }
+
+    /**
+     * Delete the next batch of queued stored files that are due.
+     * <p>
+     * This is scheduled to get fired every 10 seconds.
+     */
+    @Scheduled(cron = "*/10 * * * * ?")
+    public void process() {
+        if (batchSize <= 0) {
+            return;
+        }
+        Instant now = clock.instant();
+        List<BlobDeletion> due = transaction.execute(status ->
+            blobDeletionRepository.findByNextAttemptAtLessThanEqualOrderByIdAsc(now, PageRequest.of(0, batchSize))
+        );
+        if (due == null || due.isEmpty()) {
+            return;
+        }
+
+        Set<String> referenced = findReferenced(due.stream().map(BlobDeletion::getStoredName).toList());
+        List<BlobDeletion> done = new ArrayList<>(due.size());
+        List<BlobDeletion> retried = new ArrayList<>();
+        for (BlobDeletion deletion : due) {
+            String storedName = deletion.getStoredName();
+            if (referenced.contains(storedName)) {
+                LOG.debug("Stored file {} is referenced again, keeping it", storedName);
+                count("referenced");
+                done.add(deletion);
+                continue;
+            }
+            try {
+                storageRepository.delete(storedName);
+                PRECOMPRESSED_SUFFIXES.forEach(suffix -> storageRepository.delete(storedName + suffix));
+                count("deleted");
+                done.add(deletion);
+            } catch (RuntimeException e) {
+                int attempts = deletion.getAttempts() + 1;
+                if (attempts >= MAXIMUM_ATTEMPTS) {
+                    LOG.error("Giving up deleting stored file {} after {} attempts: {}", storedName, attempts, e.getMessage());
+                    count("abandoned");
+                    done.add(deletion);
+                } else {
+                    LOG.warn("Could not delete stored file {}, retrying: {}", storedName, e.getMessage());
+                    deletion.attempts(attempts).nextAttemptAt(now.plus(retryDelay(attempts)));
+                    count("retried");
+                    retried.add(deletion);
+                }
+            }
+        }
+        transaction.executeWithoutResult(status -> {
+            blobDeletionRepository.deleteAllInBatch(done);
+            blobDeletionRepository.saveAll(retried);
+        });
+    }
+
+    static Duration retryDelay(int attempts) {
+        Duration delay = FIRST_RETRY_DELAY.multipliedBy(1L << Math.min(attempts - 1, 16));
+        return delay.compareTo(MAXIMUM_RETRY_DELAY) > 0 ? MAXIMUM_RETRY_DELAY : delay;
+    }
+
+    private Set<String> findReferenced(List<String> storedNames) {
+        Set<String> names = new HashSet<>(storedNames);
+        return transaction.execute(status -> {
+            Set<String> referenced = new HashSet<>(postRepository.findReferencedFileNames(names));
+            for (Object[] row : fileRepository.findReferencingNames(names)) {
+                for (Object name : row) {
+                    if (name != null) {
+                        referenced.add(name.toString());
+                    }
+                }
+            }
+            return referenced;
+        });
+    }
+
+    private void count(String result) {
+        meterRegistry.counter("storage.deletions", "result", result).increment();
+    }
+}
@@ -5,6 +5,7 @@ import com.fileshareappv1.myapp.repository.CommentRepository;
 import com.fileshareappv1.myapp.repository.search.CommentSearchRepository;
 import com.fileshareappv1.myapp.service.dto.CommentDTO;
 import com.fileshareappv1.myapp.service.mapper.CommentMapper;
+import java.util.List;
 import java.util.Optional;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -134,6 +135,20 @@ public class CommentService {
         commentSearchRepository.deleteFromIndexById(id);
     }
 
+    /**
+     * Delete the comments of a post being deleted.
+     * Replies are detached from their parent first, since they are deleted in the same statement.
+     *
+     * @param postId the id of the post.
+     */
+    public void deleteAllOfPost(Long postId) {
+        LOG.debug("Request to delete the Comments of Post : {}", postId);
+        List<Comment> comments = commentRepository.findAllByPostId(postId);
+        commentRepository.detachRepliesByPostId(postId);
+        commentRepository.deleteAllInBatch(comments);
+        comments.forEach(comment -> commentSearchRepository.deleteFromIndexById(comment.getId()));
+    }
+
     /**
      * Search for the comment corresponding to the query.
      *
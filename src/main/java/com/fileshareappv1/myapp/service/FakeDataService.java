@@ -83,8 +83,10 @@ public class FakeDataService {
         }
 
         try {
-            return Files.list(uploadsDir)
+            // Stored files live in ab/cd/ shard directories, or directly under the root for older uploads
+            return Files.walk(uploadsDir, 3)
                 .filter(Files::isRegularFile)
+                .filter(path -> !uploadsDir.relativize(path).toString().startsWith("."))
                 .map(Path::getFileName)
                 .map(Path::toString)
                 .filter(name -> {
@@ -137,6 +137,18 @@ public class FavoriteService {
         favoriteSearchRepository.deleteFromIndexById(id);
     }
 
+    /**
+     * Delete the favorites of a post being deleted.
+     *
+     * @param postId the id of the post.
+     */
+    public void deleteAllOfPost(Long postId) {
+        LOG.debug("Request to delete the Favorites of Post : {}", postId);
+        List<Favorite> favorites = favoriteRepository.findAllByPostId(postId);
+        favoriteRepository.deleteAllInBatch(favorites);
+        favorites.forEach(favorite -> favoriteSearchRepository.deleteFromIndexById(favorite.getId()));
+    }
+
     /**
      * Search for the favorite corresponding to the query.
      *
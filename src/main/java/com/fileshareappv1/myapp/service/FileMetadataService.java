@@ -0,0 +1,169 @@
+package com.fileshareappv1.myapp.service;
+
+import com.fileshareappv1.myapp.domain.File;
+import com.fileshareappv1.myapp.repository.FileRepository;
+import com.fileshareappv1.myapp.service.dto.FileMetadataDTO;
+import com.fileshareappv1.myapp.service.storage.StorageRepository;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import com.github.benmanes.caffeine.cache.Ticker;
+import java.io.IOException;
+import java.time.Duration;
+import java.util.Optional;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.core.io.Resource;
+import org.springframework.http.MediaType;
+import org.springframework.http.MediaTypeFactory;
+import org.springframework.stereotype.Service;
+
+/**
+ * In-memory cache of the {@link FileMetadataDTO} of stored files, so serving a download, or
+ * answering a conditional request for it, does not need a database query or a file system probe.
+ * <p>
+ * Metadata comes from the {@link File} row of the stored file. Stored files without a row, such
+ * as image variants, are probed once on disk instead. Names that do not exist are remembered for
+ * a short while too, since optional files such as precompressed siblings are looked up on every
+ * download.
+ * <p>
+ * Entries are evicted on the node that deletes or changes a file, and expire after a few minutes
+ * everywhere else, so nodes sharing a storage backend do not serve stale metadata for long.
+ */
+@Service
+public class FileMetadataService {
+
+    private static final Logger LOG = LoggerFactory.getLogger(FileMetadataService.class);
+
+    private static final int MAXIMUM_SIZE = 100_000;
+
+    static final Duration PRESENT_TTL = Duration.ofMinutes(5);
+
+    private static final Duration MISSING_TTL = Duration.ofMinutes(1);
+
+    private final FileRepository fileRepository;
+
+    private final StorageRepository storageRepository;
+
+    private final Cache<String, Optional<FileMetadataDTO>> cache;
+
+    @Autowired
+    public FileMetadataService(FileRepository fileRepository, StorageRepository storageRepository) {
+        this(fileRepository, storageRepository, Ticker.systemTicker());
+    }
+
+    FileMetadataService(FileRepository fileRepository, StorageRepository storageRepository, Ticker ticker) {
+        this.fileRepository = fileRepository;
+        this.storageRepository = storageRepository;
+        this.cache = Caffeine.newBuilder()
+            .maximumSize(MAXIMUM_SIZE)
+            .ticker(ticker)
+            .expireAfter(
+                new Expiry<String, Optional<FileMetadataDTO>>() {
+                    @Override
+                    public long expireAfterCreate(String key, Optional<FileMetadataDTO> value, long currentTime) {
+                        return (value.isPresent() ? PRESENT_TTL : MISSING_TTL).toNanos();
+                    }
+
+                    @Override
+                    public long expireAfterUpdate(String key, Optional<FileMetadataDTO> value, long currentTime, long currentDuration) {
+                        return expireAfterCreate(key, value, currentTime);
+                    }
+
+                    @Override
+                    public long expireAfterRead(String key, Optional<FileMetadataDTO> value, long currentTime, long currentDuration) {
+                        return currentDuration;
+                    }
+                }
+            )
+            .build();
+    }
+
+    /**
+     * Get the metadata of a stored file.
+     *
+     * @param storedName the stored filename.
+     * @return the metadata.
+     * @throws RuntimeException if there is no such stored file.
+     */
+    public FileMetadataDTO get(String storedName) {
+        return find(storedName).orElseThrow(() -> new RuntimeException("Could not read file: " + storedName));
+    }
+
+    /**
+     * Get the metadata of a stored file that may not exist.
+     *
+     * @param storedName the stored filename.
+     * @return the metadata, or empty if there is no such stored file.
+     */
+    public Optional<FileMetadataDTO> find(String storedName) {
+        return cache.get(storedName, this::load);
+    }
+
+    /**
+     * Drop the cached metadata of a stored file, after it was deleted or its variants changed.
+     *
+     * @param storedName the stored filename.
+     */
+    public void evict(String storedName) {
+        cache.invalidate(storedName);
+    }
+
+    /**
+     * Stored filename of a file: the last segment of its download URL, since {@code fileName}
+     * holds the client-side name for files uploaded through {@code POST /api/files/upload}.
+     *
+     * @param file the file.
+     * @return the stored filename.
+     */
+    public static String storedNameOf(File file) {
+        String url = file.getFileUrl();
+        return url == null ? file.getFileName() : url.substring(url.lastIndexOf('/') + 1);
+    }
+
+    private Optional<FileMetadataDTO> load(String storedName) {
+        Optional<File> row = fileRepository.findFirstByStoredNameOrderByIdAsc(storedName);
+        if (row.isPresent() && row.get().getFileSize() != null && row.get().getUploadedAt() != null) {
+            File file = row.get();
+            long lastModified = file.getUploadedAt().toEpochMilli();
+            String contentType = Optional.ofNullable(file.getMimeType()).orElseGet(() -> probeContentType(storedName));
+            String etag = etag(Long.toHexString(file.getId()), file.getFileSize(), lastModified);
+            return Optional.of(
+                new FileMetadataDTO(
+                    storedName,
+                    contentType,
+                    file.getFileSize(),
+                    lastModified,
+                    etag,
+                    file.getThumbnailName(),
+                    file.getPreviewName()
+                )
+            );
+        }
+
+        LOG.debug("No File row for {}, reading its metadata from storage", storedName);
+        Resource resource;
+        try {
+            resource = storageRepository.loadAsResource(storedName);
+        } catch (RuntimeException e) {
+            return Optional.empty();
+        }
+        try {
+            long size = resource.contentLength();
+            long lastModified = resource.lastModified();
+            String etag = etag("s", size, lastModified);
+            return Optional.of(new FileMetadataDTO(storedName, probeContentType(storedName), size, lastModified, etag, null, null));
+        } catch (IOException e) {
+            throw new RuntimeException("Could not read file: " + storedName, e);
+        }
+    }
+
+    private static String etag(String prefix, long size, long lastModified) {
+        return "\"" + prefix + "-" + Long.toHexString(size) + "-" + Long.toHexString(lastModified) + "\"";
+    }
+
+    private static String probeContentType(String storedName) {
+        return MediaTypeFactory.getMediaType(storedName).orElse(MediaType.APPLICATION_OCTET_STREAM).toString();
+    }
+}
@@ -1,15 +1,25 @@
 package com.fileshareappv1.myapp.service;
 
 import com.fileshareappv1.myapp.domain.File;
+import com.fileshareappv1.myapp.management.TransferMetersService;
 import com.fileshareappv1.myapp.repository.FileRepository;
 import com.fileshareappv1.myapp.repository.search.FileSearchRepository;
+import com.fileshareappv1.myapp.security.SecurityUtils;
 import com.fileshareappv1.myapp.service.dto.FileDTO;
 import com.fileshareappv1.myapp.service.mapper.FileMapper;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.LinkedHashSet;
+import java.util.List;
 import java.util.Optional;
+import java.util.Set;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
@@ -22,20 +32,48 @@ public class FileService {
 
     private static final Logger LOG = LoggerFactory.getLogger(FileService.class);
 
+    private static final int STORED_NAME_BATCH_SIZE = 1000;
+
     private final FileRepository fileRepository;
 
     private final FileMapper fileMapper;
 
     private final FileSearchRepository fileSearchRepository;
 
-    public FileService(FileRepository fileRepository, FileMapper fileMapper, FileSearchRepository fileSearchRepository) {
+    private final ImageVariantService imageVariantService;
+
+    private final FileMetadataService fileMetadataService;
+
+    private final StorageQuotaService storageQuotaService;
+
+    private final TransferMetersService transferMetersService;
+
+    private final BlobDeletionQueue blobDeletionQueue;
+
+    private volatile boolean storedNamesFilled;
+
+    public FileService(
+        FileRepository fileRepository,
+        FileMapper fileMapper,
+        FileSearchRepository fileSearchRepository,
+        ImageVariantService imageVariantService,
+        FileMetadataService fileMetadataService,
+        StorageQuotaService storageQuotaService,
+        TransferMetersService transferMetersService,
+        BlobDeletionQueue blobDeletionQueue
+    ) {
         this.fileRepository = fileRepository;
         this.fileMapper = fileMapper;
         this.fileSearchRepository = fileSearchRepository;
+        this.imageVariantService = imageVariantService;
+        this.fileMetadataService = fileMetadataService;
+        this.storageQuotaService = storageQuotaService;
+        this.transferMetersService = transferMetersService;
+        this.blobDeletionQueue = blobDeletionQueue;
     }
 
     /**
-     * Save a file.
+     * Save a new file, counted against the storage quota of the current user.
      *
      * @param fileDTO the entity to save.
      * @return the persisted entity.
@@ -43,11 +81,39 @@ public class FileService {
     public FileDTO save(FileDTO fileDTO) {
         LOG.debug("Request to save File : {}", fileDTO);
         File file = fileMapper.toEntity(fileDTO);
+        file.setUploadedBy(SecurityUtils.getCurrentUserLogin().orElse(null));
         file = fileRepository.save(file);
+        storageQuotaService.charge(List.of(file));
         fileSearchRepository.index(file);
+        imageVariantService.generateAfterCommit(List.of(file));
         return fileMapper.toDto(file);
     }
 
+    /**
+     * Save several new files at once, inserting them with a single multi-row statement and indexing
+     * them with a single bulk request. The time spent in the database and in the index is metered as
+     * the {@code db} and {@code index} stages of the upload.
+     *
+     * @param fileDTOs the entities to save, without ids.
+     * @return the persisted entities, in the same order.
+     */
+    public List<FileDTO> saveAll(List<FileDTO> fileDTOs) {
+        LOG.debug("Request to save {} Files", fileDTOs.size());
+        List<File> entities = fileMapper.toEntity(fileDTOs);
+        String uploadedBy = SecurityUtils.getCurrentUserLogin().orElse(null);
+        entities.forEach(file -> file.setUploadedBy(uploadedBy));
+        List<File> files = transferMetersService
+            .stage(TransferMetersService.STAGE_DB)
+            .record(() -> {
+                List<File> saved = fileRepository.insertAll(entities);
+                storageQuotaService.charge(saved);
+                return saved;
+            });
+        transferMetersService.stage(TransferMetersService.STAGE_INDEX).record(() -> fileSearchRepository.indexAll(files));
+        imageVariantService.generateAfterCommit(files);
+        return fileMapper.toDto(files);
+    }
+
     /**
      * Update a file.
      *
@@ -57,6 +123,8 @@ public class FileService {
     public FileDTO update(FileDTO fileDTO) {
         LOG.debug("Request to update File : {}", fileDTO);
         File file = fileMapper.toEntity(fileDTO);
+        // The quota a file counts against is not for clients to change
+        file.setUploadedBy(fileRepository.findById(fileDTO.getId()).map(File::getUploadedBy).orElse(null));
         file = fileRepository.save(file);
         fileSearchRepository.index(file);
         return fileMapper.toDto(file);
@@ -74,7 +142,9 @@ public class FileService {
         return fileRepository
             .findById(fileDTO.getId())
             .map(existingFile -> {
+                String uploadedBy = existingFile.getUploadedBy();
                 fileMapper.partialUpdate(existingFile, fileDTO);
+                existingFile.setUploadedBy(uploadedBy);
 
                 return existingFile;
             })
@@ -98,6 +168,18 @@ public class FileService {
         return fileRepository.findAll(pageable).map(fileMapper::toDto);
     }
 
+    /**
+     * Get the files whose stored bytes the integrity scrubber found missing or corrupted.
+     *
+     * @param pageable the pagination information.
+     * @return the list of entities.
+     */
+    @Transactional(readOnly = true)
+    public Page<FileDTO> findChecksumMismatches(Pageable pageable) {
+        LOG.debug("Request to get Files failing their checksum");
+        return fileRepository.findAllByChecksumMismatchAtIsNotNull(pageable).map(fileMapper::toDto);
+    }
+
     /**
      * Get one file by id.
      *
@@ -111,16 +193,84 @@ public class FileService {
     }
 
     /**
-     * Delete the file by id.
+     * Delete the file by id. Its stored file and image variants are deleted in the background once
+     * the deletion commits, unless something else still references them.
      *
      * @param id the id of the entity.
      */
     public void delete(Long id) {
         LOG.debug("Request to delete File : {}", id);
+        fileRepository
+            .findById(id)
+            .ifPresent(file -> {
+                String storedName = FileMetadataService.storedNameOf(file);
+                fileMetadataService.evict(storedName);
+                storageQuotaService.release(List.of(file));
+                if (isShared(file)) {
+                    // Its content was reused by an instant upload, which also shares the variants
+                    return;
+                }
+                blobDeletionQueue.enqueue(Arrays.asList(storedName, file.getThumbnailName(), file.getPreviewName()));
+            });
         fileRepository.deleteById(id);
         fileSearchRepository.deleteFromIndexById(id);
     }
 
+    /**
+     * Delete the file rows of a post being deleted, releasing their quota. Their stored files and
+     * image variants, and the post's stored files without a row, are deleted in the background once
+     * the deletion commits, unless an instant upload still shares them.
+     *
+     * @param postId the id of the post.
+     * @param storedNames the stored filenames of the post.
+     */
+    public void deleteAllOfPost(Long postId, Collection<String> storedNames) {
+        LOG.debug("Request to delete the Files of Post : {}", postId);
+        List<File> files = fileRepository.findAllByPostIdOrFileNameIn(postId, storedNames);
+        Set<String> deletions = new LinkedHashSet<>(storedNames);
+        storageQuotaService.release(files);
+        fileRepository.deleteAllInBatch(files);
+        for (File file : files) {
+            String storedName = FileMetadataService.storedNameOf(file);
+            fileMetadataService.evict(storedName);
+            fileSearchRepository.deleteFromIndexById(file.getId());
+            if (isShared(file)) {
+                deletions.remove(storedName);
+                continue;
+            }
+            deletions.addAll(Arrays.asList(storedName, file.getThumbnailName(), file.getPreviewName()));
+        }
+        blobDeletionQueue.enqueue(deletions);
+    }
+
+    /**
+     * Fill the stored filename of the rows recorded before it was kept, so metadata and variants are
+     * found for them too.
+     * <p>
+     * This is scheduled to get fired every minute, and stops once every row has it.
+     */
+    @Scheduled(cron = "0 * * * * ?")
+    public void fillStoredNames() {
+        if (storedNamesFilled) {
+            return;
+        }
+        Slice<File> files = fileRepository.findByStoredNameIsNull(PageRequest.of(0, STORED_NAME_BATCH_SIZE));
+        files.forEach(File::fillStoredName);
+        if (!files.hasNext()) {
+            storedNamesFilled = true;
+        }
+        LOG.debug("Filled the stored filename of {} Files", files.getNumberOfElements());
+    }
+
+    /**
+     * Whether another file row shares the stored content of a file, as instant uploads do.
+     */
+    private boolean isShared(File file) {
+        return (
+            file.getSha256() != null && fileRepository.existsBySha256AndFileUrlAndIdNot(file.getSha256(), file.getFileUrl(), file.getId())
+        );
+    }
+
     /**
      * Search for the file corresponding to the query.
      *
@@ -0,0 +1,262 @@
+package com.fileshareappv1.myapp.service;
+
+import com.fileshareappv1.myapp.domain.File;
+import com.fileshareappv1.myapp.repository.FileRepository;
+import com.fileshareappv1.myapp.service.dto.FileMetadataDTO;
+import com.fileshareappv1.myapp.service.storage.StorageRepository;
+import jakarta.annotation.PreDestroy;
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Locale;
+import java.util.Optional;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import javax.imageio.IIOImage;
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReadParam;
+import javax.imageio.ImageReader;
+import javax.imageio.ImageWriteParam;
+import javax.imageio.ImageWriter;
+import javax.imageio.stream.ImageInputStream;
+import javax.imageio.stream.MemoryCacheImageOutputStream;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+/**
+ * Generates downscaled variants (thumbnail and preview) of uploaded images in the background,
+ * and records them on the {@link File} entity.
+ * <p>
+ * Images are decoded with source subsampling, so a large original is never decoded at full
+ * resolution: memory use depends on the variant size, not on the size of the upload. Until the
+ * variants exist, or if the queue was full when the image was uploaded, the original is served
+ * instead.
+ */
+@Service
+public class ImageVariantService {
+
+    private static final Logger LOG = LoggerFactory.getLogger(ImageVariantService.class);
+
+    private static final int QUEUE_CAPACITY = 1000;
+
+    private static final float JPEG_QUALITY = 0.85f;
+
+    /**
+     * Downscaled variants of an image, each fitting within a square box.
+     */
+    public enum Variant {
+        THUMB("thumb", 256),
+        PREVIEW("preview", 1024);
+
+        private final String parameter;
+
+        private final int box;
+
+        Variant(String parameter, int box) {
+            this.parameter = parameter;
+            this.box = box;
+        }
+
+        public String getParameter() {
+            return parameter;
+        }
+
+        public int getBox() {
+            return box;
+        }
+
+        public static Optional<Variant> fromParameter(String parameter) {
+            return Arrays.stream(values()).filter(variant -> variant.parameter.equalsIgnoreCase(parameter)).findFirst();
+        }
+    }
+
+    private final FileRepository fileRepository;
+
+    private final StorageRepository storageRepository;
+
+    private final FileMetadataService fileMetadataService;
+
+    private final ThreadPoolExecutor executor;
+
+    public ImageVariantService(
+        FileRepository fileRepository,
+        StorageRepository storageRepository,
+        FileMetadataService fileMetadataService
+    ) {
+        this.fileRepository = fileRepository;
+        this.storageRepository = storageRepository;
+        this.fileMetadataService = fileMetadataService;
+        int threads = Math.max(1, Runtime.getRuntime().availableProcessors() / 2);
+        this.executor = new ThreadPoolExecutor(
+            threads,
+            threads,
+            60,
+            TimeUnit.SECONDS,
+            new ArrayBlockingQueue<>(QUEUE_CAPACITY),
+            new CustomizableThreadFactory("image-variants-"),
+            (task, pool) -> LOG.warn("Image variant queue is full, originals will be served instead")
+        );
+        this.executor.allowCoreThreadTimeOut(true);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdown();
+    }
+
+    /**
+     * Queue variant generation for the image files among {@code files} that have none yet, once the
+     * current transaction commits.
+     *
+     * @param files the saved files.
+     */
+    public void generateAfterCommit(List<File> files) {
+        // Files sharing the stored content of an earlier upload share its variants too
+        List<File> images = files.stream().filter(file -> isImage(file) && file.getThumbnailName() == null).toList();
+        if (images.isEmpty()) {
+            return;
+        }
+        Runnable submit = () ->
+            images.forEach(file -> executor.execute(() -> generate(file.getId(), FileMetadataService.storedNameOf(file))));
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(
+                new TransactionSynchronization() {
+                    @Override
+                    public void afterCommit() {
+                        submit.run();
+                    }
+                }
+            );
+        } else {
+            submit.run();
+        }
+    }
+
+    /**
+     * Stored filename of a variant of the given stored file, if it was generated already.
+     *
+     * @param storedName the stored filename of the original.
+     * @param variant the requested variant.
+     * @return the stored filename of the variant.
+     */
+    public Optional<String> findVariant(String storedName, Variant variant) {
+        FileMetadataDTO metadata = fileMetadataService.get(storedName);
+        return Optional.ofNullable(variant == Variant.THUMB ? metadata.getThumbnailName() : metadata.getPreviewName());
+    }
+
+    /**
+     * Generate and record all variants of one stored image.
+     *
+     * @param fileId the id of the {@link File}.
+     * @param storedName the stored filename of the original.
+     */
+    void generate(Long fileId, String storedName) {
+        try {
+            BufferedImage preview;
+            try (InputStream original = storageRepository.openStream(storedName)) {
+                preview = decode(original, Variant.PREVIEW.getBox());
+            }
+            if (preview == null) {
+                LOG.debug("No image reader for {}, skipping variants", storedName);
+                return;
+            }
+            String previewName = store(scale(preview, Variant.PREVIEW.getBox()), storedName);
+            String thumbnailName = store(scale(preview, Variant.THUMB.getBox()), storedName);
+
+            Optional<File> file = fileRepository.findById(fileId);
+            if (file.isEmpty()) {
+                storageRepository.delete(previewName);
+                storageRepository.delete(thumbnailName);
+                return;
+            }
+            file.get().setPreviewName(previewName);
+            file.get().setThumbnailName(thumbnailName);
+            fileRepository.save(file.get());
+            fileMetadataService.evict(storedName);
+            LOG.debug("Generated variants of {}: {}, {}", storedName, thumbnailName, previewName);
+        } catch (IOException | RuntimeException e) {
+            LOG.warn("Could not generate image variants of {}: {}", storedName, e.getMessage());
+        }
+    }
+
+    /**
+     * Decode an image subsampled to the coarsest resolution that still covers {@code box}.
+     *
+     * @return the decoded image, or {@code null} if the format is not supported.
+     */
+    private static BufferedImage decode(InputStream in, int box) throws IOException {
+        try (ImageInputStream input = ImageIO.createImageInputStream(in)) {
+            if (input == null) {
+                return null;
+            }
+            Iterator<ImageReader> readers = ImageIO.getImageReaders(input);
+            if (!readers.hasNext()) {
+                return null;
+            }
+            ImageReader reader = readers.next();
+            try {
+                reader.setInput(input, true, true);
+                int width = reader.getWidth(0);
+                int height = reader.getHeight(0);
+                int step = Math.max(1, Math.min(width / box, height / box));
+                ImageReadParam param = reader.getDefaultReadParam();
+                param.setSourceSubsampling(step, step, 0, 0);
+                return reader.read(0, param);
+            } finally {
+                reader.dispose();
+            }
+        }
+    }
+
+    /**
+     * Scale an image down to fit within {@code box}, flattening transparency onto white.
+     */
+    private static BufferedImage scale(BufferedImage source, int box) {
+        double ratio = Math.min(1.0, Math.min((double) box / source.getWidth(), (double) box / source.getHeight()));
+        int width = Math.max(1, (int) Math.round(source.getWidth() * ratio));
+        int height = Math.max(1, (int) Math.round(source.getHeight() * ratio));
+        BufferedImage target = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+        Graphics2D graphics = target.createGraphics();
+        try {
+            graphics.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+            graphics.setRenderingHint(RenderingHints.KEY_RENDERING, RenderingHints.VALUE_RENDER_QUALITY);
+            graphics.drawImage(source, 0, 0, width, height, Color.WHITE, null);
+        } finally {
+            graphics.dispose();
+        }
+        return target;
+    }
+
+    private String store(BufferedImage image, String storedName) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        ImageWriter writer = ImageIO.getImageWritersByFormatName("jpeg").next();
+        try (MemoryCacheImageOutputStream output = new MemoryCacheImageOutputStream(bytes)) {
+            ImageWriteParam param = writer.getDefaultWriteParam();
+            param.setCompressionMode(ImageWriteParam.MODE_EXPLICIT);
+            param.setCompressionQuality(JPEG_QUALITY);
+            writer.setOutput(output);
+            writer.write(null, new IIOImage(image, null, null), param);
+        } finally {
+            writer.dispose();
+        }
+        return storageRepository.store(new ByteArrayInputStream(bytes.toByteArray()), storedName + ".jpg").getFilename();
+    }
+
+    private static boolean isImage(File file) {
+        String mimeType = file.getMimeType();
+        return mimeType != null && mimeType.toLowerCase(Locale.ROOT).startsWith("image/") && !mimeType.contains("svg");
+    }
+}
@@ -0,0 +1,114 @@
+package com.fileshareappv1.myapp.service;
+
+import com.fileshareappv1.myapp.domain.File;
+import com.fileshareappv1.myapp.repository.FileRepository;
+import com.fileshareappv1.myapp.service.dto.FileDTO;
+import com.fileshareappv1.myapp.service.dto.InstantUploadDTO;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import java.time.Instant;
+import java.util.List;
+import java.util.Optional;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+/**
+ * Service for "instant" uploads: a client that announces the SHA-256 and size of a file gets it
+ * recorded without sending it, when the same content is stored already.
+ * <p>
+ * The new {@link File} shares the stored file, and its image variants, of the earliest upload with
+ * that content that still verifies, through the {@code sha256} index of the file table. It counts
+ * against the quota of the current user like any upload, and can only be attached to a post of
+ * theirs. As with any deduplication by hash, knowing the hash of some content is taken as having it.
+ * Content flagged by the integrity scrubber is never reused.
+ * <p>
+ * Metrics: {@code storage.instant.uploads} by {@code result} ({@code hit}, {@code miss}) and
+ * {@code storage.instant.uploads.bytes}, the upload bytes saved.
+ */
+@Service
+@Transactional
+public class InstantUploadService {
+
+    private static final Logger LOG = LoggerFactory.getLogger(InstantUploadService.class);
+
+    private final FileRepository fileRepository;
+
+    private final FileService fileService;
+
+    private final PostService postService;
+
+    private final FileMetadataService fileMetadataService;
+
+    private final StorageQuotaService storageQuotaService;
+
+    private final MeterRegistry meterRegistry;
+
+    private final Counter savedBytes;
+
+    public InstantUploadService(
+        FileRepository fileRepository,
+        FileService fileService,
+        PostService postService,
+        FileMetadataService fileMetadataService,
+        StorageQuotaService storageQuotaService,
+        MeterRegistry meterRegistry
+    ) {
+        this.fileRepository = fileRepository;
+        this.fileService = fileService;
+        this.postService = postService;
+        this.fileMetadataService = fileMetadataService;
+        this.storageQuotaService = storageQuotaService;
+        this.meterRegistry = meterRegistry;
+        this.savedBytes = Counter.builder("storage.instant.uploads.bytes")
+            .description("Bytes clients did not have to upload since the content was stored already")
+            .baseUnit("bytes")
+            .register(meterRegistry);
+    }
+
+    /**
+     * Record a file from content that is stored already.
+     *
+     * @param request the SHA-256 and size of the content, and the post to attach it to, if any.
+     * @return the new file, or empty if the content is unknown and has to be uploaded.
+     * @throws StorageQuotaExceededException if the file would take the user over their quota.
+     * @throws org.springframework.security.access.AccessDeniedException if the post belongs to another user.
+     */
+    public Optional<FileDTO> upload(InstantUploadDTO request) {
+        LOG.debug("Request to upload known content : {}", request);
+        if (request.getPostId() != null) {
+            postService.checkOwnedByCurrentUser(request.getPostId());
+        }
+        Optional<File> known = fileRepository
+            .findFirstBySha256AndFileSizeAndChecksumMismatchAtIsNullOrderByIdAsc(request.getSha256(), request.getSize())
+            .filter(file -> fileMetadataService.find(FileMetadataService.storedNameOf(file)).isPresent());
+        if (known.isEmpty()) {
+            meterRegistry.counter("storage.instant.uploads", "result", "miss").increment();
+            return Optional.empty();
+        }
+        storageQuotaService.checkAvailable(request.getSize());
+
+        File original = known.orElseThrow();
+        String storedName = FileMetadataService.storedNameOf(original);
+        FileDTO dto = new FileDTO();
+        dto.setFileName(storedName);
+        dto.setMimeType(request.getContentType() != null ? request.getContentType() : original.getMimeType());
+        dto.setFileSize(original.getFileSize());
+        dto.setSha256(original.getSha256());
+        dto.setCrc32c(original.getCrc32c());
+        dto.setThumbnailName(original.getThumbnailName());
+        dto.setPreviewName(original.getPreviewName());
+        dto.setUploadedAt(Instant.now());
+        dto.setFileUrl(original.getFileUrl());
+        FileDTO result = fileService.save(dto);
+
+        if (request.getPostId() != null) {
+            postService.addFiles(request.getPostId(), List.of(storedName));
+        }
+        meterRegistry.counter("storage.instant.uploads", "result", "hit").increment();
+        savedBytes.increment(original.getFileSize());
+        LOG.debug("Recorded File {} from the stored content of File {}", result.getId(), original.getId());
+        return Optional.of(result);
+    }
+}
@@ -5,6 +5,7 @@ import com.fileshareappv1.myapp.repository.MentionRepository;
 import com.fileshareappv1.myapp.repository.search.MentionSearchRepository;
 import com.fileshareappv1.myapp.service.dto.MentionDTO;
 import com.fileshareappv1.myapp.service.mapper.MentionMapper;
+import java.util.List;
 import java.util.Optional;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -134,6 +135,18 @@ public class MentionService {
         mentionSearchRepository.deleteFromIndexById(id);
     }
 
+    /**
+     * Delete the mentions of a post being deleted.
+     *
+     * @param postId the id of the post.
+     */
+    public void deleteAllOfPost(Long postId) {
+        LOG.debug("Request to delete the Mentions of Post : {}", postId);
+        List<Mention> mentions = mentionRepository.findAllByPostId(postId);
+        mentionRepository.deleteAllInBatch(mentions);
+        mentions.forEach(mention -> mentionSearchRepository.deleteFromIndexById(mention.getId()));
+    }
+
     /**
      * Search for the mention corresponding to the query.
      *
@@ -0,0 +1,266 @@
+package com.fileshareappv1.myapp.service;
+
+import com.fileshareappv1.myapp.config.StorageProperties;
+import com.fileshareappv1.myapp.repository.FileRepository;
+import com.fileshareappv1.myapp.repository.PostRepository;
+import com.fileshareappv1.myapp.service.storage.BloomFilter;
+import com.fileshareappv1.myapp.service.storage.StorageRepository;
+import com.fileshareappv1.myapp.service.storage.StoredObject;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Stream;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+/**
+ * Deletes stored files that nothing references any more: uploads that never reached a post, and
+ * files stored by upload transactions that rolled back.
+ * <p>
+ * Each run examines one batch of stored files, continuing from a cursor that is persisted under
+ * the storage location, so a pass over the whole storage is spread over many runs and survives
+ * restarts. At the start of a pass the names referenced by {@code post_files} and the {@code file}
+ * table are loaded into a {@link BloomFilter}; files it rules out, and that are older than the
+ * grace period, are confirmed unreferenced with one query per batch before they are deleted.
+ * <p>
+ * Metrics: {@code storage.orphans.scanned}, {@code storage.orphans.reclaimed} (files) and
+ * {@code storage.orphans.reclaimed.bytes}.
+ */
+@Service
+public class OrphanedFileCollector {
+
+    private static final Logger LOG = LoggerFactory.getLogger(OrphanedFileCollector.class);
+
+    static final String CURSOR_FILE = ".orphan-gc-cursor";
+
+    private static final Duration LIVE_NAMES_MAX_AGE = Duration.ofHours(1);
+
+    private static final double FALSE_POSITIVE_RATE = 0.01;
+
+    private static final List<String> PRECOMPRESSED_SUFFIXES = List.of(".br", ".gz");
+
+    private final StorageRepository storageRepository;
+
+    private final PostRepository postRepository;
+
+    private final FileRepository fileRepository;
+
+    private final TransactionTemplate readOnlyTransaction;
+
+    private final Clock clock;
+
+    private final boolean enabled;
+
+    private final Duration gracePeriod;
+
+    private final int batchSize;
+
+    private final Path cursorFile;
+
+    private final Counter scannedFiles;
+
+    private final Counter reclaimedFiles;
+
+    private final Counter reclaimedBytes;
+
+    private String cursor;
+
+    private BloomFilter liveNames;
+
+    private Instant liveNamesBuiltAt;
+
+    private long passReclaimedFiles;
+
+    @Autowired
+    public OrphanedFileCollector(
+        StorageRepository storageRepository,
+        PostRepository postRepository,
+        FileRepository fileRepository,
+        PlatformTransactionManager transactionManager,
+        StorageProperties storageProperties,
+        MeterRegistry meterRegistry
+    ) {
+        this(
+            storageRepository,
+            postRepository,
+            fileRepository,
+            transactionManager,
+            storageProperties,
+            meterRegistry,
+            Clock.systemUTC()
+        );
+    }
+
+    OrphanedFileCollector(
+        StorageRepository storageRepository,
+        PostRepository postRepository,
+        FileRepository fileRepository,
+        PlatformTransactionManager transactionManager,
+        StorageProperties storageProperties,
+        MeterRegistry meterRegistry,
+        Clock clock
+    ) {
+        this.storageRepository = storageRepository;
+        this.postRepository = postRepository;
+        this.fileRepository = fileRepository;
+        this.readOnlyTransaction = new TransactionTemplate(transactionManager);
+        this.readOnlyTransaction.setReadOnly(true);
+        this.clock = clock;
+        this.enabled = storageProperties.isOrphanCollectionEnabled();
+        this.gracePeriod = storageProperties.getOrphanGracePeriod();
+        this.batchSize = storageProperties.getOrphanScanBatchSize();
+        this.cursorFile = storageProperties.getLocation().resolve(CURSOR_FILE);
+        this.cursor = readCursor();
+        this.scannedFiles = Counter.builder("storage.orphans.scanned")
+            .description("Stored files examined by the orphan collector")
+            .baseUnit("files")
+            .register(meterRegistry);
+        this.reclaimedFiles = Counter.builder("storage.orphans.reclaimed")
+            .description("Unreferenced stored files deleted by the orphan collector")
+            .baseUnit("files")
+            .register(meterRegistry);
+        this.reclaimedBytes = Counter.builder("storage.orphans.reclaimed.bytes")
+            .description("Bytes of storage freed by the orphan collector")
+            .baseUnit("bytes")
+            .register(meterRegistry);
+    }
+
+    /**
+     * Examine the next batch of stored files and delete the unreferenced ones.
+     */
+    @Scheduled(cron = "0 */5 * * * ?")
+    public void collect() {
+        if (!enabled) {
+            return;
+        }
+        Instant now = clock.instant();
+        if (cursor == null || liveNames == null || liveNamesBuiltAt.isBefore(now.minus(LIVE_NAMES_MAX_AGE))) {
+            liveNames = loadLiveNames();
+            liveNamesBuiltAt = now;
+        }
+
+        List<StoredObject> batch = storageRepository.list(cursor, batchSize);
+        scannedFiles.increment(batch.size());
+        Instant cutoff = now.minus(gracePeriod);
+        List<StoredObject> candidates = batch
+            .stream()
+            .filter(object -> object.getLastModified().isBefore(cutoff) && !isLive(object.getFilename()))
+            .toList();
+        if (!candidates.isEmpty()) {
+            Set<String> referenced = findReferenced(candidates);
+            for (StoredObject orphan : candidates) {
+                if (referenced.contains(orphan.getFilename()) || referenced.contains(baseName(orphan.getFilename()))) {
+                    continue;
+                }
+                LOG.debug("Deleting unreferenced stored file {} ({} bytes)", orphan.getFilename(), orphan.getSize());
+                storageRepository.delete(orphan.getFilename());
+                reclaimedFiles.increment();
+                reclaimedBytes.increment(orphan.getSize());
+                passReclaimedFiles++;
+            }
+        }
+
+        if (batch.size() < batchSize) {
+            LOG.info("Orphan collection pass complete, {} unreferenced stored files deleted", passReclaimedFiles);
+            passReclaimedFiles = 0;
+            cursor = null;
+        } else {
+            cursor = batch.get(batch.size() - 1).getKey();
+        }
+        writeCursor();
+    }
+
+    private BloomFilter loadLiveNames() {
+        return readOnlyTransaction.execute(status -> {
+            long expected = postRepository.countAllFileNames() + 3 * fileRepository.count();
+            BloomFilter filter = new BloomFilter(expected, FALSE_POSITIVE_RATE);
+            try (Stream<String> names = postRepository.streamAllFileNames()) {
+                names.forEach(filter::add);
+            }
+            try (Stream<String> urls = fileRepository.streamAllFileUrls()) {
+                urls.forEach(url -> filter.add(url.substring(url.lastIndexOf('/') + 1)));
+            }
+            try (Stream<String> names = fileRepository.streamAllThumbnailNames()) {
+                names.forEach(filter::add);
+            }
+            try (Stream<String> names = fileRepository.streamAllPreviewNames()) {
+                names.forEach(filter::add);
+            }
+            LOG.debug("Loaded about {} referenced stored filenames", expected);
+            return filter;
+        });
+    }
+
+    /**
+     * Precompressed siblings ({@code name.gz}, {@code name.br}) live as long as the file they belong to.
+     */
+    private boolean isLive(String filename) {
+        String baseName = baseName(filename);
+        return liveNames.mightContain(filename) || (!baseName.equals(filename) && liveNames.mightContain(baseName));
+    }
+
+    private Set<String> findReferenced(List<StoredObject> candidates) {
+        Set<String> names = new HashSet<>();
+        candidates.forEach(candidate -> {
+            names.add(candidate.getFilename());
+            names.add(baseName(candidate.getFilename()));
+        });
+        return readOnlyTransaction.execute(status -> {
+            Set<String> referenced = new HashSet<>(postRepository.findReferencedFileNames(names));
+            for (Object[] row : fileRepository.findReferencingNames(names)) {
+                for (Object name : row) {
+                    if (name != null) {
+                        referenced.add(name.toString());
+                    }
+                }
+            }
+            return referenced;
+        });
+    }
+
+    private static String baseName(String filename) {
+        for (String suffix : PRECOMPRESSED_SUFFIXES) {
+            if (filename.endsWith(suffix)) {
+                return filename.substring(0, filename.length() - suffix.length());
+            }
+        }
+        return filename;
+    }
+
+    private String readCursor() {
+        try {
+            if (Files.exists(cursorFile)) {
+                String value = Files.readString(cursorFile, StandardCharsets.UTF_8).trim();
+                return value.isEmpty() ? null : value;
+            }
+        } catch (IOException e) {
+            LOG.warn("Could not read the orphan collector cursor, starting a new pass: {}", e.getMessage());
+        }
+        return null;
+    }
+
+    private void writeCursor() {
+        try {
+            Path temp = cursorFile.resolveSibling(CURSOR_FILE + ".tmp");
+            Files.writeString(temp, cursor == null ? "" : cursor, StandardCharsets.UTF_8);
+            Files.move(temp, cursorFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            LOG.warn("Could not persist the orphan collector cursor: {}", e.getMessage());
+        }
+    }
+}
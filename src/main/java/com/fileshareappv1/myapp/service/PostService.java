@@ -1,16 +1,27 @@
 package com.fileshareappv1.myapp.service;
 
+import com.fileshareappv1.myapp.config.ApplicationProperties;
 import com.fileshareappv1.myapp.domain.Post;
+import com.fileshareappv1.myapp.management.TransferMetersService;
 import com.fileshareappv1.myapp.repository.PostRepository;
 import com.fileshareappv1.myapp.repository.search.PostSearchRepository;
+import com.fileshareappv1.myapp.security.AuthoritiesConstants;
+import com.fileshareappv1.myapp.security.DownloadUrlSigner;
+import com.fileshareappv1.myapp.security.SecurityUtils;
 import com.fileshareappv1.myapp.service.dto.FileDTO;
 import com.fileshareappv1.myapp.service.dto.PostDTO;
 import com.fileshareappv1.myapp.service.mapper.PostMapper;
+import com.fileshareappv1.myapp.service.storage.ParallelFileStorage;
+import com.fileshareappv1.myapp.service.storage.StoredFile;
 import com.fileshareappv1.myapp.service.storage.StorageRepository;
 import jakarta.persistence.EntityNotFoundException;
 import java.time.Instant;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 import java.util.stream.Collectors;
 import org.slf4j.Logger;
@@ -18,6 +29,7 @@ import org.slf4j.LoggerFactory;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.http.MediaType;
+import org.springframework.security.access.AccessDeniedException;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 import org.springframework.web.multipart.MultipartFile;
@@ -39,19 +51,48 @@ public class PostService {
     private final PostSearchRepository postSearchRepository;
     private final StorageRepository storageRepository;
     private final FileService fileService;
+    private final ParallelFileStorage parallelFileStorage;
+    private final DownloadUrlSigner downloadUrlSigner;
+    private final boolean signedUrls;
+    private final TransferMetersService transferMetersService;
+    private final boolean trashEnabled;
+    private final CommentService commentService;
+    private final ReactionService reactionService;
+    private final FavoriteService favoriteService;
+    private final ShareService shareService;
+    private final MentionService mentionService;
 
     public PostService(
         PostRepository postRepository,
         PostMapper postMapper,
         PostSearchRepository postSearchRepository,
         StorageRepository storageRepository,
-        FileService fileService
+        FileService fileService,
+        ParallelFileStorage parallelFileStorage,
+        DownloadUrlSigner downloadUrlSigner,
+        ApplicationProperties applicationProperties,
+        TransferMetersService transferMetersService,
+        CommentService commentService,
+        ReactionService reactionService,
+        FavoriteService favoriteService,
+        ShareService shareService,
+        MentionService mentionService
     ) {
         this.postRepository = postRepository;
         this.postMapper = postMapper;
         this.postSearchRepository = postSearchRepository;
         this.storageRepository = storageRepository;
         this.fileService = fileService;
+        this.parallelFileStorage = parallelFileStorage;
+        this.downloadUrlSigner = downloadUrlSigner;
+        this.signedUrls = applicationProperties.getSignedUrls().isEnabled();
+        this.transferMetersService = transferMetersService;
+        this.trashEnabled = applicationProperties.getTrash().isEnabled();
+        this.commentService = commentService;
+        this.reactionService = reactionService;
+        this.favoriteService = favoriteService;
+        this.shareService = shareService;
+        this.mentionService = mentionService;
     }
 
     /**
@@ -162,16 +203,113 @@ public class PostService {
     }
 
     /**
-     * Delete the post by id.
+     * Get the stored filenames of the files attached to a post.
+     *
+     * @param id the id of the post.
+     * @return the stored filenames, in attachment order, or empty if there is no such post.
+     */
+    @Transactional(readOnly = true)
+    public Optional<List<String>> findStoredFileNames(Long id) {
+        return postRepository.findById(id).map(post -> new ArrayList<>(post.getFiles()));
+    }
+
+    /**
+     * Get the stored filenames of the files attached to several posts.
+     *
+     * @param ids the ids of the posts.
+     * @return the stored filenames of each existing post, by post id, in the order of {@code ids}.
+     */
+    @Transactional(readOnly = true)
+    public Map<Long, List<String>> findStoredFileNames(Collection<Long> ids) {
+        Map<Long, List<String>> filesById = new HashMap<>();
+        postRepository.findAllById(ids).forEach(post -> filesById.put(post.getId(), new ArrayList<>(post.getFiles())));
+        Map<Long, List<String>> result = new LinkedHashMap<>();
+        ids.stream().filter(filesById::containsKey).forEach(id -> result.put(id, filesById.get(id)));
+        return result;
+    }
+
+    /**
+     * Delete the post by id. With the trash enabled, the post is only marked deleted and dropped
+     * from search, to be restored or purged later; otherwise it is removed right away. Either way its comments, reactions,
+     * favorites, shares, mentions and file rows go with it, and its stored files are deleted in the
+     * background once the post is gone, unless something else still references them.
      *
      * @param id the id of the entity.
      */
     public void delete(Long id) {
         LOG.debug("Request to delete Post : {}", id);
+        if (trashEnabled) {
+            postRepository.findById(id).ifPresent(post -> post.setDeletedAt(Instant.now()));
+            postSearchRepository.deleteFromIndexById(id);
+            return;
+        }
+        postRepository.findById(id).ifPresent(this::deleteDependents);
         postRepository.deleteById(id);
         postSearchRepository.deleteFromIndexById(id);
     }
 
+    /**
+     * Restore a post from the trash, indexing it for search again.
+     *
+     * @param id the id of the entity.
+     * @return the restored entity, or empty if there is no such post in the trash.
+     */
+    public Optional<PostDTO> restore(Long id) {
+        LOG.debug("Request to restore Post : {}", id);
+        return postRepository
+            .findTrashedById(id)
+            .map(post -> {
+                post.setDeletedAt(null);
+                post.setPurgeRetryAt(null);
+                postSearchRepository.index(post);
+                return convertFilesToUrls(post);
+            });
+    }
+
+    /**
+     * Remove a trashed post for good, with what refers to it, its search document and, in the
+     * background, its stored files.
+     *
+     * @param id the id of the entity.
+     * @return whether the post was still in the trash.
+     */
+    public boolean purge(Long id) {
+        LOG.debug("Request to purge Post : {}", id);
+        return postRepository
+            .findTrashedById(id)
+            .map(post -> {
+                deleteDependents(post);
+                postRepository.delete(post);
+                postSearchRepository.deleteFromIndexById(id);
+                return true;
+            })
+            .orElse(false);
+    }
+
+    /**
+     * Leave a trashed post out of the purge until a given time, after purging it failed.
+     *
+     * @param id the id of the entity.
+     * @param retryAt when purging it may be tried again.
+     */
+    public void postponePurge(Long id, Instant retryAt) {
+        LOG.debug("Request to postpone purging Post : {} until {}", id, retryAt);
+        postRepository.updatePurgeRetryAt(id, retryAt);
+    }
+
+    /**
+     * Delete the rows referring to a post about to be removed, which would otherwise keep it.
+     */
+    private void deleteDependents(Post post) {
+        Long id = post.getId();
+        commentService.deleteAllOfPost(id);
+        reactionService.deleteAllOfPost(id);
+        favoriteService.deleteAllOfPost(id);
+        shareService.deleteAllOfPost(id);
+        mentionService.deleteAllOfPost(id);
+        fileService.deleteAllOfPost(id, post.getFiles());
+    }
+
     /**
      * Search for the post corresponding to the query.
      *
@@ -196,18 +334,33 @@ public class PostService {
     private PostDTO convertFilesToUrls(Post post) {
         PostDTO dto = postMapper.toDto(post);
         if (dto.getFiles() != null && !dto.getFiles().isEmpty()) {
+            long expiresAt = downloadUrlSigner.expiresAt();
             List<String> fileUrls = dto
                 .getFiles()
                 .stream()
-                .map(fileName ->
-                    ServletUriComponentsBuilder.fromCurrentContextPath().path("/api/files/download/").path(fileName).toUriString()
-                )
+                .map(fileName -> signedUrls ? signedUrl(fileName, expiresAt) : downloadUrl(fileName))
                 .collect(Collectors.toList());
             dto.setFiles(fileUrls);
         }
         return dto;
     }
 
+    private static String downloadUrl(String fileName) {
+        return ServletUriComponentsBuilder.fromCurrentContextPath().path("/api/files/download/").path(fileName).toUriString();
+    }
+
+    /**
+     * Link to a file with an expiring signed URL, served without authenticating the request.
+     */
+    private String signedUrl(String fileName, long expiresAt) {
+        return ServletUriComponentsBuilder.fromCurrentContextPath()
+            .path("/api/files/signed/")
+            .path(fileName)
+            .queryParam("expires", expiresAt)
+            .queryParam("signature", downloadUrlSigner.sign(fileName, expiresAt))
+            .toUriString();
+    }
+
     @Transactional
     public Post addFiles(Long postId, List<String> storedNames) {
         Post post = postRepository.findById(postId).orElseThrow(() -> new EntityNotFoundException("Post không tồn tại: " + postId));
@@ -246,13 +399,40 @@ public class PostService {
 
     @Transactional
     public List<FileDTO> storeFilesForPost(Long postId, List<MultipartFile> files) {
-        // 1. Lưu lên disk, thu list tên
-        List<String> storedNames = files.stream().map(storageRepository::store).toList();
+        return storeFilesForPost(postId, files, false);
+    }
+
+    /**
+     * Store uploaded files concurrently and attach them to a post. Either all files are stored and
+     * recorded, or none: stored files are deleted again if storing any of them or the transaction
+     * fails.
+     *
+     * @param postId the post to attach the files to.
+     * @param files the uploaded files.
+     * @param replace whether the files replace the post's current files instead of being added.
+     * @return the saved FileDTOs, in the order of {@code files}.
+     */
+    @Transactional
+    public List<FileDTO> storeFilesForPost(Long postId, List<MultipartFile> files, boolean replace) {
+        Post post = postRepository.findById(postId).orElseThrow(() -> new EntityNotFoundException("Post không tồn tại: " + postId));
+
+        // 1. Lưu lên disk song song, thu list tên
+        List<StoredFile> stored = transferMetersService
+            .stage(TransferMetersService.STAGE_STORE)
+            .record(() -> parallelFileStorage.storeAll(files));
+        List<String> storedNames = stored.stream().map(StoredFile::getFilename).toList();
+        parallelFileStorage.deleteOnRollback(storedNames);
 
         // 2. Ghi tên vào Post.files và update numFiles
-        this.addFiles(postId, storedNames);
+        if (replace) {
+            post.setFiles(new ArrayList<>(storedNames));
+        } else {
+            post.getFiles().addAll(storedNames);
+        }
+        post.setNumFiles(post.getFiles().size());
+        postRepository.save(post);
 
-        // 3. Tạo và lưu FileDTO
+        // 3. Tạo và lưu FileDTO trong một lần
         List<FileDTO> dtos = new ArrayList<>();
         for (int i = 0; i < files.size(); i++) {
             MultipartFile f = files.get(i);
@@ -260,12 +440,54 @@ public class PostService {
             FileDTO dto = new FileDTO();
             dto.setFileName(name);
             dto.setMimeType(Optional.ofNullable(f.getContentType()).orElse(MediaType.APPLICATION_OCTET_STREAM_VALUE));
-            dto.setFileSize(f.getSize());
+            dto.setFileSize(stored.get(i).getSize());
+            dto.setSha256(stored.get(i).getSha256());
+            dto.setCrc32c(stored.get(i).getCrc32c());
             dto.setUploadedAt(Instant.now());
             dto.setFileUrl(ServletUriComponentsBuilder.fromCurrentContextPath().path("/api/files/download/").path(name).toUriString());
-            dtos.add(fileService.save(dto));
+            dtos.add(dto);
+        }
+        return fileService.saveAll(dtos);
+    }
+
+    /**
+     * Check that the current user may attach files to a post: it is theirs, or they are an admin.
+     *
+     * @param postId the id of the post.
+     * @throws EntityNotFoundException if there is no such post.
+     * @throws AccessDeniedException if the post belongs to someone else.
+     */
+    @Transactional(readOnly = true)
+    public void checkOwnedByCurrentUser(Long postId) {
+        Post post = postRepository.findById(postId).orElseThrow(() -> new EntityNotFoundException("Post không tồn tại: " + postId));
+        String owner = post.getUser() != null ? post.getUser().getLogin() : null;
+        boolean owned = owner != null && owner.equals(SecurityUtils.getCurrentUserLogin().orElse(null));
+        if (!owned && !SecurityUtils.hasCurrentUserThisAuthority(AuthoritiesConstants.ADMIN)) {
+            throw new AccessDeniedException("Post " + postId + " belongs to another user");
+        }
+    }
+
+    /**
+     * Record files already stored, and attach them to a post of the current user if one is given,
+     * all in one transaction: the stored files are deleted again if it fails.
+     *
+     * @param postId the post to attach the files to, or {@code null}.
+     * @param files the FileDTOs of the stored files.
+     * @return the saved FileDTOs.
+     * @throws AccessDeniedException if the post belongs to another user.
+     */
+    @Transactional
+    public List<FileDTO> saveStoredFiles(Long postId, List<FileDTO> files) {
+        List<String> storedNames = files.stream().map(FileDTO::getFileName).toList();
+        parallelFileStorage.deleteOnRollback(storedNames);
+        if (postId != null) {
+            checkOwnedByCurrentUser(postId);
+        }
+        List<FileDTO> saved = fileService.saveAll(files);
+        if (postId != null && !storedNames.isEmpty()) {
+            addFiles(postId, storedNames);
         }
-        return dtos;
+        return saved;
     }
 
     public Page<PostDTO> findByCurrentUser(Pageable pageable) {
@@ -0,0 +1,106 @@
+package com.fileshareappv1.myapp.service;
+
+import com.fileshareappv1.myapp.config.ApplicationProperties;
+import com.fileshareappv1.myapp.repository.PostRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+/**
+ * Removes the posts that have been in the trash for longer than its retention, a small batch per
+ * run during the off-peak hours of {@code application.trash.purge-cron}, so that mass deletions
+ * reach the database, the search index and the storage as a trickle rather than a spike.
+ * <p>
+ * Each post is purged in a transaction of its own, so a post that cannot be removed does not hold
+ * back the rest of the batch. It is left out of the following runs for a day, so that failing posts
+ * cannot fill every batch either. Stored files go through the {@link BlobDeletionQueue}.
+ * <p>
+ * Metrics: {@code posts.trash.purged}.
+ */
+@Service
+public class PostTrashPurger {
+
+    private static final Logger LOG = LoggerFactory.getLogger(PostTrashPurger.class);
+
+    static final Duration RETRY_DELAY = Duration.ofDays(1);
+
+    private final PostRepository postRepository;
+
+    private final PostService postService;
+
+    private final Clock clock;
+
+    private final Duration retention;
+
+    private final int batchSize;
+
+    private final Counter purgedPosts;
+
+    @Autowired
+    public PostTrashPurger(
+        PostRepository postRepository,
+        PostService postService,
+        ApplicationProperties applicationProperties,
+        MeterRegistry meterRegistry
+    ) {
+        this(postRepository, postService, applicationProperties, meterRegistry, Clock.systemUTC());
+    }
+
+    PostTrashPurger(
+        PostRepository postRepository,
+        PostService postService,
+        ApplicationProperties applicationProperties,
+        MeterRegistry meterRegistry,
+        Clock clock
+    ) {
+        this.postRepository = postRepository;
+        this.postService = postService;
+        this.clock = clock;
+        this.retention = applicationProperties.getTrash().getRetention();
+        this.batchSize = applicationProperties.getTrash().getPurgeBatchSize();
+        this.purgedPosts = Counter.builder("posts.trash.purged")
+            .description("Trashed posts removed for good")
+            .baseUnit("posts")
+            .register(meterRegistry);
+    }
+
+    /**
+     * Purge the next batch of posts whose retention in the trash has passed.
+     */
+    @Scheduled(cron = "${application.trash.purge-cron:0 */5 1-5 * * ?}")
+    public void purge() {
+        Instant now = clock.instant();
+        List<Long> expired = postRepository.findIdsTrashedBefore(now.minus(retention), now, batchSize);
+        int purged = 0;
+        for (Long id : expired) {
+            try {
+                if (postService.purge(id)) {
+                    purged++;
+                }
+            } catch (RuntimeException e) {
+                LOG.warn("Could not purge trashed Post {}, retrying in {}: {}", id, RETRY_DELAY, e.getMessage());
+                postponePurge(id, now.plus(RETRY_DELAY));
+            }
+        }
+        purgedPosts.increment(purged);
+        if (purged > 0) {
+            LOG.info("Purged {} trashed posts", purged);
+        }
+    }
+
+    private void postponePurge(Long id, Instant retryAt) {
+        try {
+            postService.postponePurge(id, retryAt);
+        } catch (RuntimeException e) {
+            LOG.warn("Could not postpone purging trashed Post {}: {}", id, e.getMessage());
+        }
+    }
+}
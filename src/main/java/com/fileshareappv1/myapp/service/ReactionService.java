@@ -137,6 +137,18 @@ public class ReactionService {
         reactionSearchRepository.deleteFromIndexById(id);
     }
 
+    /**
+     * Delete the reactions of a post being deleted.
+     *
+     * @param postId the id of the post.
+     */
+    public void deleteAllOfPost(Long postId) {
+        LOG.debug("Request to delete the Reactions of Post : {}", postId);
+        List<Reaction> reactions = reactionRepository.findAllByPostId(postId);
+        reactionRepository.deleteAllInBatch(reactions);
+        reactions.forEach(reaction -> reactionSearchRepository.deleteFromIndexById(reaction.getId()));
+    }
+
     /**
      * Search for the reaction corresponding to the query.
      *
@@ -5,6 +5,7 @@ import com.fileshareappv1.myapp.repository.ShareRepository;
 import com.fileshareappv1.myapp.repository.search.ShareSearchRepository;
 import com.fileshareappv1.myapp.service.dto.ShareDTO;
 import com.fileshareappv1.myapp.service.mapper.ShareMapper;
+import java.util.List;
 import java.util.Optional;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -130,6 +131,18 @@ public class ShareService {
         shareSearchRepository.deleteFromIndexById(id);
     }
 
+    /**
+     * Delete the shares of a post being deleted.
+     *
+     * @param postId the id of the post.
+     */
+    public void deleteAllOfPost(Long postId) {
+        LOG.debug("Request to delete the Shares of Post : {}", postId);
+        List<Share> shares = shareRepository.findAllByPostId(postId);
+        shareRepository.deleteAllInBatch(shares);
+        shares.forEach(share -> shareSearchRepository.deleteFromIndexById(share.getId()));
+    }
+
     /**
      * Search for the share corresponding to the query.
      *
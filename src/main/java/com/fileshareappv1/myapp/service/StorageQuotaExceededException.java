@@ -0,0 +1,17 @@
+package com.fileshareappv1.myapp.service;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.ResponseStatus;
+
+/**
+ * Thrown when an upload would take a user over their storage quota.
+ */
+@ResponseStatus(value = HttpStatus.PAYLOAD_TOO_LARGE, reason = "Storage quota exceeded")
+public class StorageQuotaExceededException extends RuntimeException {
+
+    private static final long serialVersionUID = 1L;
+
+    public StorageQuotaExceededException(String message) {
+        super(message);
+    }
+}
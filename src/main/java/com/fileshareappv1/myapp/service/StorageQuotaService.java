@@ -0,0 +1,219 @@
+package com.fileshareappv1.myapp.service;
+
+import com.fileshareappv1.myapp.config.StorageProperties;
+import com.fileshareappv1.myapp.domain.File;
+import com.fileshareappv1.myapp.domain.StorageUsage;
+import com.fileshareappv1.myapp.repository.FileRepository;
+import com.fileshareappv1.myapp.repository.StorageUsageRepository;
+import com.fileshareappv1.myapp.security.SecurityUtils;
+import com.fileshareappv1.myapp.service.dto.StorageUsageDTO;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+/**
+ * Service enforcing the per-user storage quota.
+ * <p>
+ * Each user's usage is a counter in {@link StorageUsage}, updated in the same transaction as the
+ * {@code File} rows it accounts for, so checking a quota is a primary-key lookup whatever the
+ * number of files. Uploads still in progress are tracked in memory: an upload reserves its
+ * declared length before its first byte is read, and the reservation is held until the request
+ * completes. The counters are recomputed from the file table every night, to correct any drift
+ * from files removed outside of {@link FileService}.
+ */
+@Service
+public class StorageQuotaService {
+
+    private static final Logger LOG = LoggerFactory.getLogger(StorageQuotaService.class);
+
+    private final StorageUsageRepository storageUsageRepository;
+
+    private final FileRepository fileRepository;
+
+    private final TransactionTemplate newTransaction;
+
+    private final long quota;
+
+    private final ConcurrentMap<String, Long> reserved = new ConcurrentHashMap<>();
+
+    public StorageQuotaService(
+        StorageUsageRepository storageUsageRepository,
+        FileRepository fileRepository,
+        PlatformTransactionManager transactionManager,
+        StorageProperties storageProperties
+    ) {
+        this.storageUsageRepository = storageUsageRepository;
+        this.fileRepository = fileRepository;
+        this.newTransaction = new TransactionTemplate(transactionManager);
+        this.newTransaction.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        this.quota = storageProperties.getUserQuota().toBytes();
+    }
+
+    /**
+     * Reserve room for an upload by the current user, before any of it is read.
+     *
+     * @param bytes the most the upload can store, such as its {@code Content-Length}.
+     * @return the reservation, to be released once the upload is recorded or has failed.
+     * @throws StorageQuotaExceededException if the upload would take the user over their quota.
+     */
+    public Reservation reserve(long bytes) {
+        Optional<String> login = SecurityUtils.getCurrentUserLogin();
+        if (quota <= 0 || login.isEmpty()) {
+            return Reservation.NONE;
+        }
+        long used = usedBytes(login.orElseThrow());
+        reserved.compute(login.orElseThrow(), (user, pending) -> {
+            long total = (pending == null ? 0 : pending) + bytes;
+            if (used + total > quota) {
+                throw exceeded(user, used + total - bytes, bytes);
+            }
+            return total;
+        });
+        return new Reservation(this, login.orElseThrow(), bytes);
+    }
+
+    /**
+     * Check that the current user has room for an upload that will be received later, such as a
+     * chunked upload session, without reserving it.
+     *
+     * @param bytes the declared length of the upload.
+     * @throws StorageQuotaExceededException if the upload would take the user over their quota.
+     */
+    public void checkAvailable(long bytes) {
+        Optional<String> login = SecurityUtils.getCurrentUserLogin();
+        if (quota <= 0 || login.isEmpty()) {
+            return;
+        }
+        long used = usedBytes(login.orElseThrow()) + reserved.getOrDefault(login.orElseThrow(), 0L);
+        if (used + bytes > quota) {
+            throw exceeded(login.orElseThrow(), used, bytes);
+        }
+    }
+
+    /**
+     * Count newly saved files against the quota of their uploader, in the current transaction.
+     *
+     * @param files the saved files.
+     */
+    public void charge(List<File> files) {
+        sumByUploader(files).forEach(this::addUsedBytes);
+    }
+
+    /**
+     * Stop counting deleted files against the quota of their uploader, in the current transaction.
+     *
+     * @param files the deleted files.
+     */
+    public void release(List<File> files) {
+        sumByUploader(files).forEach((login, bytes) -> addUsedBytes(login, -bytes));
+    }
+
+    /**
+     * @return the storage used by the current user, against their quota.
+     */
+    public StorageUsageDTO getCurrentUserUsage() {
+        long used = SecurityUtils.getCurrentUserLogin().map(this::usedBytes).orElse(0L);
+        return new StorageUsageDTO(used, quota > 0 ? quota : null);
+    }
+
+    /**
+     * Recompute every user's usage from the file table.
+     * <p>
+     * This is scheduled to get fired every day, at 03:30 (am).
+     */
+    @Scheduled(cron = "0 30 3 * * ?")
+    public void reconcile() {
+        newTransaction.executeWithoutResult(status -> {
+            Map<String, Long> actual = new HashMap<>();
+            for (Object[] row : fileRepository.sumFileSizeByUploader()) {
+                actual.put((String) row[0], ((Number) row[1]).longValue());
+            }
+            for (StorageUsage usage : storageUsageRepository.findAll()) {
+                long bytes = actual.getOrDefault(usage.getLogin(), 0L);
+                if (usage.getUsedBytes() != bytes) {
+                    LOG.info("Correcting storage usage of {} from {} to {} bytes", usage.getLogin(), usage.getUsedBytes(), bytes);
+                    usage.setUsedBytes(bytes);
+                }
+                actual.remove(usage.getLogin());
+            }
+            actual.forEach((login, bytes) -> storageUsageRepository.save(new StorageUsage().login(login).usedBytes(bytes)));
+        });
+    }
+
+    void releaseReservation(String login, long bytes) {
+        reserved.computeIfPresent(login, (user, pending) -> pending - bytes > 0 ? pending - bytes : null);
+    }
+
+    private long usedBytes(String login) {
+        return storageUsageRepository.findUsedBytes(login).orElse(0L);
+    }
+
+    private void addUsedBytes(String login, long bytes) {
+        if (storageUsageRepository.addUsedBytes(login, bytes) > 0) {
+            return;
+        }
+        // First upload of this user: create the row on its own, a concurrent first upload may beat us to it
+        try {
+            newTransaction.executeWithoutResult(status -> storageUsageRepository.save(new StorageUsage().login(login).usedBytes(0L)));
+        } catch (DataIntegrityViolationException e) {
+            LOG.debug("Storage usage of {} was created concurrently", login);
+        }
+        storageUsageRepository.addUsedBytes(login, bytes);
+    }
+
+    private static Map<String, Long> sumByUploader(List<File> files) {
+        Map<String, Long> bytes = new HashMap<>();
+        for (File file : files) {
+            if (file.getUploadedBy() != null && file.getFileSize() != null) {
+                bytes.merge(file.getUploadedBy(), file.getFileSize(), Long::sum);
+            }
+        }
+        return bytes;
+    }
+
+    private StorageQuotaExceededException exceeded(String login, long used, long bytes) {
+        LOG.debug("Rejecting upload of {} bytes by {}, who uses {} of {} bytes", bytes, login, used, quota);
+        return new StorageQuotaExceededException("Upload of " + bytes + " bytes would exceed the storage quota of " + quota + " bytes");
+    }
+
+    /**
+     * Room reserved for an upload in progress, released when closed.
+     */
+    public static class Reservation implements AutoCloseable {
+
+        static final Reservation NONE = new Reservation(null, null, 0);
+
+        private final StorageQuotaService service;
+
+        private final String login;
+
+        private final long bytes;
+
+        private boolean released;
+
+        Reservation(StorageQuotaService service, String login, long bytes) {
+            this.service = service;
+            this.login = login;
+            this.bytes = bytes;
+        }
+
+        @Override
+        public synchronized void close() {
+            if (service != null && !released) {
+                released = true;
+                service.releaseReservation(login, bytes);
+            }
+        }
+    }
+}
@@ -0,0 +1,211 @@
+package com.fileshareappv1.myapp.service;
+
+import com.fileshareappv1.myapp.config.StorageProperties;
+import com.fileshareappv1.myapp.domain.File;
+import com.fileshareappv1.myapp.repository.FileRepository;
+import com.fileshareappv1.myapp.service.storage.ContentHashes;
+import com.fileshareappv1.myapp.service.storage.StorageRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.NoSuchFileException;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.zip.CRC32C;
+import java.util.zip.CheckedInputStream;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+/**
+ * Re-reads stored files in the background and compares them with the checksums recorded when
+ * they were uploaded, to detect silent corruption or loss before a user or a restore does.
+ * <p>
+ * Files are verified in id order at no more than {@code storage.scrub-rate} bytes per second on
+ * average: every run adds the bandwidth of the time elapsed since the previous one to an
+ * allowance, and files are read while it lasts, so a large file is paid for by the runs that
+ * follow it. A full pass starts at most once a day. Files whose bytes are missing or do not match
+ * get {@code checksumMismatchAt} set, and cleared again once they verify; files uploaded without a
+ * checksum (chunked uploads, files stored before checksums were recorded) get one recorded on
+ * their first verification.
+ * <p>
+ * Metrics: {@code storage.scrub.bytes} read and {@code storage.scrub.files} by {@code result}
+ * ({@code verified}, {@code recorded}, {@code mismatch}, {@code missing}, {@code unreadable}).
+ */
+@Service
+public class StorageScrubber {
+
+    private static final Logger LOG = LoggerFactory.getLogger(StorageScrubber.class);
+
+    private static final int BATCH_SIZE = 100;
+
+    private static final Duration RUN_INTERVAL = Duration.ofSeconds(10);
+
+    /**
+     * Bandwidth left unused, while the scrubber waits for the next pass, is saved up for no longer
+     * than this, which bounds the burst of reads that starts the pass.
+     */
+    private static final Duration MAXIMUM_BURST = Duration.ofMinutes(1);
+
+    private static final Duration MINIMUM_PASS_INTERVAL = Duration.ofDays(1);
+
+    private final StorageRepository storageRepository;
+
+    private final FileRepository fileRepository;
+
+    private final TransactionTemplate transaction;
+
+    private final Clock clock;
+
+    private final long bytesPerSecond;
+
+    private final Counter scrubbedBytes;
+
+    private final MeterRegistry meterRegistry;
+
+    private long cursor;
+
+    private double allowance;
+
+    private Instant lastRun;
+
+    private Instant passStartedAt;
+
+    private long passMismatches;
+
+    @Autowired
+    public StorageScrubber(
+        StorageRepository storageRepository,
+        FileRepository fileRepository,
+        PlatformTransactionManager transactionManager,
+        StorageProperties storageProperties,
+        MeterRegistry meterRegistry
+    ) {
+        this(storageRepository, fileRepository, transactionManager, storageProperties, meterRegistry, Clock.systemUTC());
+    }
+
+    StorageScrubber(
+        StorageRepository storageRepository,
+        FileRepository fileRepository,
+        PlatformTransactionManager transactionManager,
+        StorageProperties storageProperties,
+        MeterRegistry meterRegistry,
+        Clock clock
+    ) {
+        this.storageRepository = storageRepository;
+        this.fileRepository = fileRepository;
+        this.transaction = new TransactionTemplate(transactionManager);
+        this.clock = clock;
+        this.bytesPerSecond = storageProperties.getScrubRate().toBytes();
+        this.meterRegistry = meterRegistry;
+        this.scrubbedBytes = Counter.builder("storage.scrub.bytes")
+            .description("Bytes of stored files re-read by the integrity scrubber")
+            .baseUnit("bytes")
+            .register(meterRegistry);
+    }
+
+    /**
+     * Verify as many stored files as the bandwidth saved up since the previous run allows.
+     * <p>
+     * This is scheduled to get fired every 10 seconds.
+     */
+    @Scheduled(cron = "*/10 * * * * ?")
+    public void scrub() {
+        if (bytesPerSecond <= 0) {
+            return;
+        }
+        Instant now = clock.instant();
+        Duration elapsed = lastRun == null ? RUN_INTERVAL : Duration.between(lastRun, now);
+        lastRun = now;
+        allowance = Math.min(allowance + bytesPerSecond * (elapsed.toMillis() / 1000.0), bytesPerSecond * MAXIMUM_BURST.toSeconds());
+        if (cursor == 0) {
+            if (passStartedAt != null && passStartedAt.isAfter(now.minus(MINIMUM_PASS_INTERVAL))) {
+                return;
+            }
+            passStartedAt = now;
+            passMismatches = 0;
+        }
+
+        while (allowance > 0) {
+            List<File> batch = fileRepository.findByIdGreaterThanOrderByIdAsc(cursor, PageRequest.of(0, BATCH_SIZE)).getContent();
+            if (batch.isEmpty()) {
+                LOG.info("Integrity scrub pass complete, {} stored files missing or corrupted", passMismatches);
+                cursor = 0;
+                return;
+            }
+            for (File file : batch) {
+                if (allowance <= 0) {
+                    return;
+                }
+                allowance -= verify(file);
+                cursor = file.getId();
+            }
+        }
+    }
+
+    /**
+     * Verify one stored file against its recorded checksums.
+     *
+     * @return the number of bytes read.
+     */
+    long verify(File file) {
+        String storedName = FileMetadataService.storedNameOf(file);
+        MessageDigest digest = ContentHashes.newSha256();
+        CRC32C crc = new CRC32C();
+        long size;
+        try (InputStream in = new DigestInputStream(new CheckedInputStream(storageRepository.openStream(storedName), crc), digest)) {
+            size = in.transferTo(OutputStream.nullOutputStream());
+        } catch (NoSuchFileException e) {
+            LOG.error("Stored file {} of File {} is missing", storedName, file.getId());
+            flagMismatch(file);
+            count("missing");
+            return 0;
+        } catch (IOException | RuntimeException e) {
+            // Possibly transient (network storage), so not flagged; the next pass tries again
+            LOG.warn("Could not read stored file {} of File {}: {}", storedName, file.getId(), e.getMessage());
+            count("unreadable");
+            return 0;
+        }
+        scrubbedBytes.increment(size);
+
+        String sha256 = ContentHashes.hex(digest);
+        if (file.getSha256() == null) {
+            LOG.debug("Recording the checksums of stored file {}", storedName);
+            transaction.executeWithoutResult(status -> fileRepository.updateChecksums(file.getId(), sha256, ContentHashes.hex(crc)));
+            count("recorded");
+        } else if (!file.getSha256().equals(sha256)) {
+            LOG.error("Stored file {} of File {} no longer matches its SHA-256 {}", storedName, file.getId(), file.getSha256());
+            flagMismatch(file);
+            count("mismatch");
+        } else {
+            if (file.getChecksumMismatchAt() != null) {
+                LOG.info("Stored file {} of File {} matches its checksum again", storedName, file.getId());
+                transaction.executeWithoutResult(status -> fileRepository.updateChecksumMismatchAt(file.getId(), null));
+            }
+            count("verified");
+        }
+        return size;
+    }
+
+    private void flagMismatch(File file) {
+        passMismatches++;
+        if (file.getChecksumMismatchAt() == null) {
+            transaction.executeWithoutResult(status -> fileRepository.updateChecksumMismatchAt(file.getId(), clock.instant()));
+        }
+    }
+
+    private void count(String result) {
+        meterRegistry.counter("storage.scrub.files", "result", result).increment();
+    }
+}
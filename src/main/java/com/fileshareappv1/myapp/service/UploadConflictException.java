@@ -0,0 +1,18 @@
+package com.fileshareappv1.myapp.service;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.ResponseStatus;
+
+/**
+ * Thrown when a chunk does not match the current state of its upload session: wrong offset,
+ * concurrent writer, or finishing before every byte was received.
+ */
+@ResponseStatus(value = HttpStatus.CONFLICT, reason = "Upload conflict")
+public class UploadConflictException extends RuntimeException {
+
+    private static final long serialVersionUID = 1L;
+
+    public UploadConflictException(String message) {
+        super(message);
+    }
+}
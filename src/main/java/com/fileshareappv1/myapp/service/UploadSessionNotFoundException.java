@@ -0,0 +1,14 @@
+package com.fileshareappv1.myapp.service;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.ResponseStatus;
+
+@ResponseStatus(value = HttpStatus.NOT_FOUND, reason = "Upload session not found")
+public class UploadSessionNotFoundException extends RuntimeException {
+
+    private static final long serialVersionUID = 1L;
+
+    public UploadSessionNotFoundException(String id) {
+        super("Upload session not found: " + id);
+    }
+}
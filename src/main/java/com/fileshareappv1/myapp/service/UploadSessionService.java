@@ -0,0 +1,321 @@
+package com.fileshareappv1.myapp.service;
+
+import com.fileshareappv1.myapp.config.StorageProperties;
+import com.fileshareappv1.myapp.security.SecurityUtils;
+import com.fileshareappv1.myapp.service.dto.FileDTO;
+import com.fileshareappv1.myapp.service.dto.UploadSessionDTO;
+import com.fileshareappv1.myapp.service.storage.StorageRepository;
+import com.fileshareappv1.myapp.service.storage.StoredFile;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.channels.OverlappingFileLockException;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.util.List;
+import java.util.Optional;
+import java.util.Properties;
+import java.util.UUID;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.http.MediaType;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.web.servlet.support.ServletUriComponentsBuilder;
+
+/**
+ * Service for resumable, chunked uploads.
+ * <p>
+ * Each session is a {@code .part} file under {@code <storage>/.uploads}, next to a small
+ * properties file holding the declared length and metadata. Chunks are appended straight to the
+ * {@code .part} file and the current offset is simply its size, so a session survives restarts
+ * and a client can always resume from what actually reached the disk. Finishing a session moves
+ * the file into the {@link StorageRepository} and records it, and attaches it to its post, in one
+ * transaction that deletes the stored file again if it fails. Only the owner of a post can open or
+ * finish a session for it.
+ */
+@Service
+public class UploadSessionService {
+
+    private static final Logger LOG = LoggerFactory.getLogger(UploadSessionService.class);
+
+    private static final String PART_SUFFIX = ".part";
+
+    private static final String INFO_SUFFIX = ".properties";
+
+    private final Path sessionRoot;
+
+    private final StorageProperties storageProperties;
+
+    private final StorageRepository storageRepository;
+
+    private final PostService postService;
+
+    private final StorageQuotaService storageQuotaService;
+
+    public UploadSessionService(
+        StorageProperties storageProperties,
+        StorageRepository storageRepository,
+        PostService postService,
+        StorageQuotaService storageQuotaService
+    ) {
+        this.storageProperties = storageProperties;
+        this.storageRepository = storageRepository;
+        this.postService = postService;
+        this.storageQuotaService = storageQuotaService;
+        this.sessionRoot = storageProperties.getLocation().resolve(".uploads");
+        try {
+            Files.createDirectories(sessionRoot);
+        } catch (IOException e) {
+            throw new RuntimeException("Could not initialize upload sessions", e);
+        }
+    }
+
+    /**
+     * Open a new upload session for the current user.
+     *
+     * @param request the declared filename, content type, total length and optional post.
+     * @return the created session, at offset 0.
+     * @throws StorageQuotaExceededException if the declared length does not fit in the user's quota.
+     * @throws org.springframework.security.access.AccessDeniedException if the post belongs to another user.
+     */
+    public UploadSessionDTO create(UploadSessionDTO request) {
+        LOG.debug("Request to create upload session : {}", request);
+        storageQuotaService.checkAvailable(request.getLength());
+        if (request.getPostId() != null) {
+            postService.checkOwnedByCurrentUser(request.getPostId());
+        }
+        String id = UUID.randomUUID().toString();
+        Properties info = new Properties();
+        info.setProperty("filename", request.getFilename());
+        info.setProperty("contentType", Optional.ofNullable(request.getContentType()).orElse(MediaType.APPLICATION_OCTET_STREAM_VALUE));
+        info.setProperty("length", String.valueOf(request.getLength()));
+        info.setProperty("createdAt", Instant.now().toString());
+        SecurityUtils.getCurrentUserLogin().ifPresent(login -> info.setProperty("owner", login));
+        if (request.getPostId() != null) {
+            info.setProperty("postId", String.valueOf(request.getPostId()));
+        }
+        try {
+            Files.createFile(partPath(id));
+            try (Writer writer = Files.newBufferedWriter(infoPath(id), StandardCharsets.UTF_8)) {
+                info.store(writer, null);
+            }
+        } catch (IOException e) {
+            throw new RuntimeException("Could not create upload session", e);
+        }
+        return toDto(id, info, 0);
+    }
+
+    /**
+     * Get the current state of an upload session.
+     *
+     * @param id the session id.
+     * @return the session, if it exists and belongs to the current user.
+     */
+    public Optional<UploadSessionDTO> findOne(String id) {
+        return readInfo(id).map(info -> toDto(id, info, currentOffset(id)));
+    }
+
+    /**
+     * Append a chunk to an upload session.
+     *
+     * @param id the session id.
+     * @param offset the offset the client believes the chunk starts at; must equal the current offset.
+     * @param chunk the chunk bytes, streamed straight to disk.
+     * @return the new offset.
+     */
+    public long append(String id, long offset, InputStream chunk) {
+        Properties info = readInfo(id).orElseThrow(() -> new UploadSessionNotFoundException(id));
+        long length = Long.parseLong(info.getProperty("length"));
+        try (FileChannel channel = FileChannel.open(partPath(id), StandardOpenOption.WRITE)) {
+            FileLock lock = tryLock(channel);
+            if (lock == null) {
+                throw new UploadConflictException("Another chunk is being written to upload " + id);
+            }
+            try {
+                long current = channel.size();
+                if (offset != current) {
+                    throw new UploadConflictException("Upload " + id + " is at offset " + current + ", not " + offset);
+                }
+                ReadableByteChannel source = Channels.newChannel(chunk);
+                long position = current;
+                while (position < length) {
+                    long transferred = channel.transferFrom(source, position, length - position);
+                    if (transferred <= 0) {
+                        break;
+                    }
+                    position += transferred;
+                }
+                if (position == length && chunk.read() != -1) {
+                    channel.truncate(current);
+                    throw new UploadConflictException("Chunk exceeds the declared length of upload " + id);
+                }
+                LOG.debug("Appended {} bytes to upload session {}", position - current, id);
+                return position;
+            } finally {
+                lock.release();
+            }
+        } catch (IOException e) {
+            throw new RuntimeException("Could not write chunk of upload " + id, e);
+        }
+    }
+
+    /**
+     * Finish a completely received upload: store it and create its {@code File} row.
+     *
+     * @param id the session id.
+     * @return the persisted file.
+     * @throws org.springframework.security.access.AccessDeniedException if the post belongs to another user.
+     */
+    public FileDTO finish(String id) {
+        Properties info = readInfo(id).orElseThrow(() -> new UploadSessionNotFoundException(id));
+        long length = Long.parseLong(info.getProperty("length"));
+        Long postId = Optional.ofNullable(info.getProperty("postId")).map(Long::valueOf).orElse(null);
+        if (postId != null) {
+            postService.checkOwnedByCurrentUser(postId);
+        }
+        StoredFile stored;
+        try (FileChannel channel = FileChannel.open(partPath(id), StandardOpenOption.WRITE)) {
+            FileLock lock = tryLock(channel);
+            if (lock == null) {
+                throw new UploadConflictException("A chunk is still being written to upload " + id);
+            }
+            try {
+                long offset = channel.size();
+                if (offset != length) {
+                    throw new UploadConflictException("Upload " + id + " has received " + offset + " of " + length + " bytes");
+                }
+                stored = storageRepository.store(partPath(id), info.getProperty("filename"));
+            } finally {
+                lock.release();
+            }
+        } catch (IOException e) {
+            throw new RuntimeException("Could not finish upload " + id, e);
+        }
+        deleteSession(id);
+
+        String storedName = stored.getFilename();
+        FileDTO dto = new FileDTO();
+        dto.setFileName(storedName);
+        dto.setMimeType(info.getProperty("contentType"));
+        dto.setFileSize(length);
+        dto.setSha256(stored.getSha256());
+        dto.setCrc32c(stored.getCrc32c());
+        dto.setUploadedAt(Instant.now());
+        dto.setFileUrl(ServletUriComponentsBuilder.fromCurrentContextPath().path("/api/files/download/").path(storedName).toUriString());
+        FileDTO result = postService.saveStoredFiles(postId, List.of(dto)).get(0);
+        LOG.debug("Finished upload session {} as {}", id, storedName);
+        return result;
+    }
+
+    /**
+     * Abort an upload session and discard the received chunks.
+     *
+     * @param id the session id.
+     */
+    public void abort(String id) {
+        readInfo(id).orElseThrow(() -> new UploadSessionNotFoundException(id));
+        deleteSession(id);
+    }
+
+    /**
+     * Discard upload sessions that were not finished within the configured time to live.
+     * <p>
+     * This is scheduled to get fired every hour.
+     */
+    @Scheduled(cron = "0 0 * * * ?")
+    public void removeExpiredSessions() {
+        Instant expiry = Instant.now().minus(storageProperties.getUploadSessionTtl());
+        try (DirectoryStream<Path> infos = Files.newDirectoryStream(sessionRoot, "*" + INFO_SUFFIX)) {
+            for (Path infoFile : infos) {
+                String name = infoFile.getFileName().toString();
+                String id = name.substring(0, name.length() - INFO_SUFFIX.length());
+                if (Files.getLastModifiedTime(partPath(id)).toInstant().isBefore(expiry)) {
+                    LOG.debug("Deleting expired upload session {}", id);
+                    deleteSession(id);
+                }
+            }
+        } catch (IOException e) {
+            LOG.warn("Could not clean up expired upload sessions", e);
+        }
+    }
+
+    private Optional<Properties> readInfo(String id) {
+        if (!isValidId(id) || !Files.exists(infoPath(id))) {
+            return Optional.empty();
+        }
+        Properties info = new Properties();
+        try (Reader reader = Files.newBufferedReader(infoPath(id), StandardCharsets.UTF_8)) {
+            info.load(reader);
+        } catch (IOException e) {
+            throw new RuntimeException("Could not read upload session " + id, e);
+        }
+        String owner = info.getProperty("owner");
+        if (owner != null && !owner.equals(SecurityUtils.getCurrentUserLogin().orElse(null))) {
+            return Optional.empty();
+        }
+        return Optional.of(info);
+    }
+
+    private long currentOffset(String id) {
+        try {
+            return Files.size(partPath(id));
+        } catch (IOException e) {
+            throw new UploadSessionNotFoundException(id);
+        }
+    }
+
+    private void deleteSession(String id) {
+        try {
+            Files.deleteIfExists(partPath(id));
+            Files.deleteIfExists(infoPath(id));
+        } catch (IOException e) {
+            LOG.warn("Could not delete upload session {}", id, e);
+        }
+    }
+
+    private static FileLock tryLock(FileChannel channel) throws IOException {
+        try {
+            return channel.tryLock();
+        } catch (OverlappingFileLockException e) {
+            return null;
+        }
+    }
+
+    private static boolean isValidId(String id) {
+        try {
+            return UUID.fromString(id).toString().equals(id);
+        } catch (IllegalArgumentException e) {
+            return false;
+        }
+    }
+
+    private Path partPath(String id) {
+        return sessionRoot.resolve(id + PART_SUFFIX);
+    }
+
+    private Path infoPath(String id) {
+        return sessionRoot.resolve(id + INFO_SUFFIX);
+    }
+
+    private static UploadSessionDTO toDto(String id, Properties info, long offset) {
+        UploadSessionDTO dto = new UploadSessionDTO();
+        dto.setId(id);
+        dto.setFilename(info.getProperty("filename"));
+        dto.setContentType(info.getProperty("contentType"));
+        dto.setLength(Long.valueOf(info.getProperty("length")));
+        dto.setOffset(offset);
+        Optional.ofNullable(info.getProperty("postId")).map(Long::valueOf).ifPresent(dto::setPostId);
+        dto.setCreatedAt(Instant.parse(info.getProperty("createdAt")));
+        return dto;
+    }
+}
@@ -29,6 +29,18 @@ public class FileDTO implements Serializable {
     @NotNull
     private Instant uploadedAt;
 
+    private String thumbnailName;
+
+    private String previewName;
+
+    private String sha256;
+
+    private String crc32c;
+
+    private Instant checksumMismatchAt;
+
+    private String uploadedBy;
+
     private PostDTO post;
 
     public Long getId() {
@@ -79,6 +91,54 @@ public class FileDTO implements Serializable {
         this.uploadedAt = uploadedAt;
     }
 
+    public String getThumbnailName() {
+        return thumbnailName;
+    }
+
+    public void setThumbnailName(String thumbnailName) {
+        this.thumbnailName = thumbnailName;
+    }
+
+    public String getPreviewName() {
+        return previewName;
+    }
+
+    public void setPreviewName(String previewName) {
+        this.previewName = previewName;
+    }
+
+    public String getSha256() {
+        return sha256;
+    }
+
+    public void setSha256(String sha256) {
+        this.sha256 = sha256;
+    }
+
+    public String getCrc32c() {
+        return crc32c;
+    }
+
+    public void setCrc32c(String crc32c) {
+        this.crc32c = crc32c;
+    }
+
+    public Instant getChecksumMismatchAt() {
+        return checksumMismatchAt;
+    }
+
+    public void setChecksumMismatchAt(Instant checksumMismatchAt) {
+        this.checksumMismatchAt = checksumMismatchAt;
+    }
+
+    public String getUploadedBy() {
+        return uploadedBy;
+    }
+
+    public void setUploadedBy(String uploadedBy) {
+        this.uploadedBy = uploadedBy;
+    }
+
     public PostDTO getPost() {
         return post;
     }
@@ -118,6 +178,12 @@ public class FileDTO implements Serializable {
             ", mimeType='" + getMimeType() + "'" +
             ", fileSize=" + getFileSize() +
             ", uploadedAt='" + getUploadedAt() + "'" +
+            ", thumbnailName='" + getThumbnailName() + "'" +
+            ", previewName='" + getPreviewName() + "'" +
+            ", sha256='" + getSha256() + "'" +
+            ", crc32c='" + getCrc32c() + "'" +
+            ", checksumMismatchAt='" + getChecksumMismatchAt() + "'" +
+            ", uploadedBy='" + getUploadedBy() + "'" +
             ", post=" + getPost() +
             "}";
     }
@@ -0,0 +1,89 @@
+package com.fileshareappv1.myapp.service.dto;
+
+import java.io.Serializable;
+
+/**
+ * Metadata needed to serve a stored file: validators, media type and length, plus the names of
+ * its image variants. Stored files never change once written, so this is safe to cache for as
+ * long as the file exists.
+ */
+public class FileMetadataDTO implements Serializable {
+
+    private final String storedName;
+
+    private final String contentType;
+
+    private final long size;
+
+    private final long lastModified;
+
+    private final String etag;
+
+    private final String thumbnailName;
+
+    private final String previewName;
+
+    public FileMetadataDTO(
+        String storedName,
+        String contentType,
+        long size,
+        long lastModified,
+        String etag,
+        String thumbnailName,
+        String previewName
+    ) {
+        this.storedName = storedName;
+        this.contentType = contentType;
+        this.size = size;
+        this.lastModified = lastModified;
+        this.etag = etag;
+        this.thumbnailName = thumbnailName;
+        this.previewName = previewName;
+    }
+
+    public String getStoredName() {
+        return storedName;
+    }
+
+    public String getContentType() {
+        return contentType;
+    }
+
+    public long getSize() {
+        return size;
+    }
+
+    /**
+     * @return the last modification time in epoch millis, or {@code -1} if unknown.
+     */
+    public long getLastModified() {
+        return lastModified;
+    }
+
+    /**
+     * @return the strong entity tag, quoted.
+     */
+    public String getEtag() {
+        return etag;
+    }
+
+    public String getThumbnailName() {
+        return thumbnailName;
+    }
+
+    public String getPreviewName() {
+        return previewName;
+    }
+
+    // prettier-ignore
+    @Override
+    public String toString() {
+        return "FileMetadataDTO{" +
+            "storedName='" + getStoredName() + "'" +
+            ", contentType='" + getContentType() + "'" +
+            ", size=" + getSize() +
+            ", lastModified=" + getLastModified() +
+            ", etag='" + getEtag() + "'" +
+            "}";
+    }
+}
@@ -0,0 +1,67 @@
+package com.fileshareappv1.myapp.service.dto;
+
+import jakarta.validation.constraints.*;
+import java.io.Serializable;
+
+/**
+ * A DTO describing a file by its content, for a client to check whether it needs uploading.
+ */
+public class InstantUploadDTO implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    @NotNull
+    @Pattern(regexp = "^[0-9a-f]{64}$")
+    private String sha256;
+
+    @NotNull
+    @Min(value = 0L)
+    private Long size;
+
+    private String contentType;
+
+    private Long postId;
+
+    public String getSha256() {
+        return sha256;
+    }
+
+    public void setSha256(String sha256) {
+        this.sha256 = sha256;
+    }
+
+    public Long getSize() {
+        return size;
+    }
+
+    public void setSize(Long size) {
+        this.size = size;
+    }
+
+    public String getContentType() {
+        return contentType;
+    }
+
+    public void setContentType(String contentType) {
+        this.contentType = contentType;
+    }
+
+    public Long getPostId() {
+        return postId;
+    }
+
+    public void setPostId(Long postId) {
+        this.postId = postId;
+    }
+
+    // prettier-ignore
+    @Override
+    public String toString() {
+        return "InstantUploadDTO{" +
+            "sha256='" + getSha256() + "'" +
+            ", size=" + getSize() +
+            ", contentType='" + getContentType() + "'" +
+            ", postId=" + getPostId() +
+            "}";
+    }
+}
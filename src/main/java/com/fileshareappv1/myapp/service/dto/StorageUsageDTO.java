@@ -0,0 +1,64 @@
+package com.fileshareappv1.myapp.service.dto;
+
+import java.io.Serializable;
+
+/**
+ * A DTO for the storage used by the current user, against their quota.
+ */
+public class StorageUsageDTO implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    private long usedBytes;
+
+    private Long quotaBytes;
+
+    private Long remainingBytes;
+
+    public StorageUsageDTO() {
+        // Empty constructor needed for Jackson.
+    }
+
+    public StorageUsageDTO(long usedBytes, Long quotaBytes) {
+        this.usedBytes = usedBytes;
+        this.quotaBytes = quotaBytes;
+        this.remainingBytes = quotaBytes == null ? null : Math.max(0, quotaBytes - usedBytes);
+    }
+
+    public long getUsedBytes() {
+        return usedBytes;
+    }
+
+    public void setUsedBytes(long usedBytes) {
+        this.usedBytes = usedBytes;
+    }
+
+    /**
+     * @return the quota, or {@code null} if uploads are not limited.
+     */
+    public Long getQuotaBytes() {
+        return quotaBytes;
+    }
+
+    public void setQuotaBytes(Long quotaBytes) {
+        this.quotaBytes = quotaBytes;
+    }
+
+    public Long getRemainingBytes() {
+        return remainingBytes;
+    }
+
+    public void setRemainingBytes(Long remainingBytes) {
+        this.remainingBytes = remainingBytes;
+    }
+
+    // prettier-ignore
+    @Override
+    public String toString() {
+        return "StorageUsageDTO{" +
+            "usedBytes=" + getUsedBytes() +
+            ", quotaBytes=" + getQuotaBytes() +
+            ", remainingBytes=" + getRemainingBytes() +
+            "}";
+    }
+}
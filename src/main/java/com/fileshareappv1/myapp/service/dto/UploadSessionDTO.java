@@ -0,0 +1,98 @@
+package com.fileshareappv1.myapp.service.dto;
+
+import jakarta.validation.constraints.*;
+import java.io.Serializable;
+import java.time.Instant;
+
+/**
+ * A DTO describing a resumable, chunked upload.
+ */
+public class UploadSessionDTO implements Serializable {
+
+    private String id;
+
+    @NotBlank
+    private String filename;
+
+    private String contentType;
+
+    @NotNull
+    @Min(value = 1L)
+    private Long length;
+
+    private Long offset;
+
+    private Long postId;
+
+    private Instant createdAt;
+
+    public String getId() {
+        return id;
+    }
+
+    public void setId(String id) {
+        this.id = id;
+    }
+
+    public String getFilename() {
+        return filename;
+    }
+
+    public void setFilename(String filename) {
+        this.filename = filename;
+    }
+
+    public String getContentType() {
+        return contentType;
+    }
+
+    public void setContentType(String contentType) {
+        this.contentType = contentType;
+    }
+
+    public Long getLength() {
+        return length;
+    }
+
+    public void setLength(Long length) {
+        this.length = length;
+    }
+
+    public Long getOffset() {
+        return offset;
+    }
+
+    public void setOffset(Long offset) {
+        this.offset = offset;
+    }
+
+    public Long getPostId() {
+        return postId;
+    }
+
+    public void setPostId(Long postId) {
+        this.postId = postId;
+    }
+
+    public Instant getCreatedAt() {
+        return createdAt;
+    }
+
+    public void setCreatedAt(Instant createdAt) {
+        this.createdAt = createdAt;
+    }
+
+    // prettier-ignore
+    @Override
+    public String toString() {
+        return "UploadSessionDTO{" +
+            "id='" + getId() + "'" +
+            ", filename='" + getFilename() + "'" +
+            ", contentType='" + getContentType() + "'" +
+            ", length=" + getLength() +
+            ", offset=" + getOffset() +
+            ", postId=" + getPostId() +
+            ", createdAt='" + getCreatedAt() + "'" +
+            "}";
+    }
+}
@@ -18,6 +18,16 @@ public interface CommentMapper extends EntityMapper<CommentDTO, Comment> {
     @Mapping(target = "parentComment", source = "parentComment", qualifiedByName = "commentId")
     CommentDTO toDto(Comment s);
 
+    @Mapping(target = "post.deletedAt", ignore = true)
+    @Mapping(target = "post.purgeRetryAt", ignore = true)
+    Comment toEntity(CommentDTO commentDTO);
+
+    @Named("partialUpdate")
+    @BeanMapping(nullValuePropertyMappingStrategy = NullValuePropertyMappingStrategy.IGNORE)
+    @Mapping(target = "post.deletedAt", ignore = true)
+    @Mapping(target = "post.purgeRetryAt", ignore = true)
+    void partialUpdate(@MappingTarget Comment entity, CommentDTO commentDTO);
+
     @Named("postId")
     @BeanMapping(ignoreByDefault = true)
     @Mapping(target = "id", source = "id")
@@ -17,6 +17,16 @@ public interface FavoriteMapper extends EntityMapper<FavoriteDTO, Favorite> {
     @Mapping(target = "user", source = "user", qualifiedByName = "userLogin")
     FavoriteDTO toDto(Favorite s);
 
+    @Mapping(target = "post.deletedAt", ignore = true)
+    @Mapping(target = "post.purgeRetryAt", ignore = true)
+    Favorite toEntity(FavoriteDTO favoriteDTO);
+
+    @Named("partialUpdate")
+    @BeanMapping(nullValuePropertyMappingStrategy = NullValuePropertyMappingStrategy.IGNORE)
+    @Mapping(target = "post.deletedAt", ignore = true)
+    @Mapping(target = "post.purgeRetryAt", ignore = true)
+    void partialUpdate(@MappingTarget Favorite entity, FavoriteDTO favoriteDTO);
+
     @Named("postId")
     @BeanMapping(ignoreByDefault = true)
     @Mapping(target = "id", source = "id")
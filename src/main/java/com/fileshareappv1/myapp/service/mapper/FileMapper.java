@@ -14,6 +14,19 @@ public interface FileMapper extends EntityMapper<FileDTO, File> {
     @Mapping(target = "post", source = "post", qualifiedByName = "postId")
     FileDTO toDto(File s);
 
+    // The stored name is derived from the download URL when the row is written
+    @Mapping(target = "storedName", ignore = true)
+    @Mapping(target = "post.deletedAt", ignore = true)
+    @Mapping(target = "post.purgeRetryAt", ignore = true)
+    File toEntity(FileDTO fileDTO);
+
+    @Named("partialUpdate")
+    @BeanMapping(nullValuePropertyMappingStrategy = NullValuePropertyMappingStrategy.IGNORE)
+    @Mapping(target = "storedName", ignore = true)
+    @Mapping(target = "post.deletedAt", ignore = true)
+    @Mapping(target = "post.purgeRetryAt", ignore = true)
+    void partialUpdate(@MappingTarget File entity, FileDTO fileDTO);
+
     @Named("postId")
     @BeanMapping(ignoreByDefault = true)
     @Mapping(target = "id", source = "id")
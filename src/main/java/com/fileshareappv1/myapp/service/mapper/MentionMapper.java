@@ -17,6 +17,16 @@ public interface MentionMapper extends EntityMapper<MentionDTO, Mention> {
     @Mapping(target = "user", source = "user", qualifiedByName = "userLogin")
     MentionDTO toDto(Mention s);
 
+    @Mapping(target = "post.deletedAt", ignore = true)
+    @Mapping(target = "post.purgeRetryAt", ignore = true)
+    Mention toEntity(MentionDTO mentionDTO);
+
+    @Named("partialUpdate")
+    @BeanMapping(nullValuePropertyMappingStrategy = NullValuePropertyMappingStrategy.IGNORE)
+    @Mapping(target = "post.deletedAt", ignore = true)
+    @Mapping(target = "post.purgeRetryAt", ignore = true)
+    void partialUpdate(@MappingTarget Mention entity, MentionDTO mentionDTO);
+
     @Named("postId")
     @BeanMapping(ignoreByDefault = true)
     @Mapping(target = "id", source = "id")
@@ -20,8 +20,17 @@ public interface PostMapper extends EntityMapper<PostDTO, Post> {
     PostDTO toDto(Post s);
 
     @Mapping(target = "removeTags", ignore = true)
+    @Mapping(target = "deletedAt", ignore = true)
+    @Mapping(target = "purgeRetryAt", ignore = true)
     Post toEntity(PostDTO postDTO);
 
+    @Named("partialUpdate")
+    @BeanMapping(nullValuePropertyMappingStrategy = NullValuePropertyMappingStrategy.IGNORE)
+    @Mapping(target = "removeTags", ignore = true)
+    @Mapping(target = "deletedAt", ignore = true)
+    @Mapping(target = "purgeRetryAt", ignore = true)
+    void partialUpdate(@MappingTarget Post entity, PostDTO postDTO);
+
     @Named("userLogin")
     @BeanMapping(ignoreByDefault = true)
     @Mapping(target = "id", source = "id")
@@ -17,6 +17,16 @@ public interface ReactionMapper extends EntityMapper<ReactionDTO, Reaction> {
     @Mapping(target = "user", source = "user", qualifiedByName = "userLogin")
     ReactionDTO toDto(Reaction s);
 
+    @Mapping(target = "post.deletedAt", ignore = true)
+    @Mapping(target = "post.purgeRetryAt", ignore = true)
+    Reaction toEntity(ReactionDTO reactionDTO);
+
+    @Named("partialUpdate")
+    @BeanMapping(nullValuePropertyMappingStrategy = NullValuePropertyMappingStrategy.IGNORE)
+    @Mapping(target = "post.deletedAt", ignore = true)
+    @Mapping(target = "post.purgeRetryAt", ignore = true)
+    void partialUpdate(@MappingTarget Reaction entity, ReactionDTO reactionDTO);
+
     @Named("postId")
     @BeanMapping(ignoreByDefault = true)
     @Mapping(target = "id", source = "id")
@@ -17,6 +17,16 @@ public interface ShareMapper extends EntityMapper<ShareDTO, Share> {
     @Mapping(target = "user", source = "user", qualifiedByName = "userLogin")
     ShareDTO toDto(Share s);
 
+    @Mapping(target = "post.deletedAt", ignore = true)
+    @Mapping(target = "post.purgeRetryAt", ignore = true)
+    Share toEntity(ShareDTO shareDTO);
+
+    @Named("partialUpdate")
+    @BeanMapping(nullValuePropertyMappingStrategy = NullValuePropertyMappingStrategy.IGNORE)
+    @Mapping(target = "post.deletedAt", ignore = true)
+    @Mapping(target = "post.purgeRetryAt", ignore = true)
+    void partialUpdate(@MappingTarget Share entity, ShareDTO shareDTO);
+
     @Named("postId")
     @BeanMapping(ignoreByDefault = true)
     @Mapping(target = "id", source = "id")
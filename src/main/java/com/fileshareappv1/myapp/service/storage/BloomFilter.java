@@ -0,0 +1,72 @@
+package com.fileshareappv1.myapp.service.storage;
+
+import java.nio.charset.StandardCharsets;
+import java.util.BitSet;
+import java.util.zip.CRC32C;
+
+/**
+ * Fixed-size Bloom filter of strings: {@link #mightContain(String)} has no false negatives, and
+ * false positives at about the rate it was sized for, as long as no more than the expected number
+ * of values are added.
+ * <p>
+ * Uses double hashing over the two halves of a 64-bit hash; not thread-safe while being filled.
+ */
+public class BloomFilter {
+
+    private final BitSet bits;
+
+    private final int size;
+
+    private final int hashCount;
+
+    /**
+     * @param expectedValues the number of values to be added.
+     * @param falsePositiveRate the acceptable rate of false positives, between 0 and 1.
+     */
+    public BloomFilter(long expectedValues, double falsePositiveRate) {
+        long n = Math.max(1, expectedValues);
+        long m = (long) Math.ceil(-n * Math.log(falsePositiveRate) / (Math.log(2) * Math.log(2)));
+        this.size = (int) Math.max(64, Math.min(m, Integer.MAX_VALUE - 64));
+        this.hashCount = (int) Math.max(1, Math.min(16, Math.round((double) size / n * Math.log(2))));
+        this.bits = new BitSet(size);
+    }
+
+    public void add(String value) {
+        long hash = hash(value);
+        int h1 = (int) hash;
+        int h2 = (int) (hash >>> 32);
+        for (int i = 0; i < hashCount; i++) {
+            bits.set(index(h1 + i * h2));
+        }
+    }
+
+    public boolean mightContain(String value) {
+        long hash = hash(value);
+        int h1 = (int) hash;
+        int h2 = (int) (hash >>> 32);
+        for (int i = 0; i < hashCount; i++) {
+            if (!bits.get(index(h1 + i * h2))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private int index(int combined) {
+        return Math.floorMod(combined, size);
+    }
+
+    private static long hash(String value) {
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        CRC32C crc = new CRC32C();
+        crc.update(bytes);
+        long low = crc.getValue();
+        // A second, independent 32-bit hash: FNV-1a
+        int fnv = 0x811c9dc5;
+        for (byte b : bytes) {
+            fnv ^= b & 0xff;
+            fnv *= 0x01000193;
+        }
+        return (low & 0xffffffffL) | ((long) (fnv | 1) << 32);
+    }
+}
@@ -0,0 +1,108 @@
+package com.fileshareappv1.myapp.service.storage;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.ReadableByteChannel;
+import java.util.function.LongConsumer;
+import org.springframework.core.io.AbstractResource;
+
+/**
+ * A stored file held in memory by the {@link HotFileCache}, in an off-heap buffer.
+ * <p>
+ * The buffer is shared by every concurrent download of the file: each read works on its own
+ * read-only view of it, so the bytes are never copied on the heap before they reach the socket.
+ */
+public class CachedFileResource extends AbstractResource {
+
+    private final String filename;
+
+    private final ByteBuffer content;
+
+    private final long lastModified;
+
+    private final LongConsumer servedBytes;
+
+    CachedFileResource(String filename, ByteBuffer content, long lastModified, LongConsumer servedBytes) {
+        this.filename = filename;
+        this.content = content.asReadOnlyBuffer();
+        this.lastModified = lastModified;
+        this.servedBytes = servedBytes;
+    }
+
+    /**
+     * A read-only view of part of the content, counted as served from memory.
+     *
+     * @param position the offset of the first byte.
+     * @param count the number of bytes.
+     * @return the view, positioned at its first byte.
+     */
+    public ByteBuffer slice(long position, long count) {
+        if (position < 0 || count < 0 || position + count > content.capacity()) {
+            throw new IndexOutOfBoundsException("Range " + position + "+" + count + " outside of " + filename);
+        }
+        servedBytes.accept(count);
+        return content.slice((int) position, (int) count);
+    }
+
+    @Override
+    public String getFilename() {
+        return filename;
+    }
+
+    @Override
+    public String getDescription() {
+        return "cached file [" + filename + "]";
+    }
+
+    @Override
+    public boolean exists() {
+        return true;
+    }
+
+    @Override
+    public long contentLength() {
+        return content.capacity();
+    }
+
+    @Override
+    public long lastModified() {
+        return lastModified;
+    }
+
+    @Override
+    public InputStream getInputStream() throws IOException {
+        return Channels.newInputStream(readableChannel());
+    }
+
+    @Override
+    public ReadableByteChannel readableChannel() {
+        ByteBuffer view = slice(0, content.capacity());
+        return new ReadableByteChannel() {
+            private boolean open = true;
+
+            @Override
+            public int read(ByteBuffer dst) {
+                if (!view.hasRemaining()) {
+                    return -1;
+                }
+                int count = Math.min(dst.remaining(), view.remaining());
+                dst.put(dst.position(), view, view.position(), count);
+                dst.position(dst.position() + count);
+                view.position(view.position() + count);
+                return count;
+            }
+
+            @Override
+            public boolean isOpen() {
+                return open;
+            }
+
+            @Override
+            public void close() {
+                open = false;
+            }
+        };
+    }
+}
@@ -0,0 +1,148 @@
+package com.fileshareappv1.myapp.service.storage;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.FileTime;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * The cold tier of the local backends: stored files nobody downloads any more, kept on cheaper
+ * storage under the same {@code ab/cd/<filename>} layout as the hot tier.
+ * <p>
+ * A file is either kept as it is, or, when compressing it saves at least a tenth of its size,
+ * gzip-compressed as {@code <filename>.cold.gz}. Every copy is written to a temporary file and
+ * renamed into place, so a file is always complete in at least one tier while it moves between them.
+ */
+final class ColdTier {
+
+    static final String COMPRESSED_SUFFIX = ".cold.gz";
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private final Path root;
+
+    private final boolean compression;
+
+    ColdTier(Path root, boolean compression) {
+        this.root = root;
+        this.compression = compression;
+        try {
+            Files.createDirectories(root);
+        } catch (IOException e) {
+            throw new RuntimeException("Could not initialize cold storage", e);
+        }
+    }
+
+    Path root() {
+        return root;
+    }
+
+    /**
+     * The stored filename of a file found in the cold tier, which may carry the compressed suffix.
+     */
+    static String filenameOf(String coldName) {
+        if (!coldName.endsWith(COMPRESSED_SUFFIX)) {
+            return coldName;
+        }
+        return coldName.substring(0, coldName.length() - COMPRESSED_SUFFIX.length());
+    }
+
+    boolean contains(String filename) {
+        return Files.exists(path(filename)) || Files.exists(compressedPath(filename));
+    }
+
+    /**
+     * Copy a hot file into the cold tier, with its modification time. The hot file is left for the
+     * caller to delete.
+     *
+     * @return the number of bytes the copy takes in the cold tier.
+     */
+    long store(Path hotFile, String filename) throws IOException {
+        Path target = path(filename);
+        Files.createDirectories(target.getParent());
+        FileTime lastModified = Files.getLastModifiedTime(hotFile);
+        Path temp = Files.createTempFile(target.getParent(), ".tier-", ".part");
+        try {
+            Path destination = target;
+            if (compression) {
+                try (OutputStream out = new GZIPOutputStream(Files.newOutputStream(temp), BUFFER_SIZE)) {
+                    Files.copy(hotFile, out);
+                }
+                if (Files.size(temp) * 10 <= Files.size(hotFile) * 9) {
+                    destination = compressedPath(filename);
+                } else {
+                    Files.copy(hotFile, temp, StandardCopyOption.REPLACE_EXISTING);
+                }
+            } else {
+                Files.copy(hotFile, temp, StandardCopyOption.REPLACE_EXISTING);
+            }
+            Files.setLastModifiedTime(temp, lastModified);
+            long size = Files.size(temp);
+            move(temp, destination);
+            return size;
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+    }
+
+    /**
+     * Read a cold file, decompressing it if needed.
+     *
+     * @throws java.nio.file.NoSuchFileException if the file is not in the cold tier.
+     */
+    InputStream open(String filename) throws IOException {
+        Path compressed = compressedPath(filename);
+        if (Files.exists(compressed)) {
+            return new GZIPInputStream(Files.newInputStream(compressed), BUFFER_SIZE);
+        }
+        return Files.newInputStream(path(filename));
+    }
+
+    /**
+     * Move a cold file back to the hot tier, with its modification time.
+     *
+     * @param hotFile the location of the file in the hot tier, whose parent directory exists.
+     */
+    void restore(String filename, Path hotFile) throws IOException {
+        Path compressed = compressedPath(filename);
+        FileTime lastModified = Files.getLastModifiedTime(Files.exists(compressed) ? compressed : path(filename));
+        Path temp = Files.createTempFile(hotFile.getParent(), ".promote-", ".part");
+        try {
+            try (InputStream in = open(filename)) {
+                Files.copy(in, temp, StandardCopyOption.REPLACE_EXISTING);
+            }
+            Files.setLastModifiedTime(temp, lastModified);
+            move(temp, hotFile);
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+        delete(filename);
+    }
+
+    void delete(String filename) throws IOException {
+        Files.deleteIfExists(path(filename));
+        Files.deleteIfExists(compressedPath(filename));
+    }
+
+    Path path(String filename) {
+        return LocalStorageService.shard(root, filename);
+    }
+
+    private Path compressedPath(String filename) {
+        return path(filename).resolveSibling(filename + COMPRESSED_SUFFIX);
+    }
+
+    private static void move(Path source, Path target) throws IOException {
+        try {
+            Files.move(source, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        } catch (AtomicMoveNotSupportedException e) {
+            Files.move(source, target, StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+}
@@ -0,0 +1,300 @@
+package com.fileshareappv1.myapp.service.storage;
+
+import com.fileshareappv1.myapp.config.StorageProperties;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.nio.file.attribute.UserDefinedFileAttributeView;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.util.zip.CRC32C;
+import java.util.zip.CheckedInputStream;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Service;
+import org.springframework.web.multipart.MultipartFile;
+
+/**
+ * Deduplicating {@link StorageRepository}: the bytes of every upload are stored once under their
+ * SHA-256 in {@code .blobs/ab/cd/<sha256>}, and each stored filename is a hard link to that blob.
+ * <p>
+ * Stored filenames are still unique {@code UUID + ext} names, so the filename-based download URLs
+ * referenced from {@code File} and {@code Post.files} keep working unchanged. Each of those names
+ * is one link to the blob, which makes the blob's link count its reference count: deleting the
+ * last name also deletes the blob. The storage location must therefore support hard links and
+ * report link counts; the application does not start otherwise.
+ */
+@Service
+@ConditionalOnProperty(prefix = "app.storage", name = "type", havingValue = "content-addressed")
+public class ContentAddressedStorageService extends LocalStorageService {
+
+    private static final Logger LOG = LoggerFactory.getLogger(ContentAddressedStorageService.class);
+
+    static final String BLOB_DIRECTORY = ".blobs";
+
+    private static final String HASH_ATTRIBUTE = "sha256";
+
+    private static final int LOCK_STRIPES = 64;
+
+    private final Path blobRoot;
+
+    private final Path incomingRoot;
+
+    private final long inMemoryHashThreshold;
+
+    private final Object[] locks = new Object[LOCK_STRIPES];
+
+    public ContentAddressedStorageService(StorageProperties properties) {
+        this(properties, HotFileCache.disabled());
+    }
+
+    @Autowired
+    public ContentAddressedStorageService(StorageProperties properties, HotFileCache hotFileCache) {
+        super(properties, hotFileCache);
+        this.blobRoot = getRootLocation().resolve(BLOB_DIRECTORY);
+        this.incomingRoot = blobRoot.resolve("incoming");
+        this.inMemoryHashThreshold = properties.getInMemoryHashThreshold().toBytes();
+        for (int i = 0; i < LOCK_STRIPES; i++) {
+            locks[i] = new Object();
+        }
+        try {
+            Files.createDirectories(incomingRoot);
+        } catch (IOException e) {
+            throw new RuntimeException("Could not initialize blob storage", e);
+        }
+        checkHardLinks();
+    }
+
+    /**
+     * Fail unless the blob root supports hard links and reports link counts: copies in their place
+     * would neither be deduplicated nor ever release their blob.
+     */
+    private void checkHardLinks() {
+        Path probe = null;
+        Path link = null;
+        try {
+            probe = Files.createTempFile(incomingRoot, "link-probe", ".part");
+            link = probe.resolveSibling(probe.getFileName() + ".link");
+            Files.createLink(link, probe);
+            if (linkCount(probe) != 2) {
+                throw new IllegalStateException("Link counts are not reported under " + getRootLocation());
+            }
+        } catch (IOException | UnsupportedOperationException e) {
+            throw new IllegalStateException("Hard links are not supported under " + getRootLocation(), e);
+        } finally {
+            try {
+                if (link != null) Files.deleteIfExists(link);
+                if (probe != null) Files.deleteIfExists(probe);
+            } catch (IOException ignored) {}
+        }
+    }
+
+    @Override
+    public String store(MultipartFile file) {
+        if (file.isEmpty()) throw new RuntimeException("Failed to store empty file");
+        String filename = generateFilename(file);
+        try {
+            if (file.getSize() <= inMemoryHashThreshold) {
+                byte[] bytes = file.getBytes();
+                String hash = ContentHashes.sha256(bytes);
+                linkBlob(hash, filename, () -> {
+                    Path incoming = Files.createTempFile(incomingRoot, hash, ".part");
+                    Files.write(incoming, bytes);
+                    return incoming;
+                });
+            } else {
+                try (InputStream in = file.getInputStream()) {
+                    storeStream(in, filename);
+                }
+            }
+            return filename;
+        } catch (IOException e) {
+            throw new RuntimeException("Failed to store file", e);
+        }
+    }
+
+    @Override
+    public StoredFile store(InputStream content, String originalFilename) {
+        String filename = generateFilename(originalFilename);
+        try {
+            return storeStream(content, filename);
+        } catch (IOException e) {
+            throw new RuntimeException("Failed to store file", e);
+        }
+    }
+
+    @Override
+    public StoredFile store(Path source, String originalFilename) {
+        String filename = generateFilename(originalFilename);
+        try {
+            StoredFile stored = ContentHashes.describe(filename, source);
+            linkBlob(stored.getSha256(), filename, () -> source);
+            Files.deleteIfExists(source);
+            return stored;
+        } catch (IOException e) {
+            throw new RuntimeException("Failed to store file", e);
+        }
+    }
+
+    @Override
+    public void delete(String filename) {
+        getHotFileCache().invalidate(filename);
+        Path file = resolve(filename);
+        try {
+            if (!Files.exists(file)) {
+                return;
+            }
+            String hash = blobHashOf(file);
+            Files.deleteIfExists(file);
+            if (hash != null) {
+                releaseBlob(hash);
+            }
+        } catch (IOException e) {
+            LOG.warn("Could not delete stored file {}", filename, e);
+        }
+    }
+
+    /**
+     * Stored files are links to shared blobs, whose link count is their reference count, so they
+     * are never moved to the cold tier.
+     */
+    @Override
+    protected boolean isTiered() {
+        return false;
+    }
+
+    /**
+     * Number of stored filenames currently referencing the blob with the given hash.
+     *
+     * @param hash the SHA-256 of the content, in lower-case hex.
+     * @return the reference count, {@code 0} if no such blob is stored, or {@code -1} if the file system cannot tell.
+     */
+    public int referenceCount(String hash) {
+        Path blob = blobPath(hash);
+        if (!Files.exists(blob)) {
+            return 0;
+        }
+        int links = linkCount(blob);
+        return links < 0 ? -1 : links - 1;
+    }
+
+    /**
+     * Stream content into an incoming file under the blob root while hashing it, then link it
+     * under {@code filename}. The incoming file is renamed into the blob store, so each new
+     * content is written exactly once.
+     */
+    private StoredFile storeStream(InputStream content, String filename) throws IOException {
+        MessageDigest digest = ContentHashes.newSha256();
+        CRC32C crc = new CRC32C();
+        Path incoming = Files.createTempFile(incomingRoot, "upload", ".part");
+        try {
+            InputStream checked = new DigestInputStream(new CheckedInputStream(content, crc), digest);
+            long size = Files.copy(checked, incoming, StandardCopyOption.REPLACE_EXISTING);
+            if (size == 0) throw new RuntimeException("Failed to store empty file");
+            String hash = ContentHashes.hex(digest);
+            linkBlob(hash, filename, () -> incoming);
+            return new StoredFile(filename, size, hash, ContentHashes.hex(crc));
+        } finally {
+            Files.deleteIfExists(incoming);
+        }
+    }
+
+    Path blobPath(String hash) {
+        return blobRoot.resolve(hash.substring(0, 2)).resolve(hash.substring(2, 4)).resolve(hash);
+    }
+
+    /**
+     * Make {@code filename} a link to the blob for {@code hash}, materializing the blob from
+     * {@code source} only if it is not stored yet.
+     */
+    private void linkBlob(String hash, String filename, BlobSource source) throws IOException {
+        Path blob = blobPath(hash);
+        Path target = destination(filename);
+        synchronized (lockFor(hash)) {
+            if (!Files.exists(blob)) {
+                Files.createDirectories(blob.getParent());
+                Path incoming = source.open();
+                Files.move(incoming, blob, StandardCopyOption.ATOMIC_MOVE);
+                writeHashAttribute(blob, hash);
+            } else {
+                LOG.debug("Deduplicated upload {} against blob {}", filename, hash);
+            }
+            Files.createLink(target, blob);
+        }
+    }
+
+    private void releaseBlob(String hash) throws IOException {
+        Path blob = blobPath(hash);
+        synchronized (lockFor(hash)) {
+            if (linkCount(blob) == 1) {
+                Files.deleteIfExists(blob);
+                LOG.debug("Deleted unreferenced blob {}", hash);
+            }
+        }
+    }
+
+    /**
+     * Find the hash of the blob a stored file is linked to, or {@code null} for files stored
+     * before deduplication was enabled.
+     */
+    private String blobHashOf(Path file) throws IOException {
+        String hash = readHashAttribute(file);
+        if (hash != null) {
+            return hash;
+        }
+        if (linkCount(file) == 1) {
+            return null;
+        }
+        hash = ContentHashes.sha256(file);
+        Path blob = blobPath(hash);
+        return Files.exists(blob) && Files.isSameFile(blob, file) ? hash : null;
+    }
+
+    private Object lockFor(String hash) {
+        return locks[Math.floorMod(hash.hashCode(), LOCK_STRIPES)];
+    }
+
+    private static int linkCount(Path path) {
+        try {
+            return (Integer) Files.getAttribute(path, "unix:nlink");
+        } catch (UnsupportedOperationException | IllegalArgumentException | IOException e) {
+            return -1;
+        }
+    }
+
+    private static void writeHashAttribute(Path blob, String hash) {
+        UserDefinedFileAttributeView view = Files.getFileAttributeView(blob, UserDefinedFileAttributeView.class);
+        if (view == null) {
+            return;
+        }
+        try {
+            view.write(HASH_ATTRIBUTE, StandardCharsets.US_ASCII.encode(hash));
+        } catch (IOException | UnsupportedOperationException e) {
+            // Extended attributes are only an optimization for delete, the hash can be recomputed
+        }
+    }
+
+    private static String readHashAttribute(Path file) {
+        UserDefinedFileAttributeView view = Files.getFileAttributeView(file, UserDefinedFileAttributeView.class);
+        if (view == null) {
+            return null;
+        }
+        try {
+            ByteBuffer buffer = ByteBuffer.allocate(64);
+            view.read(HASH_ATTRIBUTE, buffer);
+            buffer.flip();
+            return StandardCharsets.US_ASCII.decode(buffer).toString();
+        } catch (IOException | UnsupportedOperationException e) {
+            return null;
+        }
+    }
+
+    @FunctionalInterface
+    private interface BlobSource {
+        Path open() throws IOException;
+    }
+}
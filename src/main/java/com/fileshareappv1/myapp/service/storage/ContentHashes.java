@@ -0,0 +1,67 @@
+package com.fileshareappv1.myapp.service.storage;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+import java.util.zip.CRC32C;
+import java.util.zip.CheckedInputStream;
+import java.util.zip.Checksum;
+
+/**
+ * Utility methods for the content hashes used by the storage layer.
+ */
+public final class ContentHashes {
+
+    private ContentHashes() {}
+
+    public static MessageDigest newSha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
+    }
+
+    public static String hex(MessageDigest digest) {
+        return HexFormat.of().formatHex(digest.digest());
+    }
+
+    public static String hex(Checksum crc32c) {
+        return HexFormat.of().toHexDigits((int) crc32c.getValue());
+    }
+
+    public static String sha256(byte[] bytes) {
+        return HexFormat.of().formatHex(newSha256().digest(bytes));
+    }
+
+    public static String sha256(Path file) throws IOException {
+        MessageDigest digest = newSha256();
+        try (InputStream in = new DigestInputStream(Files.newInputStream(file), digest)) {
+            in.transferTo(OutputStream.nullOutputStream());
+        }
+        return hex(digest);
+    }
+
+    /**
+     * Compute the size, SHA-256 and CRC32C of a file in a single read.
+     *
+     * @param filename the stored filename to report.
+     * @param file the file to read.
+     * @return the stored file description.
+     */
+    public static StoredFile describe(String filename, Path file) throws IOException {
+        MessageDigest digest = newSha256();
+        CRC32C crc = new CRC32C();
+        long size;
+        try (InputStream in = new DigestInputStream(new CheckedInputStream(Files.newInputStream(file), crc), digest)) {
+            size = in.transferTo(OutputStream.nullOutputStream());
+        }
+        return new StoredFile(filename, size, hex(digest), hex(crc));
+    }
+}
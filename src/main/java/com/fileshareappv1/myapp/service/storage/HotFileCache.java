@@ -0,0 +1,175 @@
+package com.fileshareappv1.myapp.service.storage;
+
+import com.fileshareappv1.myapp.config.StorageProperties;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+/**
+ * Size-bounded in-memory cache of the most downloaded stored files, held in direct (off-heap)
+ * buffers so that a cached download is written straight from memory to the socket.
+ * <p>
+ * Eviction is Caffeine's W-TinyLFU, weighted by file size. Since reading a file into memory costs
+ * as much as serving it once, a file is only read in after it was requested
+ * {@code hotCacheAdmissionThreshold} times within {@link #CANDIDATE_WINDOW}; one-off downloads
+ * never reach the cache. Stored files never change once written, so the only invalidation needed
+ * is {@link #invalidate(String)} when one is deleted.
+ * <p>
+ * Metrics: the standard {@code cache.*} meters of the {@code hot-files} cache (gets by result,
+ * evictions, size), {@code storage.hot.cache.hit.ratio}, {@code storage.hot.cache.bytes} held and
+ * {@code storage.hot.cache.served.bytes}.
+ */
+@Component
+public class HotFileCache implements MeterBinder {
+
+    private static final Logger LOG = LoggerFactory.getLogger(HotFileCache.class);
+
+    private static final String CACHE_NAME = "hot-files";
+
+    private static final Duration CANDIDATE_WINDOW = Duration.ofMinutes(10);
+
+    private static final int MAXIMUM_CANDIDATES = 100_000;
+
+    private final long maximumFileSize;
+
+    private final int admissionThreshold;
+
+    private final Cache<String, CachedFileResource> files;
+
+    private final Cache<String, AtomicInteger> candidates;
+
+    private final LongAdder servedBytes = new LongAdder();
+
+    @Autowired
+    public HotFileCache(StorageProperties properties) {
+        this(
+            properties.getHotCacheSize().toBytes(),
+            properties.getHotCacheMaxFileSize().toBytes(),
+            properties.getHotCacheAdmissionThreshold()
+        );
+    }
+
+    HotFileCache(long maximumSize, long maximumFileSize, int admissionThreshold) {
+        this.maximumFileSize = Math.min(maximumFileSize, Math.min(maximumSize, Integer.MAX_VALUE));
+        this.admissionThreshold = Math.max(1, admissionThreshold);
+        this.files = Caffeine.newBuilder()
+            .maximumWeight(maximumSize)
+            .weigher((String name, CachedFileResource file) -> (int) file.contentLength())
+            // Evict on the caller's thread, so the bytes held (and the gauge reporting them) never lag behind
+            .executor(Runnable::run)
+            .recordStats()
+            .build();
+        this.candidates = Caffeine.newBuilder().maximumSize(MAXIMUM_CANDIDATES).expireAfterWrite(CANDIDATE_WINDOW).build();
+    }
+
+    /**
+     * A cache that never holds anything, for storage services created outside of Spring.
+     *
+     * @return the disabled cache.
+     */
+    public static HotFileCache disabled() {
+        return new HotFileCache(0, 0, 1);
+    }
+
+    /**
+     * @param filename the stored filename.
+     * @return the cached file, or {@code null} if it is not in memory.
+     */
+    public CachedFileResource get(String filename) {
+        return maximumFileSize > 0 ? files.getIfPresent(filename) : null;
+    }
+
+    /**
+     * Record a request for a stored file that missed the cache, and read the file into memory if
+     * it has become hot.
+     *
+     * @param filename the stored filename.
+     * @param file the stored file on disk.
+     * @return the file now held in memory, or {@code null} if it was not admitted.
+     */
+    public CachedFileResource admit(String filename, Path file) {
+        if (maximumFileSize <= 0) {
+            return null;
+        }
+        try {
+            long size = Files.size(file);
+            if (size == 0 || size > maximumFileSize) {
+                return null;
+            }
+            if (candidates.get(filename, name -> new AtomicInteger()).incrementAndGet() < admissionThreshold) {
+                return null;
+            }
+            candidates.invalidate(filename);
+            CachedFileResource cached = read(filename, file, size);
+            files.put(filename, cached);
+            // A delete racing with the read above must not leave its file behind in memory
+            if (!Files.exists(file)) {
+                files.invalidate(filename);
+                return null;
+            }
+            return cached;
+        } catch (IOException e) {
+            LOG.debug("Could not cache stored file {}: {}", filename, e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * Drop a stored file from memory, once it was deleted.
+     *
+     * @param filename the stored filename.
+     */
+    public void invalidate(String filename) {
+        files.invalidate(filename);
+        candidates.invalidate(filename);
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        CaffeineCacheMetrics.monitor(registry, files, CACHE_NAME);
+        Gauge.builder("storage.hot.cache.hit.ratio", files, cache -> cache.stats().hitRate())
+            .description("Share of stored file reads answered from memory")
+            .register(registry);
+        Gauge.builder("storage.hot.cache.bytes", files, cache ->
+            cache.policy().eviction().flatMap(eviction -> eviction.weightedSize().stream().boxed().findFirst()).orElse(0L)
+        )
+            .description("Bytes of stored files held in memory")
+            .baseUnit("bytes")
+            .register(registry);
+        FunctionCounter.builder("storage.hot.cache.served.bytes", servedBytes, LongAdder::sum)
+            .description("Bytes of downloads served from memory")
+            .baseUnit("bytes")
+            .register(registry);
+    }
+
+    private CachedFileResource read(String filename, Path file, long size) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocateDirect((int) size);
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            while (buffer.hasRemaining()) {
+                if (channel.read(buffer) < 0) {
+                    throw new IOException("File shrank while being cached");
+                }
+            }
+        }
+        buffer.flip();
+        long lastModified = Files.getLastModifiedTime(file).toMillis();
+        return new CachedFileResource(filename, buffer, lastModified, servedBytes::add);
+    }
+}
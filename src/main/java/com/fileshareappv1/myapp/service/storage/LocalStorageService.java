@@ -2,22 +2,113 @@ package com.fileshareappv1.myapp.service.storage;
 
 import com.fileshareappv1.myapp.config.StorageProperties;
 import java.io.IOException;
-import java.net.MalformedURLException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.*;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.UserDefinedFileAttributeView;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
 import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.UnaryOperator;
+import java.util.zip.CRC32C;
+import java.util.zip.CheckedInputStream;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.core.io.Resource;
 import org.springframework.core.io.UrlResource;
+import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
 import org.springframework.util.StringUtils;
 import org.springframework.web.multipart.MultipartFile;
 
+/**
+ * {@link StorageRepository} keeping each upload as its own file under the storage root.
+ * <p>
+ * Files are spread over two levels of directories derived from their stored filename
+ * ({@code ab/cd/<uuid>.ext}), so no directory grows beyond a few thousand entries. Stored
+ * filenames themselves stay flat: files written by earlier versions directly under the root are
+ * still found, and are moved into their shard in the background by {@link #migrateFlatLayout()}.
+ * <p>
+ * With {@code storage.cold-location} set, files neither uploaded nor downloaded for
+ * {@code storage.cold-after} are moved to that cheaper {@link ColdTier} by {@link #moveColdFiles()},
+ * and moved back by the first download that needs them, under the same stored filename. Downloads
+ * are remembered in memory and recorded on the hot file as the {@code accessed} extended attribute
+ * on the next run; where extended attributes are not supported, only uploads count. A file only
+ * moves between the tiers under a lock of its own, which downloads take to find it, so a download
+ * never sees it half-moved. {@link #list(String, int)} lists the files of both tiers.
+ */
 @Service
+@ConditionalOnProperty(prefix = "app.storage", name = "type", havingValue = "local", matchIfMissing = true)
 public class LocalStorageService implements StorageRepository {
 
+    private static final Logger LOG = LoggerFactory.getLogger(LocalStorageService.class);
+
+    private static final String ACCESSED_ATTRIBUTE = "accessed";
+
+    private static final int LOCK_STRIPES = 64;
+
+    /**
+     * Listing order: paths relative to the root, compared segment by segment.
+     */
+    private static final Comparator<String> KEY_ORDER = (a, b) -> Arrays.compare(a.split("/"), b.split("/"));
+
     private final Path rootLocation;
 
+    private final boolean sharded;
+
+    private final int migrationBatchSize;
+
+    private volatile boolean flatLayoutMigrated;
+
+    private final HotFileCache hotFileCache;
+
+    private final ColdTier coldTier;
+
+    private final Duration coldAfter;
+
+    private final int tieringBatchSize;
+
+    private final Set<String> accessed = ConcurrentHashMap.newKeySet();
+
+    private String tieringCursor;
+
+    private volatile boolean accessAttributeSupported = true;
+
+    private final Object[] tieringLocks = new Object[LOCK_STRIPES];
+
     public LocalStorageService(StorageProperties properties) {
+        this(properties, HotFileCache.disabled());
+    }
+
+    @Autowired
+    public LocalStorageService(StorageProperties properties, HotFileCache hotFileCache) {
+        this.hotFileCache = hotFileCache;
         this.rootLocation = properties.getLocation();
+        this.sharded = properties.isSharded();
+        this.migrationBatchSize = properties.getLayoutMigrationBatchSize();
+        this.flatLayoutMigrated = !sharded;
+        this.coldTier = properties.getColdLocation() == null
+            ? null
+            : new ColdTier(properties.getColdLocation(), properties.isColdCompression());
+        this.coldAfter = properties.getColdAfter();
+        this.tieringBatchSize = properties.getTieringBatchSize();
+        for (int i = 0; i < LOCK_STRIPES; i++) {
+            tieringLocks[i] = new Object();
+        }
         try {
             Files.createDirectories(rootLocation);
         } catch (IOException e) {
@@ -27,15 +118,10 @@ public class LocalStorageService implements StorageRepository {
 
     @Override
     public String store(MultipartFile file) {
-        String original = StringUtils.cleanPath(file.getOriginalFilename());
-        String ext = "";
-        int idx = original.lastIndexOf('.');
-        if (idx > 0) ext = original.substring(idx);
-
-        String filename = UUID.randomUUID().toString() + ext;
+        String filename = generateFilename(file);
         try {
             if (file.isEmpty()) throw new RuntimeException("Failed to store empty file");
-            Path destination = rootLocation.resolve(filename);
+            Path destination = destination(filename);
             Files.copy(file.getInputStream(), destination, StandardCopyOption.REPLACE_EXISTING);
             return filename;
         } catch (IOException e) {
@@ -43,26 +129,407 @@ public class LocalStorageService implements StorageRepository {
         }
     }
 
+    @Override
+    public StoredFile store(InputStream content, String originalFilename) {
+        String filename = generateFilename(originalFilename);
+        MessageDigest digest = ContentHashes.newSha256();
+        CRC32C crc = new CRC32C();
+        Path destination = null;
+        try {
+            destination = destination(filename);
+            InputStream checked = new DigestInputStream(new CheckedInputStream(content, crc), digest);
+            long size = Files.copy(checked, destination, StandardCopyOption.REPLACE_EXISTING);
+            if (size == 0) {
+                Files.deleteIfExists(destination);
+                throw new RuntimeException("Failed to store empty file");
+            }
+            return new StoredFile(filename, size, ContentHashes.hex(digest), ContentHashes.hex(crc));
+        } catch (IOException e) {
+            try {
+                if (destination != null) Files.deleteIfExists(destination);
+            } catch (IOException ignored) {}
+            throw new RuntimeException("Failed to store file", e);
+        }
+    }
+
+    @Override
+    public StoredFile store(Path source, String originalFilename) {
+        String filename = generateFilename(originalFilename);
+        try {
+            StoredFile stored = ContentHashes.describe(filename, source);
+            Path destination = destination(filename);
+            try {
+                Files.move(source, destination, StandardCopyOption.ATOMIC_MOVE);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(source, destination, StandardCopyOption.REPLACE_EXISTING);
+            }
+            return stored;
+        } catch (IOException e) {
+            throw new RuntimeException("Failed to store file", e);
+        }
+    }
+
     @Override
     public Resource loadAsResource(String filename) {
+        if (isTiered()) {
+            accessed.add(filename);
+        }
+        Resource cached = hotFileCache.get(filename);
+        if (cached != null) {
+            return cached;
+        }
         try {
-            Path file = rootLocation.resolve(filename);
+            Path file = isTiered() ? resolveForDownload(filename) : resolve(filename);
             Resource resource = new UrlResource(file.toUri());
             if (resource.exists() || resource.isReadable()) {
-                return resource;
+                Resource admitted = hotFileCache.admit(filename, file);
+                return admitted != null ? admitted : resource;
             }
             throw new RuntimeException("Could not read file: " + filename);
-        } catch (MalformedURLException e) {
+        } catch (IOException e) {
             throw new RuntimeException("Could not read file: " + filename, e);
         }
     }
 
+    /**
+     * Cold files are read where they are, decompressed on the fly: a background read is not a
+     * download, so it neither moves them back nor counts as an access.
+     */
+    @Override
+    public InputStream openStream(String filename) throws IOException {
+        Path file = resolve(filename);
+        if (isTiered() && !Files.exists(file) && coldTier.contains(filename)) {
+            return coldTier.open(filename);
+        }
+        return Files.newInputStream(file);
+    }
+
     @Override
     public void delete(String filename) {
+        hotFileCache.invalidate(filename);
+        try {
+            if (coldTier == null) {
+                Files.deleteIfExists(resolve(filename));
+                return;
+            }
+            synchronized (tieringLockFor(filename)) {
+                Files.deleteIfExists(resolve(filename));
+                coldTier.delete(filename);
+            }
+        } catch (IOException e) {
+            LOG.warn("Could not delete stored file {}", filename, e);
+        }
+    }
+
+    /**
+     * Files are listed in the order of their path relative to the root ({@code ab/cd/<filename>},
+     * or just the filename for files not migrated yet), compared segment by segment. Entries whose
+     * name starts with a dot, such as blobs and upload sessions, are not stored files and are left out.
+     * Files of the cold tier are listed under the same key as in the hot tier, once if they are in
+     * both while being moved.
+     */
+    @Override
+    public List<StoredObject> list(String after, int limit) {
+        List<StoredObject> hot = list(rootLocation, UnaryOperator.identity(), after, limit);
+        if (!isTiered()) {
+            return hot;
+        }
+        Map<String, StoredObject> page = new TreeMap<>(KEY_ORDER);
+        list(coldTier.root(), ColdTier::filenameOf, after, limit).forEach(object -> page.put(object.getKey(), object));
+        hot.forEach(object -> page.put(object.getKey(), object));
+        return page.values().stream().limit(limit).toList();
+    }
+
+    /**
+     * List the files of one tier, under the stored filename {@code filenames} gives for each entry.
+     */
+    private List<StoredObject> list(Path root, UnaryOperator<String> filenames, String after, int limit) {
+        List<StoredObject> page = new ArrayList<>(Math.min(limit, 1024));
+        String[] afterSegments = after == null ? null : after.split("/");
         try {
-            Files.deleteIfExists(rootLocation.resolve(filename));
+            listInto(root, filenames, "", afterSegments, 0, afterSegments != null, limit, page);
         } catch (IOException e) {
-            // log.warn(...)
+            throw new RuntimeException("Could not list stored files", e);
+        }
+        return page;
+    }
+
+    private void listInto(
+        Path dir,
+        UnaryOperator<String> filenames,
+        String prefix,
+        String[] after,
+        int depth,
+        boolean onCursorPath,
+        int limit,
+        List<StoredObject> page
+    ) throws IOException {
+        List<Path> entries = new ArrayList<>();
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(dir, entry -> !entry.getFileName().toString().startsWith("."))) {
+            stream.forEach(entries::add);
+        }
+        entries.sort(Comparator.comparing(entry -> filenames.apply(entry.getFileName().toString())));
+        for (Path entry : entries) {
+            if (page.size() >= limit) {
+                return;
+            }
+            String name = filenames.apply(entry.getFileName().toString());
+            boolean cursorSegment = onCursorPath && depth < after.length;
+            if (cursorSegment && name.compareTo(after[depth]) < 0) {
+                continue;
+            }
+            boolean onCursor = cursorSegment && name.equals(after[depth]);
+            BasicFileAttributes attributes = Files.readAttributes(entry, BasicFileAttributes.class, LinkOption.NOFOLLOW_LINKS);
+            if (attributes.isDirectory()) {
+                if (depth < 2) {
+                    listInto(entry, filenames, prefix + name + "/", after, depth + 1, onCursor, limit, page);
+                }
+            } else if (attributes.isRegularFile() && !(onCursor && depth == after.length - 1)) {
+                page.add(new StoredObject(prefix + name, name, attributes.size(), attributes.lastModifiedTime().toInstant()));
+            }
         }
     }
+
+    /**
+     * Move files still stored directly under the root into their shard directory, a batch at a
+     * time. Moves are atomic renames within the same file system, and {@link #resolve(String)}
+     * checks both locations, so this runs while the application keeps serving files.
+     */
+    @Scheduled(cron = "0 * * * * ?")
+    public void migrateFlatLayout() {
+        if (flatLayoutMigrated) {
+            return;
+        }
+        int moved = 0;
+        boolean remaining = false;
+        DirectoryStream.Filter<Path> visible = entry -> !entry.getFileName().toString().startsWith(".");
+        try (DirectoryStream<Path> entries = Files.newDirectoryStream(rootLocation, visible)) {
+            for (Path entry : entries) {
+                if (!Files.isRegularFile(entry, LinkOption.NOFOLLOW_LINKS)) {
+                    continue;
+                }
+                if (moved == migrationBatchSize) {
+                    remaining = true;
+                    break;
+                }
+                String filename = entry.getFileName().toString();
+                Path target = shardedPath(filename);
+                if (Files.exists(target)) {
+                    LOG.warn("Not migrating {}: {} already exists", entry, target);
+                    continue;
+                }
+                Files.createDirectories(target.getParent());
+                Files.move(entry, target, StandardCopyOption.ATOMIC_MOVE);
+                moved++;
+            }
+        } catch (IOException e) {
+            LOG.warn("Storage layout migration stopped after {} files: {}", moved, e.getMessage());
+            return;
+        }
+        if (moved > 0) {
+            LOG.info("Moved {} stored files into the sharded layout", moved);
+        }
+        if (!remaining) {
+            LOG.info("All stored files under {} use the sharded layout", rootLocation);
+            flatLayoutMigrated = true;
+        }
+    }
+
+    /**
+     * Record the downloads since the previous run, then move the files of the next batch that
+     * nobody used for {@code storage.cold-after} to the cold tier. Like the orphan collector, a pass
+     * over the whole storage is spread over many runs.
+     */
+    @Scheduled(cron = "30 */5 * * * ?")
+    public void moveColdFiles() {
+        if (!isTiered()) {
+            return;
+        }
+        recordAccesses();
+        Instant cutoff = Instant.now().minus(coldAfter);
+        List<StoredObject> batch = list(rootLocation, UnaryOperator.identity(), tieringCursor, tieringBatchSize);
+        int moved = 0;
+        long freedBytes = 0;
+        for (StoredObject object : batch) {
+            if (object.getLastModified().isAfter(cutoff) || accessed.contains(object.getFilename())) {
+                continue;
+            }
+            Path file = rootLocation.resolve(object.getKey());
+            Instant lastAccess = readAccessAttribute(file);
+            if (lastAccess != null && lastAccess.isAfter(cutoff)) {
+                continue;
+            }
+            try {
+                long coldSize = coldTier.store(file, object.getFilename());
+                synchronized (tieringLockFor(object.getFilename())) {
+                    // A download since the check keeps the file hot, and holds on to the hot copy
+                    if (accessed.contains(object.getFilename()) || !Files.exists(file)) {
+                        coldTier.delete(object.getFilename());
+                        continue;
+                    }
+                    hotFileCache.invalidate(object.getFilename());
+                    Files.delete(file);
+                }
+                moved++;
+                freedBytes += object.getSize();
+                LOG.debug("Moved cold file {} to the cold tier ({} bytes, {} there)", object.getFilename(), object.getSize(), coldSize);
+            } catch (IOException e) {
+                LOG.warn("Could not move stored file {} to the cold tier: {}", object.getFilename(), e.getMessage());
+            }
+        }
+        if (moved > 0) {
+            LOG.info("Moved {} cold files to the cold tier, freeing {} bytes of hot storage", moved, freedBytes);
+        }
+        tieringCursor = batch.size() < tieringBatchSize ? null : batch.get(batch.size() - 1).getKey();
+    }
+
+    /**
+     * Whether files are moved between the hot and the cold tier.
+     */
+    protected boolean isTiered() {
+        return coldTier != null;
+    }
+
+    /**
+     * Find a file being downloaded, moving it back from the cold tier if needed.
+     */
+    private Path resolveForDownload(String filename) throws IOException {
+        synchronized (tieringLockFor(filename)) {
+            Path file = resolve(filename);
+            if (Files.exists(file) || !coldTier.contains(filename)) {
+                return file;
+            }
+            Path destination = destination(filename);
+            try {
+                coldTier.restore(filename, destination);
+            } catch (NoSuchFileException e) {
+                // Unless it was moved back outside the lock, the file is gone
+                Path current = resolve(filename);
+                if (Files.exists(current)) {
+                    return current;
+                }
+                throw e;
+            }
+            writeAccessAttribute(destination, Instant.now());
+            LOG.debug("Moved stored file {} back from the cold tier", filename);
+            return destination;
+        }
+    }
+
+    private Object tieringLockFor(String filename) {
+        return tieringLocks[Math.floorMod(filename.hashCode(), LOCK_STRIPES)];
+    }
+
+    private void recordAccesses() {
+        Instant now = Instant.now();
+        for (String filename : List.copyOf(accessed)) {
+            accessed.remove(filename);
+            Path file = resolve(filename);
+            if (Files.exists(file)) {
+                writeAccessAttribute(file, now);
+            }
+        }
+    }
+
+    private void writeAccessAttribute(Path file, Instant accessedAt) {
+        if (!accessAttributeSupported) {
+            return;
+        }
+        UserDefinedFileAttributeView view = Files.getFileAttributeView(file, UserDefinedFileAttributeView.class);
+        try {
+            if (view == null) {
+                throw new UnsupportedOperationException("no user-defined attributes");
+            }
+            view.write(ACCESSED_ATTRIBUTE, ByteBuffer.allocate(Long.BYTES).putLong(0, accessedAt.toEpochMilli()));
+        } catch (IOException | UnsupportedOperationException e) {
+            accessAttributeSupported = false;
+            LOG.warn("Cannot record downloads on stored files ({}), files become cold {} after their upload", e.getMessage(), coldAfter);
+        }
+    }
+
+    private static Instant readAccessAttribute(Path file) {
+        UserDefinedFileAttributeView view = Files.getFileAttributeView(file, UserDefinedFileAttributeView.class);
+        if (view == null) {
+            return null;
+        }
+        try {
+            ByteBuffer buffer = ByteBuffer.allocate(Long.BYTES);
+            if (view.read(ACCESSED_ATTRIBUTE, buffer) != Long.BYTES) {
+                return null;
+            }
+            return Instant.ofEpochMilli(buffer.getLong(0));
+        } catch (IOException | UnsupportedOperationException e) {
+            return null;
+        }
+    }
+
+    protected Path getRootLocation() {
+        return rootLocation;
+    }
+
+    protected HotFileCache getHotFileCache() {
+        return hotFileCache;
+    }
+
+    /**
+     * Resolve a stored filename to its current location on disk, which is its shard directory or,
+     * for files not migrated yet, the storage root.
+     */
+    protected Path resolve(String filename) {
+        if (!sharded) {
+            return flatPath(filename);
+        }
+        Path shardedPath = shardedPath(filename);
+        if (Files.exists(shardedPath)) {
+            return shardedPath;
+        }
+        Path flatPath = flatPath(filename);
+        // Checked in this order, a file moved concurrently by the migration is still found
+        return Files.exists(flatPath) ? flatPath : shardedPath;
+    }
+
+    /**
+     * Location a new file is written to, with its parent directories created.
+     */
+    protected Path destination(String filename) throws IOException {
+        if (!sharded) {
+            return flatPath(filename);
+        }
+        Path shardedPath = shardedPath(filename);
+        Files.createDirectories(shardedPath.getParent());
+        return shardedPath;
+    }
+
+    /**
+     * {@code <root>/ab/cd/<filename>}, where {@code abcd} are the first hex digits of the SHA-256
+     * of the filename, so any naming scheme spreads evenly over the 65536 shards.
+     */
+    Path shardedPath(String filename) {
+        return shard(rootLocation, filename);
+    }
+
+    static Path shard(Path root, String filename) {
+        String hash = ContentHashes.sha256(filename.getBytes(StandardCharsets.UTF_8));
+        return root.resolve(hash.substring(0, 2)).resolve(hash.substring(2, 4)).resolve(filename);
+    }
+
+    Path flatPath(String filename) {
+        return rootLocation.resolve(filename);
+    }
+
+    /**
+     * Generate a new unique stored filename ({@code UUID + ext}) for an upload.
+     */
+    protected String generateFilename(MultipartFile file) {
+        return generateFilename(file.getOriginalFilename());
+    }
+
+    protected String generateFilename(String originalFilename) {
+        String original = StringUtils.cleanPath(originalFilename);
+        String ext = "";
+        int idx = original.lastIndexOf('.');
+        if (idx > 0) ext = original.substring(idx);
+
+        return UUID.randomUUID().toString() + ext;
+    }
 }
@@ -0,0 +1,163 @@
+package com.fileshareappv1.myapp.service.storage;
+
+import com.fileshareappv1.myapp.config.StorageProperties;
+import jakarta.annotation.PreDestroy;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.web.multipart.MultipartFile;
+
+/**
+ * Stores the files of one multi-file upload concurrently, all or nothing.
+ * <p>
+ * Writes run on a pool shared by all requests, so the number of concurrent storage writes stays
+ * bounded whatever the number of uploads in flight; when the pool's queue is full the request
+ * thread stores the file itself. If any file fails, the files already stored for the same upload
+ * are deleted before the failure is rethrown.
+ */
+@Service
+public class ParallelFileStorage {
+
+    private static final Logger LOG = LoggerFactory.getLogger(ParallelFileStorage.class);
+
+    private static final int QUEUE_CAPACITY = 256;
+
+    private final StorageRepository storageRepository;
+
+    private final ThreadPoolExecutor executor;
+
+    public ParallelFileStorage(StorageRepository storageRepository, StorageProperties storageProperties) {
+        this.storageRepository = storageRepository;
+        int threads = storageProperties.getUploadParallelism();
+        this.executor = new ThreadPoolExecutor(
+            threads,
+            threads,
+            60,
+            TimeUnit.SECONDS,
+            new ArrayBlockingQueue<>(QUEUE_CAPACITY),
+            new CustomizableThreadFactory("storage-"),
+            new ThreadPoolExecutor.CallerRunsPolicy()
+        );
+        this.executor.allowCoreThreadTimeOut(true);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdown();
+    }
+
+    /**
+     * Store all files, concurrently, with their checksums computed while they are written.
+     *
+     * @param files the uploaded files.
+     * @return the stored files, in the order of {@code files}.
+     * @throws RuntimeException the first storage failure, once every file stored so far was deleted again.
+     */
+    public List<StoredFile> storeAll(List<MultipartFile> files) {
+        if (files.size() == 1) {
+            return List.of(store(files.get(0)));
+        }
+
+        AtomicBoolean failed = new AtomicBoolean();
+        List<Future<StoredFile>> futures = new ArrayList<>(files.size());
+        for (MultipartFile file : files) {
+            futures.add(
+                executor.submit(() -> {
+                    if (failed.get()) {
+                        return null;
+                    }
+                    try {
+                        return store(file);
+                    } catch (RuntimeException e) {
+                        failed.set(true);
+                        throw e;
+                    }
+                })
+            );
+        }
+
+        // Wait for every task, even after a failure, so nothing gets stored after the cleanup below
+        List<StoredFile> stored = new ArrayList<>(files.size());
+        RuntimeException failure = null;
+        for (Future<StoredFile> future : futures) {
+            try {
+                stored.add(getUninterruptibly(future));
+            } catch (ExecutionException e) {
+                if (failure == null) {
+                    failure = e.getCause() instanceof RuntimeException runtime ? runtime : new RuntimeException(e.getCause());
+                }
+            }
+        }
+        if (failure != null) {
+            deleteAll(stored.stream().filter(Objects::nonNull).map(StoredFile::getFilename).toList());
+            throw failure;
+        }
+        return stored;
+    }
+
+    private StoredFile store(MultipartFile file) {
+        try (InputStream content = file.getInputStream()) {
+            return storageRepository.store(content, file.getOriginalFilename());
+        } catch (IOException e) {
+            throw new RuntimeException("Failed to store file", e);
+        }
+    }
+
+    /**
+     * Delete the given stored files if the current transaction rolls back, so an upload whose
+     * database rows are not committed does not leave its files behind.
+     *
+     * @param storedNames the stored filenames.
+     */
+    public void deleteOnRollback(List<String> storedNames) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(
+            new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    if (status != STATUS_COMMITTED) {
+                        LOG.debug("Upload rolled back, deleting {} stored files", storedNames.size());
+                        deleteAll(storedNames);
+                    }
+                }
+            }
+        );
+    }
+
+    private void deleteAll(List<String> storedNames) {
+        storedNames.forEach(storageRepository::delete);
+    }
+
+    private static <T> T getUninterruptibly(Future<T> future) throws ExecutionException {
+        boolean interrupted = false;
+        try {
+            while (true) {
+                try {
+                    return future.get();
+                } catch (InterruptedException e) {
+                    interrupted = true;
+                }
+            }
+        } finally {
+            if (interrupted) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+}
@@ -0,0 +1,20 @@
+package com.fileshareappv1.myapp.service.storage;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * A stored file that can be read from an arbitrary offset without reading the bytes before it,
+ * such as an object fetched from remote storage with a ranged request.
+ */
+public interface RangeReadableResource {
+    /**
+     * Open a stream over part of the content.
+     *
+     * @param position the offset of the first byte.
+     * @param count the number of bytes.
+     * @return the stream, which the caller must close.
+     * @throws IOException if the content cannot be read.
+     */
+    InputStream getInputStream(long position, long count) throws IOException;
+}
@@ -0,0 +1,408 @@
+package com.fileshareappv1.myapp.service.storage;
+
+import com.fileshareappv1.myapp.config.StorageProperties;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+
+/**
+ * Minimal client for the object operations of the S3 REST API, signed with AWS Signature Version 4.
+ * <p>
+ * Requests go through one shared {@link HttpClient}, which keeps connections to the endpoint alive
+ * and reuses them; a semaphore bounds the number of requests in flight, a streamed download holding
+ * its permit until its stream is closed. Payloads are sent as {@code UNSIGNED-PAYLOAD}, so uploads
+ * are streamed without hashing them up front.
+ */
+class S3Client {
+
+    private static final String ALGORITHM = "AWS4-HMAC-SHA256";
+
+    private static final String UNSIGNED_PAYLOAD = "UNSIGNED-PAYLOAD";
+
+    private static final DateTimeFormatter AMZ_DATE = DateTimeFormatter.ofPattern("yyyyMMdd'T'HHmmss'Z'").withZone(ZoneOffset.UTC);
+
+    private static final Pattern UPLOAD_ID = Pattern.compile("<UploadId>([^<]+)</UploadId>");
+
+    private static final Pattern CONTENTS = Pattern.compile("<Contents>(.*?)</Contents>", Pattern.DOTALL);
+
+    private static final Duration REQUEST_TIMEOUT = Duration.ofMinutes(5);
+
+    /**
+     * Size and modification time of a stored object.
+     */
+    static class ObjectInfo {
+
+        private final long size;
+
+        private final long lastModified;
+
+        ObjectInfo(long size, long lastModified) {
+            this.size = size;
+            this.lastModified = lastModified;
+        }
+
+        long getSize() {
+            return size;
+        }
+
+        /**
+         * @return the last modification time in epoch millis, or {@code 0} if unknown.
+         */
+        long getLastModified() {
+            return lastModified;
+        }
+    }
+
+    private final URI endpoint;
+
+    private final String region;
+
+    private final String bucket;
+
+    private final String accessKey;
+
+    private final byte[] secretKey;
+
+    private final boolean pathStyleAccess;
+
+    private final HttpClient httpClient;
+
+    private final Semaphore permits;
+
+    S3Client(StorageProperties.S3 config) {
+        if (config.getEndpoint() == null || config.getBucket() == null) {
+            throw new IllegalStateException("app.storage.s3.endpoint and app.storage.s3.bucket are required for the s3 storage type");
+        }
+        String base = config.getEndpoint().toString();
+        this.endpoint = URI.create(base.endsWith("/") ? base.substring(0, base.length() - 1) : base);
+        this.region = config.getRegion();
+        this.bucket = config.getBucket();
+        this.accessKey = config.getAccessKey();
+        this.secretKey = ("AWS4" + config.getSecretKey()).getBytes(StandardCharsets.UTF_8);
+        this.pathStyleAccess = config.isPathStyleAccess();
+        this.httpClient = HttpClient.newBuilder().version(HttpClient.Version.HTTP_1_1).connectTimeout(config.getConnectTimeout()).build();
+        this.permits = new Semaphore(config.getMaxConnections());
+    }
+
+    /**
+     * @return the size and modification time of the object, or {@code null} if there is no such object.
+     */
+    ObjectInfo head(String key) throws IOException {
+        HttpResponse<Void> response = send(
+            request("HEAD", key, Map.of()).method("HEAD", HttpRequest.BodyPublishers.noBody()),
+            discarding()
+        );
+        if (response.statusCode() == 404) {
+            return null;
+        }
+        check(response, "HEAD", key);
+        long size = response.headers().firstValueAsLong("Content-Length").orElse(0);
+        long lastModified = response.headers().firstValue("Last-Modified").map(S3Client::parseHttpDate).orElse(0L);
+        return new ObjectInfo(size, lastModified);
+    }
+
+    /**
+     * Stream the whole object, or {@code count} bytes of it from {@code position} with a ranged GET.
+     */
+    InputStream get(String key, long position, long count) throws IOException {
+        HttpRequest.Builder request = request("GET", key, Map.of()).GET();
+        if (count >= 0) {
+            request.header("Range", "bytes=" + position + "-" + (position + count - 1));
+        }
+        acquire();
+        HttpResponse<InputStream> response;
+        try {
+            response = httpClient.send(request.build(), HttpResponse.BodyHandlers.ofInputStream());
+        } catch (IOException | InterruptedException | RuntimeException e) {
+            permits.release();
+            throw asIOException(e);
+        }
+        int status = response.statusCode();
+        if (status != 200 && status != 206) {
+            response.body().close();
+            permits.release();
+            throw new IOException("S3 GET " + key + " failed with status " + status);
+        }
+        return releasingOnClose(response.body());
+    }
+
+    /**
+     * Upload a whole object in one request.
+     */
+    void put(String key, HttpRequest.BodyPublisher body) throws IOException {
+        check(send(request("PUT", key, Map.of()).PUT(body), discarding()), "PUT", key);
+    }
+
+    /**
+     * @return the id of the new multipart upload.
+     */
+    String createMultipartUpload(String key) throws IOException {
+        HttpResponse<String> response = send(
+            request("POST", key, Map.of("uploads", "")).POST(HttpRequest.BodyPublishers.noBody()),
+            HttpResponse.BodyHandlers.ofString()
+        );
+        check(response, "CreateMultipartUpload", key);
+        Matcher matcher = UPLOAD_ID.matcher(response.body());
+        if (!matcher.find()) {
+            throw new IOException("S3 CreateMultipartUpload of " + key + " returned no UploadId");
+        }
+        return matcher.group(1);
+    }
+
+    /**
+     * @return the entity tag of the uploaded part.
+     */
+    String uploadPart(String key, String uploadId, int partNumber, byte[] data, int length) throws IOException {
+        HttpResponse<Void> response = send(
+            request("PUT", key, Map.of("partNumber", Integer.toString(partNumber), "uploadId", uploadId)).PUT(
+                HttpRequest.BodyPublishers.ofByteArray(data, 0, length)
+            ),
+            discarding()
+        );
+        check(response, "UploadPart", key);
+        return response.headers().firstValue("ETag").orElseThrow(() -> new IOException("S3 UploadPart of " + key + " returned no ETag"));
+    }
+
+    void completeMultipartUpload(String key, String uploadId, List<String> partEtags) throws IOException {
+        StringBuilder body = new StringBuilder("<CompleteMultipartUpload>");
+        for (int i = 0; i < partEtags.size(); i++) {
+            body.append("<Part><PartNumber>").append(i + 1).append("</PartNumber><ETag>").append(partEtags.get(i)).append("</ETag></Part>");
+        }
+        body.append("</CompleteMultipartUpload>");
+        HttpResponse<String> response = send(
+            request("POST", key, Map.of("uploadId", uploadId)).POST(HttpRequest.BodyPublishers.ofString(body.toString())),
+            HttpResponse.BodyHandlers.ofString()
+        );
+        check(response, "CompleteMultipartUpload", key);
+        // S3 may report a failure of the completion with a 200 status and an error document
+        if (response.body().contains("<Error>")) {
+            throw new IOException("S3 CompleteMultipartUpload of " + key + " failed: " + response.body());
+        }
+    }
+
+    void abortMultipartUpload(String key, String uploadId) throws IOException {
+        HttpResponse<Void> response = send(request("DELETE", key, Map.of("uploadId", uploadId)).DELETE(), discarding());
+        if (response.statusCode() != 404) {
+            check(response, "AbortMultipartUpload", key);
+        }
+    }
+
+    /**
+     * List the objects of the bucket whose key follows {@code startAfter}, in key order.
+     */
+    List<StoredObject> list(String startAfter, int maxKeys) throws IOException {
+        Map<String, String> query = new TreeMap<>(Map.of("list-type", "2", "max-keys", Integer.toString(maxKeys)));
+        if (startAfter != null) {
+            query.put("start-after", startAfter);
+        }
+        HttpResponse<String> response = send(request("GET", "", query).GET(), HttpResponse.BodyHandlers.ofString());
+        check(response, "ListObjectsV2", "");
+        List<StoredObject> objects = new ArrayList<>();
+        Matcher contents = CONTENTS.matcher(response.body());
+        while (contents.find()) {
+            String key = unescapeXml(element(contents.group(1), "Key"));
+            long size = Long.parseLong(element(contents.group(1), "Size"));
+            Instant lastModified = Instant.parse(element(contents.group(1), "LastModified"));
+            objects.add(new StoredObject(key, key, size, lastModified));
+        }
+        return objects;
+    }
+
+    void delete(String key) throws IOException {
+        HttpResponse<Void> response = send(request("DELETE", key, Map.of()).DELETE(), discarding());
+        if (response.statusCode() != 404) {
+            check(response, "DELETE", key);
+        }
+    }
+
+    private <T> HttpResponse<T> send(HttpRequest.Builder request, HttpResponse.BodyHandler<T> bodyHandler) throws IOException {
+        acquire();
+        try {
+            return httpClient.send(request.build(), bodyHandler);
+        } catch (InterruptedException e) {
+            throw asIOException(e);
+        } finally {
+            permits.release();
+        }
+    }
+
+    private void acquire() throws IOException {
+        try {
+            permits.acquire();
+        } catch (InterruptedException e) {
+            throw asIOException(e);
+        }
+    }
+
+    private InputStream releasingOnClose(InputStream body) {
+        AtomicBoolean released = new AtomicBoolean();
+        return new FilterInputStream(body) {
+            @Override
+            public void close() throws IOException {
+                try {
+                    super.close();
+                } finally {
+                    if (released.compareAndSet(false, true)) {
+                        permits.release();
+                    }
+                }
+            }
+        };
+    }
+
+    /**
+     * Build a request for an object, signed with Signature Version 4 over the method, path, query
+     * and the {@code host}, {@code x-amz-content-sha256} and {@code x-amz-date} headers.
+     */
+    HttpRequest.Builder request(String method, String key, Map<String, String> query) {
+        String basePath = endpoint.getRawPath() == null ? "" : endpoint.getRawPath();
+        String path = basePath + (pathStyleAccess ? "/" + encode(bucket) : "") + (key.isEmpty() ? "" : "/" + encode(key));
+        if (path.isEmpty()) {
+            path = "/";
+        }
+        String host = pathStyleAccess ? endpoint.getHost() : bucket + "." + endpoint.getHost();
+        int port = endpoint.getPort();
+        boolean defaultPort =
+            port == -1 || (port == 443 && "https".equals(endpoint.getScheme())) || (port == 80 && "http".equals(endpoint.getScheme()));
+        String hostHeader = defaultPort ? host : host + ":" + port;
+
+        StringBuilder canonicalQuery = new StringBuilder();
+        new TreeMap<>(query).forEach((name, value) -> {
+            if (!canonicalQuery.isEmpty()) {
+                canonicalQuery.append('&');
+            }
+            canonicalQuery.append(encode(name)).append('=').append(encode(value));
+        });
+
+        String amzDate = AMZ_DATE.format(Instant.now());
+        String date = amzDate.substring(0, 8);
+        String signedHeaders = "host;x-amz-content-sha256;x-amz-date";
+        String canonicalRequest = String.join(
+            "\n",
+            method,
+            path,
+            canonicalQuery,
+            "host:" + hostHeader,
+            "x-amz-content-sha256:" + UNSIGNED_PAYLOAD,
+            "x-amz-date:" + amzDate,
+            "",
+            signedHeaders,
+            UNSIGNED_PAYLOAD
+        );
+        String scope = date + "/" + region + "/s3/aws4_request";
+        String canonicalRequestHash = ContentHashes.sha256(canonicalRequest.getBytes(StandardCharsets.UTF_8));
+        String stringToSign = String.join("\n", ALGORITHM, amzDate, scope, canonicalRequestHash);
+        byte[] signingKey = hmac(hmac(hmac(hmac(secretKey, date), region), "s3"), "aws4_request");
+        String signature = HexFormat.of().formatHex(hmac(signingKey, stringToSign));
+
+        URI uri = URI.create(
+            endpoint.getScheme() + "://" + hostHeader + path + (canonicalQuery.isEmpty() ? "" : "?" + canonicalQuery)
+        );
+        return HttpRequest.newBuilder(uri)
+            .timeout(REQUEST_TIMEOUT)
+            .header("x-amz-content-sha256", UNSIGNED_PAYLOAD)
+            .header("x-amz-date", amzDate)
+            .header(
+                "Authorization",
+                ALGORITHM + " Credential=" + accessKey + "/" + scope + ", SignedHeaders=" + signedHeaders + ", Signature=" + signature
+            );
+    }
+
+    /**
+     * URI-encode as Signature Version 4 requires: everything but unreserved characters, with
+     * upper-case hex digits.
+     */
+    static String encode(String value) {
+        StringBuilder encoded = new StringBuilder();
+        for (byte b : value.getBytes(StandardCharsets.UTF_8)) {
+            char c = (char) (b & 0xff);
+            boolean unreserved = (c >= 'A' && c <= 'Z') || (c >= 'a' && c <= 'z') || (c >= '0' && c <= '9') || "-_.~".indexOf(c) >= 0;
+            if (unreserved) {
+                encoded.append(c);
+            } else {
+                encoded.append('%').append(HexFormat.of().withUpperCase().toHexDigits(b));
+            }
+        }
+        return encoded.toString();
+    }
+
+    private static byte[] hmac(byte[] key, String data) {
+        try {
+            Mac mac = Mac.getInstance("HmacSHA256");
+            mac.init(new SecretKeySpec(key, "HmacSHA256"));
+            return mac.doFinal(data.getBytes(StandardCharsets.UTF_8));
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("HmacSHA256 is not available", e);
+        }
+    }
+
+    private static void check(HttpResponse<?> response, String operation, String key) throws IOException {
+        if (response.statusCode() / 100 != 2) {
+            Object body = response.body();
+            String detail = body == null ? "" : ": " + body;
+            throw new IOException("S3 " + operation + " " + key + " failed with status " + response.statusCode() + detail);
+        }
+    }
+
+    private static HttpResponse.BodyHandler<Void> discarding() {
+        return HttpResponse.BodyHandlers.discarding();
+    }
+
+    private static String element(String xml, String name) throws IOException {
+        int start = xml.indexOf("<" + name + ">");
+        int end = xml.indexOf("</" + name + ">");
+        if (start < 0 || end < start) {
+            throw new IOException("S3 listing entry without " + name);
+        }
+        return xml.substring(start + name.length() + 2, end);
+    }
+
+    private static String unescapeXml(String value) {
+        return value
+            .replace("&lt;", "<")
+            .replace("&gt;", ">")
+            .replace("&quot;", "\"")
+            .replace("&apos;", "'")
+            .replace("&amp;", "&");
+    }
+
+    private static long parseHttpDate(String value) {
+        try {
+            return ZonedDateTime.parse(value, DateTimeFormatter.RFC_1123_DATE_TIME).toInstant().toEpochMilli();
+        } catch (DateTimeParseException e) {
+            return 0;
+        }
+    }
+
+    private static IOException asIOException(Exception e) {
+        if (e instanceof InterruptedException) {
+            Thread.currentThread().interrupt();
+            return new InterruptedIOException("Interrupted while waiting for S3");
+        }
+        return e instanceof IOException io ? io : new IOException(e);
+    }
+}
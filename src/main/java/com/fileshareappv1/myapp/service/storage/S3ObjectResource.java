@@ -0,0 +1,63 @@
+package com.fileshareappv1.myapp.service.storage;
+
+import java.io.IOException;
+import java.io.InputStream;
+import org.springframework.core.io.AbstractResource;
+
+/**
+ * A stored object of the {@link S3StorageService}. Its size and modification time come from the
+ * {@code HEAD} request that located it; its content is only fetched once it is read, with a ranged
+ * {@code GET} when only part of it is needed.
+ */
+public class S3ObjectResource extends AbstractResource implements RangeReadableResource {
+
+    private final S3Client client;
+
+    private final String key;
+
+    private final S3Client.ObjectInfo info;
+
+    S3ObjectResource(S3Client client, String key, S3Client.ObjectInfo info) {
+        this.client = client;
+        this.key = key;
+        this.info = info;
+    }
+
+    @Override
+    public String getFilename() {
+        return key;
+    }
+
+    @Override
+    public String getDescription() {
+        return "S3 object [" + key + "]";
+    }
+
+    @Override
+    public boolean exists() {
+        return true;
+    }
+
+    @Override
+    public long contentLength() {
+        return info.getSize();
+    }
+
+    @Override
+    public long lastModified() {
+        return info.getLastModified();
+    }
+
+    @Override
+    public InputStream getInputStream() throws IOException {
+        return client.get(key, 0, -1);
+    }
+
+    @Override
+    public InputStream getInputStream(long position, long count) throws IOException {
+        if (position == 0 && count == info.getSize()) {
+            return getInputStream();
+        }
+        return client.get(key, position, count);
+    }
+}
@@ -0,0 +1,209 @@
+package com.fileshareappv1.myapp.service.storage;
+
+import com.fileshareappv1.myapp.config.StorageProperties;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.http.HttpRequest;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.zip.CRC32C;
+import java.util.zip.CheckedInputStream;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.core.io.Resource;
+import org.springframework.stereotype.Service;
+import org.springframework.util.StringUtils;
+import org.springframework.web.multipart.MultipartFile;
+
+/**
+ * {@link StorageRepository} keeping each upload as an object of an S3-compatible bucket, so that
+ * every application node serves the same files without a shared file system.
+ * <p>
+ * Uploads of known length up to one part are streamed in a single {@code PUT}. Anything larger, or
+ * of unknown length, is sent as a multipart upload, buffering one part at a time, and aborted if
+ * it fails. Downloads stream the object, with ranged {@code GET}s for range requests.
+ */
+@Service
+@ConditionalOnProperty(prefix = "app.storage", name = "type", havingValue = "s3")
+public class S3StorageService implements StorageRepository {
+
+    private static final Logger LOG = LoggerFactory.getLogger(S3StorageService.class);
+
+    private static final int MAX_KEYS_PER_LIST = 1000;
+
+    private final S3Client client;
+
+    private final int partSize;
+
+    @Autowired
+    public S3StorageService(StorageProperties properties) {
+        this(new S3Client(properties.getS3()), (int) Math.min(properties.getS3().getPartSize().toBytes(), Integer.MAX_VALUE - 8));
+    }
+
+    S3StorageService(S3Client client, int partSize) {
+        this.client = client;
+        this.partSize = partSize;
+    }
+
+    @Override
+    public String store(MultipartFile file) {
+        if (file.isEmpty()) throw new RuntimeException("Failed to store empty file");
+        String key = generateFilename(file.getOriginalFilename());
+        try (InputStream in = file.getInputStream()) {
+            upload(key, in, file.getSize());
+            return key;
+        } catch (IOException e) {
+            throw new RuntimeException("Failed to store file", e);
+        }
+    }
+
+    @Override
+    public StoredFile store(InputStream content, String originalFilename) {
+        String key = generateFilename(originalFilename);
+        MessageDigest digest = ContentHashes.newSha256();
+        CRC32C crc = new CRC32C();
+        try {
+            long size = upload(key, new DigestInputStream(new CheckedInputStream(content, crc), digest), -1);
+            return new StoredFile(key, size, ContentHashes.hex(digest), ContentHashes.hex(crc));
+        } catch (IOException e) {
+            throw new RuntimeException("Failed to store file", e);
+        }
+    }
+
+    @Override
+    public StoredFile store(Path source, String originalFilename) {
+        String key = generateFilename(originalFilename);
+        MessageDigest digest = ContentHashes.newSha256();
+        CRC32C crc = new CRC32C();
+        try {
+            long size;
+            try (InputStream in = new DigestInputStream(new CheckedInputStream(Files.newInputStream(source), crc), digest)) {
+                size = upload(key, in, Files.size(source));
+            }
+            Files.deleteIfExists(source);
+            return new StoredFile(key, size, ContentHashes.hex(digest), ContentHashes.hex(crc));
+        } catch (IOException e) {
+            throw new RuntimeException("Failed to store file", e);
+        }
+    }
+
+    @Override
+    public Resource loadAsResource(String filename) {
+        S3Client.ObjectInfo info;
+        try {
+            info = client.head(filename);
+        } catch (IOException e) {
+            throw new RuntimeException("Could not read file: " + filename, e);
+        }
+        if (info == null) {
+            throw new RuntimeException("Could not read file: " + filename);
+        }
+        return new S3ObjectResource(client, filename, info);
+    }
+
+    @Override
+    public InputStream openStream(String filename) throws IOException {
+        if (client.head(filename) == null) {
+            throw new NoSuchFileException(filename);
+        }
+        return client.get(filename, 0, -1);
+    }
+
+    @Override
+    public void delete(String filename) {
+        try {
+            client.delete(filename);
+        } catch (IOException e) {
+            LOG.warn("Could not delete stored file {}", filename, e);
+        }
+    }
+
+    /**
+     * Objects are listed in key order, which is their stored filename, with as many
+     * {@code ListObjectsV2} requests of at most {@value #MAX_KEYS_PER_LIST} keys as needed.
+     */
+    @Override
+    public List<StoredObject> list(String after, int limit) {
+        List<StoredObject> objects = new ArrayList<>();
+        String cursor = after;
+        try {
+            while (objects.size() < limit) {
+                int requested = Math.min(MAX_KEYS_PER_LIST, limit - objects.size());
+                List<StoredObject> page = client.list(cursor, requested);
+                objects.addAll(page);
+                if (page.size() < requested) {
+                    break;
+                }
+                cursor = page.get(page.size() - 1).getKey();
+            }
+            return objects;
+        } catch (IOException e) {
+            throw new RuntimeException("Could not list stored files", e);
+        }
+    }
+
+    /**
+     * Upload {@code content} under {@code key}.
+     *
+     * @param length the length of the content, or {@code -1} if unknown.
+     * @return the number of bytes stored.
+     */
+    private long upload(String key, InputStream content, long length) throws IOException {
+        if (length >= 0 && length <= partSize) {
+            HttpRequest.BodyPublisher body = HttpRequest.BodyPublishers.fromPublisher(
+                HttpRequest.BodyPublishers.ofInputStream(() -> content),
+                length
+            );
+            client.put(key, body);
+            return length;
+        }
+
+        byte[] part = new byte[partSize];
+        int read = content.readNBytes(part, 0, partSize);
+        if (read == 0) {
+            throw new RuntimeException("Failed to store empty file");
+        }
+        if (read < partSize) {
+            client.put(key, HttpRequest.BodyPublishers.ofByteArray(part, 0, read));
+            return read;
+        }
+
+        String uploadId = client.createMultipartUpload(key);
+        try {
+            List<String> etags = new ArrayList<>();
+            long size = 0;
+            while (read > 0) {
+                etags.add(client.uploadPart(key, uploadId, etags.size() + 1, part, read));
+                size += read;
+                read = content.readNBytes(part, 0, partSize);
+            }
+            client.completeMultipartUpload(key, uploadId, etags);
+            LOG.debug("Stored {} in {} parts", key, etags.size());
+            return size;
+        } catch (IOException | RuntimeException e) {
+            try {
+                client.abortMultipartUpload(key, uploadId);
+            } catch (IOException | RuntimeException abortFailure) {
+                e.addSuppressed(abortFailure);
+            }
+            throw e;
+        }
+    }
+
+    private static String generateFilename(String originalFilename) {
+        String original = StringUtils.cleanPath(originalFilename == null ? "" : originalFilename);
+        String ext = "";
+        int idx = original.lastIndexOf('.');
+        if (idx > 0) ext = original.substring(idx);
+
+        return UUID.randomUUID().toString() + ext;
+    }
+}
@@ -1,10 +1,59 @@
 package com.fileshareappv1.myapp.service.storage;
 
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Path;
+import java.util.List;
 import org.springframework.core.io.Resource;
 import org.springframework.web.multipart.MultipartFile;
 
 public interface StorageRepository {
     String store(MultipartFile file);
+
+    /**
+     * Stream content straight to its storage destination, computing its size and SHA-256 in the
+     * same pass. The stream is read to its end but not closed.
+     *
+     * @param content the bytes to store.
+     * @param originalFilename the client-side filename, used for the stored extension.
+     * @return the stored filename, size and checksum.
+     */
+    StoredFile store(InputStream content, String originalFilename);
+
+    /**
+     * Store a file that was already received completely on the local disk, taking ownership of
+     * {@code source}: it is moved into storage rather than copied whenever possible.
+     *
+     * @param source the received file, removed once stored.
+     * @param originalFilename the client-side filename, used for the stored extension.
+     * @return the stored filename, with the size and checksums of the stored content.
+     */
+    StoredFile store(Path source, String originalFilename);
+
     Resource loadAsResource(String filename);
+
+    /**
+     * Read a stored file from the storage medium itself, bypassing any in-memory cache, for
+     * background work such as verification or image variants. Unlike
+     * {@link #loadAsResource(String)}, the read does not count as a download.
+     *
+     * @param filename the stored filename.
+     * @return the content, to be closed by the caller.
+     * @throws IOException if the file cannot be read.
+     */
+    default InputStream openStream(String filename) throws IOException {
+        return loadAsResource(filename).getInputStream();
+    }
+
     void delete(String filename);
+
+    /**
+     * List stored files in a stable order, a page at a time, for background maintenance such as
+     * garbage collection. Files stored while a listing is in progress may or may not be listed.
+     *
+     * @param after the key of the last file of the previous page, or {@code null} to start from the beginning.
+     * @param limit the maximum number of files to return.
+     * @return the files following {@code after}, fewer than {@code limit} only once the end is reached.
+     */
+    List<StoredObject> list(String after, int limit);
 }
@@ -0,0 +1,55 @@
+package com.fileshareappv1.myapp.service.storage;
+
+import com.fileshareappv1.myapp.management.TransferMetersService;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import org.aspectj.lang.ProceedingJoinPoint;
+import org.aspectj.lang.annotation.Around;
+import org.aspectj.lang.annotation.Aspect;
+import org.springframework.stereotype.Component;
+import org.springframework.web.multipart.MultipartFile;
+
+/**
+ * Meters every file stored through a {@link StorageRepository}, whatever its implementation and
+ * whoever stores it, as an upload of the {@link TransferMetersService}.
+ * <p>
+ * The size of a file is taken from the {@link StoredFile} of a streamed upload, and otherwise from
+ * what was handed over to be stored, before a received file is moved away. Calls a storage
+ * implementation makes to itself are not metered again.
+ */
+@Aspect
+@Component
+public class StorageUploadMetricsAspect {
+
+    private final TransferMetersService transferMetersService;
+
+    public StorageUploadMetricsAspect(TransferMetersService transferMetersService) {
+        this.transferMetersService = transferMetersService;
+    }
+
+    @Around("execution(* com.fileshareappv1.myapp.service.storage.StorageRepository+.store(..))")
+    public Object meterStore(ProceedingJoinPoint joinPoint) throws Throwable {
+        Object content = joinPoint.getArgs()[0];
+        long size = sizeOf(content);
+        try (TransferMetersService.Transfer transfer = transferMetersService.start(TransferMetersService.Direction.UPLOAD)) {
+            Object result = joinPoint.proceed();
+            transfer.completed(result instanceof StoredFile stored ? stored.getSize() : size);
+            return result;
+        }
+    }
+
+    private static long sizeOf(Object content) {
+        if (content instanceof MultipartFile file) {
+            return file.getSize();
+        }
+        if (content instanceof Path path) {
+            try {
+                return Files.size(path);
+            } catch (IOException e) {
+                return 0;
+            }
+        }
+        return 0;
+    }
+}
@@ -0,0 +1,57 @@
+package com.fileshareappv1.myapp.service.storage;
+
+/**
+ * Result of streaming content into storage: the stored filename together with the size, SHA-256
+ * and CRC32C computed while the bytes were written.
+ */
+public class StoredFile {
+
+    private final String filename;
+
+    private final long size;
+
+    private final String sha256;
+
+    private final String crc32c;
+
+    public StoredFile(String filename, long size, String sha256, String crc32c) {
+        this.filename = filename;
+        this.size = size;
+        this.sha256 = sha256;
+        this.crc32c = crc32c;
+    }
+
+    public String getFilename() {
+        return filename;
+    }
+
+    public long getSize() {
+        return size;
+    }
+
+    /**
+     * @return the SHA-256 of the stored bytes, in lower-case hex.
+     */
+    public String getSha256() {
+        return sha256;
+    }
+
+    /**
+     * @return the CRC32C of the stored bytes, as 8 lower-case hex digits.
+     */
+    public String getCrc32c() {
+        return crc32c;
+    }
+
+    @Override
+    public String toString() {
+        return (
+            "StoredFile{" +
+            "filename='" + filename + "'" +
+            ", size=" + size +
+            ", sha256='" + sha256 + "'" +
+            ", crc32c='" + crc32c + "'" +
+            "}"
+        );
+    }
+}
@@ -0,0 +1,51 @@
+package com.fileshareappv1.myapp.service.storage;
+
+import java.time.Instant;
+
+/**
+ * One stored file, as listed by {@link StorageRepository#list(String, int)}.
+ */
+public class StoredObject {
+
+    private final String key;
+
+    private final String filename;
+
+    private final long size;
+
+    private final Instant lastModified;
+
+    public StoredObject(String key, String filename, long size, Instant lastModified) {
+        this.key = key;
+        this.filename = filename;
+        this.size = size;
+        this.lastModified = lastModified;
+    }
+
+    /**
+     * @return the position of the file in the listing order, to resume a listing after it.
+     */
+    public String getKey() {
+        return key;
+    }
+
+    /**
+     * @return the stored filename.
+     */
+    public String getFilename() {
+        return filename;
+    }
+
+    public long getSize() {
+        return size;
+    }
+
+    public Instant getLastModified() {
+        return lastModified;
+    }
+
+    @Override
+    public String toString() {
+        return "StoredObject{" + "key='" + key + "'" + ", size=" + size + ", lastModified=" + lastModified + "}";
+    }
+}
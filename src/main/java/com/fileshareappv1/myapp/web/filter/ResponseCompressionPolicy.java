@@ -0,0 +1,195 @@
+package com.fileshareappv1.myapp.web.filter;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.undertow.predicate.Predicate;
+import io.undertow.server.ConduitWrapper;
+import io.undertow.server.HandlerWrapper;
+import io.undertow.server.HttpServerExchange;
+import io.undertow.server.handlers.encoding.ContentEncodingRepository;
+import io.undertow.server.handlers.encoding.EncodingHandler;
+import io.undertow.server.handlers.encoding.GzipEncodingProvider;
+import io.undertow.util.ConduitFactory;
+import io.undertow.util.Headers;
+import io.undertow.util.StatusCodes;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.List;
+import org.springframework.util.MimeType;
+import org.springframework.util.MimeTypeUtils;
+import org.xnio.IoUtils;
+import org.xnio.channels.StreamSourceChannel;
+import org.xnio.conduits.AbstractStreamSinkConduit;
+import org.xnio.conduits.ConduitWritableByteChannel;
+import org.xnio.conduits.StreamSinkConduit;
+
+/**
+ * Decides which responses Undertow gzips, and meters the outcome.
+ * <p>
+ * Only compressible media types (JSON, text, SVG, ...) at least {@code minResponseSize} long are
+ * compressed. Range responses are never compressed, since their {@code Content-Range} refers to
+ * the identity encoding, and neither are responses that already carry a {@code Content-Encoding},
+ * such as precompressed {@code .gz} or {@code .br} files.
+ * <p>
+ * Metrics: {@code http.server.compression.responses} by outcome, the bytes going into and out
+ * of the compressor ({@code http.server.compression.bytes}, by stage), and the declared length of
+ * the responses left uncompressed ({@code http.server.compression.skipped.bytes}), that is the
+ * compression work saved.
+ */
+public class ResponseCompressionPolicy implements Predicate {
+
+    private static final String METRIC_PREFIX = "http.server.compression";
+
+    private final List<MimeType> compressibleTypes;
+
+    private final long minResponseSize;
+
+    private final MeterRegistry meterRegistry;
+
+    private final Counter bytesIn;
+
+    private final Counter bytesOut;
+
+    public ResponseCompressionPolicy(List<String> compressibleTypes, long minResponseSize, MeterRegistry meterRegistry) {
+        this.compressibleTypes = compressibleTypes.stream().map(MimeTypeUtils::parseMimeType).toList();
+        this.minResponseSize = minResponseSize;
+        this.meterRegistry = meterRegistry;
+        this.bytesIn = Counter.builder(METRIC_PREFIX + ".bytes")
+            .description("Bytes of response bodies going into (in) and out of (out) the compressor")
+            .baseUnit("bytes")
+            .tag("stage", "in")
+            .register(meterRegistry);
+        this.bytesOut = Counter.builder(METRIC_PREFIX + ".bytes")
+            .description("Bytes of response bodies going into (in) and out of (out) the compressor")
+            .baseUnit("bytes")
+            .tag("stage", "out")
+            .register(meterRegistry);
+    }
+
+    /**
+     * @return a wrapper adding gzip compression, restricted by this policy, around a handler.
+     */
+    public HandlerWrapper handlerWrapper() {
+        ConduitWrapper<StreamSinkConduit> gzip = meteredGzip(new GzipEncodingProvider().getResponseWrapper());
+        ContentEncodingRepository repository = new ContentEncodingRepository().addEncodingHandler("gzip", () -> gzip, 50, this);
+        return next -> new EncodingHandler(next, repository);
+    }
+
+    @Override
+    public boolean resolve(HttpServerExchange exchange) {
+        String outcome = outcome(exchange);
+        Counter.builder(METRIC_PREFIX + ".responses")
+            .description("Responses eligible for compression, by compression outcome")
+            .tag("outcome", outcome)
+            .register(meterRegistry)
+            .increment();
+        if (!"compressed".equals(outcome)) {
+            long length = exchange.getResponseContentLength();
+            if (length > 0) {
+                Counter.builder(METRIC_PREFIX + ".skipped.bytes")
+                    .description("Bytes of responses sent without compression")
+                    .baseUnit("bytes")
+                    .tag("outcome", outcome)
+                    .register(meterRegistry)
+                    .increment(length);
+            }
+            return false;
+        }
+        return true;
+    }
+
+    private String outcome(HttpServerExchange exchange) {
+        if (exchange.getStatusCode() == StatusCodes.PARTIAL_CONTENT || exchange.getResponseHeaders().contains(Headers.CONTENT_RANGE)) {
+            return "skipped_range";
+        }
+        if (exchange.getResponseHeaders().contains(Headers.CONTENT_ENCODING)) {
+            return "skipped_encoded";
+        }
+        if (!isCompressible(exchange.getResponseHeaders().getFirst(Headers.CONTENT_TYPE))) {
+            return "skipped_incompressible";
+        }
+        long length = exchange.getResponseContentLength();
+        if (length >= 0 && length < minResponseSize) {
+            return "skipped_small";
+        }
+        return "compressed";
+    }
+
+    private boolean isCompressible(String contentType) {
+        if (contentType == null) {
+            return false;
+        }
+        try {
+            MimeType mimeType = MimeTypeUtils.parseMimeType(contentType);
+            return compressibleTypes.stream().anyMatch(compressible -> compressible.isCompatibleWith(mimeType));
+        } catch (IllegalArgumentException e) {
+            return false;
+        }
+    }
+
+    private ConduitWrapper<StreamSinkConduit> meteredGzip(ConduitWrapper<StreamSinkConduit> gzip) {
+        return (factory, exchange) -> {
+            ConduitFactory<StreamSinkConduit> countingOut = () -> new CountingStreamSinkConduit(factory.create(), bytesOut);
+            return new CountingStreamSinkConduit(gzip.wrap(countingOut, exchange), bytesIn);
+        };
+    }
+
+    /**
+     * Counts the bytes written through it. File transfers are routed through {@code write}, so
+     * they are counted too, and reach the compressor below as regular writes.
+     */
+    private static final class CountingStreamSinkConduit extends AbstractStreamSinkConduit<StreamSinkConduit> {
+
+        private final Counter counter;
+
+        CountingStreamSinkConduit(StreamSinkConduit next, Counter counter) {
+            super(next);
+            this.counter = counter;
+        }
+
+        @Override
+        public int write(ByteBuffer src) throws IOException {
+            return count(next.write(src));
+        }
+
+        @Override
+        public long write(ByteBuffer[] srcs, int offs, int len) throws IOException {
+            return count(next.write(srcs, offs, len));
+        }
+
+        @Override
+        public int writeFinal(ByteBuffer src) throws IOException {
+            return count(next.writeFinal(src));
+        }
+
+        @Override
+        public long writeFinal(ByteBuffer[] srcs, int offs, int len) throws IOException {
+            return count(next.writeFinal(srcs, offs, len));
+        }
+
+        @Override
+        public long transferFrom(FileChannel src, long position, long count) throws IOException {
+            return src.transferTo(position, count, new ConduitWritableByteChannel(this));
+        }
+
+        @Override
+        public long transferFrom(StreamSourceChannel source, long count, ByteBuffer throughBuffer) throws IOException {
+            return IoUtils.transfer(source, count, throughBuffer, new ConduitWritableByteChannel(this));
+        }
+
+        private int count(int written) {
+            if (written > 0) {
+                counter.increment(written);
+            }
+            return written;
+        }
+
+        private long count(long written) {
+            if (written > 0) {
+                counter.increment(written);
+            }
+            return written;
+        }
+    }
+}
@@ -0,0 +1,85 @@
+package com.fileshareappv1.myapp.web.filter;
+
+import com.fileshareappv1.myapp.security.DownloadUrlSigner;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Locale;
+import org.springframework.http.HttpMethod;
+import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.util.UriUtils;
+
+/**
+ * Serves signed download URLs ({@code /api/files/signed/{filename}?expires=...&signature=...})
+ * ahead of the Spring Security filter chain.
+ * <p>
+ * The signature is checked here, without any session, token or user lookup, and a valid request
+ * is forwarded to the regular download endpoint, marked with the {@link #VERIFIED_ATTRIBUTE}
+ * request attribute. The security chain runs again for the forward and lets marked requests
+ * through, while it requires authentication for requests made to the download endpoint directly.
+ * Anything else is refused with {@code 403 (Forbidden)}.
+ * <p>
+ * Metrics: {@code http.server.signed.downloads} by {@code result} ({@code valid}, {@code expired},
+ * {@code invalid}).
+ */
+public class SignedDownloadFilter extends OncePerRequestFilter {
+
+    public static final String SIGNED_PATH = "/api/files/signed/";
+
+    public static final String EXPIRES_PARAMETER = "expires";
+
+    public static final String SIGNATURE_PARAMETER = "signature";
+
+    /**
+     * Request attribute holding the stored filename of a download whose signature was checked.
+     */
+    public static final String VERIFIED_ATTRIBUTE = SignedDownloadFilter.class.getName() + ".verified";
+
+    private static final String DOWNLOAD_PATH = "/api/files/download/";
+
+    private final DownloadUrlSigner signer;
+
+    private final MeterRegistry meterRegistry;
+
+    public SignedDownloadFilter(DownloadUrlSigner signer, MeterRegistry meterRegistry) {
+        this.signer = signer;
+        this.meterRegistry = meterRegistry;
+    }
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        return !request.getRequestURI().startsWith(request.getContextPath() + SIGNED_PATH);
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
+        throws ServletException, IOException {
+        if (!HttpMethod.GET.matches(request.getMethod()) && !HttpMethod.HEAD.matches(request.getMethod())) {
+            response.sendError(HttpServletResponse.SC_METHOD_NOT_ALLOWED);
+            return;
+        }
+        String encodedName = request.getRequestURI().substring(request.getContextPath().length() + SIGNED_PATH.length());
+        String filename = UriUtils.decode(encodedName, StandardCharsets.UTF_8);
+        DownloadUrlSigner.Verification verification = DownloadUrlSigner.Verification.INVALID;
+        if (!filename.isEmpty() && filename.indexOf('/') < 0) {
+            try {
+                long expiresAt = Long.parseLong(request.getParameter(EXPIRES_PARAMETER));
+                verification = signer.verify(filename, expiresAt, request.getParameter(SIGNATURE_PARAMETER));
+            } catch (NumberFormatException e) {
+                verification = DownloadUrlSigner.Verification.INVALID;
+            }
+        }
+        meterRegistry.counter("http.server.signed.downloads", "result", verification.name().toLowerCase(Locale.ROOT)).increment();
+
+        if (verification != DownloadUrlSigner.Verification.VALID) {
+            response.sendError(HttpServletResponse.SC_FORBIDDEN, "Invalid or expired download link");
+            return;
+        }
+        request.setAttribute(VERIFIED_ATTRIBUTE, filename);
+        request.getRequestDispatcher(DOWNLOAD_PATH + encodedName).forward(request, response);
+    }
+}
@@ -5,10 +5,12 @@ import com.fileshareappv1.myapp.repository.UserRepository;
 import com.fileshareappv1.myapp.security.SecurityUtils;
 import com.fileshareappv1.myapp.service.FileService;
 import com.fileshareappv1.myapp.service.MailService;
+import com.fileshareappv1.myapp.service.StorageQuotaService;
 import com.fileshareappv1.myapp.service.UserService;
 import com.fileshareappv1.myapp.service.dto.AdminUserDTO;
 import com.fileshareappv1.myapp.service.dto.FileDTO;
 import com.fileshareappv1.myapp.service.dto.PasswordChangeDTO;
+import com.fileshareappv1.myapp.service.dto.StorageUsageDTO;
 import com.fileshareappv1.myapp.service.dto.UserDTO;
 import com.fileshareappv1.myapp.service.storage.LocalStorageService;
 import com.fileshareappv1.myapp.web.rest.errors.*;
@@ -54,6 +56,7 @@ public class AccountResource {
     private final LocalStorageService localStorageService;
     private final FileService fileService;
     private final LocalStorageService storageService;
+    private final StorageQuotaService storageQuotaService;
 
     public AccountResource(
         UserRepository userRepository,
@@ -61,7 +64,8 @@ public class AccountResource {
         MailService mailService,
         LocalStorageService localStorageService,
         FileService fileService,
-        LocalStorageService storageService
+        LocalStorageService storageService,
+        StorageQuotaService storageQuotaService
     ) {
         this.userRepository = userRepository;
         this.userService = userService;
@@ -69,6 +73,7 @@ public class AccountResource {
         this.localStorageService = localStorageService;
         this.fileService = fileService;
         this.storageService = storageService;
+        this.storageQuotaService = storageQuotaService;
     }
 
     /**
@@ -117,6 +122,16 @@ public class AccountResource {
             .orElseThrow(() -> new AccountResourceException("User could not be found"));
     }
 
+    /**
+     * {@code GET  /account/storage} : get the storage used by the current user, against their quota.
+     *
+     * @return the current user's storage usage.
+     */
+    @GetMapping("/account/storage")
+    public StorageUsageDTO getStorageUsage() {
+        return storageQuotaService.getCurrentUserUsage();
+    }
+
     //    /**
     //     * {@code POST  /account} : update the current user information.
     //     *
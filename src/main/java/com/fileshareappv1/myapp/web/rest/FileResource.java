@@ -1,23 +1,35 @@
 package com.fileshareappv1.myapp.web.rest;
 
+import com.fileshareappv1.myapp.config.ApplicationProperties;
 import com.fileshareappv1.myapp.domain.File;
-import com.fileshareappv1.myapp.domain.Post;
 import com.fileshareappv1.myapp.repository.FileRepository;
-import com.fileshareappv1.myapp.repository.PostRepository;
+import com.fileshareappv1.myapp.service.FileMetadataService;
 import com.fileshareappv1.myapp.service.FileService;
+import com.fileshareappv1.myapp.service.ImageVariantService;
+import com.fileshareappv1.myapp.service.InstantUploadService;
+import com.fileshareappv1.myapp.service.PostService;
 import com.fileshareappv1.myapp.service.dto.FileDTO;
+import com.fileshareappv1.myapp.service.dto.FileMetadataDTO;
+import com.fileshareappv1.myapp.service.dto.InstantUploadDTO;
 import com.fileshareappv1.myapp.service.storage.StorageRepository;
+import com.fileshareappv1.myapp.service.storage.StoredFile;
+import com.fileshareappv1.myapp.web.rest.bandwidth.BandwidthLimiter;
+import com.fileshareappv1.myapp.web.rest.download.DownloadTarget;
+import com.fileshareappv1.myapp.web.rest.download.FileDownloadWriter;
 import com.fileshareappv1.myapp.web.rest.errors.BadRequestAlertException;
 import com.fileshareappv1.myapp.web.rest.errors.ElasticsearchExceptionMapper;
-import jakarta.persistence.EntityNotFoundException;
+import com.fileshareappv1.myapp.web.rest.idempotency.IdempotentRequests;
+import com.fileshareappv1.myapp.web.rest.upload.MultipartStreamReader;
 import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
 import jakarta.validation.Valid;
 import jakarta.validation.constraints.NotNull;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.PushbackInputStream;
 import java.net.URI;
 import java.net.URISyntaxException;
-import java.nio.file.Files;
-import java.nio.file.Path;
+import java.nio.charset.StandardCharsets;
 import java.time.Instant;
 import java.util.ArrayList;
 import java.util.List;
@@ -27,12 +39,15 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springdoc.core.annotations.ParameterObject;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.web.servlet.MultipartProperties;
 import org.springframework.core.io.Resource;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.http.HttpHeaders;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
+import org.springframework.util.MimeType;
+import org.springframework.util.MimeTypeUtils;
 import org.springframework.web.bind.annotation.*;
 import org.springframework.web.multipart.MultipartFile;
 import org.springframework.web.servlet.support.ServletUriComponentsBuilder;
@@ -51,6 +66,16 @@ public class FileResource {
 
     private static final String ENTITY_NAME = "file";
 
+    /**
+     * Stored filenames are unique and their content never changes, so downloads may be cached for good.
+     */
+    private static final String IMMUTABLE_CACHE_CONTROL = "public, max-age=31536000, immutable";
+
+    /**
+     * Content codings of precompressed siblings ({@code <name>.br}, {@code <name>.gz}), by preference.
+     */
+    private static final String[][] PRECOMPRESSED_ENCODINGS = { { "br", ".br" }, { "gzip", ".gz" } };
+
     @Value("${jhipster.clientApp.name}")
     private String applicationName;
 
@@ -59,18 +84,44 @@ public class FileResource {
     private final FileRepository fileRepository;
 
     private final StorageRepository storageRepository;
-    private final PostRepository postRepository;
+    private final FileDownloadWriter fileDownloadWriter;
+    private final PostService postService;
+    private final ImageVariantService imageVariantService;
+    private final FileMetadataService fileMetadataService;
+    private final List<MimeType> compressibleTypes;
+    private final BandwidthLimiter bandwidthLimiter;
+    private final InstantUploadService instantUploadService;
+    private final IdempotentRequests idempotentRequests;
+    private final long maxFileSize;
+    private final long maxRequestSize;
 
     public FileResource(
         FileService fileService,
         FileRepository fileRepository,
         StorageRepository storageRepository,
-        PostRepository postRepository
+        FileDownloadWriter fileDownloadWriter,
+        PostService postService,
+        ImageVariantService imageVariantService,
+        FileMetadataService fileMetadataService,
+        ApplicationProperties applicationProperties,
+        BandwidthLimiter bandwidthLimiter,
+        InstantUploadService instantUploadService,
+        IdempotentRequests idempotentRequests,
+        MultipartProperties multipartProperties
     ) {
         this.fileService = fileService;
         this.fileRepository = fileRepository;
         this.storageRepository = storageRepository;
-        this.postRepository = postRepository;
+        this.fileDownloadWriter = fileDownloadWriter;
+        this.postService = postService;
+        this.imageVariantService = imageVariantService;
+        this.fileMetadataService = fileMetadataService;
+        this.compressibleTypes = applicationProperties.getCompression().getMimeTypes().stream().map(MimeTypeUtils::parseMimeType).toList();
+        this.bandwidthLimiter = bandwidthLimiter;
+        this.instantUploadService = instantUploadService;
+        this.idempotentRequests = idempotentRequests;
+        this.maxFileSize = multipartProperties.getMaxFileSize().toBytes();
+        this.maxRequestSize = multipartProperties.getMaxRequestSize().toBytes();
     }
 
     /**
@@ -223,14 +274,39 @@ public class FileResource {
         }
     }
 
+    /**
+     * {@code POST  /files/instant-upload} : record a file without uploading it, if its content is
+     * stored already. Clients send the SHA-256 and size of a file before uploading it.
+     *
+     * @param instantUploadDTO the hash and size of the content, and optionally the post to attach it to.
+     * @return the {@link ResponseEntity} with status {@code 201 (Created)} and with body the new fileDTO,
+     * or with status {@code 404 (Not Found)} if the content is unknown and has to be uploaded.
+     * @throws URISyntaxException if the Location URI syntax is incorrect.
+     */
+    @PostMapping("/instant-upload")
+    public ResponseEntity<FileDTO> instantUpload(@Valid @RequestBody InstantUploadDTO instantUploadDTO) throws URISyntaxException {
+        LOG.debug("REST request to upload known content : {}", instantUploadDTO);
+        Optional<FileDTO> result = instantUploadService.upload(instantUploadDTO);
+        if (result.isEmpty()) {
+            return ResponseEntity.notFound().build();
+        }
+        return ResponseEntity.created(new URI("/api/files/" + result.orElseThrow().getId())).body(result.orElseThrow());
+    }
+
     @PostMapping("/upload")
-    public ResponseEntity<FileDTO> uploadFile(@RequestParam("file") MultipartFile file) throws URISyntaxException {
-        String storedFilename = storageRepository.store(file);
+    public ResponseEntity<FileDTO> uploadFile(@RequestParam("file") MultipartFile file) throws URISyntaxException, IOException {
+        StoredFile stored;
+        try (InputStream content = file.getInputStream()) {
+            stored = storageRepository.store(content, file.getOriginalFilename());
+        }
+        String storedFilename = stored.getFilename();
 
         FileDTO dto = new FileDTO();
         dto.setFileName(file.getOriginalFilename());
         dto.setMimeType(Optional.ofNullable(file.getContentType()).orElse(MediaType.APPLICATION_OCTET_STREAM_VALUE));
-        dto.setFileSize(file.getSize());
+        dto.setFileSize(stored.getSize());
+        dto.setSha256(stored.getSha256());
+        dto.setCrc32c(stored.getCrc32c());
         dto.setUploadedAt(Instant.now());
         dto.setFileUrl(
             ServletUriComponentsBuilder.fromCurrentContextPath().path("/api/files/download/").path(storedFilename).toUriString()
@@ -242,68 +318,194 @@ public class FileResource {
         return ResponseEntity.created(new URI("/api/files/" + result.getId())).body(result);
     }
 
+    /**
+     * {@code GET  /files/download/:filename} : download a stored file.
+     *
+     * @param filename the stored filename.
+     * @param variant optional downscaled variant of an image ({@code thumb} or {@code preview}); the original is served until it exists.
+     */
     @GetMapping("/download/{filename:.+}")
-    public ResponseEntity<Resource> downloadFile(@PathVariable String filename, HttpServletRequest request) {
-        Resource resource = storageRepository.loadAsResource(filename);
+    public void downloadFile(
+        @PathVariable String filename,
+        @RequestParam(name = "variant", required = false) String variant,
+        HttpServletRequest request,
+        HttpServletResponse response
+    ) throws IOException {
+        String servedName = filename;
+        if (variant != null) {
+            ImageVariantService.Variant requested = ImageVariantService.Variant.fromParameter(variant).orElseThrow(() ->
+                new BadRequestAlertException("Unknown variant: " + variant, ENTITY_NAME, "variantinvalid")
+            );
+            servedName = imageVariantService.findVariant(filename, requested).orElse(filename);
+        }
+        // The original served in place of a missing variant must be revalidated, so the variant is picked up once generated
+        String cacheControl = servedName.equals(filename) && variant != null ? "no-cache" : IMMUTABLE_CACHE_CONTROL;
+
+        FileMetadataDTO metadata = fileMetadataService.get(servedName);
+        FileMetadataDTO representation = metadata;
+        String contentEncoding = null;
+        if (isCompressible(metadata.getContentType())) {
+            response.setHeader(HttpHeaders.VARY, HttpHeaders.ACCEPT_ENCODING);
+            // Ranges always refer to the identity encoding, so precompressed siblings only serve whole-file requests
+            if (request.getHeader(HttpHeaders.RANGE) == null) {
+                for (String[] encoding : PRECOMPRESSED_ENCODINGS) {
+                    Optional<FileMetadataDTO> sibling = acceptsEncoding(request, encoding[0])
+                        ? fileMetadataService.find(servedName + encoding[1])
+                        : Optional.empty();
+                    if (sibling.isPresent()) {
+                        representation = sibling.get();
+                        contentEncoding = encoding[0];
+                        break;
+                    }
+                }
+            }
+        }
+
+        long lastModified = representation.getLastModified();
+        if (fileDownloadWriter.checkNotModified(representation.getEtag(), lastModified, cacheControl, request, response)) {
+            return;
+        }
+
+        Resource resource = storageRepository.loadAsResource(representation.getStoredName());
+        DownloadTarget target = new DownloadTarget(resource, metadata.getContentType(), representation.getSize(), lastModified)
+            .etag(representation.getEtag())
+            .contentEncoding(contentEncoding)
+            .cacheControl(cacheControl)
+            .contentDisposition("attachment; filename=\"" + servedName + "\"");
+        fileDownloadWriter.write(target, request, response);
+    }
 
-        String contentType;
+    private boolean isCompressible(String contentType) {
         try {
-            String absolutePath = resource.getFile().getAbsolutePath();
-            contentType = request.getServletContext().getMimeType(absolutePath);
-            if (contentType == null) {
-                contentType = Files.probeContentType(Path.of(absolutePath));
-            }
-        } catch (IOException e) {
-            contentType = MediaType.APPLICATION_OCTET_STREAM_VALUE;
+            MimeType mimeType = MimeTypeUtils.parseMimeType(contentType);
+            return compressibleTypes.stream().anyMatch(compressible -> compressible.isCompatibleWith(mimeType));
+        } catch (IllegalArgumentException e) {
+            return false;
         }
+    }
 
-        return ResponseEntity.ok()
-            .contentType(MediaType.parseMediaType(contentType))
-            .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"" + resource.getFilename() + "\"")
-            .body(resource);
+    private static boolean acceptsEncoding(HttpServletRequest request, String encoding) {
+        String acceptEncoding = request.getHeader(HttpHeaders.ACCEPT_ENCODING);
+        if (acceptEncoding == null) {
+            return false;
+        }
+        for (String element : acceptEncoding.split(",")) {
+            String[] parts = element.trim().split(";");
+            if (parts[0].trim().equalsIgnoreCase(encoding)) {
+                return parts.length == 1 || !parts[1].trim().replace(" ", "").matches("q=0(\\.0*)?");
+            }
+        }
+        return false;
     }
 
     /**
      * POST /api/files/upload-multiple
      * Accepts N files under the form‐field “files” and returns
      * a JSON array of saved FileDTOs (id, filename, mimeType, url, …).
+     * A retry carrying the same "Idempotency-Key" header gets the files of the first request.
      */
     @PostMapping("/upload-multiple")
     public ResponseEntity<List<FileDTO>> uploadMultipleFiles(
         @RequestParam("files") List<MultipartFile> files,
-        @RequestParam("postId") Long postId
+        @RequestParam("postId") Long postId,
+        @RequestHeader(name = IdempotentRequests.HEADER, required = false) String idempotencyKey,
+        HttpServletRequest request
     ) throws URISyntaxException {
-        // 1. Store tất cả file, thu về list tên (UUID.ext)
-        List<String> storedNames = files.stream().map(storageRepository::store).toList();
-
-        // 2. Cập nhật Post chỉ một lần
-        Post post = postRepository.findById(postId).orElseThrow(() -> new EntityNotFoundException("Post không tồn tại: " + postId));
+        return idempotentRequests.execute(idempotencyKey, request, () -> {
+            // Store tất cả file song song, thay danh sách file của Post và lưu FileDTO trong một transaction
+            List<FileDTO> savedDTOs = postService.storeFilesForPost(postId, files, true);
 
-        // files đã luôn non-null vì khởi tạo mặc định ở entity
-        post.setFiles(storedNames);
+            return ResponseEntity.created(new URI("/api/files/upload-multiple")).body(savedDTOs);
+        });
+    }
 
-        // Đếm số file, gán vào numFiles
-        post.setNumFiles(post.getFiles().size());
+    /**
+     * POST /api/files/upload-stream
+     * Streaming variant of upload-multiple: the multipart body is parsed incrementally and each
+     * file part is written directly to storage, with its size and checksum computed in the same
+     * pass, instead of being spooled to a temporary file first. An optional "postId" field
+     * attaches the files to that post, which must belong to the current user; the files after the
+     * field are not read if it does not. The spring.servlet.multipart size limits apply as for the
+     * other uploads; the files stored for a request that fails are deleted again.
+     */
+    @PostMapping(value = "/upload-stream", consumes = MediaType.MULTIPART_FORM_DATA_VALUE)
+    public ResponseEntity<List<FileDTO>> uploadFilesStreaming(HttpServletRequest request) throws IOException, URISyntaxException {
+        String boundary = MediaType.parseMediaType(request.getContentType()).getParameter("boundary");
+        if (boundary == null || boundary.isBlank()) {
+            throw new BadRequestAlertException("Missing multipart boundary", ENTITY_NAME, "noboundary");
+        }
+        if (boundary.length() > 1 && boundary.startsWith("\"") && boundary.endsWith("\"")) {
+            boundary = boundary.substring(1, boundary.length() - 1);
+        }
 
-        postRepository.save(post);
+        if (maxRequestSize >= 0 && request.getContentLengthLong() > maxRequestSize) {
+            throw new MultipartStreamReader.SizeLimitExceededException("Multipart body exceeds " + maxRequestSize + " bytes");
+        }
 
-        // 3. Tạo và lưu FileDTO cho từng storedName
-        List<FileDTO> savedDTOs = new ArrayList<>();
-        for (int i = 0; i < storedNames.size(); i++) {
-            String name = storedNames.get(i);
-            MultipartFile original = files.get(i);
+        InputStream body = bandwidthLimiter.throttle(BandwidthLimiter.Direction.UPLOAD, request).wrap(request.getInputStream());
+        MultipartStreamReader reader = new MultipartStreamReader(body, boundary, maxFileSize, maxRequestSize);
+        Long postId = null;
+        List<String> storedNames = new ArrayList<>();
+        List<FileDTO> dtos = new ArrayList<>();
+        try {
+            for (MultipartStreamReader.Part part = reader.nextPart(); part != null; part = reader.nextPart()) {
+                if (part.isFile()) {
+                    StoredFile stored = storePart(part);
+                    LOG.debug("Streamed upload {} into {}", part.getFilename(), stored);
+                    storedNames.add(stored.getFilename());
+
+                    FileDTO dto = new FileDTO();
+                    dto.setFileName(stored.getFilename());
+                    dto.setMimeType(Optional.ofNullable(part.getContentType()).orElse(MediaType.APPLICATION_OCTET_STREAM_VALUE));
+                    dto.setFileSize(stored.getSize());
+                    dto.setSha256(stored.getSha256());
+                    dto.setCrc32c(stored.getCrc32c());
+                    dto.setUploadedAt(Instant.now());
+                    dto.setFileUrl(
+                        ServletUriComponentsBuilder.fromCurrentContextPath()
+                            .path("/api/files/download/")
+                            .path(stored.getFilename())
+                            .toUriString()
+                    );
+                    dtos.add(dto);
+                } else if ("postId".equals(part.getName())) {
+                    String value = new String(part.getInputStream().readNBytes(32), StandardCharsets.US_ASCII).trim();
+                    try {
+                        postId = Long.valueOf(value);
+                    } catch (NumberFormatException e) {
+                        throw new BadRequestAlertException("Invalid postId", ENTITY_NAME, "postidinvalid");
+                    }
+                    postService.checkOwnedByCurrentUser(postId);
+                }
+            }
+        } catch (IOException | RuntimeException e) {
+            storedNames.forEach(storageRepository::delete);
+            throw e;
+        }
 
-            FileDTO dto = new FileDTO();
-            dto.setFileName(name);
-            dto.setMimeType(Optional.ofNullable(original.getContentType()).orElse(MediaType.APPLICATION_OCTET_STREAM_VALUE));
-            dto.setFileSize(original.getSize());
-            dto.setUploadedAt(Instant.now());
-            dto.setFileUrl(ServletUriComponentsBuilder.fromCurrentContextPath().path("/api/files/download/").path(name).toUriString());
+        List<FileDTO> savedDTOs = postService.saveStoredFiles(postId, dtos);
+        return ResponseEntity.created(new URI("/api/files/upload-stream")).body(savedDTOs);
+    }
 
-            savedDTOs.add(fileService.save(dto));
+    private StoredFile storePart(MultipartStreamReader.Part part) throws IOException {
+        PushbackInputStream content = new PushbackInputStream(part.getInputStream());
+        int first = content.read();
+        if (first < 0) {
+            throw new BadRequestAlertException("Empty file: " + part.getFilename(), ENTITY_NAME, "fileempty");
+        }
+        content.unread(first);
+        try {
+            return storageRepository.store(content, part.getFilename());
+        } catch (RuntimeException e) {
+            // Report a bad or oversized body as such rather than as a storage failure
+            if (
+                e.getCause() instanceof MultipartStreamReader.MalformedMultipartException ||
+                e.getCause() instanceof MultipartStreamReader.SizeLimitExceededException
+            ) {
+                throw (IOException) e.getCause();
+            }
+            throw e;
         }
-
-        return ResponseEntity.created(new URI("/api/files/upload-multiple")).body(savedDTOs);
     }
 
     /**
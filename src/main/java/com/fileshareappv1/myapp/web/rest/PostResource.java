@@ -11,11 +11,16 @@ import com.fileshareappv1.myapp.service.dto.PostDTO;
 import com.fileshareappv1.myapp.service.dto.TagDTO;
 import com.fileshareappv1.myapp.service.dto.UserDTO;
 import com.fileshareappv1.myapp.service.mapper.TagMapper;
+import com.fileshareappv1.myapp.web.rest.download.ZipDownloadWriter;
 import com.fileshareappv1.myapp.web.rest.errors.BadRequestAlertException;
 import com.fileshareappv1.myapp.web.rest.errors.ElasticsearchExceptionMapper;
 import com.fileshareappv1.myapp.web.rest.form.PostForm;
+import com.fileshareappv1.myapp.web.rest.idempotency.IdempotentRequests;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
 import jakarta.validation.Valid;
 import jakarta.validation.constraints.NotNull;
+import java.io.IOException;
 import java.net.URI;
 import java.net.URISyntaxException;
 import java.util.*;
@@ -30,10 +35,12 @@ import org.springframework.data.domain.Sort;
 import org.springframework.data.domain.Sort.Direction;
 import org.springframework.data.domain.Sort.Order;
 import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 import org.springframework.web.multipart.MultipartFile;
+import org.springframework.web.server.ResponseStatusException;
 import org.springframework.web.servlet.support.ServletUriComponentsBuilder;
 import tech.jhipster.web.util.HeaderUtil;
 import tech.jhipster.web.util.PaginationUtil;
@@ -50,6 +57,8 @@ public class PostResource {
 
     private static final String ENTITY_NAME = "post";
 
+    private static final int MAX_ZIP_POSTS = 100;
+
     @Value("${jhipster.clientApp.name}")
     private String applicationName;
 
@@ -63,18 +72,26 @@ public class PostResource {
 
     private final TagMapper tagMapper;
 
+    private final ZipDownloadWriter zipDownloadWriter;
+
+    private final IdempotentRequests idempotentRequests;
+
     public PostResource(
         PostService postService,
         PostRepository postRepository,
         UserRepository userRepository,
         TagRepository tagRepository,
-        TagMapper tagMapper
+        TagMapper tagMapper,
+        ZipDownloadWriter zipDownloadWriter,
+        IdempotentRequests idempotentRequests
     ) {
         this.postService = postService;
         this.postRepository = postRepository;
         this.userRepository = userRepository;
         this.tagRepository = tagRepository;
         this.tagMapper = tagMapper;
+        this.zipDownloadWriter = zipDownloadWriter;
+        this.idempotentRequests = idempotentRequests;
     }
 
     /**
@@ -239,7 +256,59 @@ public class PostResource {
     }
 
     /**
-     * {@code DELETE  /posts/:id} : delete the "id" post.
+     * {@code GET  /posts/:id/files.zip} : download all files of the "id" post as one ZIP archive,
+     * streamed while it is built.
+     *
+     * @param id the id of the post.
+     * @param request the current request.
+     * @param response the response to stream the archive to.
+     * @throws ResponseStatusException {@code 404 (Not Found)} if there is no such post.
+     */
+    @GetMapping("/{id}/files.zip")
+    public void downloadFilesZip(@PathVariable("id") Long id, HttpServletRequest request, HttpServletResponse response) throws IOException {
+        LOG.debug("REST request to download the files of Post : {}", id);
+        List<String> storedNames = postService
+            .findStoredFileNames(id)
+            .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND));
+        Map<String, String> entries = new LinkedHashMap<>();
+        storedNames.forEach(storedName -> entries.putIfAbsent(storedName, storedName));
+        zipDownloadWriter.write(entries, "post-" + id + "-files.zip", request, response);
+    }
+
+    /**
+     * {@code GET  /posts/files.zip?ids=:ids} : download the files of several posts as one ZIP
+     * archive, with one folder per post.
+     *
+     * @param ids the ids of the posts, at most {@value #MAX_ZIP_POSTS}.
+     * @param request the current request.
+     * @param response the response to stream the archive to.
+     * @throws BadRequestAlertException {@code 400 (Bad Request)} if no or too many ids are given.
+     * @throws ResponseStatusException {@code 404 (Not Found)} if none of the posts exists.
+     */
+    @GetMapping("/files.zip")
+    public void downloadFilesZip(
+        @RequestParam("ids") List<Long> ids,
+        HttpServletRequest request,
+        HttpServletResponse response
+    ) throws IOException {
+        LOG.debug("REST request to download the files of Posts : {}", ids);
+        List<Long> distinctIds = ids.stream().filter(Objects::nonNull).distinct().toList();
+        if (distinctIds.isEmpty() || distinctIds.size() > MAX_ZIP_POSTS) {
+            throw new BadRequestAlertException("Between 1 and " + MAX_ZIP_POSTS + " post ids are required", ENTITY_NAME, "idsinvalid");
+        }
+        Map<Long, List<String>> storedNamesById = postService.findStoredFileNames(distinctIds);
+        if (storedNamesById.isEmpty()) {
+            throw new ResponseStatusException(HttpStatus.NOT_FOUND);
+        }
+        Map<String, String> entries = new LinkedHashMap<>();
+        storedNamesById.forEach((id, storedNames) ->
+            storedNames.forEach(storedName -> entries.putIfAbsent("post-" + id + "/" + storedName, storedName))
+        );
+        zipDownloadWriter.write(entries, "posts-files.zip", request, response);
+    }
+
+    /**
+     * {@code DELETE  /posts/:id} : delete the "id" post, moving it to the trash unless the trash is disabled.
      *
      * @param id the id of the postDTO to delete.
      * @return the {@link ResponseEntity} with status {@code 204 (NO_CONTENT)}.
@@ -253,6 +322,20 @@ public class PostResource {
             .build();
     }
 
+    /**
+     * {@code POST  /posts/:id/restore} : restore the "id" post from the trash.
+     *
+     * @param id the id of the postDTO to restore.
+     * @return the {@link ResponseEntity} with status {@code 200 (OK)} and with body the restored postDTO,
+     * or with status {@code 404 (Not Found)} if it is not in the trash.
+     */
+    @PostMapping("/{id}/restore")
+    public ResponseEntity<PostDTO> restorePost(@PathVariable("id") Long id) {
+        LOG.debug("REST request to restore Post : {}", id);
+        Optional<PostDTO> postDTO = postService.restore(id);
+        return ResponseUtil.wrapOrNotFound(postDTO);
+    }
+
     /**
      * {@code SEARCH  /posts/_search?query=:query} : search for the post corresponding
      * to the query.
@@ -305,8 +388,26 @@ public class PostResource {
         }
     }
 
+    /**
+     * {@code POST  /posts/with-files} : Create a new post with its files. A retry carrying the same
+     * {@code Idempotency-Key} header as an earlier request gets the post that request created.
+     *
+     * @param form the post and its files.
+     * @param idempotencyKey the {@code Idempotency-Key} header, if any.
+     * @param request the current request.
+     * @return the {@link ResponseEntity} with status {@code 201 (Created)} and with body the new postDTO.
+     * @throws URISyntaxException if the Location URI syntax is incorrect.
+     */
     @PostMapping(value = "with-files", consumes = MediaType.MULTIPART_FORM_DATA_VALUE)
-    public ResponseEntity<PostDTO> createPostWithFiles(@Valid @ModelAttribute PostForm form) throws URISyntaxException {
+    public ResponseEntity<PostDTO> createPostWithFiles(
+        @Valid @ModelAttribute PostForm form,
+        @RequestHeader(name = IdempotentRequests.HEADER, required = false) String idempotencyKey,
+        HttpServletRequest request
+    ) throws URISyntaxException {
+        return idempotentRequests.execute(idempotencyKey, request, () -> createPostWithFiles(form));
+    }
+
+    private ResponseEntity<PostDTO> createPostWithFiles(PostForm form) throws URISyntaxException {
         PostDTO dto = new PostDTO();
         dto.setContent(form.getContent());
         dto.setPrivacy(form.getPrivacy());
@@ -0,0 +1,51 @@
+package com.fileshareappv1.myapp.web.rest;
+
+import com.fileshareappv1.myapp.security.AuthoritiesConstants;
+import com.fileshareappv1.myapp.service.FileService;
+import com.fileshareappv1.myapp.service.dto.FileDTO;
+import java.util.List;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springdoc.core.annotations.ParameterObject;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.support.ServletUriComponentsBuilder;
+import tech.jhipster.web.util.PaginationUtil;
+
+/**
+ * REST controller reporting the results of the background integrity scrubber.
+ */
+@RestController
+@RequestMapping("/api/admin/storage")
+public class StorageIntegrityResource {
+
+    private static final Logger LOG = LoggerFactory.getLogger(StorageIntegrityResource.class);
+
+    private final FileService fileService;
+
+    public StorageIntegrityResource(FileService fileService) {
+        this.fileService = fileService;
+    }
+
+    /**
+     * {@code GET  /admin/storage/checksum-mismatches} : get the files whose stored bytes are
+     * missing or no longer match the checksum recorded at upload.
+     *
+     * @param pageable the pagination information.
+     * @return the {@link ResponseEntity} with status {@code 200 (OK)} and the list of files in body.
+     */
+    @GetMapping("/checksum-mismatches")
+    @PreAuthorize("hasAuthority(\"" + AuthoritiesConstants.ADMIN + "\")")
+    public ResponseEntity<List<FileDTO>> getChecksumMismatches(@ParameterObject Pageable pageable) {
+        LOG.debug("REST request to get Files failing their checksum");
+        Page<FileDTO> page = fileService.findChecksumMismatches(pageable);
+        HttpHeaders headers = PaginationUtil.generatePaginationHttpHeaders(ServletUriComponentsBuilder.fromCurrentRequest(), page);
+        return ResponseEntity.ok().headers(headers).body(page.getContent());
+    }
+}
@@ -1,13 +1,15 @@
 package com.fileshareappv1.myapp.web.rest;
 
 import com.fileshareappv1.myapp.service.storage.StorageRepository;
+import com.fileshareappv1.myapp.web.rest.download.DownloadTarget;
+import com.fileshareappv1.myapp.web.rest.download.FileDownloadWriter;
 import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
 import java.io.IOException;
 import java.net.URI;
 import java.nio.file.Files;
 import java.util.Map;
 import org.springframework.core.io.Resource;
-import org.springframework.http.HttpHeaders;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
@@ -20,8 +22,11 @@ public class StorageResource {
 
     private final StorageRepository storageRepository;
 
-    public StorageResource(StorageRepository storageRepository) {
+    private final FileDownloadWriter fileDownloadWriter;
+
+    public StorageResource(StorageRepository storageRepository, FileDownloadWriter fileDownloadWriter) {
         this.storageRepository = storageRepository;
+        this.fileDownloadWriter = fileDownloadWriter;
     }
 
     @PostMapping("/storage/upload")
@@ -32,14 +37,12 @@ public class StorageResource {
     }
 
     @GetMapping("/storage/{filename:.+}")
-    public ResponseEntity<Resource> download(@PathVariable String filename, HttpServletRequest request) {
+    public void download(@PathVariable String filename, HttpServletRequest request, HttpServletResponse response) throws IOException {
         Resource resource = storageRepository.loadAsResource(filename);
 
-        String contentType = null;
-        try {
-            contentType = request.getServletContext().getMimeType(resource.getFile().getAbsolutePath());
-        } catch (IOException ignored) {}
-        if (contentType == null) {
+        // Resolved from the name, since files held in memory by the hot file cache have no path
+        String contentType = request.getServletContext().getMimeType(filename);
+        if (contentType == null && resource.isFile()) {
             try {
                 contentType = Files.probeContentType(resource.getFile().toPath());
             } catch (IOException ignored) {}
@@ -48,9 +51,9 @@ public class StorageResource {
             contentType = MediaType.APPLICATION_OCTET_STREAM_VALUE;
         }
 
-        return ResponseEntity.ok()
-            .contentType(MediaType.parseMediaType(contentType))
-            .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"" + resource.getFilename() + "\"")
-            .body(resource);
+        DownloadTarget target = DownloadTarget.of(resource, contentType).contentDisposition(
+            "attachment; filename=\"" + resource.getFilename() + "\""
+        );
+        fileDownloadWriter.write(target, request, response);
     }
 }
@@ -0,0 +1,146 @@
+package com.fileshareappv1.myapp.web.rest;
+
+import com.fileshareappv1.myapp.service.UploadSessionNotFoundException;
+import com.fileshareappv1.myapp.service.UploadSessionService;
+import com.fileshareappv1.myapp.service.dto.FileDTO;
+import com.fileshareappv1.myapp.service.dto.UploadSessionDTO;
+import com.fileshareappv1.myapp.web.rest.bandwidth.BandwidthLimiter;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.validation.Valid;
+import java.io.IOException;
+import java.net.URI;
+import java.net.URISyntaxException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.http.CacheControl;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+import tech.jhipster.web.util.ResponseUtil;
+
+/**
+ * REST controller for resumable, chunked uploads.
+ * <p>
+ * A client creates a session with the total length, {@code PATCH}es chunks carrying an
+ * {@code Upload-Offset} header, asks for the current offset with {@code HEAD} after a dropped
+ * connection, and finally finishes the session into a {@code File}.
+ */
+@RestController
+@RequestMapping("/api/uploads")
+public class UploadSessionResource {
+
+    private static final Logger LOG = LoggerFactory.getLogger(UploadSessionResource.class);
+
+    public static final String UPLOAD_OFFSET = "Upload-Offset";
+
+    public static final String UPLOAD_LENGTH = "Upload-Length";
+
+    public static final String OFFSET_OCTET_STREAM = "application/offset+octet-stream";
+
+    private final UploadSessionService uploadSessionService;
+
+    private final BandwidthLimiter bandwidthLimiter;
+
+    public UploadSessionResource(UploadSessionService uploadSessionService, BandwidthLimiter bandwidthLimiter) {
+        this.uploadSessionService = uploadSessionService;
+        this.bandwidthLimiter = bandwidthLimiter;
+    }
+
+    /**
+     * {@code POST  /uploads} : Create a new upload session.
+     *
+     * @param uploadSessionDTO the filename, content type, total length and optional post of the upload.
+     * @return the {@link ResponseEntity} with status {@code 201 (Created)} and with body the new session.
+     * @throws URISyntaxException if the Location URI syntax is incorrect.
+     */
+    @PostMapping("")
+    public ResponseEntity<UploadSessionDTO> createUploadSession(@Valid @RequestBody UploadSessionDTO uploadSessionDTO)
+        throws URISyntaxException {
+        LOG.debug("REST request to create upload session : {}", uploadSessionDTO);
+        UploadSessionDTO result = uploadSessionService.create(uploadSessionDTO);
+        return ResponseEntity.created(new URI("/api/uploads/" + result.getId()))
+            .header(UPLOAD_OFFSET, String.valueOf(result.getOffset()))
+            .header(UPLOAD_LENGTH, String.valueOf(result.getLength()))
+            .body(result);
+    }
+
+    /**
+     * {@code HEAD  /uploads/:id} : get the current offset of an upload session.
+     *
+     * @param id the id of the upload session.
+     * @return the {@link ResponseEntity} with status {@code 200 (OK)} and the {@code Upload-Offset} header, or with status {@code 404 (Not Found)}.
+     */
+    @RequestMapping(value = "/{id}", method = RequestMethod.HEAD)
+    public ResponseEntity<Void> getUploadOffset(@PathVariable("id") String id) {
+        UploadSessionDTO session = uploadSessionService.findOne(id).orElseThrow(() -> new UploadSessionNotFoundException(id));
+        return ResponseEntity.ok()
+            .cacheControl(CacheControl.noStore())
+            .header(UPLOAD_OFFSET, String.valueOf(session.getOffset()))
+            .header(UPLOAD_LENGTH, String.valueOf(session.getLength()))
+            .build();
+    }
+
+    /**
+     * {@code GET  /uploads/:id} : get an upload session.
+     *
+     * @param id the id of the upload session.
+     * @return the {@link ResponseEntity} with status {@code 200 (OK)} and with body the session, or with status {@code 404 (Not Found)}.
+     */
+    @GetMapping("/{id}")
+    public ResponseEntity<UploadSessionDTO> getUploadSession(@PathVariable("id") String id) {
+        LOG.debug("REST request to get upload session : {}", id);
+        return ResponseUtil.wrapOrNotFound(uploadSessionService.findOne(id));
+    }
+
+    /**
+     * {@code PATCH  /uploads/:id} : append a chunk to an upload session.
+     *
+     * @param id the id of the upload session.
+     * @param offset the offset the chunk starts at.
+     * @param request the request whose body is the chunk.
+     * @return the {@link ResponseEntity} with status {@code 204 (No Content)} and the new {@code Upload-Offset},
+     * or with status {@code 409 (Conflict)} if the offset does not match the session.
+     * @throws IOException if the request body cannot be read.
+     */
+    @PatchMapping(value = "/{id}", consumes = OFFSET_OCTET_STREAM)
+    public ResponseEntity<Void> appendChunk(
+        @PathVariable("id") String id,
+        @RequestHeader(UPLOAD_OFFSET) long offset,
+        HttpServletRequest request
+    ) throws IOException {
+        LOG.debug("REST request to append to upload session {} at offset {}", id, offset);
+        long newOffset = uploadSessionService.append(
+            id,
+            offset,
+            bandwidthLimiter.throttle(BandwidthLimiter.Direction.UPLOAD, request).wrap(request.getInputStream())
+        );
+        return ResponseEntity.noContent().header(UPLOAD_OFFSET, String.valueOf(newOffset)).build();
+    }
+
+    /**
+     * {@code POST  /uploads/:id/finish} : store a completely received upload as a file.
+     *
+     * @param id the id of the upload session.
+     * @return the {@link ResponseEntity} with status {@code 201 (Created)} and with body the new fileDTO,
+     * or with status {@code 409 (Conflict)} if bytes are still missing.
+     * @throws URISyntaxException if the Location URI syntax is incorrect.
+     */
+    @PostMapping("/{id}/finish")
+    public ResponseEntity<FileDTO> finishUpload(@PathVariable("id") String id) throws URISyntaxException {
+        LOG.debug("REST request to finish upload session : {}", id);
+        FileDTO result = uploadSessionService.finish(id);
+        return ResponseEntity.created(new URI("/api/files/" + result.getId())).body(result);
+    }
+
+    /**
+     * {@code DELETE  /uploads/:id} : abort an upload session.
+     *
+     * @param id the id of the upload session.
+     * @return the {@link ResponseEntity} with status {@code 204 (NO_CONTENT)}.
+     */
+    @DeleteMapping("/{id}")
+    public ResponseEntity<Void> abortUpload(@PathVariable("id") String id) {
+        LOG.debug("REST request to abort upload session : {}", id);
+        uploadSessionService.abort(id);
+        return ResponseEntity.noContent().build();
+    }
+}
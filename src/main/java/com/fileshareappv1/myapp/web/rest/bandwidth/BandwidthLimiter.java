@@ -0,0 +1,274 @@
+package com.fileshareappv1.myapp.web.rest.bandwidth;
+
+import com.fileshareappv1.myapp.config.ApplicationProperties;
+import com.fileshareappv1.myapp.security.SecurityUtils;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.servlet.http.HttpServletRequest;
+import java.io.FilterInputStream;
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.springframework.stereotype.Component;
+
+/**
+ * Holds file transfers to the bandwidth limits of {@code application.bandwidth}: one for all
+ * transfers, one per authenticated user and one per client address, each a {@link TokenBucket}
+ * per direction.
+ * <p>
+ * A transfer is throttled by wrapping the stream it is copied through: every chunk of at most
+ * {@value #CHUNK_SIZE} bytes is reserved from each bucket that applies, and the copying thread
+ * sleeps for the longest wait before sending it. Heavy transfers are thereby slowed down instead
+ * of being refused, and small responses are not delayed at all while their client is within its
+ * burst. A throttled download cannot use sendfile, since the bytes have to be metered, so
+ * unlimited downloads keep the zero-copy path, which is why no limit is set by default. The client
+ * address is the remote address of the request, which {@code server.forward-headers-strategy}
+ * takes from {@code X-Forwarded-For} behind a proxy. The buckets of idle users and addresses expire.
+ * <p>
+ * Metrics: {@code transfer.throttle.delay}, the time transfers were held back, by
+ * {@code direction} and by the {@code scope} ({@code global}, {@code user}, {@code ip}) that
+ * imposed the wait, and {@code transfer.throttle.waiting}, the transfers being held back now.
+ */
+@Component
+public class BandwidthLimiter {
+
+    static final int CHUNK_SIZE = 64 * 1024;
+
+    private static final Duration IDLE_BUCKET_EXPIRY = Duration.ofMinutes(10);
+
+    private static final long MAXIMUM_CLIENT_BUCKETS = 100_000;
+
+    /**
+     * The direction of a transfer, as seen from the client.
+     */
+    public enum Direction {
+        UPLOAD,
+        DOWNLOAD,
+    }
+
+    private enum Scope {
+        GLOBAL,
+        USER,
+        IP,
+    }
+
+    private final long globalRate;
+
+    private final long userRate;
+
+    private final long ipRate;
+
+    private final Duration burst;
+
+    private final Map<Direction, TokenBucket> globalBuckets = new EnumMap<>(Direction.class);
+
+    private final Cache<String, TokenBucket> userBuckets;
+
+    private final Cache<String, TokenBucket> ipBuckets;
+
+    private final MeterRegistry meterRegistry;
+
+    private final AtomicInteger waiting = new AtomicInteger();
+
+    public BandwidthLimiter(ApplicationProperties applicationProperties, MeterRegistry meterRegistry) {
+        ApplicationProperties.Bandwidth bandwidth = applicationProperties.getBandwidth();
+        this.globalRate = bandwidth.getGlobal().toBytes();
+        this.userRate = bandwidth.getPerUser().toBytes();
+        this.ipRate = bandwidth.getPerIp().toBytes();
+        this.burst = bandwidth.getBurst();
+        if (globalRate > 0) {
+            for (Direction direction : Direction.values()) {
+                globalBuckets.put(direction, newBucket(globalRate));
+            }
+        }
+        this.userBuckets = Caffeine.newBuilder().expireAfterAccess(IDLE_BUCKET_EXPIRY).maximumSize(MAXIMUM_CLIENT_BUCKETS).build();
+        this.ipBuckets = Caffeine.newBuilder().expireAfterAccess(IDLE_BUCKET_EXPIRY).maximumSize(MAXIMUM_CLIENT_BUCKETS).build();
+        this.meterRegistry = meterRegistry;
+        meterRegistry.gauge("transfer.throttle.waiting", waiting);
+    }
+
+    /**
+     * @param direction the direction of the transfer.
+     * @param request the request transferring the file, identifying the user and client address.
+     * @return the throttle for the transfer, {@link Throttle#UNLIMITED} if no limit applies.
+     */
+    public Throttle throttle(Direction direction, HttpServletRequest request) {
+        List<TokenBucket> buckets = new ArrayList<>(3);
+        List<Scope> scopes = new ArrayList<>(3);
+        if (globalRate > 0) {
+            buckets.add(globalBuckets.get(direction));
+            scopes.add(Scope.GLOBAL);
+        }
+        if (userRate > 0 && SecurityUtils.isAuthenticated()) {
+            SecurityUtils.getCurrentUserLogin().ifPresent(login -> {
+                buckets.add(userBuckets.get(direction + ":" + login, key -> newBucket(userRate)));
+                scopes.add(Scope.USER);
+            });
+        }
+        if (ipRate > 0 && request.getRemoteAddr() != null) {
+            buckets.add(ipBuckets.get(direction + ":" + request.getRemoteAddr(), key -> newBucket(ipRate)));
+            scopes.add(Scope.IP);
+        }
+        return buckets.isEmpty() ? Throttle.UNLIMITED : new Throttle(this, direction, buckets, scopes);
+    }
+
+    private TokenBucket newBucket(long bytesPerSecond) {
+        long capacity = Math.max((long) (bytesPerSecond * (burst.toMillis() / 1000.0)), CHUNK_SIZE);
+        return new TokenBucket(bytesPerSecond, capacity, System.nanoTime());
+    }
+
+    void await(Direction direction, Scope scope, long nanos) throws InterruptedIOException {
+        waiting.incrementAndGet();
+        try {
+            TimeUnit.NANOSECONDS.sleep(nanos);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while throttled");
+        } finally {
+            waiting.decrementAndGet();
+        }
+        Timer.builder("transfer.throttle.delay")
+            .description("Time file transfers were held back by bandwidth limits")
+            .tag("direction", direction.name().toLowerCase(Locale.ROOT))
+            .tag("scope", scope.name().toLowerCase(Locale.ROOT))
+            .register(meterRegistry)
+            .record(nanos, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * The bandwidth limits that apply to one transfer.
+     */
+    public static class Throttle {
+
+        public static final Throttle UNLIMITED = new Throttle(null, null, List.of(), List.of());
+
+        private final BandwidthLimiter limiter;
+
+        private final Direction direction;
+
+        private final List<TokenBucket> buckets;
+
+        private final List<Scope> scopes;
+
+        private Throttle(BandwidthLimiter limiter, Direction direction, List<TokenBucket> buckets, List<Scope> scopes) {
+            this.limiter = limiter;
+            this.direction = direction;
+            this.buckets = buckets;
+            this.scopes = scopes;
+        }
+
+        public boolean isUnlimited() {
+            return buckets.isEmpty();
+        }
+
+        /**
+         * Wait until {@code bytes} may be transferred.
+         *
+         * @param bytes the number of bytes about to be transferred.
+         * @throws InterruptedIOException if the thread is interrupted while waiting.
+         */
+        public void acquire(long bytes) throws InterruptedIOException {
+            if (bytes <= 0 || isUnlimited()) {
+                return;
+            }
+            long now = System.nanoTime();
+            long wait = 0;
+            Scope limitedBy = null;
+            for (int i = 0; i < buckets.size(); i++) {
+                long bucketWait = buckets.get(i).reserve(bytes, now);
+                if (bucketWait > wait) {
+                    wait = bucketWait;
+                    limitedBy = scopes.get(i);
+                }
+            }
+            if (wait > 0) {
+                limiter.await(direction, limitedBy, wait);
+            }
+        }
+
+        /**
+         * @return the stream, reading no faster than this throttle allows.
+         */
+        public InputStream wrap(InputStream in) {
+            return isUnlimited() ? in : new ThrottledInputStream(in, this);
+        }
+
+        /**
+         * @return the stream, writing no faster than this throttle allows.
+         */
+        public OutputStream wrap(OutputStream out) {
+            return isUnlimited() ? out : new ThrottledOutputStream(out, this);
+        }
+    }
+
+    private static class ThrottledInputStream extends FilterInputStream {
+
+        private final Throttle throttle;
+
+        ThrottledInputStream(InputStream in, Throttle throttle) {
+            super(in);
+            this.throttle = throttle;
+        }
+
+        @Override
+        public int read() throws IOException {
+            int b = super.read();
+            if (b >= 0) {
+                throttle.acquire(1);
+            }
+            return b;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            // Bytes are paid for once read, so a short read does not hold the reader back for nothing
+            int read = in.read(b, off, Math.min(len, CHUNK_SIZE));
+            throttle.acquire(read);
+            return read;
+        }
+
+        @Override
+        public long skip(long n) throws IOException {
+            long skipped = in.skip(Math.min(n, CHUNK_SIZE));
+            throttle.acquire(skipped);
+            return skipped;
+        }
+    }
+
+    private static class ThrottledOutputStream extends FilterOutputStream {
+
+        private final Throttle throttle;
+
+        ThrottledOutputStream(OutputStream out, Throttle throttle) {
+            super(out);
+            this.throttle = throttle;
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            throttle.acquire(1);
+            out.write(b);
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            for (int written = 0; written < len; written += CHUNK_SIZE) {
+                int chunk = Math.min(CHUNK_SIZE, len - written);
+                throttle.acquire(chunk);
+                out.write(b, off + written, chunk);
+            }
+        }
+    }
+}
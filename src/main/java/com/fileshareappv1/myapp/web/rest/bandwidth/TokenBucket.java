@@ -0,0 +1,45 @@
+package com.fileshareappv1.myapp.web.rest.bandwidth;
+
+/**
+ * A token bucket of bytes, refilled at a fixed rate up to its capacity.
+ * <p>
+ * Reservations are never refused: a transfer takes the bytes it is about to send, possibly
+ * leaving the bucket in debt, and is told how long to wait before sending them. Concurrent
+ * transfers sharing a bucket therefore queue up behind each other's debt, each getting its
+ * share of the rate.
+ */
+final class TokenBucket {
+
+    private static final double NANOS_PER_SECOND = 1_000_000_000d;
+
+    private final double bytesPerNano;
+
+    private final double capacity;
+
+    private double tokens;
+
+    private long refilledAt;
+
+    TokenBucket(long bytesPerSecond, long capacity, long now) {
+        this.bytesPerNano = bytesPerSecond / NANOS_PER_SECOND;
+        this.capacity = capacity;
+        this.tokens = capacity;
+        this.refilledAt = now;
+    }
+
+    /**
+     * Take {@code bytes} from the bucket.
+     *
+     * @param bytes the number of bytes about to be transferred.
+     * @param now the current {@link System#nanoTime()}.
+     * @return how long to wait before transferring them, in nanoseconds.
+     */
+    synchronized long reserve(long bytes, long now) {
+        if (now > refilledAt) {
+            tokens = Math.min(capacity, tokens + (now - refilledAt) * bytesPerNano);
+            refilledAt = now;
+        }
+        tokens -= bytes;
+        return tokens >= 0 ? 0 : (long) Math.ceil(-tokens / bytesPerNano);
+    }
+}
@@ -0,0 +1,4 @@
+/**
+ * Bandwidth limits of file transfers.
+ */
+package com.fileshareappv1.myapp.web.rest.bandwidth;
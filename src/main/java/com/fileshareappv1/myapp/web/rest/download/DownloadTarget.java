@@ -0,0 +1,110 @@
+package com.fileshareappv1.myapp.web.rest.download;
+
+import java.io.IOException;
+import org.springframework.core.io.Resource;
+
+/**
+ * A stored file about to be written to the response, together with the metadata needed for
+ * range and validator handling.
+ */
+public class DownloadTarget {
+
+    private final Resource resource;
+
+    private final String contentType;
+
+    private final long contentLength;
+
+    private final long lastModified;
+
+    private String etag;
+
+    private String contentDisposition;
+
+    private String cacheControl;
+
+    private String contentEncoding;
+
+    public DownloadTarget(Resource resource, String contentType, long contentLength, long lastModified) {
+        this.resource = resource;
+        this.contentType = contentType;
+        this.contentLength = contentLength;
+        this.lastModified = lastModified;
+    }
+
+    /**
+     * Build a target whose length and modification time are read from the resource itself.
+     *
+     * @param resource the stored file.
+     * @param contentType the media type to announce.
+     * @return the download target.
+     * @throws IOException if the resource cannot be inspected.
+     */
+    public static DownloadTarget of(Resource resource, String contentType) throws IOException {
+        long lastModified;
+        try {
+            lastModified = resource.lastModified();
+        } catch (IOException e) {
+            lastModified = -1;
+        }
+        return new DownloadTarget(resource, contentType, resource.contentLength(), lastModified);
+    }
+
+    public Resource getResource() {
+        return resource;
+    }
+
+    public String getContentType() {
+        return contentType;
+    }
+
+    public long getContentLength() {
+        return contentLength;
+    }
+
+    /**
+     * @return the last modification time in epoch millis, or {@code -1} if unknown.
+     */
+    public long getLastModified() {
+        return lastModified;
+    }
+
+    public String getEtag() {
+        return etag;
+    }
+
+    public DownloadTarget etag(String etag) {
+        this.etag = etag;
+        return this;
+    }
+
+    public String getContentDisposition() {
+        return contentDisposition;
+    }
+
+    public DownloadTarget contentDisposition(String contentDisposition) {
+        this.contentDisposition = contentDisposition;
+        return this;
+    }
+
+    public String getCacheControl() {
+        return cacheControl;
+    }
+
+    public DownloadTarget cacheControl(String cacheControl) {
+        this.cacheControl = cacheControl;
+        return this;
+    }
+
+    /**
+     * @return the content coding the resource is stored in (e.g. {@code gzip}), or {@code null} for identity.
+     */
+    public String getContentEncoding() {
+        return contentEncoding;
+    }
+
+    public DownloadTarget contentEncoding(String contentEncoding) {
+        this.contentEncoding = contentEncoding;
+        return this;
+    }
+}
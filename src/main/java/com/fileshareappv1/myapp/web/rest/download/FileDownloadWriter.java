@@ -0,0 +1,327 @@
+package com.fileshareappv1.myapp.web.rest.download;
+
+import com.fileshareappv1.myapp.management.TransferMetersService;
+import com.fileshareappv1.myapp.service.storage.CachedFileResource;
+import com.fileshareappv1.myapp.service.storage.RangeReadableResource;
+import com.fileshareappv1.myapp.web.rest.bandwidth.BandwidthLimiter;
+import io.undertow.io.BufferWritableOutputStream;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import org.springframework.core.io.Resource;
+import org.springframework.core.io.support.ResourceRegion;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpRange;
+import org.springframework.stereotype.Component;
+import org.springframework.util.MimeTypeUtils;
+import org.springframework.util.StreamUtils;
+import org.springframework.web.context.request.ServletWebRequest;
+
+/**
+ * Writes stored files to the servlet response with RFC 7233 byte-range support.
+ * <p>
+ * Single and multiple ranges, {@code If-Range}, {@code 206 (Partial Content)} and
+ * {@code 416 (Range Not Satisfiable)} are handled here. File-backed resources are sent through
+ * {@link FileChannel}s: a segment that runs to the end of the file is handed to Undertow's
+ * {@code transferFrom} (sendfile), other segments are written as memory-mapped buffers, so the
+ * bytes never get copied through the Java heap. Files held by the hot file cache are written
+ * straight from their off-heap buffer, and remote objects are fetched with ranged reads. Downloads
+ * held to a bandwidth limit by the {@link BandwidthLimiter} are copied in metered chunks instead.
+ * Every response body sent counts as a download of the {@link TransferMetersService}.
+ */
+@Component
+public class FileDownloadWriter {
+
+    private static final String BYTES = "bytes";
+
+    private static final int MAPPED_CHUNK_SIZE = 8 * 1024 * 1024;
+
+    private final BandwidthLimiter bandwidthLimiter;
+
+    private final TransferMetersService transferMetersService;
+
+    public FileDownloadWriter(BandwidthLimiter bandwidthLimiter, TransferMetersService transferMetersService) {
+        this.bandwidthLimiter = bandwidthLimiter;
+        this.transferMetersService = transferMetersService;
+    }
+
+    /**
+     * Answer a conditional request ({@code If-None-Match}, {@code If-Modified-Since}) from the
+     * validators alone, before the file is even opened.
+     *
+     * @param etag the strong entity tag of the file.
+     * @param lastModified the last modification time in epoch millis, or {@code -1} if unknown.
+     * @param cacheControl the {@code Cache-Control} directives to send with a {@code 304}, or {@code null}.
+     * @param request the current request.
+     * @param response the response to write to.
+     * @return {@code true} if a {@code 304 (Not Modified)} or {@code 412 (Precondition Failed)} was sent and nothing else must be written.
+     */
+    public boolean checkNotModified(
+        String etag,
+        long lastModified,
+        String cacheControl,
+        HttpServletRequest request,
+        HttpServletResponse response
+    ) {
+        if (!new ServletWebRequest(request, response).checkNotModified(etag, lastModified)) {
+            return false;
+        }
+        if (cacheControl != null) {
+            response.setHeader(HttpHeaders.CACHE_CONTROL, cacheControl);
+        }
+        return true;
+    }
+
+    /**
+     * Write the target to the response, honouring the {@code Range} and {@code If-Range} request headers.
+     *
+     * @param target the file to send.
+     * @param request the current request.
+     * @param response the response to write to.
+     * @throws IOException if the file cannot be read or the client went away.
+     */
+    public void write(DownloadTarget target, HttpServletRequest request, HttpServletResponse response) throws IOException {
+        long length = target.getContentLength();
+
+        response.setHeader(HttpHeaders.ACCEPT_RANGES, BYTES);
+        if (target.getLastModified() >= 0) {
+            response.setDateHeader(HttpHeaders.LAST_MODIFIED, target.getLastModified());
+        }
+        if (target.getEtag() != null) {
+            response.setHeader(HttpHeaders.ETAG, target.getEtag());
+        }
+        if (target.getContentDisposition() != null) {
+            response.setHeader(HttpHeaders.CONTENT_DISPOSITION, target.getContentDisposition());
+        }
+        if (target.getCacheControl() != null) {
+            response.setHeader(HttpHeaders.CACHE_CONTROL, target.getCacheControl());
+        }
+        if (target.getContentEncoding() != null) {
+            response.setHeader(HttpHeaders.CONTENT_ENCODING, target.getContentEncoding());
+        }
+
+        List<HttpRange> requested = requestedRanges(request, target);
+        if (requested.isEmpty()) {
+            response.setStatus(HttpServletResponse.SC_OK);
+            response.setContentType(target.getContentType());
+            response.setContentLengthLong(length);
+            if (hasBody(request)) {
+                try (TransferMetersService.Transfer metered = transferMetersService.start(TransferMetersService.Direction.DOWNLOAD)) {
+                    transfer(target.getResource(), 0, length, true, responseBody(request, response));
+                    metered.completed(length);
+                }
+            }
+            return;
+        }
+
+        List<ResourceRegion> regions = satisfiableRegions(requested, target.getResource(), length);
+        if (regions.isEmpty()) {
+            response.setStatus(HttpServletResponse.SC_REQUESTED_RANGE_NOT_SATISFIABLE);
+            response.setHeader(HttpHeaders.CONTENT_RANGE, BYTES + " */" + length);
+            return;
+        }
+
+        response.setStatus(HttpServletResponse.SC_PARTIAL_CONTENT);
+        if (regions.size() == 1) {
+            ResourceRegion region = regions.get(0);
+            response.setContentType(target.getContentType());
+            response.setHeader(HttpHeaders.CONTENT_RANGE, contentRange(region, length));
+            response.setContentLengthLong(region.getCount());
+            if (hasBody(request)) {
+                try (TransferMetersService.Transfer metered = transferMetersService.start(TransferMetersService.Direction.DOWNLOAD)) {
+                    transfer(region.getResource(), region.getPosition(), region.getCount(), true, responseBody(request, response));
+                    metered.completed(region.getCount());
+                }
+            }
+            return;
+        }
+
+        String boundary = MimeTypeUtils.generateMultipartBoundaryString();
+        List<byte[]> partHeaders = new ArrayList<>(regions.size());
+        long bodyLength = 0;
+        for (ResourceRegion region : regions) {
+            byte[] partHeader = (
+                "\r\n--" +
+                boundary +
+                "\r\n" +
+                HttpHeaders.CONTENT_TYPE +
+                ": " +
+                target.getContentType() +
+                "\r\n" +
+                HttpHeaders.CONTENT_RANGE +
+                ": " +
+                contentRange(region, length) +
+                "\r\n\r\n"
+            ).getBytes(StandardCharsets.US_ASCII);
+            partHeaders.add(partHeader);
+            bodyLength += partHeader.length + region.getCount();
+        }
+        byte[] closeDelimiter = ("\r\n--" + boundary + "--\r\n").getBytes(StandardCharsets.US_ASCII);
+        bodyLength += closeDelimiter.length;
+
+        response.setContentType("multipart/byteranges; boundary=" + boundary);
+        response.setContentLengthLong(bodyLength);
+        if (!hasBody(request)) {
+            return;
+        }
+        try (TransferMetersService.Transfer metered = transferMetersService.start(TransferMetersService.Direction.DOWNLOAD)) {
+            OutputStream out = responseBody(request, response);
+            for (int i = 0; i < regions.size(); i++) {
+                ResourceRegion region = regions.get(i);
+                out.write(partHeaders.get(i));
+                transfer(region.getResource(), region.getPosition(), region.getCount(), false, out);
+            }
+            out.write(closeDelimiter);
+            metered.completed(bodyLength);
+        }
+    }
+
+    private OutputStream responseBody(HttpServletRequest request, HttpServletResponse response) throws IOException {
+        return bandwidthLimiter.throttle(BandwidthLimiter.Direction.DOWNLOAD, request).wrap(response.getOutputStream());
+    }
+
+    private List<HttpRange> requestedRanges(HttpServletRequest request, DownloadTarget target) {
+        String rangeHeader = request.getHeader(HttpHeaders.RANGE);
+        if (rangeHeader == null || !isIfRangeSatisfied(request, target)) {
+            return List.of();
+        }
+        try {
+            return HttpRange.parseRanges(rangeHeader);
+        } catch (IllegalArgumentException e) {
+            // A syntactically invalid Range header is ignored (RFC 7233, section 3.1)
+            return List.of();
+        }
+    }
+
+    /**
+     * Evaluate {@code If-Range}: the range applies only if the client's validator still matches.
+     * Weak entity tags never match, and dates must match the last modification time exactly.
+     */
+    private boolean isIfRangeSatisfied(HttpServletRequest request, DownloadTarget target) {
+        String ifRange = request.getHeader(HttpHeaders.IF_RANGE);
+        if (ifRange == null) {
+            return true;
+        }
+        ifRange = ifRange.trim();
+        if (ifRange.startsWith("\"") || ifRange.startsWith("W/")) {
+            return target.getEtag() != null && !target.getEtag().startsWith("W/") && ifRange.equals(target.getEtag());
+        }
+        if (target.getLastModified() < 0) {
+            return false;
+        }
+        try {
+            return request.getDateHeader(HttpHeaders.IF_RANGE) == (target.getLastModified() / 1000) * 1000;
+        } catch (IllegalArgumentException e) {
+            return false;
+        }
+    }
+
+    /**
+     * Resolve the requested ranges against the file length, dropping unsatisfiable ones and
+     * coalescing overlapping or adjacent ranges so a client cannot amplify the response.
+     */
+    private List<ResourceRegion> satisfiableRegions(List<HttpRange> ranges, Resource resource, long length) {
+        List<long[]> bounds = new ArrayList<>();
+        for (HttpRange range : ranges) {
+            long start = range.getRangeStart(length);
+            long end = range.getRangeEnd(length);
+            if (start < length && start <= end) {
+                bounds.add(new long[] { start, end });
+            }
+        }
+        if (bounds.size() > 1) {
+            bounds.sort(Comparator.comparingLong(b -> b[0]));
+            List<long[]> merged = new ArrayList<>();
+            for (long[] current : bounds) {
+                long[] last = merged.isEmpty() ? null : merged.get(merged.size() - 1);
+                if (last != null && current[0] <= last[1] + 1) {
+                    last[1] = Math.max(last[1], current[1]);
+                } else {
+                    merged.add(current);
+                }
+            }
+            bounds = merged;
+        }
+        return bounds.stream().map(b -> new ResourceRegion(resource, b[0], b[1] - b[0] + 1)).toList();
+    }
+
+    private static String contentRange(ResourceRegion region, long length) {
+        return BYTES + " " + region.getPosition() + "-" + (region.getPosition() + region.getCount() - 1) + "/" + length;
+    }
+
+    private static boolean hasBody(HttpServletRequest request) {
+        return !HttpMethod.HEAD.matches(request.getMethod());
+    }
+
+    /**
+     * Copy {@code count} bytes starting at {@code position} to the output stream.
+     *
+     * @param exclusive whether this segment is the only content of the response, which lets
+     *                  Undertow bound a sendfile transfer by the response {@code Content-Length}.
+     */
+    private void transfer(Resource resource, long position, long count, boolean exclusive, OutputStream out) throws IOException {
+        if (count == 0) {
+            return;
+        }
+        if (resource instanceof CachedFileResource cached) {
+            ByteBuffer buffer = cached.slice(position, count);
+            if (out instanceof BufferWritableOutputStream undertowOut) {
+                undertowOut.write(buffer);
+            } else {
+                Channels.newChannel(out).write(buffer);
+            }
+            return;
+        }
+        if (resource instanceof RangeReadableResource ranged) {
+            try (InputStream in = ranged.getInputStream(position, count)) {
+                StreamUtils.copy(in, out);
+            }
+            return;
+        }
+        if (!resource.isFile()) {
+            try (InputStream in = resource.getInputStream()) {
+                StreamUtils.copyRange(in, out, position, position + count - 1);
+            }
+            return;
+        }
+        try (FileChannel channel = FileChannel.open(resource.getFile().toPath(), StandardOpenOption.READ)) {
+            if (out instanceof BufferWritableOutputStream undertowOut) {
+                if (exclusive && position + count == channel.size()) {
+                    channel.position(position);
+                    undertowOut.transferFrom(channel);
+                    return;
+                }
+                long written = 0;
+                while (written < count) {
+                    long chunk = Math.min(MAPPED_CHUNK_SIZE, count - written);
+                    MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, position + written, chunk);
+                    undertowOut.write(buffer);
+                    written += chunk;
+                }
+                return;
+            }
+            WritableByteChannel target = Channels.newChannel(out);
+            long written = 0;
+            while (written < count) {
+                long transferred = channel.transferTo(position + written, count - written, target);
+                if (transferred <= 0) {
+                    throw new IOException("Unexpected end of file while sending " + resource.getFilename());
+                }
+                written += transferred;
+            }
+        }
+    }
+}
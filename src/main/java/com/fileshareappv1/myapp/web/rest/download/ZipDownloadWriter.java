@@ -0,0 +1,177 @@
+package com.fileshareappv1.myapp.web.rest.download;
+
+import com.fileshareappv1.myapp.management.TransferMetersService;
+import com.fileshareappv1.myapp.service.storage.StorageRepository;
+import com.fileshareappv1.myapp.web.rest.bandwidth.BandwidthLimiter;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.zip.CRC32;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.core.io.Resource;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.http.MediaTypeFactory;
+import org.springframework.stereotype.Component;
+
+/**
+ * Streams stored files to the response as one ZIP archive, built while it is sent.
+ * <p>
+ * Nothing is buffered beyond a fixed-size copy buffer, whatever the number and size of the files,
+ * and the archive is never written to disk: the response is chunked, since its length is not known
+ * up front. Media that is already compressed (images, audio, video, archives) is added as
+ * {@code STORED} entries, whose CRC is computed in a first read of the file, so no CPU is spent
+ * deflating it again; everything else is deflated. Files that cannot be read are left out, since
+ * the response is already committed by the time they are reached. An archive counts as one download
+ * of the {@link TransferMetersService}, of the bytes actually sent.
+ */
+@Component
+public class ZipDownloadWriter {
+
+    private static final Logger LOG = LoggerFactory.getLogger(ZipDownloadWriter.class);
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private static final Set<String> COMPRESSED_TYPES = Set.of(
+        "application/zip",
+        "application/gzip",
+        "application/x-gzip",
+        "application/x-7z-compressed",
+        "application/x-rar-compressed",
+        "application/x-bzip2",
+        "application/x-xz",
+        "application/zstd",
+        "application/pdf",
+        "application/vnd.openxmlformats-officedocument.wordprocessingml.document",
+        "application/vnd.openxmlformats-officedocument.spreadsheetml.sheet",
+        "application/vnd.openxmlformats-officedocument.presentationml.presentation"
+    );
+
+    private final StorageRepository storageRepository;
+
+    private final BandwidthLimiter bandwidthLimiter;
+
+    private final TransferMetersService transferMetersService;
+
+    public ZipDownloadWriter(
+        StorageRepository storageRepository,
+        BandwidthLimiter bandwidthLimiter,
+        TransferMetersService transferMetersService
+    ) {
+        this.storageRepository = storageRepository;
+        this.bandwidthLimiter = bandwidthLimiter;
+        this.transferMetersService = transferMetersService;
+    }
+
+    /**
+     * Write the stored files to the response as a ZIP archive.
+     *
+     * @param entries the stored filename of each entry, by entry name, in archive order.
+     * @param archiveName the filename to suggest to the client.
+     * @param request the current request.
+     * @param response the response to write to.
+     * @throws IOException if the client went away.
+     */
+    public void write(
+        Map<String, String> entries,
+        String archiveName,
+        HttpServletRequest request,
+        HttpServletResponse response
+    ) throws IOException {
+        response.setStatus(HttpServletResponse.SC_OK);
+        response.setContentType("application/zip");
+        response.setHeader(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"" + archiveName + "\"");
+
+        byte[] buffer = new byte[BUFFER_SIZE];
+        OutputStream throttled = bandwidthLimiter.throttle(BandwidthLimiter.Direction.DOWNLOAD, request).wrap(response.getOutputStream());
+        CountingOutputStream out = new CountingOutputStream(throttled);
+        try (
+            TransferMetersService.Transfer metered = transferMetersService.start(TransferMetersService.Direction.DOWNLOAD);
+            ZipOutputStream zip = new ZipOutputStream(out)
+        ) {
+            for (Map.Entry<String, String> entry : entries.entrySet()) {
+                Resource resource;
+                try {
+                    resource = storageRepository.loadAsResource(entry.getValue());
+                } catch (RuntimeException e) {
+                    LOG.warn("Leaving missing stored file {} out of {}", entry.getValue(), archiveName);
+                    continue;
+                }
+                addEntry(zip, entry.getKey(), resource, buffer);
+            }
+            zip.finish();
+            metered.completed(out.count);
+        }
+    }
+
+    private static void addEntry(ZipOutputStream zip, String name, Resource resource, byte[] buffer) throws IOException {
+        ZipEntry entry = new ZipEntry(name);
+        long lastModified = resource.lastModified();
+        if (lastModified > 0) {
+            entry.setTime(lastModified);
+        }
+        if (isCompressed(name)) {
+            // STORED entries need their size and CRC in the local header, before the data
+            CRC32 crc = new CRC32();
+            long size = 0;
+            try (InputStream in = resource.getInputStream()) {
+                for (int read = in.read(buffer); read >= 0; read = in.read(buffer)) {
+                    crc.update(buffer, 0, read);
+                    size += read;
+                }
+            }
+            entry.setMethod(ZipEntry.STORED);
+            entry.setSize(size);
+            entry.setCompressedSize(size);
+            entry.setCrc(crc.getValue());
+        } else {
+            entry.setMethod(ZipEntry.DEFLATED);
+        }
+        zip.putNextEntry(entry);
+        try (InputStream in = resource.getInputStream()) {
+            for (int read = in.read(buffer); read >= 0; read = in.read(buffer)) {
+                zip.write(buffer, 0, read);
+            }
+        }
+        zip.closeEntry();
+    }
+
+    static boolean isCompressed(String name) {
+        MediaType type = MediaTypeFactory.getMediaType(name).orElse(MediaType.APPLICATION_OCTET_STREAM);
+        return switch (type.getType()) {
+            case "image" -> !type.getSubtype().contains("svg") && !type.getSubtype().equals("bmp") && !type.getSubtype().equals("tiff");
+            case "audio", "video" -> !type.getSubtype().startsWith("wav") && !type.getSubtype().equals("x-wav");
+            default -> COMPRESSED_TYPES.contains(type.getType() + "/" + type.getSubtype().toLowerCase(Locale.ROOT));
+        };
+    }
+
+    private static class CountingOutputStream extends FilterOutputStream {
+
+        private long count;
+
+        CountingOutputStream(OutputStream out) {
+            super(out);
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            out.write(b);
+            count++;
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            out.write(b, off, len);
+            count += len;
+        }
+    }
+}
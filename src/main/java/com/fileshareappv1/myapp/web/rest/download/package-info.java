@@ -0,0 +1,4 @@
+/**
+ * Streaming of stored files to HTTP clients.
+ */
+package com.fileshareappv1.myapp.web.rest.download;
@@ -0,0 +1,17 @@
+package com.fileshareappv1.myapp.web.rest.idempotency;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.ResponseStatus;
+
+/**
+ * Thrown when a request is still in progress after a duplicate of it waited for it too long.
+ */
+@ResponseStatus(value = HttpStatus.CONFLICT, reason = "A request with this Idempotency-Key is in progress")
+public class IdempotentRequestInProgressException extends RuntimeException {
+
+    private static final long serialVersionUID = 1L;
+
+    public IdempotentRequestInProgressException() {
+        super("A request with the same Idempotency-Key is still in progress");
+    }
+}
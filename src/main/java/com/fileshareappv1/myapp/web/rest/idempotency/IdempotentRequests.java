@@ -0,0 +1,161 @@
+package com.fileshareappv1.myapp.web.rest.idempotency;
+
+import com.fileshareappv1.myapp.config.ApplicationProperties;
+import com.fileshareappv1.myapp.security.SecurityUtils;
+import com.fileshareappv1.myapp.web.rest.errors.BadRequestAlertException;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.servlet.http.HttpServletRequest;
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.http.ResponseEntity;
+import org.springframework.stereotype.Component;
+
+/**
+ * Runs requests carrying an {@value #HEADER} header at most once, and replays their response to
+ * retries of the same request, so a client that timed out during an upload can safely send it
+ * again.
+ * <p>
+ * A key is scoped to the current user and the request path. The first request with a key runs,
+ * and its response is kept for {@code application.idempotency.ttl}; duplicates arriving while it
+ * is still in progress wait for it instead of storing the files a second time, and are refused
+ * with {@code 409 (Conflict)} if that takes longer than {@code application.idempotency.wait-timeout}.
+ * A request that fails is not remembered: its retries run again, as if they were the first. Replayed
+ * responses carry an {@value #REPLAYED_HEADER} header.
+ * <p>
+ * Responses are kept in memory, so instances behind a load balancer only recognize the retries
+ * they receive themselves.
+ * <p>
+ * Metrics: {@code http.server.idempotent.requests} by {@code result} ({@code executed},
+ * {@code replayed}).
+ */
+@Component
+public class IdempotentRequests {
+
+    private static final Logger LOG = LoggerFactory.getLogger(IdempotentRequests.class);
+
+    public static final String HEADER = "Idempotency-Key";
+
+    public static final String REPLAYED_HEADER = "Idempotent-Replayed";
+
+    private static final int MAXIMUM_KEY_LENGTH = 255;
+
+    /**
+     * A request handler, possibly throwing a checked exception.
+     */
+    @FunctionalInterface
+    public interface Action<T, E extends Exception> {
+        ResponseEntity<T> run() throws E;
+    }
+
+    private final ConcurrentMap<String, CompletableFuture<ResponseEntity<?>>> responses;
+
+    private final Duration waitTimeout;
+
+    private final MeterRegistry meterRegistry;
+
+    public IdempotentRequests(ApplicationProperties applicationProperties, MeterRegistry meterRegistry) {
+        ApplicationProperties.Idempotency idempotency = applicationProperties.getIdempotency();
+        Cache<String, CompletableFuture<ResponseEntity<?>>> cache = Caffeine.newBuilder()
+            .expireAfterWrite(idempotency.getTtl())
+            .maximumSize(idempotency.getMaximumKeys())
+            .build();
+        this.responses = cache.asMap();
+        this.waitTimeout = idempotency.getWaitTimeout();
+        this.meterRegistry = meterRegistry;
+    }
+
+    /**
+     * Run {@code action} unless a request with the same key ran already.
+     *
+     * @param key the {@value #HEADER} header of the request, possibly {@code null}, in which case
+     * {@code action} simply runs.
+     * @param request the current request.
+     * @param action the request handler.
+     * @return the response of {@code action}, or of the earlier request with the same key.
+     * @throws E if {@code action} fails.
+     * @throws IdempotentRequestInProgressException if the earlier request is still in progress
+     * after the wait timeout.
+     */
+    @SuppressWarnings("unchecked")
+    public <T, E extends Exception> ResponseEntity<T> execute(String key, HttpServletRequest request, Action<T, E> action) throws E {
+        if (key == null) {
+            return action.run();
+        }
+        String scopedKey = scopedKey(key, request);
+        while (true) {
+            CompletableFuture<ResponseEntity<?>> ours = new CompletableFuture<>();
+            CompletableFuture<ResponseEntity<?>> earlier = responses.putIfAbsent(scopedKey, ours);
+            if (earlier == null) {
+                return run(scopedKey, ours, action);
+            }
+            try {
+                ResponseEntity<?> response = earlier.get(waitTimeout.toMillis(), TimeUnit.MILLISECONDS);
+                LOG.debug("Replaying the response to {} {} with {} {}", request.getMethod(), request.getRequestURI(), HEADER, key);
+                meterRegistry.counter("http.server.idempotent.requests", "result", "replayed").increment();
+                return ResponseEntity.status(response.getStatusCode())
+                    .headers(response.getHeaders())
+                    .header(REPLAYED_HEADER, "true")
+                    .body((T) response.getBody());
+            } catch (ExecutionException e) {
+                // The earlier request failed and was forgotten: this one gets its turn
+                LOG.debug("The request with {} {} failed, running its duplicate", HEADER, key);
+            } catch (TimeoutException e) {
+                throw new IdempotentRequestInProgressException();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IdempotentRequestInProgressException();
+            }
+        }
+    }
+
+    /**
+     * @param request the current request.
+     * @return whether the request is a retry of a request that completed already.
+     */
+    public boolean isReplay(HttpServletRequest request) {
+        String key = request.getHeader(HEADER);
+        if (key == null || key.isEmpty() || key.length() > MAXIMUM_KEY_LENGTH) {
+            return false;
+        }
+        CompletableFuture<ResponseEntity<?>> response = responses.get(scopedKey(key, request));
+        return response != null && response.isDone() && !response.isCompletedExceptionally();
+    }
+
+    private <T, E extends Exception> ResponseEntity<T> run(
+        String scopedKey,
+        CompletableFuture<ResponseEntity<?>> ours,
+        Action<T, E> action
+    ) throws E {
+        boolean completed = false;
+        try {
+            ResponseEntity<T> response = action.run();
+            completed = !response.getStatusCode().is5xxServerError();
+            if (completed) {
+                ours.complete(response);
+            }
+            meterRegistry.counter("http.server.idempotent.requests", "result", "executed").increment();
+            return response;
+        } finally {
+            if (!completed) {
+                responses.remove(scopedKey, ours);
+                ours.completeExceptionally(new IllegalStateException("The request failed"));
+            }
+        }
+    }
+
+    private static String scopedKey(String key, HttpServletRequest request) {
+        if (key.isEmpty() || key.length() > MAXIMUM_KEY_LENGTH) {
+            throw new BadRequestAlertException("Invalid " + HEADER + " header", "idempotency", "idempotencykeyinvalid");
+        }
+        String login = SecurityUtils.getCurrentUserLogin().orElse("");
+        return login + '\n' + request.getRequestURI() + '\n' + key;
+    }
+}
@@ -0,0 +1,4 @@
+/**
+ * Idempotency keys of upload requests.
+ */
+package com.fileshareappv1.myapp.web.rest.idempotency;
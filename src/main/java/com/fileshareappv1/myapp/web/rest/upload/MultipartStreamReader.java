@@ -0,0 +1,372 @@
+package com.fileshareappv1.myapp.web.rest.upload;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+import org.springframework.http.ContentDisposition;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.ResponseStatus;
+
+/**
+ * Incremental {@code multipart/form-data} parser (RFC 7578 / RFC 2046).
+ * <p>
+ * Parts are exposed one at a time as streams reading straight from the request body, so each
+ * part can be written to its final destination while it arrives, without the servlet container
+ * spooling it to a temporary file first. Only one part can be read at a time; moving to the next
+ * part skips whatever is left of the current one.
+ * <p>
+ * Since the servlet container does not see these requests as multipart, the reader enforces the
+ * size limits itself: a part or body going over its limit fails with a
+ * {@link SizeLimitExceededException} as soon as the excess bytes arrive.
+ */
+public class MultipartStreamReader {
+
+    private static final int DEFAULT_BUFFER_SIZE = 64 * 1024;
+
+    private static final int MAX_HEADER_SIZE = 16 * 1024;
+
+    private static final byte CR = '\r';
+
+    private static final byte LF = '\n';
+
+    private final InputStream in;
+
+    /** {@code CRLF--boundary}: the delimiter that ends each part body. */
+    private final byte[] delimiter;
+
+    private final byte[] buffer;
+
+    private int head;
+
+    private int tail;
+
+    private boolean eof;
+
+    private boolean finished;
+
+    private PartInputStream currentPart;
+
+    private final long maxPartSize;
+
+    private final long maxBodySize;
+
+    private long bodySize;
+
+    public MultipartStreamReader(InputStream in, String boundary) {
+        this(in, boundary, -1, -1);
+    }
+
+    /**
+     * @param maxPartSize the maximum size of a part body in bytes, or a negative value for no limit.
+     * @param maxBodySize the maximum size of the whole request body in bytes, or a negative value for no limit.
+     */
+    public MultipartStreamReader(InputStream in, String boundary, long maxPartSize, long maxBodySize) {
+        this(in, boundary, maxPartSize, maxBodySize, DEFAULT_BUFFER_SIZE);
+    }
+
+    MultipartStreamReader(InputStream in, String boundary, long maxPartSize, long maxBodySize, int bufferSize) {
+        this.in = in;
+        this.maxPartSize = maxPartSize;
+        this.maxBodySize = maxBodySize;
+        this.delimiter = ("\r\n--" + boundary).getBytes(StandardCharsets.US_ASCII);
+        this.buffer = new byte[Math.max(bufferSize, delimiter.length * 2 + MAX_HEADER_SIZE)];
+        // The first boundary may directly start the body, without a preceding CRLF
+        this.buffer[0] = CR;
+        this.buffer[1] = LF;
+        this.tail = 2;
+    }
+
+    /**
+     * Advance to the next part.
+     *
+     * @return the next part, or {@code null} once the closing delimiter was read.
+     * @throws IOException if the body cannot be read or is not well-formed.
+     */
+    public Part nextPart() throws IOException {
+        if (finished) {
+            return null;
+        }
+        if (currentPart == null) {
+            skipPreamble();
+        } else {
+            currentPart.transferTo(OutputStream.nullOutputStream());
+        }
+        if (!afterDelimiter()) {
+            finished = true;
+            return null;
+        }
+        Map<String, String> headers = readHeaders();
+        currentPart = new PartInputStream();
+        return new Part(headers, currentPart);
+    }
+
+    private void skipPreamble() throws IOException {
+        while (true) {
+            int index = indexOfDelimiter();
+            if (index >= 0) {
+                head = index + delimiter.length;
+                return;
+            }
+            head = Math.max(head, tail - delimiter.length + 1);
+            if (!fill()) {
+                throw new MalformedMultipartException("Multipart body has no boundary");
+            }
+        }
+    }
+
+    /**
+     * Consume what follows a delimiter: {@code --} for the closing delimiter, or optional
+     * whitespace and a CRLF before the part headers.
+     *
+     * @return whether another part follows.
+     */
+    private boolean afterDelimiter() throws IOException {
+        require(2);
+        if (buffer[head] == '-' && buffer[head + 1] == '-') {
+            head += 2;
+            return false;
+        }
+        while (true) {
+            require(1);
+            byte b = buffer[head];
+            if (b == ' ' || b == '\t') {
+                head++;
+                continue;
+            }
+            require(2);
+            if (buffer[head] == CR && buffer[head + 1] == LF) {
+                head += 2;
+                return true;
+            }
+            throw new MalformedMultipartException("Malformed multipart boundary line");
+        }
+    }
+
+    private Map<String, String> readHeaders() throws IOException {
+        Map<String, String> headers = new LinkedHashMap<>();
+        int consumed = 0;
+        while (true) {
+            int lineEnd = indexOfCrlf();
+            while (lineEnd < 0) {
+                if (tail - head > MAX_HEADER_SIZE || !fill()) {
+                    throw new MalformedMultipartException("Multipart part headers are too large or truncated");
+                }
+                lineEnd = indexOfCrlf();
+            }
+            String line = new String(buffer, head, lineEnd - head, StandardCharsets.UTF_8);
+            consumed += lineEnd - head + 2;
+            head = lineEnd + 2;
+            if (consumed > MAX_HEADER_SIZE) {
+                throw new MalformedMultipartException("Multipart part headers are too large");
+            }
+            if (line.isEmpty()) {
+                return headers;
+            }
+            int colon = line.indexOf(':');
+            if (colon > 0) {
+                headers.put(line.substring(0, colon).trim().toLowerCase(Locale.ROOT), line.substring(colon + 1).trim());
+            }
+        }
+    }
+
+    private int indexOfCrlf() {
+        for (int i = head; i < tail - 1; i++) {
+            if (buffer[i] == CR && buffer[i + 1] == LF) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private int indexOfDelimiter() {
+        byte first = delimiter[0];
+        int last = tail - delimiter.length;
+        outer: for (int i = head; i <= last; i++) {
+            if (buffer[i] != first) {
+                continue;
+            }
+            for (int j = 1; j < delimiter.length; j++) {
+                if (buffer[i + j] != delimiter[j]) {
+                    continue outer;
+                }
+            }
+            return i;
+        }
+        return -1;
+    }
+
+    private void require(int count) throws IOException {
+        while (tail - head < count) {
+            if (!fill()) {
+                throw new MalformedMultipartException("Unexpected end of multipart body");
+            }
+        }
+    }
+
+    /**
+     * Compact the buffer and read more bytes into it.
+     *
+     * @return {@code false} if the end of the stream was reached.
+     */
+    private boolean fill() throws IOException {
+        if (eof) {
+            return false;
+        }
+        if (head > 0) {
+            System.arraycopy(buffer, head, buffer, 0, tail - head);
+            tail -= head;
+            head = 0;
+        }
+        int read = in.read(buffer, tail, buffer.length - tail);
+        if (read < 0) {
+            eof = true;
+            return false;
+        }
+        tail += read;
+        bodySize += read;
+        if (maxBodySize >= 0 && bodySize > maxBodySize) {
+            throw new SizeLimitExceededException("Multipart body exceeds " + maxBodySize + " bytes");
+        }
+        return true;
+    }
+
+    /**
+     * The body of the current part: bytes up to the next delimiter.
+     */
+    private class PartInputStream extends InputStream {
+
+        private boolean done;
+
+        private long size;
+
+        @Override
+        public int read() throws IOException {
+            byte[] single = new byte[1];
+            int read = read(single, 0, 1);
+            return read < 0 ? -1 : single[0] & 0xff;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            if (done || this != currentPart) {
+                return -1;
+            }
+            if (len == 0) {
+                return 0;
+            }
+            while (true) {
+                int index = indexOfDelimiter();
+                int available;
+                if (index >= 0) {
+                    available = index - head;
+                    if (available == 0) {
+                        head += delimiter.length;
+                        done = true;
+                        return -1;
+                    }
+                } else {
+                    // Keep a possible delimiter prefix in the buffer until more bytes arrive
+                    available = tail - head - delimiter.length + 1;
+                    if (available <= 0) {
+                        if (!fill()) {
+                            throw new MalformedMultipartException("Multipart part is not terminated by a boundary");
+                        }
+                        continue;
+                    }
+                }
+                int count = Math.min(len, available);
+                size += count;
+                if (maxPartSize >= 0 && size > maxPartSize) {
+                    throw new SizeLimitExceededException("Multipart part exceeds " + maxPartSize + " bytes");
+                }
+                System.arraycopy(buffer, head, b, off, count);
+                head += count;
+                return count;
+            }
+        }
+    }
+
+    /**
+     * One part of the multipart body.
+     */
+    public static class Part {
+
+        private final Map<String, String> headers;
+
+        private final InputStream body;
+
+        private final ContentDisposition contentDisposition;
+
+        Part(Map<String, String> headers, InputStream body) {
+            this.headers = headers;
+            this.body = body;
+            String disposition = headers.get(HttpHeaders.CONTENT_DISPOSITION.toLowerCase(Locale.ROOT));
+            this.contentDisposition = disposition != null ? ContentDisposition.parse(disposition) : ContentDisposition.empty();
+        }
+
+        /**
+         * @param name the header name, case-insensitive.
+         * @return the header value, or {@code null}.
+         */
+        public String getHeader(String name) {
+            return headers.get(name.toLowerCase(Locale.ROOT));
+        }
+
+        public String getName() {
+            return contentDisposition.getName();
+        }
+
+        /**
+         * @return the client-side filename, or {@code null} for a plain form field.
+         */
+        public String getFilename() {
+            return contentDisposition.getFilename();
+        }
+
+        public boolean isFile() {
+            return getFilename() != null;
+        }
+
+        public String getContentType() {
+            return getHeader(HttpHeaders.CONTENT_TYPE);
+        }
+
+        /**
+         * @return the part body, read straight from the request.
+         */
+        public InputStream getInputStream() {
+            return body;
+        }
+    }
+
+    /**
+     * Thrown when the request body is not valid multipart content.
+     */
+    @ResponseStatus(value = HttpStatus.BAD_REQUEST, reason = "Malformed multipart request")
+    public static class MalformedMultipartException extends IOException {
+
+        private static final long serialVersionUID = 1L;
+
+        public MalformedMultipartException(String message) {
+            super(message);
+        }
+    }
+
+    /**
+     * Thrown when a part or the whole body is larger than allowed.
+     */
+    @ResponseStatus(value = HttpStatus.PAYLOAD_TOO_LARGE, reason = "Multipart request too large")
+    public static class SizeLimitExceededException extends IOException {
+
+        private static final long serialVersionUID = 1L;
+
+        public SizeLimitExceededException(String message) {
+            super(message);
+        }
+    }
+}
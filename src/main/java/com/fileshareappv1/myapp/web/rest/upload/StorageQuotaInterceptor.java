@@ -0,0 +1,64 @@
+package com.fileshareappv1.myapp.web.rest.upload;
+
+import com.fileshareappv1.myapp.service.StorageQuotaService;
+import com.fileshareappv1.myapp.web.rest.idempotency.IdempotentRequests;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import java.util.List;
+import org.springframework.http.HttpMethod;
+import org.springframework.stereotype.Component;
+import org.springframework.web.servlet.HandlerInterceptor;
+
+/**
+ * Rejects uploads that would take the current user over their storage quota before any of the
+ * request body is read, based on its {@code Content-Length}, and holds the reservation until the
+ * request completes.
+ * <p>
+ * This relies on multipart requests being resolved lazily, when the controller first asks for a
+ * part: otherwise the whole body would be spooled to disk before any interceptor runs. Requests
+ * without a {@code Content-Length} cannot be checked up front; they are still limited by the
+ * maximum request size, and counted once stored. Retries of a completed request with the same
+ * {@code Idempotency-Key} store nothing, and are let through.
+ */
+@Component
+public class StorageQuotaInterceptor implements HandlerInterceptor {
+
+    /**
+     * Endpoints receiving uploaded files in their request body.
+     */
+    public static final List<String> UPLOAD_PATHS = List.of(
+        "/api/files/upload",
+        "/api/files/upload-multiple",
+        "/api/files/upload-stream",
+        "/api/posts/with-files",
+        "/api/account/image",
+        "/api/storage/upload"
+    );
+
+    private static final String RESERVATION_ATTRIBUTE = StorageQuotaInterceptor.class.getName() + ".reservation";
+
+    private final StorageQuotaService storageQuotaService;
+
+    private final IdempotentRequests idempotentRequests;
+
+    public StorageQuotaInterceptor(StorageQuotaService storageQuotaService, IdempotentRequests idempotentRequests) {
+        this.storageQuotaService = storageQuotaService;
+        this.idempotentRequests = idempotentRequests;
+    }
+
+    @Override
+    public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler) {
+        long length = request.getContentLengthLong();
+        if (HttpMethod.POST.matches(request.getMethod()) && length > 0 && !idempotentRequests.isReplay(request)) {
+            request.setAttribute(RESERVATION_ATTRIBUTE, storageQuotaService.reserve(length));
+        }
+        return true;
+    }
+
+    @Override
+    public void afterCompletion(HttpServletRequest request, HttpServletResponse response, Object handler, Exception ex) {
+        if (request.getAttribute(RESERVATION_ATTRIBUTE) instanceof StorageQuotaService.Reservation reservation) {
+            reservation.close();
+        }
+    }
+}
@@ -0,0 +1,148 @@
+package com.fileshareappv1.myapp.web.rest.upload;
+
+import com.fileshareappv1.myapp.config.ApplicationProperties;
+import com.fileshareappv1.myapp.security.SecurityUtils;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import java.util.List;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.stereotype.Component;
+import org.springframework.web.servlet.HandlerInterceptor;
+
+/**
+ * Caps the uploads in progress, of all users together and of each user, so a burst of large
+ * uploads cannot take every worker thread and the whole disk bandwidth from the rest of the API.
+ * <p>
+ * An upload beyond a cap waits for a slot, up to {@code application.upload-admission.max-wait}
+ * and only while fewer than {@code max-queued} uploads are waiting already, since a waiting
+ * upload holds a worker thread too. It is otherwise refused with {@code 503 (Service Unavailable)}
+ * and a {@code Retry-After} header before any of its body is read, as multipart requests are
+ * resolved lazily. Chunks of resumable uploads ({@code PATCH /api/uploads/{id}}) are admitted like
+ * whole uploads. A user has to get one of their own slots before competing for a global one,
+ * so a single client queueing many uploads cannot hold the global slots others are waiting for.
+ * <p>
+ * Metrics: {@code http.server.uploads.active} and {@code http.server.uploads.queued}, the uploads
+ * in progress and waiting, and {@code http.server.uploads.rejected} by the {@code limit}
+ * ({@code global}, {@code user}) that was reached.
+ */
+@Component
+public class UploadAdmissionInterceptor implements HandlerInterceptor {
+
+    private static final Logger LOG = LoggerFactory.getLogger(UploadAdmissionInterceptor.class);
+
+    /**
+     * Endpoints receiving the chunks of resumable uploads, admitted on top of
+     * {@link StorageQuotaInterceptor#UPLOAD_PATHS}; their quota is reserved when the session is created.
+     */
+    public static final List<String> CHUNK_PATHS = List.of("/api/uploads/*");
+
+    private static final String PERMIT_ATTRIBUTE = UploadAdmissionInterceptor.class.getName() + ".permit";
+
+    private final Semaphore global;
+
+    private final int perUser;
+
+    private final Cache<String, Semaphore> userSlots;
+
+    private final int maxQueued;
+
+    private final long maxWaitNanos;
+
+    private final String retryAfterSeconds;
+
+    private final AtomicInteger active = new AtomicInteger();
+
+    private final AtomicInteger queued = new AtomicInteger();
+
+    private final MeterRegistry meterRegistry;
+
+    public UploadAdmissionInterceptor(ApplicationProperties applicationProperties, MeterRegistry meterRegistry) {
+        ApplicationProperties.UploadAdmission admission = applicationProperties.getUploadAdmission();
+        this.global = admission.getMaxConcurrent() > 0 ? new Semaphore(admission.getMaxConcurrent(), true) : null;
+        this.perUser = admission.getMaxConcurrentPerUser();
+        // A user's semaphore is referenced by the requests holding its permits, so it is never
+        // collected while in use, and forgotten once its user is done uploading
+        this.userSlots = Caffeine.newBuilder().weakValues().build();
+        this.maxQueued = admission.getMaxQueued();
+        this.maxWaitNanos = admission.getMaxWait().toNanos();
+        this.retryAfterSeconds = String.valueOf(Math.max(1, admission.getRetryAfter().toSeconds()));
+        this.meterRegistry = meterRegistry;
+        meterRegistry.gauge("http.server.uploads.active", active);
+        meterRegistry.gauge("http.server.uploads.queued", queued);
+    }
+
+    @Override
+    public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler) {
+        if (!HttpMethod.POST.matches(request.getMethod()) && !HttpMethod.PATCH.matches(request.getMethod())) {
+            return true;
+        }
+        long deadline = System.nanoTime() + maxWaitNanos;
+        Semaphore user = perUser > 0 ? userSlots.get(clientOf(request), key -> new Semaphore(perUser, true)) : null;
+        if (!acquire(user, deadline)) {
+            reject("user", request, response);
+        }
+        if (!acquire(global, deadline)) {
+            release(user);
+            reject("global", request, response);
+        }
+        active.incrementAndGet();
+        request.setAttribute(PERMIT_ATTRIBUTE, new Permit(user));
+        return true;
+    }
+
+    @Override
+    public void afterCompletion(HttpServletRequest request, HttpServletResponse response, Object handler, Exception ex) {
+        if (request.getAttribute(PERMIT_ATTRIBUTE) instanceof Permit permit) {
+            request.removeAttribute(PERMIT_ATTRIBUTE);
+            active.decrementAndGet();
+            release(global);
+            release(permit.user());
+        }
+    }
+
+    private boolean acquire(Semaphore slots, long deadline) {
+        if (slots == null || slots.tryAcquire()) {
+            return true;
+        }
+        if (queued.incrementAndGet() > maxQueued) {
+            queued.decrementAndGet();
+            return false;
+        }
+        try {
+            return slots.tryAcquire(Math.max(0, deadline - System.nanoTime()), TimeUnit.NANOSECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        } finally {
+            queued.decrementAndGet();
+        }
+    }
+
+    private static void release(Semaphore slots) {
+        if (slots != null) {
+            slots.release();
+        }
+    }
+
+    private void reject(String limit, HttpServletRequest request, HttpServletResponse response) {
+        LOG.debug("Refusing upload {} from {}: {} limit reached", request.getRequestURI(), clientOf(request), limit);
+        meterRegistry.counter("http.server.uploads.rejected", "limit", limit).increment();
+        response.setHeader(HttpHeaders.RETRY_AFTER, retryAfterSeconds);
+        throw new UploadCapacityExceededException("Too many uploads in progress, " + limit + " limit reached");
+    }
+
+    private static String clientOf(HttpServletRequest request) {
+        return SecurityUtils.getCurrentUserLogin().orElseGet(request::getRemoteAddr);
+    }
+
+    private record Permit(Semaphore user) {}
+}
@@ -0,0 +1,17 @@
+package com.fileshareappv1.myapp.web.rest.upload;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.ResponseStatus;
+
+/**
+ * Thrown when an upload cannot get a slot in time because too many uploads are in progress.
+ */
+@ResponseStatus(value = HttpStatus.SERVICE_UNAVAILABLE, reason = "Too many uploads in progress")
+public class UploadCapacityExceededException extends RuntimeException {
+
+    private static final long serialVersionUID = 1L;
+
+    public UploadCapacityExceededException(String message) {
+        super(message);
+    }
+}
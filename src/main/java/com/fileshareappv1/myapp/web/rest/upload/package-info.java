@@ -0,0 +1,4 @@
+/**
+ * Streaming ingestion of uploaded files.
+ */
+package com.fileshareappv1.myapp.web.rest.upload;
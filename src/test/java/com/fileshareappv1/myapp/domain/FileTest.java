@@ -34,4 +34,13 @@ class FileTest {
         file.post(null);
         assertThat(file.getPost()).isNull();
     }
+
+    @Test
+    void storedNameFollowsTheDownloadUrl() {
+        File file = new File().fileName("holiday.png").fileUrl("http://localhost/api/files/download/abc123.png");
+
+        file.fillStoredName();
+
+        assertThat(file.getStoredName()).isEqualTo("abc123.png");
+    }
 }
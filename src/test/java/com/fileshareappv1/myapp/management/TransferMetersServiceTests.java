@@ -0,0 +1,68 @@
+package com.fileshareappv1.myapp.management;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+class TransferMetersServiceTests {
+
+    private MeterRegistry meterRegistry;
+
+    private TransferMetersService transferMetersService;
+
+    @BeforeEach
+    void setup() {
+        meterRegistry = new SimpleMeterRegistry();
+
+        transferMetersService = new TransferMetersService(meterRegistry);
+    }
+
+    @Test
+    void testCompletedTransferIsRecordedBySizeBucket() {
+        try (TransferMetersService.Transfer transfer = transferMetersService.start(TransferMetersService.Direction.UPLOAD)) {
+            assertThat(active("upload")).isEqualTo(1);
+            transfer.completed(2 * 1024 * 1024);
+        }
+
+        assertThat(active("upload")).isZero();
+        assertThat(bytes("upload")).isEqualTo(2 * 1024 * 1024);
+        assertThat(
+            meterRegistry
+                .get(TransferMetersService.TRANSFER_DURATION_METER_NAME)
+                .tag("direction", "upload")
+                .tag("size", "16MB")
+                .tag("outcome", "success")
+                .timer()
+                .count()
+        ).isEqualTo(1);
+    }
+
+    @Test
+    void testFailedTransferIsRecordedAsError() {
+        try (TransferMetersService.Transfer transfer = transferMetersService.start(TransferMetersService.Direction.DOWNLOAD)) {
+            // The transfer fails before it completes
+        }
+
+        assertThat(bytes("download")).isZero();
+        assertThat(meterRegistry.get(TransferMetersService.TRANSFER_DURATION_METER_NAME).tag("outcome", "error").timer().count()).isOne();
+    }
+
+    @Test
+    void testSizeBucketsAreNamedAfterTheirUpperBound() {
+        assertThat(TransferMetersService.sizeBucket(0)).isEqualTo("64KB");
+        assertThat(TransferMetersService.sizeBucket(64 * 1024)).isEqualTo("1MB");
+        assertThat(TransferMetersService.sizeBucket(128L * 1024 * 1024 - 1)).isEqualTo("128MB");
+        assertThat(TransferMetersService.sizeBucket(1024L * 1024 * 1024)).isEqualTo("larger");
+    }
+
+    private double active(String direction) {
+        return meterRegistry.get(TransferMetersService.TRANSFER_ACTIVE_METER_NAME).tag("direction", direction).gauge().value();
+    }
+
+    private double bytes(String direction) {
+        return meterRegistry.get(TransferMetersService.TRANSFER_BYTES_METER_NAME).tag("direction", direction).counter().count();
+    }
+}
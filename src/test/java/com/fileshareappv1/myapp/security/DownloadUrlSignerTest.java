@@ -0,0 +1,59 @@
+package com.fileshareappv1.myapp.security;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import com.fileshareappv1.myapp.config.ApplicationProperties;
+import java.time.Clock;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Test class for the {@link DownloadUrlSigner}.
+ */
+class DownloadUrlSignerTest {
+
+    private static final String JWT_KEY = "ZmQ1ODhiZmJmZDk4ZDY2YjViM2E0YzMwZmQ5YzE1NjQ4NjQ1ZjE5YjdlYjE0YWM2";
+
+    private static final Instant NOW = Instant.parse("2024-05-01T10:20:00Z");
+
+    @Test
+    void expiryIsRoundedUpToTheHour() {
+        DownloadUrlSigner signer = signerAt(NOW);
+
+        assertThat(signer.expiresAt()).isEqualTo(Instant.parse("2024-05-01T17:00:00Z").getEpochSecond());
+        assertThat(signerAt(NOW.plusSeconds(600)).expiresAt()).isEqualTo(signer.expiresAt());
+    }
+
+    @Test
+    void acceptsItsOwnSignaturesUntilTheyExpire() {
+        DownloadUrlSigner signer = signerAt(NOW);
+        long expiresAt = signer.expiresAt();
+        String signature = signer.sign("a.png", expiresAt);
+
+        assertThat(signature).matches("[A-Za-z0-9_-]{43}");
+        assertThat(signer.verify("a.png", expiresAt, signature)).isEqualTo(DownloadUrlSigner.Verification.VALID);
+        assertThat(signerAt(Instant.ofEpochSecond(expiresAt)).verify("a.png", expiresAt, signature)).isEqualTo(
+            DownloadUrlSigner.Verification.EXPIRED
+        );
+    }
+
+    @Test
+    void rejectsTamperedUrls() {
+        DownloadUrlSigner signer = signerAt(NOW);
+        long expiresAt = signer.expiresAt();
+        String signature = signer.sign("a.png", expiresAt);
+
+        assertThat(signer.verify("b.png", expiresAt, signature)).isEqualTo(DownloadUrlSigner.Verification.INVALID);
+        assertThat(signer.verify("a.png", expiresAt + 3600, signature)).isEqualTo(DownloadUrlSigner.Verification.INVALID);
+        assertThat(signer.verify("a.png", expiresAt, null)).isEqualTo(DownloadUrlSigner.Verification.INVALID);
+        ApplicationProperties otherKey = new ApplicationProperties();
+        otherKey.getSignedUrls().setSecret("b3RoZXIta2V5");
+        DownloadUrlSigner otherSigner = new DownloadUrlSigner(otherKey, JWT_KEY, Clock.fixed(NOW, ZoneOffset.UTC));
+        assertThat(otherSigner.verify("a.png", expiresAt, signature)).isEqualTo(DownloadUrlSigner.Verification.INVALID);
+    }
+
+    private static DownloadUrlSigner signerAt(Instant now) {
+        return new DownloadUrlSigner(new ApplicationProperties(), JWT_KEY, Clock.fixed(now, ZoneOffset.UTC));
+    }
+}
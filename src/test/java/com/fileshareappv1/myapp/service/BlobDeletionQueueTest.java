@@ -0,0 +1,158 @@
+package com.fileshareappv1.myapp.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import com.fileshareappv1.myapp.config.StorageProperties;
+import com.fileshareappv1.myapp.domain.BlobDeletion;
+import com.fileshareappv1.myapp.repository.BlobDeletionRepository;
+import com.fileshareappv1.myapp.repository.FileRepository;
+import com.fileshareappv1.myapp.repository.PostRepository;
+import com.fileshareappv1.myapp.service.storage.StorageRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Path;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.util.Arrays;
+import java.util.List;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.data.domain.Pageable;
+import org.springframework.transaction.PlatformTransactionManager;
+
+/**
+ * Test class for the {@link BlobDeletionQueue}.
+ */
+class BlobDeletionQueueTest {
+
+    private static final Instant NOW = Instant.parse("2024-06-01T12:00:00Z");
+
+    private BlobDeletionRepository blobDeletionRepository;
+
+    private StorageRepository storageRepository;
+
+    private PostRepository postRepository;
+
+    private FileRepository fileRepository;
+
+    private SimpleMeterRegistry meterRegistry;
+
+    private BlobDeletionQueue queue;
+
+    @BeforeEach
+    void setUp() {
+        blobDeletionRepository = mock(BlobDeletionRepository.class);
+        storageRepository = mock(StorageRepository.class);
+        postRepository = mock(PostRepository.class);
+        fileRepository = mock(FileRepository.class);
+        meterRegistry = new SimpleMeterRegistry();
+        StorageProperties properties = new StorageProperties();
+        properties.setLocation(Path.of("unused"));
+        properties.setBlobDeletionRate(2);
+        queue = new BlobDeletionQueue(
+            blobDeletionRepository,
+            storageRepository,
+            postRepository,
+            fileRepository,
+            mock(PlatformTransactionManager.class),
+            properties,
+            meterRegistry,
+            Clock.fixed(NOW, ZoneOffset.UTC)
+        );
+    }
+
+    @Test
+    void enqueuesEachStoredNameOnce() {
+        queue.enqueue(Arrays.asList("a.jpg", null, "a.jpg", "a-thumb.jpg"));
+
+        ArgumentCaptor<List<BlobDeletion>> saved = captor();
+        verify(blobDeletionRepository).saveAll(saved.capture());
+        assertThat(saved.getValue()).extracting(BlobDeletion::getStoredName).containsExactly("a.jpg", "a-thumb.jpg");
+        assertThat(saved.getValue()).allSatisfy(deletion -> assertThat(deletion.getNextAttemptAt()).isEqualTo(NOW));
+    }
+
+    @Test
+    void deletesUnreferencedFilesInBatchesOfTheConfiguredRate() {
+        ArgumentCaptor<Pageable> page = ArgumentCaptor.forClass(Pageable.class);
+        when(blobDeletionRepository.findByNextAttemptAtLessThanEqualOrderByIdAsc(any(), page.capture())).thenReturn(
+            List.of(deletion(1L, "gone.txt"), deletion(2L, "shared.txt"))
+        );
+        when(postRepository.findReferencedFileNames(any())).thenReturn(List.of("shared.txt"));
+
+        queue.process();
+
+        assertThat(page.getValue().getPageSize()).isEqualTo(20);
+        verify(storageRepository).delete("gone.txt");
+        verify(storageRepository).delete("gone.txt.gz");
+        verify(storageRepository).delete("gone.txt.br");
+        verify(storageRepository, never()).delete("shared.txt");
+        ArgumentCaptor<List<BlobDeletion>> done = captor();
+        verify(blobDeletionRepository).deleteAllInBatch(done.capture());
+        assertThat(done.getValue()).extracting(BlobDeletion::getId).containsExactly(1L, 2L);
+        assertThat(meterRegistry.get("storage.deletions").tag("result", "deleted").counter().count()).isEqualTo(1);
+        assertThat(meterRegistry.get("storage.deletions").tag("result", "referenced").counter().count()).isEqualTo(1);
+    }
+
+    @Test
+    void retriesFailedDeletionsWithBackoffThenGivesUp() {
+        BlobDeletion failing = deletion(1L, "failing.txt");
+        BlobDeletion exhausted = deletion(2L, "exhausted.txt").attempts(BlobDeletionQueue.MAXIMUM_ATTEMPTS - 1);
+        when(blobDeletionRepository.findByNextAttemptAtLessThanEqualOrderByIdAsc(any(), any())).thenReturn(List.of(failing, exhausted));
+        doThrow(new UncheckedIOException(new IOException("unavailable"))).when(storageRepository).delete(any());
+
+        queue.process();
+
+        ArgumentCaptor<List<BlobDeletion>> retried = captor();
+        verify(blobDeletionRepository).saveAll(retried.capture());
+        assertThat(retried.getValue()).containsExactly(failing);
+        assertThat(failing.getAttempts()).isEqualTo(1);
+        assertThat(failing.getNextAttemptAt()).isEqualTo(NOW.plus(Duration.ofMinutes(1)));
+        ArgumentCaptor<List<BlobDeletion>> done = captor();
+        verify(blobDeletionRepository).deleteAllInBatch(done.capture());
+        assertThat(done.getValue()).containsExactly(exhausted);
+        assertThat(BlobDeletionQueue.retryDelay(3)).isEqualTo(Duration.ofMinutes(4));
+        assertThat(BlobDeletionQueue.retryDelay(BlobDeletionQueue.MAXIMUM_ATTEMPTS)).isEqualTo(Duration.ofHours(6));
+    }
+
+    @Test
+    void doesNothingWhilePaused() {
+        StorageProperties properties = new StorageProperties();
+        properties.setLocation(Path.of("unused"));
+        properties.setBlobDeletionRate(0);
+        BlobDeletionQueue paused = new BlobDeletionQueue(
+            blobDeletionRepository,
+            storageRepository,
+            postRepository,
+            fileRepository,
+            mock(PlatformTransactionManager.class),
+            properties,
+            meterRegistry
+        );
+
+        paused.process();
+
+        verify(blobDeletionRepository, never()).findByNextAttemptAtLessThanEqualOrderByIdAsc(any(), any());
+        verify(storageRepository, never()).delete(any());
+        verify(blobDeletionRepository, never()).saveAll(anyList());
+    }
+
+    private static BlobDeletion deletion(Long id, String storedName) {
+        return new BlobDeletion().id(id).storedName(storedName).enqueuedAt(NOW).attempts(0).nextAttemptAt(NOW);
+    }
+
+    @SuppressWarnings({ "unchecked", "rawtypes" })
+    private static ArgumentCaptor<List<BlobDeletion>> captor() {
+        return (ArgumentCaptor) ArgumentCaptor.forClass(List.class);
+    }
+}
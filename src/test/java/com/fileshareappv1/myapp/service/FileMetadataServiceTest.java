@@ -0,0 +1,100 @@
+package com.fileshareappv1.myapp.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import com.fileshareappv1.myapp.config.StorageProperties;
+import com.fileshareappv1.myapp.domain.File;
+import com.fileshareappv1.myapp.repository.FileRepository;
+import com.fileshareappv1.myapp.service.dto.FileMetadataDTO;
+import com.fileshareappv1.myapp.service.storage.LocalStorageService;
+import java.io.ByteArrayInputStream;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicLong;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ * Test class for the {@link FileMetadataService}.
+ */
+class FileMetadataServiceTest {
+
+    @TempDir
+    Path root;
+
+    private FileRepository fileRepository;
+
+    private LocalStorageService storage;
+
+    private final AtomicLong nanos = new AtomicLong();
+
+    private FileMetadataService fileMetadataService;
+
+    @BeforeEach
+    void setUp() {
+        StorageProperties properties = new StorageProperties();
+        properties.setLocation(root);
+        storage = new LocalStorageService(properties);
+        fileRepository = mock(FileRepository.class);
+        fileMetadataService = new FileMetadataService(fileRepository, storage, nanos::get);
+    }
+
+    @Test
+    void readsMetadataFromTheFileRowOnce() {
+        File file = new File()
+            .id(7L)
+            .fileName("holiday.png")
+            .fileUrl("http://localhost/api/files/download/a.png")
+            .mimeType("image/png")
+            .fileSize(42L)
+            .uploadedAt(Instant.ofEpochMilli(1_000_000L));
+        when(fileRepository.findFirstByStoredNameOrderByIdAsc("a.png")).thenReturn(Optional.of(file));
+
+        FileMetadataDTO metadata = fileMetadataService.get("a.png");
+        fileMetadataService.get("a.png");
+
+        assertThat(metadata.getContentType()).isEqualTo("image/png");
+        assertThat(metadata.getSize()).isEqualTo(42L);
+        assertThat(metadata.getLastModified()).isEqualTo(1_000_000L);
+        assertThat(metadata.getEtag()).isEqualTo("\"7-2a-f4240\"");
+        verify(fileRepository, times(1)).findFirstByStoredNameOrderByIdAsc("a.png");
+
+        fileMetadataService.evict("a.png");
+        fileMetadataService.get("a.png");
+        verify(fileRepository, times(2)).findFirstByStoredNameOrderByIdAsc("a.png");
+    }
+
+    @Test
+    void rereadsTheFileRowAfterItsTtl() {
+        File file = new File().id(7L).fileUrl("/api/files/download/a.png").fileSize(42L).uploadedAt(Instant.ofEpochMilli(1_000_000L));
+        when(fileRepository.findFirstByStoredNameOrderByIdAsc("a.png")).thenReturn(Optional.of(file));
+
+        fileMetadataService.get("a.png");
+        nanos.addAndGet(FileMetadataService.PRESENT_TTL.minusSeconds(1).toNanos());
+        fileMetadataService.get("a.png");
+        verify(fileRepository, times(1)).findFirstByStoredNameOrderByIdAsc("a.png");
+
+        nanos.addAndGet(Duration.ofSeconds(2).toNanos());
+        fileMetadataService.get("a.png");
+        verify(fileRepository, times(2)).findFirstByStoredNameOrderByIdAsc("a.png");
+    }
+
+    @Test
+    void probesStoredFilesWithoutRow() {
+        String storedName = storage.store(new ByteArrayInputStream(new byte[] { 1, 2, 3 }), "thumb.jpg").getFilename();
+        when(fileRepository.findFirstByStoredNameOrderByIdAsc(storedName)).thenReturn(Optional.empty());
+
+        FileMetadataDTO metadata = fileMetadataService.get(storedName);
+
+        assertThat(metadata.getContentType()).isEqualTo("image/jpeg");
+        assertThat(metadata.getSize()).isEqualTo(3L);
+        assertThat(metadata.getEtag()).startsWith("\"s-3-");
+    }
+}
@@ -0,0 +1,90 @@
+package com.fileshareappv1.myapp.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import com.fileshareappv1.myapp.IntegrationTest;
+import com.fileshareappv1.myapp.domain.File;
+import com.fileshareappv1.myapp.domain.Post;
+import com.fileshareappv1.myapp.repository.FileRepository;
+import com.fileshareappv1.myapp.service.dto.FileDTO;
+import com.fileshareappv1.myapp.service.dto.PostDTO;
+import jakarta.persistence.EntityManager;
+import jakarta.validation.ConstraintViolationException;
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.transaction.annotation.Transactional;
+
+/**
+ * Integration tests for {@link FileService}.
+ */
+@IntegrationTest
+@Transactional
+class FileServiceIT {
+
+    @Autowired
+    private FileService fileService;
+
+    @Autowired
+    private FileRepository fileRepository;
+
+    @Autowired
+    private EntityManager em;
+
+    @Test
+    void saveAllInsertsEveryFileAndReadsBackTheirIds() {
+        Post post = new Post().content("AAAAAAAAAA").createdAt(Instant.now());
+        em.persist(post);
+        Instant uploadedAt = Instant.now().minus(1, ChronoUnit.DAYS).truncatedTo(ChronoUnit.MILLIS);
+        List<FileDTO> dtos = new ArrayList<>();
+        for (int i = 0; i < 3; i++) {
+            FileDTO dto = new FileDTO();
+            dto.setFileName("photo-" + i + ".jpg");
+            dto.setFileUrl("http://localhost/api/files/download/stored-" + i + ".jpg");
+            dto.setMimeType("image/jpeg");
+            dto.setFileSize(100L + i);
+            dto.setSha256(String.valueOf(i).repeat(64));
+            dto.setUploadedAt(i == 0 ? null : uploadedAt);
+            if (i == 2) {
+                PostDTO postDTO = new PostDTO();
+                postDTO.setId(post.getId());
+                dto.setPost(postDTO);
+            }
+            dtos.add(dto);
+        }
+
+        List<FileDTO> saved = fileService.saveAll(dtos);
+        em.flush();
+        em.clear();
+
+        assertThat(saved).extracting(FileDTO::getId).doesNotContainNull().doesNotHaveDuplicates();
+        for (int i = 0; i < 3; i++) {
+            File file = fileRepository.findById(saved.get(i).getId()).orElseThrow();
+            assertThat(file.getFileName()).isEqualTo("photo-" + i + ".jpg");
+            assertThat(file.getStoredName()).isEqualTo("stored-" + i + ".jpg");
+            assertThat(file.getFileSize()).isEqualTo(100L + i);
+            assertThat(file.getSha256()).isEqualTo(String.valueOf(i).repeat(64));
+            assertThat(file.getUploadedAt()).isNotNull();
+            if (i > 0) {
+                assertThat(file.getUploadedAt()).isEqualTo(uploadedAt);
+            }
+        }
+        assertThat(fileRepository.findById(saved.get(2).getId()).orElseThrow().getPost().getId()).isEqualTo(post.getId());
+    }
+
+    @Test
+    void saveAllRejectsInvalidFiles() {
+        FileDTO dto = new FileDTO();
+        dto.setFileName("photo.jpg");
+        dto.setFileUrl("http://localhost/api/files/download/stored.jpg");
+        dto.setFileSize(100L);
+        long count = fileRepository.count();
+
+        assertThatThrownBy(() -> fileService.saveAll(List.of(dto))).isInstanceOf(ConstraintViolationException.class);
+        assertThat(fileRepository.count()).isEqualTo(count);
+    }
+}
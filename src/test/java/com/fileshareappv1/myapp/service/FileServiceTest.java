@@ -0,0 +1,112 @@
+package com.fileshareappv1.myapp.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoMoreInteractions;
+import static org.mockito.Mockito.when;
+
+import com.fileshareappv1.myapp.domain.File;
+import com.fileshareappv1.myapp.management.TransferMetersService;
+import com.fileshareappv1.myapp.repository.FileRepository;
+import com.fileshareappv1.myapp.repository.search.FileSearchRepository;
+import com.fileshareappv1.myapp.service.dto.FileDTO;
+import com.fileshareappv1.myapp.service.mapper.FileMapperImpl;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.time.Instant;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.IntStream;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+
+/**
+ * Test class for the {@link FileService}.
+ */
+class FileServiceTest {
+
+    private FileRepository fileRepository;
+
+    private FileSearchRepository fileSearchRepository;
+
+    private BlobDeletionQueue blobDeletionQueue;
+
+    private FileService fileService;
+
+    @BeforeEach
+    void setUp() {
+        fileRepository = mock(FileRepository.class);
+        fileSearchRepository = mock(FileSearchRepository.class);
+        blobDeletionQueue = mock(BlobDeletionQueue.class);
+        fileService = new FileService(
+            fileRepository,
+            new FileMapperImpl(),
+            fileSearchRepository,
+            mock(ImageVariantService.class),
+            mock(FileMetadataService.class),
+            mock(StorageQuotaService.class),
+            new TransferMetersService(new SimpleMeterRegistry()),
+            blobDeletionQueue
+        );
+    }
+
+    @Test
+    void saveAllInsertsAndIndexesEveryFileInOneGo() {
+        AtomicLong ids = new AtomicLong(100);
+        when(fileRepository.insertAll(anyList())).thenAnswer(invocation -> {
+            List<File> files = invocation.getArgument(0);
+            files.forEach(file -> file.setId(ids.incrementAndGet()));
+            return files;
+        });
+        List<FileDTO> dtos = IntStream.range(0, 5).mapToObj(i -> newFile("file-" + i + ".txt")).toList();
+
+        List<FileDTO> saved = fileService.saveAll(dtos);
+
+        assertThat(saved)
+            .extracting(FileDTO::getFileName)
+            .containsExactly("file-0.txt", "file-1.txt", "file-2.txt", "file-3.txt", "file-4.txt");
+        assertThat(saved).extracting(FileDTO::getId).containsExactly(101L, 102L, 103L, 104L, 105L);
+        verify(fileRepository, times(1)).insertAll(anyList());
+        verify(fileSearchRepository, times(1)).indexAll(anyList());
+        verifyNoMoreInteractions(fileRepository, fileSearchRepository);
+    }
+
+    @Test
+    void deleteAllOfPostDeletesItsRowsAndQueuesTheStoredFilesNotShared() {
+        File owned = new File().fileName("a.jpg").fileUrl("/api/files/download/a.jpg").sha256("aa").thumbnailName("a-thumb.jpg");
+        owned.setId(1L);
+        File shared = new File().fileName("b.jpg").fileUrl("/api/files/download/b.jpg").sha256("bb");
+        shared.setId(2L);
+        List<String> storedNames = List.of("a.jpg", "b.jpg", "legacy.jpg");
+        when(fileRepository.findAllByPostIdOrFileNameIn(7L, storedNames)).thenReturn(List.of(owned, shared));
+        when(fileRepository.existsBySha256AndFileUrlAndIdNot("bb", "/api/files/download/b.jpg", 2L)).thenReturn(true);
+
+        fileService.deleteAllOfPost(7L, storedNames);
+
+        verify(fileRepository).deleteAllInBatch(List.of(owned, shared));
+        verify(fileSearchRepository).deleteFromIndexById(1L);
+        verify(fileSearchRepository).deleteFromIndexById(2L);
+        ArgumentCaptor<Collection<String>> queued = captor();
+        verify(blobDeletionQueue).enqueue(queued.capture());
+        assertThat(queued.getValue()).contains("a.jpg", "legacy.jpg", "a-thumb.jpg").doesNotContain("b.jpg");
+    }
+
+    @SuppressWarnings({ "unchecked", "rawtypes" })
+    private static ArgumentCaptor<Collection<String>> captor() {
+        return (ArgumentCaptor) ArgumentCaptor.forClass(Collection.class);
+    }
+
+    private static FileDTO newFile(String name) {
+        FileDTO dto = new FileDTO();
+        dto.setFileName(name);
+        dto.setFileUrl("/api/files/download/" + name);
+        dto.setMimeType("text/plain");
+        dto.setFileSize(42L);
+        dto.setUploadedAt(Instant.now());
+        return dto;
+    }
+}
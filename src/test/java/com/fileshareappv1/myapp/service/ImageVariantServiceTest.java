@@ -0,0 +1,100 @@
+package com.fileshareappv1.myapp.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.spy;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import com.fileshareappv1.myapp.config.StorageProperties;
+import com.fileshareappv1.myapp.domain.File;
+import com.fileshareappv1.myapp.repository.FileRepository;
+import com.fileshareappv1.myapp.service.storage.LocalStorageService;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.nio.file.Path;
+import java.util.Optional;
+import javax.imageio.ImageIO;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ * Test class for the {@link ImageVariantService}.
+ */
+class ImageVariantServiceTest {
+
+    @TempDir
+    Path root;
+
+    private FileRepository fileRepository;
+
+    private LocalStorageService storage;
+
+    private ImageVariantService imageVariantService;
+
+    @BeforeEach
+    void setUp() {
+        StorageProperties properties = new StorageProperties();
+        properties.setLocation(root);
+        storage = spy(new LocalStorageService(properties));
+        fileRepository = mock(FileRepository.class);
+        imageVariantService = new ImageVariantService(fileRepository, storage, new FileMetadataService(fileRepository, storage));
+    }
+
+    @AfterEach
+    void tearDown() {
+        imageVariantService.shutdown();
+    }
+
+    @Test
+    void generatesAndRecordsDownscaledVariants() throws Exception {
+        String original = storeImage(3000, 2000);
+        File file = new File().id(1L).fileName(original);
+        when(fileRepository.findById(1L)).thenReturn(Optional.of(file));
+
+        imageVariantService.generate(1L, original);
+
+        verify(fileRepository).save(file);
+        // Reading the original is not a download: no tiering access, hot cache or transfer meters
+        verify(storage, never()).loadAsResource(original);
+        BufferedImage preview = ImageIO.read(storage.loadAsResource(file.getPreviewName()).getInputStream());
+        BufferedImage thumbnail = ImageIO.read(storage.loadAsResource(file.getThumbnailName()).getInputStream());
+        assertThat(preview.getWidth()).isEqualTo(1024);
+        assertThat(preview.getHeight()).isEqualTo(683);
+        assertThat(thumbnail.getWidth()).isEqualTo(256);
+        assertThat(thumbnail.getHeight()).isEqualTo(171);
+    }
+
+    @Test
+    void doesNotUpscaleSmallImages() throws Exception {
+        String original = storeImage(100, 50);
+        File file = new File().id(1L).fileName(original);
+        when(fileRepository.findById(1L)).thenReturn(Optional.of(file));
+
+        imageVariantService.generate(1L, original);
+
+        BufferedImage thumbnail = ImageIO.read(storage.loadAsResource(file.getThumbnailName()).getInputStream());
+        assertThat(thumbnail.getWidth()).isEqualTo(100);
+        assertThat(thumbnail.getHeight()).isEqualTo(50);
+    }
+
+    @Test
+    void skipsContentThatIsNotAnImage() {
+        String original = storage.store(new ByteArrayInputStream("not an image".getBytes()), "fake.png").getFilename();
+
+        imageVariantService.generate(1L, original);
+
+        verify(fileRepository, never()).save(any());
+    }
+
+    private String storeImage(int width, int height) throws Exception {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        ImageIO.write(new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB), "png", bytes);
+        return storage.store(new ByteArrayInputStream(bytes.toByteArray()), "photo.png").getFilename();
+    }
+}
@@ -0,0 +1,133 @@
+package com.fileshareappv1.myapp.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
+import static org.mockito.Mockito.when;
+
+import com.fileshareappv1.myapp.domain.File;
+import com.fileshareappv1.myapp.repository.FileRepository;
+import com.fileshareappv1.myapp.service.dto.FileDTO;
+import com.fileshareappv1.myapp.service.dto.FileMetadataDTO;
+import com.fileshareappv1.myapp.service.dto.InstantUploadDTO;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.util.List;
+import java.util.Optional;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.security.access.AccessDeniedException;
+
+/**
+ * Test class for the {@link InstantUploadService}.
+ */
+class InstantUploadServiceTest {
+
+    private static final String SHA256 = "a".repeat(64);
+
+    private FileRepository fileRepository;
+
+    private FileService fileService;
+
+    private PostService postService;
+
+    private FileMetadataService fileMetadataService;
+
+    private StorageQuotaService storageQuotaService;
+
+    private SimpleMeterRegistry meterRegistry;
+
+    private InstantUploadService instantUploadService;
+
+    @BeforeEach
+    void setUp() {
+        fileRepository = mock(FileRepository.class);
+        fileService = mock(FileService.class);
+        postService = mock(PostService.class);
+        fileMetadataService = mock(FileMetadataService.class);
+        storageQuotaService = mock(StorageQuotaService.class);
+        meterRegistry = new SimpleMeterRegistry();
+        instantUploadService = new InstantUploadService(
+            fileRepository,
+            fileService,
+            postService,
+            fileMetadataService,
+            storageQuotaService,
+            meterRegistry
+        );
+        when(fileService.save(any())).thenAnswer(invocation -> {
+            FileDTO saved = invocation.getArgument(0);
+            saved.setId(2L);
+            return saved;
+        });
+    }
+
+    @Test
+    void recordsKnownContentWithoutItsBytes() {
+        File original = new File()
+            .fileName("photo.jpg")
+            .fileUrl("http://localhost/api/files/download/1234_photo.jpg")
+            .mimeType("image/jpeg")
+            .fileSize(300L)
+            .sha256(SHA256)
+            .thumbnailName("1234_photo.jpg.thumb.jpg");
+        original.setId(1L);
+        when(fileRepository.findFirstBySha256AndFileSizeAndChecksumMismatchAtIsNullOrderByIdAsc(SHA256, 300L)).thenReturn(
+            Optional.of(original)
+        );
+        when(fileMetadataService.find("1234_photo.jpg")).thenReturn(Optional.of(mock(FileMetadataDTO.class)));
+
+        Optional<FileDTO> result = instantUploadService.upload(request(300L, 7L));
+
+        assertThat(result).isPresent();
+        ArgumentCaptor<FileDTO> saved = ArgumentCaptor.forClass(FileDTO.class);
+        verify(fileService).save(saved.capture());
+        assertThat(saved.getValue().getFileName()).isEqualTo("1234_photo.jpg");
+        assertThat(saved.getValue().getFileUrl()).isEqualTo(original.getFileUrl());
+        assertThat(saved.getValue().getThumbnailName()).isEqualTo("1234_photo.jpg.thumb.jpg");
+        verify(storageQuotaService).checkAvailable(300L);
+        verify(postService).checkOwnedByCurrentUser(7L);
+        verify(postService).addFiles(7L, List.of("1234_photo.jpg"));
+        assertThat(meterRegistry.counter("storage.instant.uploads.bytes").count()).isEqualTo(300);
+    }
+
+    @Test
+    void unknownOrMissingContentHasToBeUploaded() {
+        File original = new File().fileUrl("http://localhost/api/files/download/gone.jpg").fileSize(300L).sha256(SHA256);
+        when(fileRepository.findFirstBySha256AndFileSizeAndChecksumMismatchAtIsNullOrderByIdAsc(SHA256, 300L)).thenReturn(
+            Optional.of(original)
+        );
+        when(fileMetadataService.find("gone.jpg")).thenReturn(Optional.empty());
+        when(fileRepository.findFirstBySha256AndFileSizeAndChecksumMismatchAtIsNullOrderByIdAsc(SHA256, 301L)).thenReturn(Optional.empty());
+
+        assertThat(instantUploadService.upload(request(300L, null))).isEmpty();
+        assertThat(instantUploadService.upload(request(301L, null))).isEmpty();
+
+        verify(fileService, never()).save(any());
+        verifyNoInteractions(postService, storageQuotaService);
+        assertThat(meterRegistry.counter("storage.instant.uploads", "result", "miss").count()).isEqualTo(2);
+    }
+
+    @Test
+    void contentCannotBeAttachedToThePostOfAnotherUser() {
+        doThrow(new AccessDeniedException("not yours")).when(postService).checkOwnedByCurrentUser(7L);
+
+        assertThatThrownBy(() -> instantUploadService.upload(request(300L, 7L))).isInstanceOf(AccessDeniedException.class);
+
+        verify(fileService, never()).save(any());
+        verify(postService, never()).addFiles(any(), any());
+    }
+
+    private static InstantUploadDTO request(long size, Long postId) {
+        InstantUploadDTO request = new InstantUploadDTO();
+        request.setSha256(SHA256);
+        request.setSize(size);
+        request.setPostId(postId);
+        return request;
+    }
+}
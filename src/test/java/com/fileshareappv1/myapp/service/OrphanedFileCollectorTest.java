@@ -0,0 +1,137 @@
+package com.fileshareappv1.myapp.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import com.fileshareappv1.myapp.config.StorageProperties;
+import com.fileshareappv1.myapp.repository.FileRepository;
+import com.fileshareappv1.myapp.repository.PostRepository;
+import com.fileshareappv1.myapp.service.storage.LocalStorageService;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.util.List;
+import java.util.stream.Stream;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.mock.web.MockMultipartFile;
+import org.springframework.transaction.PlatformTransactionManager;
+
+/**
+ * Test class for the {@link OrphanedFileCollector}.
+ */
+class OrphanedFileCollectorTest {
+
+    private static final Instant NOW = Instant.parse("2024-06-01T12:00:00Z");
+
+    @TempDir
+    Path root;
+
+    private StorageProperties properties;
+
+    private LocalStorageService storage;
+
+    private PostRepository postRepository;
+
+    private FileRepository fileRepository;
+
+    private SimpleMeterRegistry meterRegistry;
+
+    @BeforeEach
+    void setUp() {
+        properties = new StorageProperties();
+        properties.setLocation(root);
+        properties.setOrphanGracePeriod(Duration.ofHours(1));
+        storage = new LocalStorageService(properties);
+        postRepository = mock(PostRepository.class);
+        fileRepository = mock(FileRepository.class);
+        meterRegistry = new SimpleMeterRegistry();
+    }
+
+    @Test
+    void deletesOnlyOldUnreferencedFiles() throws Exception {
+        String inPost = store("a.jpg", true);
+        String inFileRow = store("b.pdf", true);
+        String thumbnail = store("c.jpg", true);
+        String orphan = store("d.txt", true);
+        String recentOrphan = store("e.txt", false);
+        Path precompressed = storage.loadAsResource(inPost).getFile().toPath().resolveSibling(inPost + ".gz");
+        Files.write(precompressed, new byte[] { 1 });
+        Files.setLastModifiedTime(precompressed, FileTime.from(NOW.minus(Duration.ofDays(2))));
+        referencing(List.of(inPost), List.of("http://localhost/api/files/download/" + inFileRow), List.of(thumbnail));
+
+        collector().collect();
+
+        assertThat(exists(inPost)).isTrue();
+        assertThat(exists(inPost + ".gz")).isTrue();
+        assertThat(exists(inFileRow)).isTrue();
+        assertThat(exists(thumbnail)).isTrue();
+        assertThat(exists(recentOrphan)).isTrue();
+        assertThat(exists(orphan)).isFalse();
+        assertThat(meterRegistry.get("storage.orphans.reclaimed").counter().count()).isEqualTo(1);
+        assertThat(meterRegistry.get("storage.orphans.reclaimed.bytes").counter().count()).isEqualTo(5);
+    }
+
+    @Test
+    void resumesFromThePersistedCursor() throws Exception {
+        for (int i = 0; i < 5; i++) {
+            store("f" + i + ".txt", true);
+        }
+        properties.setOrphanScanBatchSize(2);
+        referencing(List.of(), List.of(), List.of());
+
+        collector().collect();
+        assertThat(storage.list(null, 10)).hasSize(3);
+        assertThat(Files.readString(root.resolve(OrphanedFileCollector.CURSOR_FILE))).isNotEmpty();
+
+        // A new instance, as after a restart, continues where the previous one stopped
+        collector().collect();
+        collector().collect();
+
+        assertThat(storage.list(null, 10)).isEmpty();
+        assertThat(Files.readString(root.resolve(OrphanedFileCollector.CURSOR_FILE))).isEmpty();
+        assertThat(meterRegistry.get("storage.orphans.scanned").counter().count()).isEqualTo(5);
+    }
+
+    private OrphanedFileCollector collector() {
+        return new OrphanedFileCollector(
+            storage,
+            postRepository,
+            fileRepository,
+            mock(PlatformTransactionManager.class),
+            properties,
+            meterRegistry,
+            Clock.fixed(NOW, ZoneOffset.UTC)
+        );
+    }
+
+    private void referencing(List<String> postFiles, List<String> fileUrls, List<String> thumbnails) {
+        when(postRepository.countAllFileNames()).thenReturn((long) postFiles.size());
+        when(fileRepository.count()).thenReturn((long) fileUrls.size());
+        when(postRepository.streamAllFileNames()).thenAnswer(invocation -> postFiles.stream());
+        when(fileRepository.streamAllFileUrls()).thenAnswer(invocation -> fileUrls.stream());
+        when(fileRepository.streamAllThumbnailNames()).thenAnswer(invocation -> thumbnails.stream());
+        when(fileRepository.streamAllPreviewNames()).thenAnswer(invocation -> Stream.empty());
+        when(postRepository.findReferencedFileNames(any())).thenReturn(List.of());
+        when(fileRepository.findReferencingNames(any())).thenReturn(List.of());
+    }
+
+    private String store(String originalName, boolean old) throws Exception {
+        String name = storage.store(new MockMultipartFile("file", originalName, "application/octet-stream", "bytes".getBytes()));
+        Instant modified = old ? NOW.minus(Duration.ofDays(2)) : NOW.minus(Duration.ofMinutes(5));
+        Files.setLastModifiedTime(storage.loadAsResource(name).getFile().toPath(), FileTime.from(modified));
+        return name;
+    }
+
+    private boolean exists(String name) {
+        return storage.list(null, 100).stream().anyMatch(object -> object.getFilename().equals(name));
+    }
+}
@@ -0,0 +1,169 @@
+package com.fileshareappv1.myapp.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import com.fileshareappv1.myapp.IntegrationTest;
+import com.fileshareappv1.myapp.domain.BlobDeletion;
+import com.fileshareappv1.myapp.domain.Comment;
+import com.fileshareappv1.myapp.domain.Favorite;
+import com.fileshareappv1.myapp.domain.File;
+import com.fileshareappv1.myapp.domain.Mention;
+import com.fileshareappv1.myapp.domain.Post;
+import com.fileshareappv1.myapp.domain.Reaction;
+import com.fileshareappv1.myapp.domain.Share;
+import com.fileshareappv1.myapp.domain.User;
+import com.fileshareappv1.myapp.domain.enumeration.ReactionType;
+import com.fileshareappv1.myapp.repository.BlobDeletionRepository;
+import com.fileshareappv1.myapp.repository.FileRepository;
+import com.fileshareappv1.myapp.repository.PostRepository;
+import com.fileshareappv1.myapp.service.storage.StorageRepository;
+import jakarta.persistence.EntityManager;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.mock.web.MockMultipartFile;
+import org.springframework.security.access.AccessDeniedException;
+import org.springframework.security.test.context.support.WithMockUser;
+import org.springframework.transaction.annotation.Transactional;
+
+/**
+ * Integration tests for {@link PostService}.
+ */
+@IntegrationTest
+@Transactional
+class PostServiceIT {
+
+    @Autowired
+    private PostService postService;
+
+    @Autowired
+    private PostRepository postRepository;
+
+    @Autowired
+    private FileRepository fileRepository;
+
+    @Autowired
+    private BlobDeletionRepository blobDeletionRepository;
+
+    @Autowired
+    private BlobDeletionQueue blobDeletionQueue;
+
+    @Autowired
+    private StorageRepository storageRepository;
+
+    @Autowired
+    private EntityManager em;
+
+    @Test
+    void purgingAPostDeletesWhatRefersToIt() {
+        Instant now = Instant.now();
+        Post post = new Post().content("AAAAAAAAAA").createdAt(now);
+        em.persist(post);
+        Comment comment = new Comment().content("comment").createdAt(now).post(post);
+        em.persist(comment);
+        Comment reply = new Comment().content("reply").createdAt(now).post(post).parentComment(comment);
+        em.persist(reply);
+        em.persist(new Reaction().type(ReactionType.LIKE).reactedAt(now).post(post));
+        em.persist(new Favorite().savedAt(now).post(post));
+        em.persist(new Share().createdAt(now).post(post));
+        em.persist(new Mention().post(post));
+        em.flush();
+
+        postService.delete(post.getId());
+        em.flush();
+        em.clear();
+        assertThat(em.find(Comment.class, reply.getId())).isNotNull();
+
+        assertThat(postService.purge(post.getId())).isTrue();
+        em.flush();
+        em.clear();
+
+        assertThat(postRepository.findTrashedById(post.getId())).isEmpty();
+        for (Class<?> dependent : List.of(Comment.class, Reaction.class, Favorite.class, Share.class, Mention.class)) {
+            Long count = em
+                .createQuery("select count(d) from " + dependent.getSimpleName() + " d where d.post.id = :postId", Long.class)
+                .setParameter("postId", post.getId())
+                .getSingleResult();
+            assertThat(count).as(dependent.getSimpleName()).isZero();
+        }
+    }
+
+    @Test
+    void failedPurgesAreLeftOutUntilTheirRetry() {
+        Instant now = Instant.now();
+        Post post = new Post().content("AAAAAAAAAA").createdAt(now);
+        em.persist(post);
+        em.flush();
+        postService.delete(post.getId());
+        em.flush();
+
+        Instant later = now.plusSeconds(60);
+        assertThat(postRepository.findIdsTrashedBefore(later, later, 100)).contains(post.getId());
+
+        postService.postponePurge(post.getId(), now.plusSeconds(3600));
+        em.flush();
+
+        assertThat(postRepository.findIdsTrashedBefore(later, later, 100)).doesNotContain(post.getId());
+        assertThat(postRepository.findIdsTrashedBefore(later, now.plusSeconds(3600), 100)).contains(post.getId());
+    }
+
+    @Test
+    @WithMockUser("post-owner")
+    void onlyTheOwnerOfAPostPassesTheOwnershipCheck() {
+        User owner = new User();
+        owner.setLogin("post-owner");
+        owner.setPassword("$".repeat(60));
+        owner.setActivated(true);
+        owner.setEmail("post-owner@localhost");
+        owner.setLangKey("en");
+        em.persist(owner);
+        Post owned = new Post().content("AAAAAAAAAA").createdAt(Instant.now()).user(owner);
+        em.persist(owned);
+        Post other = new Post().content("BBBBBBBBBB").createdAt(Instant.now());
+        em.persist(other);
+        em.flush();
+
+        postService.checkOwnedByCurrentUser(owned.getId());
+        assertThatThrownBy(() -> postService.checkOwnedByCurrentUser(other.getId())).isInstanceOf(AccessDeniedException.class);
+    }
+
+    @Test
+    void deletingAndPurgingAPostDeletesItsFileRowsAndStoredFiles() {
+        String storedName = storageRepository.store(
+            new MockMultipartFile("file", "photo.txt", "text/plain", "photo".getBytes(StandardCharsets.UTF_8))
+        );
+        Post post = new Post().content("AAAAAAAAAA").createdAt(Instant.now());
+        post.setFiles(new ArrayList<>(List.of(storedName)));
+        postRepository.saveAndFlush(post);
+        File file = new File()
+            .fileName(storedName)
+            .fileUrl("/api/files/download/" + storedName)
+            .mimeType("text/plain")
+            .fileSize(5L)
+            .uploadedAt(Instant.now());
+        fileRepository.saveAndFlush(file);
+
+        postService.delete(post.getId());
+        em.flush();
+        em.clear();
+        assertThat(postRepository.findById(post.getId())).isEmpty();
+        assertThat(fileRepository.findById(file.getId())).isPresent();
+
+        assertThat(postService.purge(post.getId())).isTrue();
+        em.flush();
+        em.clear();
+
+        assertThat(postRepository.findTrashedById(post.getId())).isEmpty();
+        assertThat(fileRepository.findById(file.getId())).isEmpty();
+        assertThat(blobDeletionRepository.findAll()).extracting(BlobDeletion::getStoredName).contains(storedName);
+
+        blobDeletionQueue.process();
+
+        assertThatThrownBy(() -> storageRepository.loadAsResource(storedName)).isInstanceOf(RuntimeException.class);
+        assertThat(blobDeletionRepository.findAll()).extracting(BlobDeletion::getStoredName).doesNotContain(storedName);
+    }
+}
@@ -0,0 +1,59 @@
+package com.fileshareappv1.myapp.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import com.fileshareappv1.myapp.config.ApplicationProperties;
+import com.fileshareappv1.myapp.repository.PostRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.util.List;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Test class for the {@link PostTrashPurger}.
+ */
+class PostTrashPurgerTest {
+
+    private static final Instant NOW = Instant.parse("2024-06-01T03:00:00Z");
+
+    private PostRepository postRepository;
+
+    private PostService postService;
+
+    private SimpleMeterRegistry meterRegistry;
+
+    private PostTrashPurger purger;
+
+    @BeforeEach
+    void setUp() {
+        postRepository = mock(PostRepository.class);
+        postService = mock(PostService.class);
+        meterRegistry = new SimpleMeterRegistry();
+        ApplicationProperties properties = new ApplicationProperties();
+        properties.getTrash().setRetention(Duration.ofDays(7));
+        properties.getTrash().setPurgeBatchSize(3);
+        purger = new PostTrashPurger(postRepository, postService, properties, meterRegistry, Clock.fixed(NOW, ZoneOffset.UTC));
+    }
+
+    @Test
+    void purgesABatchOfPostsTrashedBeforeTheRetentionAndPostponesFailures() {
+        when(postRepository.findIdsTrashedBefore(NOW.minus(Duration.ofDays(7)), NOW, 3)).thenReturn(List.of(1L, 2L, 3L));
+        when(postService.purge(1L)).thenReturn(true);
+        when(postService.purge(2L)).thenThrow(new IllegalStateException("still referenced"));
+        when(postService.purge(3L)).thenReturn(true);
+
+        purger.purge();
+
+        verify(postService).purge(1L);
+        verify(postService).purge(3L);
+        verify(postService).postponePurge(2L, NOW.plus(PostTrashPurger.RETRY_DELAY));
+        assertThat(meterRegistry.get("posts.trash.purged").counter().count()).isEqualTo(2);
+    }
+}
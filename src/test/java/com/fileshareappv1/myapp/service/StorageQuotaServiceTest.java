@@ -0,0 +1,112 @@
+package com.fileshareappv1.myapp.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import com.fileshareappv1.myapp.config.StorageProperties;
+import com.fileshareappv1.myapp.domain.File;
+import com.fileshareappv1.myapp.domain.StorageUsage;
+import com.fileshareappv1.myapp.repository.FileRepository;
+import com.fileshareappv1.myapp.repository.StorageUsageRepository;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.context.SecurityContext;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.util.unit.DataSize;
+
+/**
+ * Test class for the {@link StorageQuotaService}.
+ */
+class StorageQuotaServiceTest {
+
+    private StorageUsageRepository storageUsageRepository;
+
+    private FileRepository fileRepository;
+
+    private StorageQuotaService storageQuotaService;
+
+    @BeforeEach
+    void setUp() {
+        storageUsageRepository = mock(StorageUsageRepository.class);
+        fileRepository = mock(FileRepository.class);
+        StorageProperties properties = new StorageProperties();
+        properties.setUserQuota(DataSize.ofBytes(1000));
+        storageQuotaService = new StorageQuotaService(
+            storageUsageRepository,
+            fileRepository,
+            mock(PlatformTransactionManager.class),
+            properties
+        );
+        SecurityContext context = SecurityContextHolder.createEmptyContext();
+        context.setAuthentication(new UsernamePasswordAuthenticationToken("alice", "alice"));
+        SecurityContextHolder.setContext(context);
+    }
+
+    @AfterEach
+    void tearDown() {
+        SecurityContextHolder.clearContext();
+    }
+
+    @Test
+    void reservationsCountAgainstTheQuotaUntilReleased() {
+        when(storageUsageRepository.findUsedBytes("alice")).thenReturn(Optional.of(600L));
+
+        StorageQuotaService.Reservation first = storageQuotaService.reserve(300);
+        assertThatThrownBy(() -> storageQuotaService.reserve(200)).isInstanceOf(StorageQuotaExceededException.class);
+        assertThatThrownBy(() -> storageQuotaService.checkAvailable(101)).isInstanceOf(StorageQuotaExceededException.class);
+
+        first.close();
+        first.close();
+
+        storageQuotaService.reserve(400).close();
+        storageQuotaService.checkAvailable(400);
+    }
+
+    @Test
+    void chargesAndReleasesFilesByUploader() {
+        when(storageUsageRepository.addUsedBytes(anyString(), anyLong())).thenReturn(1);
+        List<File> files = List.of(file("alice", 10), file("alice", 20), file("bob", 5), file(null, 7));
+
+        storageQuotaService.charge(files);
+        storageQuotaService.release(files.subList(0, 1));
+
+        verify(storageUsageRepository).addUsedBytes("alice", 30);
+        verify(storageUsageRepository).addUsedBytes("bob", 5);
+        verify(storageUsageRepository).addUsedBytes("alice", -10);
+        verify(storageUsageRepository, never()).save(any());
+    }
+
+    @Test
+    void reconcileRecomputesUsageFromTheFileTable() {
+        StorageUsage drifted = new StorageUsage().login("alice").usedBytes(999L);
+        StorageUsage emptied = new StorageUsage().login("bob").usedBytes(50L);
+        when(storageUsageRepository.findAll()).thenReturn(List.of(drifted, emptied));
+        List<Object[]> sums = new ArrayList<>();
+        sums.add(new Object[] { "alice", 120L });
+        sums.add(new Object[] { "carol", 30L });
+        when(fileRepository.sumFileSizeByUploader()).thenReturn(sums);
+
+        storageQuotaService.reconcile();
+
+        assertThat(drifted.getUsedBytes()).isEqualTo(120);
+        assertThat(emptied.getUsedBytes()).isZero();
+        verify(storageUsageRepository).save(new StorageUsage().login("carol").usedBytes(30L));
+    }
+
+    private static File file(String uploadedBy, long size) {
+        return new File().uploadedBy(uploadedBy).fileSize(size);
+    }
+}
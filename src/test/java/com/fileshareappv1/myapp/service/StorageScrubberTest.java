@@ -0,0 +1,146 @@
+package com.fileshareappv1.myapp.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import com.fileshareappv1.myapp.config.StorageProperties;
+import com.fileshareappv1.myapp.domain.File;
+import com.fileshareappv1.myapp.repository.FileRepository;
+import com.fileshareappv1.myapp.service.storage.LocalStorageService;
+import com.fileshareappv1.myapp.service.storage.StoredFile;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Clock;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.SliceImpl;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.util.unit.DataSize;
+
+/**
+ * Test class for the {@link StorageScrubber}.
+ */
+class StorageScrubberTest {
+
+    private static final Instant NOW = Instant.parse("2024-06-01T12:00:00Z");
+
+    @TempDir
+    Path root;
+
+    private StorageProperties properties;
+
+    private LocalStorageService storage;
+
+    private FileRepository fileRepository;
+
+    private SimpleMeterRegistry meterRegistry;
+
+    private final List<File> rows = new ArrayList<>();
+
+    @BeforeEach
+    void setUp() {
+        properties = new StorageProperties();
+        properties.setLocation(root);
+        storage = new LocalStorageService(properties);
+        fileRepository = mock(FileRepository.class);
+        meterRegistry = new SimpleMeterRegistry();
+        when(fileRepository.findByIdGreaterThanOrderByIdAsc(anyLong(), any(Pageable.class))).thenAnswer(invocation -> {
+            long after = invocation.getArgument(0, Long.class);
+            Pageable pageable = invocation.getArgument(1, Pageable.class);
+            List<File> page = rows.stream().filter(row -> row.getId() > after).limit(pageable.getPageSize()).toList();
+            return new SliceImpl<>(page, pageable, false);
+        });
+    }
+
+    @Test
+    void flagsCorruptedAndMissingFilesAndRecordsMissingChecksums() throws Exception {
+        store(1L, "intact-1");
+        File corrupted = store(2L, "corrupted");
+        File missing = store(3L, "missing-3");
+        File unchecked = store(4L, "unchecked");
+        String sha256 = unchecked.getSha256();
+        String crc32c = unchecked.getCrc32c();
+        unchecked.sha256(null).crc32c(null);
+        Files.writeString(pathOf(corrupted), "corrupteD", StandardCharsets.UTF_8);
+        storage.delete(FileMetadataService.storedNameOf(missing));
+
+        scrubber().scrub();
+
+        verify(fileRepository).updateChecksumMismatchAt(2L, NOW);
+        verify(fileRepository).updateChecksumMismatchAt(3L, NOW);
+        verify(fileRepository, never()).updateChecksumMismatchAt(eq(1L), any());
+        verify(fileRepository).updateChecksums(4L, sha256, crc32c);
+        assertThat(meterRegistry.get("storage.scrub.files").tag("result", "verified").counter().count()).isEqualTo(1);
+        assertThat(meterRegistry.get("storage.scrub.files").tag("result", "mismatch").counter().count()).isEqualTo(1);
+        assertThat(meterRegistry.get("storage.scrub.files").tag("result", "missing").counter().count()).isEqualTo(1);
+        assertThat(meterRegistry.get("storage.scrub.files").tag("result", "recorded").counter().count()).isEqualTo(1);
+        assertThat(meterRegistry.get("storage.scrub.bytes").counter().count()).isEqualTo(26);
+    }
+
+    @Test
+    void clearsTheFlagOnceAFileVerifiesAgain() throws Exception {
+        store(1L, "restored").checksumMismatchAt(NOW.minusSeconds(3600));
+
+        scrubber().scrub();
+
+        verify(fileRepository).updateChecksumMismatchAt(1L, null);
+    }
+
+    @Test
+    void readsNoMoreThanTheBandwidthSavedUp() throws Exception {
+        for (long id = 1; id <= 5; id++) {
+            store(id, "content-" + id);
+        }
+        // 10 seconds at 2 bytes per second pay for the first 20 bytes, and the file that overdraws them
+        properties.setScrubRate(DataSize.ofBytes(2));
+        StorageScrubber scrubber = scrubber();
+
+        scrubber.scrub();
+        scrubber.scrub();
+
+        assertThat(meterRegistry.get("storage.scrub.bytes").counter().count()).isEqualTo(27);
+    }
+
+    private StorageScrubber scrubber() {
+        return new StorageScrubber(
+            storage,
+            fileRepository,
+            mock(PlatformTransactionManager.class),
+            properties,
+            meterRegistry,
+            Clock.fixed(NOW, ZoneOffset.UTC)
+        );
+    }
+
+    private File store(long id, String content) {
+        StoredFile stored = storage.store(new ByteArrayInputStream(content.getBytes(StandardCharsets.UTF_8)), content + ".txt");
+        File file = new File()
+            .id(id)
+            .fileName(stored.getFilename())
+            .fileUrl("http://localhost/api/files/download/" + stored.getFilename())
+            .fileSize(stored.getSize())
+            .sha256(stored.getSha256())
+            .crc32c(stored.getCrc32c());
+        rows.add(file);
+        return file;
+    }
+
+    private Path pathOf(File file) throws Exception {
+        return storage.loadAsResource(FileMetadataService.storedNameOf(file)).getFile().toPath();
+    }
+}
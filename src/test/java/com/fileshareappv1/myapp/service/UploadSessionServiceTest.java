@@ -0,0 +1,140 @@
+package com.fileshareappv1.myapp.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import com.fileshareappv1.myapp.config.StorageProperties;
+import com.fileshareappv1.myapp.service.dto.FileDTO;
+import com.fileshareappv1.myapp.service.dto.UploadSessionDTO;
+import com.fileshareappv1.myapp.service.storage.ContentHashes;
+import com.fileshareappv1.myapp.service.storage.LocalStorageService;
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.List;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.security.access.AccessDeniedException;
+import org.springframework.web.context.request.RequestContextHolder;
+import org.springframework.web.context.request.ServletRequestAttributes;
+
+/**
+ * Test class for the {@link UploadSessionService}.
+ */
+class UploadSessionServiceTest {
+
+    @TempDir
+    Path root;
+
+    private PostService postService;
+
+    private LocalStorageService storage;
+
+    private UploadSessionService uploadSessionService;
+
+    @BeforeEach
+    void setUp() {
+        StorageProperties properties = new StorageProperties();
+        properties.setLocation(root);
+        postService = mock(PostService.class);
+        when(postService.saveStoredFiles(any(), any())).thenAnswer(invocation -> invocation.getArgument(1));
+        storage = new LocalStorageService(properties);
+        uploadSessionService = new UploadSessionService(properties, storage, postService, mock(StorageQuotaService.class));
+        RequestContextHolder.setRequestAttributes(new ServletRequestAttributes(new MockHttpServletRequest()));
+    }
+
+    @AfterEach
+    void tearDown() {
+        RequestContextHolder.resetRequestAttributes();
+    }
+
+    @Test
+    void resumesAndFinishesUpload() throws Exception {
+        UploadSessionDTO session = uploadSessionService.create(request("video.mp4", 10L, 42L));
+
+        assertThat(uploadSessionService.append(session.getId(), 0, stream("01234"))).isEqualTo(5);
+        assertThat(uploadSessionService.findOne(session.getId())).get().extracting(UploadSessionDTO::getOffset).isEqualTo(5L);
+        assertThat(uploadSessionService.append(session.getId(), 5, stream("56789"))).isEqualTo(10);
+
+        FileDTO file = uploadSessionService.finish(session.getId());
+
+        assertThat(file.getFileName()).endsWith(".mp4");
+        assertThat(file.getFileSize()).isEqualTo(10L);
+        assertThat(file.getSha256()).isEqualTo(ContentHashes.sha256("0123456789".getBytes(StandardCharsets.UTF_8)));
+        assertThat(file.getCrc32c()).hasSize(8);
+        assertThat(storage.loadAsResource(file.getFileName()).getContentAsString(StandardCharsets.UTF_8)).isEqualTo("0123456789");
+        assertThat(uploadSessionService.findOne(session.getId())).isEmpty();
+        verify(postService).saveStoredFiles(42L, List.of(file));
+    }
+
+    @Test
+    void onlyTheOwnerOfThePostCanUploadToIt() throws Exception {
+        doThrow(new AccessDeniedException("not yours")).when(postService).checkOwnedByCurrentUser(7L);
+
+        assertThatThrownBy(() -> uploadSessionService.create(request("a.bin", 4L, 7L))).isInstanceOf(AccessDeniedException.class);
+
+        UploadSessionDTO session = uploadSessionService.create(request("a.bin", 4L, 42L));
+        uploadSessionService.append(session.getId(), 0, stream("0123"));
+        doThrow(new AccessDeniedException("not yours")).when(postService).checkOwnedByCurrentUser(42L);
+
+        assertThatThrownBy(() -> uploadSessionService.finish(session.getId())).isInstanceOf(AccessDeniedException.class);
+        assertThat(storage.list(null, 10)).isEmpty();
+        verify(postService, never()).saveStoredFiles(any(), any());
+    }
+
+    @Test
+    void rejectsChunkAtWrongOffset() {
+        UploadSessionDTO session = uploadSessionService.create(request("a.bin", 10L, null));
+        uploadSessionService.append(session.getId(), 0, stream("0123"));
+
+        assertThatThrownBy(() -> uploadSessionService.append(session.getId(), 2, stream("2345"))).isInstanceOf(
+            UploadConflictException.class
+        );
+    }
+
+    @Test
+    void rejectsChunkBeyondDeclaredLength() {
+        UploadSessionDTO session = uploadSessionService.create(request("a.bin", 4L, null));
+
+        assertThatThrownBy(() -> uploadSessionService.append(session.getId(), 0, stream("012345"))).isInstanceOf(
+            UploadConflictException.class
+        );
+        assertThat(uploadSessionService.findOne(session.getId())).get().extracting(UploadSessionDTO::getOffset).isEqualTo(0L);
+    }
+
+    @Test
+    void refusesToFinishIncompleteUpload() {
+        UploadSessionDTO session = uploadSessionService.create(request("a.bin", 10L, null));
+        uploadSessionService.append(session.getId(), 0, stream("0123"));
+
+        assertThatThrownBy(() -> uploadSessionService.finish(session.getId())).isInstanceOf(UploadConflictException.class);
+    }
+
+    @Test
+    void rejectsUnknownSession() {
+        assertThatThrownBy(() -> uploadSessionService.append("../../etc/passwd", 0, stream("x"))).isInstanceOf(
+            UploadSessionNotFoundException.class
+        );
+    }
+
+    private static UploadSessionDTO request(String filename, Long length, Long postId) {
+        UploadSessionDTO dto = new UploadSessionDTO();
+        dto.setFilename(filename);
+        dto.setLength(length);
+        dto.setPostId(postId);
+        return dto;
+    }
+
+    private static ByteArrayInputStream stream(String content) {
+        return new ByteArrayInputStream(content.getBytes(StandardCharsets.US_ASCII));
+    }
+}
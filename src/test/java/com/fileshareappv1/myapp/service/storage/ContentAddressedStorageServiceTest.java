@@ -0,0 +1,98 @@
+package com.fileshareappv1.myapp.service.storage;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import com.fileshareappv1.myapp.config.StorageProperties;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.stream.Stream;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.mock.web.MockMultipartFile;
+import org.springframework.util.unit.DataSize;
+
+/**
+ * Test class for the {@link ContentAddressedStorageService}.
+ */
+class ContentAddressedStorageServiceTest {
+
+    private static final byte[] CONTENT = "same bytes, shared many times".getBytes(StandardCharsets.UTF_8);
+
+    @TempDir
+    Path root;
+
+    private ContentAddressedStorageService storage;
+
+    @BeforeEach
+    void setUp() {
+        StorageProperties properties = new StorageProperties();
+        properties.setLocation(root);
+        properties.setType("content-addressed");
+        storage = new ContentAddressedStorageService(properties);
+    }
+
+    @Test
+    void checksHardLinksWithoutLeavingFilesBehind() throws Exception {
+        try (Stream<Path> incoming = Files.list(root.resolve(ContentAddressedStorageService.BLOB_DIRECTORY).resolve("incoming"))) {
+            assertThat(incoming).isEmpty();
+        }
+    }
+
+    @Test
+    void storesIdenticalUploadsOnce() throws Exception {
+        String first = storage.store(new MockMultipartFile("file", "meme.png", "image/png", CONTENT));
+        String second = storage.store(new MockMultipartFile("file", "meme-copy.png", "image/png", CONTENT));
+
+        assertThat(first).isNotEqualTo(second).endsWith(".png");
+        assertThat(Files.isSameFile(storage.resolve(first), storage.resolve(second))).isTrue();
+        assertThat(storage.loadAsResource(second).getContentAsByteArray()).isEqualTo(CONTENT);
+        assertThat(blobCount()).isEqualTo(1);
+        assertThat(storage.referenceCount(ContentHashes.sha256(CONTENT))).isEqualTo(2);
+    }
+
+    @Test
+    void streamsLargeUploadsThroughTheSameBlobStore() throws Exception {
+        StorageProperties properties = new StorageProperties();
+        properties.setLocation(root);
+        properties.setInMemoryHashThreshold(DataSize.ofBytes(0));
+        ContentAddressedStorageService streaming = new ContentAddressedStorageService(properties);
+
+        String first = streaming.store(new MockMultipartFile("file", "a.pdf", "application/pdf", CONTENT));
+        String second = storage.store(new MockMultipartFile("file", "b.pdf", "application/pdf", CONTENT));
+
+        assertThat(Files.isSameFile(storage.resolve(first), storage.resolve(second))).isTrue();
+        assertThat(blobCount()).isEqualTo(1);
+    }
+
+    @Test
+    void deletesBlobWithItsLastReference() throws Exception {
+        String first = storage.store(new MockMultipartFile("file", "doc.pdf", "application/pdf", CONTENT));
+        String second = storage.store(new MockMultipartFile("file", "doc.pdf", "application/pdf", CONTENT));
+
+        storage.delete(first);
+        assertThat(storage.resolve(first)).doesNotExist();
+        assertThat(storage.loadAsResource(second).getContentAsByteArray()).isEqualTo(CONTENT);
+        assertThat(blobCount()).isEqualTo(1);
+
+        storage.delete(second);
+        assertThat(blobCount()).isZero();
+        assertThat(storage.referenceCount(ContentHashes.sha256(CONTENT))).isZero();
+    }
+
+    @Test
+    void deletesFilesStoredBeforeDeduplication() throws Exception {
+        Files.write(root.resolve("legacy.txt"), CONTENT);
+
+        storage.delete("legacy.txt");
+
+        assertThat(root.resolve("legacy.txt")).doesNotExist();
+    }
+
+    private long blobCount() throws Exception {
+        try (Stream<Path> files = Files.walk(root.resolve(ContentAddressedStorageService.BLOB_DIRECTORY))) {
+            return files.filter(Files::isRegularFile).filter(p -> !p.toString().endsWith(".part")).count();
+        }
+    }
+}
@@ -0,0 +1,195 @@
+package com.fileshareappv1.myapp.service.storage;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.time.ZoneOffset;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * In-process stand-in for an S3-compatible object store, with path-style addressing: enough of
+ * the object API (PUT, GET with a single range, HEAD, DELETE and multipart uploads) to exercise
+ * the {@link S3StorageService}. Signatures are not verified, only required.
+ */
+class FakeS3Server implements AutoCloseable {
+
+    private static final Pattern PART_NUMBER = Pattern.compile("<PartNumber>(\\d+)</PartNumber>");
+
+    private final HttpServer server;
+
+    private final String bucket;
+
+    final Map<String, byte[]> objects = new ConcurrentHashMap<>();
+
+    final Map<String, Map<Integer, byte[]>> uploads = new ConcurrentHashMap<>();
+
+    final List<String> requests = new CopyOnWriteArrayList<>();
+
+    private final AtomicInteger uploadIds = new AtomicInteger();
+
+    FakeS3Server(String bucket) throws IOException {
+        this.bucket = bucket;
+        this.server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        this.server.createContext("/", this::handle);
+        this.server.start();
+    }
+
+    URI endpoint() {
+        return URI.create("http://127.0.0.1:" + server.getAddress().getPort());
+    }
+
+    @Override
+    public void close() {
+        server.stop(0);
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        try (exchange) {
+            String method = exchange.getRequestMethod();
+            String path = exchange.getRequestURI().getPath();
+            Map<String, String> query = query(exchange.getRequestURI().getRawQuery());
+            requests.add(method + " " + exchange.getRequestURI());
+            String authorization = exchange.getRequestHeaders().getFirst("Authorization");
+            if (authorization == null || !authorization.startsWith("AWS4-HMAC-SHA256 Credential=")) {
+                exchange.sendResponseHeaders(403, -1);
+                return;
+            }
+            if (path.equals("/" + bucket) && "GET".equals(method) && "2".equals(query.get("list-type"))) {
+                list(exchange, query);
+                return;
+            }
+            if (!path.startsWith("/" + bucket + "/")) {
+                exchange.sendResponseHeaders(404, -1);
+                return;
+            }
+            String key = path.substring(bucket.length() + 2);
+            byte[] body = exchange.getRequestBody().readAllBytes();
+
+            switch (method) {
+                case "PUT" -> {
+                    if (query.containsKey("uploadId")) {
+                        uploads.get(query.get("uploadId")).put(Integer.parseInt(query.get("partNumber")), body);
+                        exchange.getResponseHeaders().add("ETag", "\"part-" + query.get("partNumber") + "\"");
+                    } else {
+                        objects.put(key, body);
+                    }
+                    exchange.sendResponseHeaders(200, -1);
+                }
+                case "POST" -> {
+                    if (query.containsKey("uploads")) {
+                        String uploadId = "upload-" + uploadIds.incrementAndGet();
+                        uploads.put(uploadId, new TreeMap<>());
+                        send(
+                            exchange,
+                            200,
+                            "<InitiateMultipartUploadResult><UploadId>" + uploadId + "</UploadId></InitiateMultipartUploadResult>"
+                        );
+                    } else {
+                        Map<Integer, byte[]> parts = uploads.remove(query.get("uploadId"));
+                        ByteArrayOutputStream object = new ByteArrayOutputStream();
+                        Matcher matcher = PART_NUMBER.matcher(new String(body, StandardCharsets.UTF_8));
+                        while (matcher.find()) {
+                            object.write(parts.get(Integer.parseInt(matcher.group(1))));
+                        }
+                        objects.put(key, object.toByteArray());
+                        send(exchange, 200, "<CompleteMultipartUploadResult/>");
+                    }
+                }
+                case "DELETE" -> {
+                    if (query.containsKey("uploadId")) {
+                        uploads.remove(query.get("uploadId"));
+                    } else {
+                        objects.remove(key);
+                    }
+                    exchange.sendResponseHeaders(204, -1);
+                }
+                case "HEAD", "GET" -> {
+                    byte[] object = objects.get(key);
+                    if (object == null) {
+                        exchange.sendResponseHeaders(404, -1);
+                        return;
+                    }
+                    ZonedDateTime lastModified = ZonedDateTime.of(2024, 1, 2, 3, 4, 5, 0, ZoneOffset.UTC);
+                    exchange.getResponseHeaders().add("Last-Modified", DateTimeFormatter.RFC_1123_DATE_TIME.format(lastModified));
+                    if ("HEAD".equals(method)) {
+                        exchange.getResponseHeaders().add("Content-Length", Integer.toString(object.length));
+                        exchange.sendResponseHeaders(200, -1);
+                        return;
+                    }
+                    String range = exchange.getRequestHeaders().getFirst("Range");
+                    if (range == null) {
+                        exchange.sendResponseHeaders(200, object.length);
+                        exchange.getResponseBody().write(object);
+                        return;
+                    }
+                    String[] bounds = range.substring("bytes=".length()).split("-");
+                    int start = Integer.parseInt(bounds[0]);
+                    int end = Math.min(Integer.parseInt(bounds[1]), object.length - 1);
+                    exchange.getResponseHeaders().add("Content-Range", "bytes " + start + "-" + end + "/" + object.length);
+                    exchange.sendResponseHeaders(206, end - start + 1);
+                    exchange.getResponseBody().write(object, start, end - start + 1);
+                }
+                default -> exchange.sendResponseHeaders(405, -1);
+            }
+        }
+    }
+
+    private void list(HttpExchange exchange, Map<String, String> query) throws IOException {
+        String startAfter = query.get("start-after");
+        int maxKeys = Integer.parseInt(query.get("max-keys"));
+        StringBuilder result = new StringBuilder("<ListBucketResult>");
+        objects
+            .keySet()
+            .stream()
+            .sorted()
+            .filter(key -> startAfter == null || key.compareTo(startAfter) > 0)
+            .limit(maxKeys)
+            .forEach(key ->
+                result
+                    .append("<Contents><Key>")
+                    .append(key)
+                    .append("</Key><LastModified>2024-01-02T03:04:05.000Z</LastModified><Size>")
+                    .append(objects.get(key).length)
+                    .append("</Size></Contents>")
+            );
+        send(exchange, 200, result.append("</ListBucketResult>").toString());
+    }
+
+    private static void send(HttpExchange exchange, int status, String body) throws IOException {
+        byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+        exchange.sendResponseHeaders(status, bytes.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(bytes);
+        }
+    }
+
+    private static Map<String, String> query(String rawQuery) {
+        Map<String, String> query = new TreeMap<>();
+        if (rawQuery != null) {
+            for (String parameter : rawQuery.split("&")) {
+                String[] pair = parameter.split("=", 2);
+                query.put(pair[0], pair.length > 1 ? pair[1] : "");
+            }
+        }
+        return query;
+    }
+
+    List<String> uploadIds() {
+        return new ArrayList<>(uploads.keySet());
+    }
+}
@@ -0,0 +1,80 @@
+package com.fileshareappv1.myapp.service.storage;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import com.fileshareappv1.myapp.config.StorageProperties;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.core.io.Resource;
+import org.springframework.mock.web.MockMultipartFile;
+import org.springframework.util.unit.DataSize;
+
+/**
+ * Test class for the {@link HotFileCache}.
+ */
+class HotFileCacheTest {
+
+    @TempDir
+    Path root;
+
+    private HotFileCache cache;
+
+    private LocalStorageService storage;
+
+    @BeforeEach
+    void setUp() {
+        StorageProperties properties = new StorageProperties();
+        properties.setLocation(root);
+        properties.setHotCacheSize(DataSize.ofKilobytes(64));
+        properties.setHotCacheMaxFileSize(DataSize.ofKilobytes(16));
+        properties.setHotCacheAdmissionThreshold(2);
+        cache = new HotFileCache(properties);
+        storage = new LocalStorageService(properties, cache);
+    }
+
+    @Test
+    void admitsFilesOnlyOnceTheyAreRequestedRepeatedly() throws Exception {
+        String name = storage.store(new MockMultipartFile("file", "a.txt", "text/plain", "hot content".getBytes(StandardCharsets.UTF_8)));
+
+        assertThat(storage.loadAsResource(name)).isNotInstanceOf(CachedFileResource.class);
+        Resource hot = storage.loadAsResource(name);
+
+        assertThat(hot).isInstanceOf(CachedFileResource.class);
+        assertThat(hot.getContentAsString(StandardCharsets.UTF_8)).isEqualTo("hot content");
+        assertThat(hot.lastModified()).isEqualTo(Files.getLastModifiedTime(storage.resolve(name)).toMillis());
+        assertThat(storage.loadAsResource(name)).isSameAs(hot);
+    }
+
+    @Test
+    void neverAdmitsLargeFiles() {
+        String name = storage.store(new MockMultipartFile("file", "big.bin", "application/octet-stream", new byte[32 * 1024]));
+
+        for (int i = 0; i < 5; i++) {
+            assertThat(storage.loadAsResource(name)).isNotInstanceOf(CachedFileResource.class);
+        }
+    }
+
+    @Test
+    void deleteInvalidatesAndSlicesAreMetered() {
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        cache.bindTo(registry);
+        String name = storage.store(new MockMultipartFile("file", "a.txt", "text/plain", "0123456789".getBytes(StandardCharsets.UTF_8)));
+        storage.loadAsResource(name);
+        CachedFileResource hot = (CachedFileResource) storage.loadAsResource(name);
+
+        ByteBuffer slice = hot.slice(2, 3);
+        assertThat(StandardCharsets.UTF_8.decode(slice).toString()).isEqualTo("234");
+        assertThat(registry.get("storage.hot.cache.served.bytes").functionCounter().count()).isEqualTo(3);
+        assertThat(registry.get("storage.hot.cache.bytes").gauge().value()).isEqualTo(10);
+
+        storage.delete(name);
+
+        assertThat(cache.get(name)).isNull();
+    }
+}
@@ -0,0 +1,233 @@
+package com.fileshareappv1.myapp.service.storage;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import com.fileshareappv1.myapp.config.StorageProperties;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.mock.web.MockMultipartFile;
+
+/**
+ * Test class for the {@link LocalStorageService}.
+ */
+class LocalStorageServiceTest {
+
+    private static final byte[] CONTENT = "stored bytes".getBytes(StandardCharsets.UTF_8);
+
+    @TempDir
+    Path root;
+
+    @TempDir
+    Path coldRoot;
+
+    private StorageProperties properties;
+
+    private LocalStorageService storage;
+
+    @BeforeEach
+    void setUp() {
+        properties = new StorageProperties();
+        properties.setLocation(root);
+        storage = new LocalStorageService(properties);
+    }
+
+    @Test
+    void storesNewFilesInTheirShard() throws Exception {
+        String filename = storage.store(new MockMultipartFile("file", "photo.jpg", "image/jpeg", CONTENT));
+
+        Path stored = storage.shardedPath(filename);
+        assertThat(stored).exists();
+        assertThat(root.relativize(stored).getNameCount()).isEqualTo(3);
+        assertThat(root.resolve(filename)).doesNotExist();
+        assertThat(storage.loadAsResource(filename).getContentAsByteArray()).isEqualTo(CONTENT);
+    }
+
+    @Test
+    void servesAndMigratesFlatFiles() throws Exception {
+        Files.write(root.resolve("a.txt"), CONTENT);
+        Files.write(root.resolve("b.txt"), CONTENT);
+        Files.write(root.resolve("c.txt"), CONTENT);
+        Files.createDirectories(root.resolve(".uploads"));
+        Files.write(root.resolve(".uploads").resolve("session.part"), CONTENT);
+        properties.setLayoutMigrationBatchSize(2);
+        storage = new LocalStorageService(properties);
+
+        assertThat(storage.loadAsResource("a.txt").getContentAsByteArray()).isEqualTo(CONTENT);
+
+        storage.migrateFlatLayout();
+        assertThat(flatFileCount()).isEqualTo(1);
+        storage.migrateFlatLayout();
+        assertThat(flatFileCount()).isZero();
+
+        for (String filename : new String[] { "a.txt", "b.txt", "c.txt" }) {
+            assertThat(storage.shardedPath(filename)).exists();
+            assertThat(storage.loadAsResource(filename).getContentAsByteArray()).isEqualTo(CONTENT);
+        }
+        assertThat(root.resolve(".uploads").resolve("session.part")).exists();
+    }
+
+    @Test
+    void deletesFilesInEitherLayout() throws Exception {
+        Files.write(root.resolve("legacy.txt"), CONTENT);
+        String filename = storage.store(new MockMultipartFile("file", "new.txt", "text/plain", CONTENT));
+
+        storage.delete("legacy.txt");
+        storage.delete(filename);
+
+        assertThat(root.resolve("legacy.txt")).doesNotExist();
+        assertThat(storage.shardedPath(filename)).doesNotExist();
+    }
+
+    private long flatFileCount() throws Exception {
+        try (var files = Files.list(root)) {
+            return files.filter(Files::isRegularFile).count();
+        }
+    }
+
+    @Test
+    void listsFilesOfBothLayoutsPageByPage() throws Exception {
+        Files.write(root.resolve("legacy.txt"), CONTENT);
+        Files.createDirectories(root.resolve(".uploads"));
+        Files.write(root.resolve(".uploads").resolve("session.part"), CONTENT);
+        for (int i = 0; i < 5; i++) {
+            storage.store(new MockMultipartFile("file", "f.txt", "text/plain", CONTENT));
+        }
+
+        List<String> listed = new ArrayList<>();
+        String cursor = null;
+        List<StoredObject> page;
+        do {
+            page = storage.list(cursor, 2);
+            page.forEach(object -> listed.add(object.getFilename()));
+            cursor = page.isEmpty() ? cursor : page.get(page.size() - 1).getKey();
+        } while (page.size() == 2);
+
+        assertThat(listed).hasSize(6).doesNotHaveDuplicates().contains("legacy.txt").doesNotContain("session.part");
+        assertThat(storage.list(null, 10)).allSatisfy(object -> assertThat(object.getSize()).isEqualTo(CONTENT.length));
+    }
+
+    @Test
+    void movesColdFilesToTheColdTierAndBackOnDownload() throws Exception {
+        LocalStorageService tiered = tieredStorage();
+        byte[] text = "a line of text that compresses well\n".repeat(1000).getBytes(StandardCharsets.UTF_8);
+        String filename = storeOld(tiered, text);
+
+        tiered.moveColdFiles();
+
+        assertThat(tiered.shardedPath(filename)).doesNotExist();
+        Path cold = LocalStorageService.shard(coldRoot, filename);
+        Path compressed = cold.resolveSibling(filename + ColdTier.COMPRESSED_SUFFIX);
+        assertThat(compressed).exists();
+        assertThat(Files.size(compressed)).isLessThan(text.length / 10);
+        try (InputStream in = tiered.openStream(filename)) {
+            assertThat(in.readAllBytes()).isEqualTo(text);
+        }
+        assertThat(compressed).exists();
+
+        assertThat(tiered.loadAsResource(filename).getContentAsByteArray()).isEqualTo(text);
+        assertThat(tiered.shardedPath(filename)).exists();
+        assertThat(compressed).doesNotExist();
+        assertThat(Files.getLastModifiedTime(tiered.shardedPath(filename)).toInstant()).isBefore(Instant.now().minus(Duration.ofDays(7)));
+    }
+
+    @Test
+    void keepsIncompressibleColdFilesAsTheyAre() throws Exception {
+        LocalStorageService tiered = tieredStorage();
+        byte[] random = new byte[64 * 1024];
+        new Random(42).nextBytes(random);
+        String filename = storeOld(tiered, random);
+
+        tiered.moveColdFiles();
+
+        assertThat(LocalStorageService.shard(coldRoot, filename)).exists();
+        tiered.delete(filename);
+        assertThat(LocalStorageService.shard(coldRoot, filename)).doesNotExist();
+    }
+
+    @Test
+    void keepsRecentlyDownloadedFilesHot() throws Exception {
+        LocalStorageService tiered = tieredStorage();
+        String filename = storeOld(tiered, CONTENT);
+
+        tiered.loadAsResource(filename);
+        tiered.moveColdFiles();
+        tiered.moveColdFiles();
+
+        assertThat(tiered.shardedPath(filename)).exists();
+        assertThat(LocalStorageService.shard(coldRoot, filename)).doesNotExist();
+    }
+
+    @Test
+    void concurrentDownloadsOfAColdFileAllGetIt() throws Exception {
+        LocalStorageService tiered = tieredStorage();
+        byte[] text = "a line of text that compresses well\n".repeat(1000).getBytes(StandardCharsets.UTF_8);
+        String filename = storeOld(tiered, text);
+        tiered.moveColdFiles();
+        assertThat(tiered.shardedPath(filename)).doesNotExist();
+
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        try {
+            List<Future<byte[]>> downloads = new ArrayList<>();
+            for (int i = 0; i < 8; i++) {
+                downloads.add(executor.submit(() -> tiered.loadAsResource(filename).getContentAsByteArray()));
+            }
+            for (Future<byte[]> download : downloads) {
+                assertThat(download.get()).isEqualTo(text);
+            }
+        } finally {
+            executor.shutdown();
+        }
+        assertThat(tiered.shardedPath(filename)).exists();
+    }
+
+    @Test
+    void listsTheColdTierUnderTheStoredFilenames() throws Exception {
+        LocalStorageService tiered = tieredStorage();
+        String hot = tiered.store(new MockMultipartFile("file", "hot.txt", "text/plain", CONTENT));
+        byte[] text = "a line of text that compresses well\n".repeat(1000).getBytes(StandardCharsets.UTF_8);
+        String compressed = storeOld(tiered, text);
+        String plain = storeOld(tiered, CONTENT);
+        tiered.moveColdFiles();
+        assertThat(tiered.shardedPath(compressed)).doesNotExist();
+        assertThat(tiered.shardedPath(plain)).doesNotExist();
+
+        List<String> listed = new ArrayList<>();
+        String cursor = null;
+        List<StoredObject> page;
+        do {
+            page = tiered.list(cursor, 1);
+            page.forEach(object -> listed.add(object.getFilename()));
+            cursor = page.isEmpty() ? cursor : page.get(page.size() - 1).getKey();
+        } while (!page.isEmpty());
+
+        assertThat(listed).containsExactlyInAnyOrder(hot, compressed, plain);
+        tiered.delete(compressed);
+        assertThat(tiered.list(null, 10)).extracting(StoredObject::getFilename).containsExactlyInAnyOrder(hot, plain);
+    }
+
+    private LocalStorageService tieredStorage() {
+        properties.setColdLocation(coldRoot);
+        properties.setColdAfter(Duration.ofDays(7));
+        return new LocalStorageService(properties);
+    }
+
+    private static String storeOld(LocalStorageService storage, byte[] content) throws Exception {
+        String filename = storage.store(new MockMultipartFile("file", "old.txt", "text/plain", content));
+        Files.setLastModifiedTime(storage.shardedPath(filename), FileTime.from(Instant.now().minus(Duration.ofDays(30))));
+        return filename;
+    }
+}
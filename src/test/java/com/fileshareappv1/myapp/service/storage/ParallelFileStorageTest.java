@@ -0,0 +1,81 @@
+package com.fileshareappv1.myapp.service.storage;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import com.fileshareappv1.myapp.config.StorageProperties;
+import java.io.InputStream;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.IntStream;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockMultipartFile;
+import org.springframework.web.multipart.MultipartFile;
+
+/**
+ * Test class for the {@link ParallelFileStorage}.
+ */
+class ParallelFileStorageTest {
+
+    private StorageRepository storageRepository;
+
+    private ParallelFileStorage parallelFileStorage;
+
+    @BeforeEach
+    void setUp() {
+        storageRepository = mock(StorageRepository.class);
+        StorageProperties properties = new StorageProperties();
+        properties.setUploadParallelism(4);
+        parallelFileStorage = new ParallelFileStorage(storageRepository, properties);
+    }
+
+    @AfterEach
+    void tearDown() {
+        parallelFileStorage.shutdown();
+    }
+
+    @Test
+    void returnsStoredNamesInInputOrder() {
+        when(storageRepository.store(any(InputStream.class), any())).thenAnswer(invocation -> stored(invocation.getArgument(1)));
+        List<MultipartFile> files = IntStream.range(0, 20).<MultipartFile>mapToObj(ParallelFileStorageTest::file).toList();
+
+        List<String> storedNames = parallelFileStorage.storeAll(files).stream().map(StoredFile::getFilename).toList();
+
+        assertThat(storedNames).containsExactlyElementsOf(IntStream.range(0, 20).mapToObj(i -> "stored-" + i + ".jpg").toList());
+    }
+
+    @Test
+    void deletesStoredFilesWhenOneFails() {
+        CountDownLatch firstStored = new CountDownLatch(1);
+        when(storageRepository.store(any(InputStream.class), any())).thenAnswer(invocation -> {
+            String name = invocation.getArgument(1, String.class);
+            if (name.equals("1.jpg")) {
+                firstStored.await(5, TimeUnit.SECONDS);
+                throw new RuntimeException("Failed to store file");
+            }
+            firstStored.countDown();
+            return stored(name);
+        });
+
+        assertThatThrownBy(() -> parallelFileStorage.storeAll(List.of(file(0), file(1)))).hasMessage("Failed to store file");
+
+        verify(storageRepository).delete("stored-0.jpg");
+        verify(storageRepository, never()).delete("stored-1.jpg");
+    }
+
+    private static StoredFile stored(String originalFilename) {
+        return new StoredFile("stored-" + originalFilename, 1, "sha256", "crc32c");
+    }
+
+    private static MultipartFile file(int i) {
+        return new MockMultipartFile("files", i + ".jpg", "image/jpeg", new byte[] { (byte) i });
+    }
+}
@@ -0,0 +1,136 @@
+package com.fileshareappv1.myapp.service.storage;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import com.fileshareappv1.myapp.config.StorageProperties;
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Random;
+import java.util.zip.CRC32C;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.core.io.Resource;
+import org.springframework.mock.web.MockMultipartFile;
+
+/**
+ * Test class for the {@link S3StorageService}, against an in-process {@link FakeS3Server}.
+ */
+class S3StorageServiceTest {
+
+    private static final int PART_SIZE = 1024;
+
+    @TempDir
+    Path tempDir;
+
+    private FakeS3Server server;
+
+    private S3StorageService storage;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        server = new FakeS3Server("uploads");
+        StorageProperties.S3 config = new StorageProperties().getS3();
+        config.setEndpoint(server.endpoint());
+        config.setBucket("uploads");
+        config.setAccessKey("access");
+        config.setSecretKey("secret");
+        config.setMaxConnections(4);
+        storage = new S3StorageService(new S3Client(config), PART_SIZE);
+    }
+
+    @AfterEach
+    void tearDown() {
+        server.close();
+    }
+
+    @Test
+    void storesSmallFilesInOnePut() throws Exception {
+        String name = storage.store(new MockMultipartFile("file", "a.txt", "text/plain", "hello".getBytes(StandardCharsets.UTF_8)));
+
+        assertThat(name).endsWith(".txt");
+        assertThat(server.objects.get(name)).isEqualTo("hello".getBytes(StandardCharsets.UTF_8));
+        assertThat(server.requests).containsExactly("PUT /uploads/" + name);
+
+        Resource resource = storage.loadAsResource(name);
+        assertThat(resource.contentLength()).isEqualTo(5);
+        assertThat(resource.lastModified()).isEqualTo(1704164645000L);
+        assertThat(resource.getContentAsString(StandardCharsets.UTF_8)).isEqualTo("hello");
+    }
+
+    @Test
+    void streamsLargeUploadsAsMultipartUploads() throws Exception {
+        byte[] content = new byte[PART_SIZE * 2 + 100];
+        new Random(42).nextBytes(content);
+
+        StoredFile stored = storage.store(new ByteArrayInputStream(content), "video.mp4");
+
+        assertThat(stored.getSize()).isEqualTo(content.length);
+        assertThat(stored.getSha256()).isEqualTo(ContentHashes.sha256(content));
+        CRC32C crc = new CRC32C();
+        crc.update(content);
+        assertThat(stored.getCrc32c()).isEqualTo(ContentHashes.hex(crc));
+        assertThat(server.objects.get(stored.getFilename())).isEqualTo(content);
+        assertThat(server.requests.stream().filter(request -> request.contains("partNumber="))).hasSize(3);
+        assertThat(server.uploadIds()).isEmpty();
+    }
+
+    @Test
+    void storesReceivedFilesAndRemovesTheSource() throws Exception {
+        Path source = tempDir.resolve("received.part");
+        Files.write(source, new byte[PART_SIZE + 1]);
+
+        StoredFile stored = storage.store(source, "archive.zip");
+
+        assertThat(server.objects.get(stored.getFilename())).hasSize(PART_SIZE + 1);
+        assertThat(stored.getSize()).isEqualTo(PART_SIZE + 1);
+        assertThat(stored.getSha256()).isEqualTo(ContentHashes.sha256(new byte[PART_SIZE + 1]));
+        assertThat(source).doesNotExist();
+    }
+
+    @Test
+    void readsRangesWithRangedGets() throws Exception {
+        String name = storage.store(new MockMultipartFile("file", "a.txt", "text/plain", "0123456789".getBytes(StandardCharsets.UTF_8)));
+        RangeReadableResource resource = (RangeReadableResource) storage.loadAsResource(name);
+
+        try (InputStream in = resource.getInputStream(3, 4)) {
+            assertThat(new String(in.readAllBytes(), StandardCharsets.UTF_8)).isEqualTo("3456");
+        }
+    }
+
+    @Test
+    void deletesObjectsAndReportsMissingOnes() {
+        String name = storage.store(new MockMultipartFile("file", "a.txt", "text/plain", "x".getBytes(StandardCharsets.UTF_8)));
+
+        storage.delete(name);
+
+        assertThat(server.objects).doesNotContainKey(name);
+        assertThatThrownBy(() -> storage.loadAsResource(name)).hasMessage("Could not read file: " + name);
+    }
+
+    @Test
+    void listsObjectsInKeyOrderAfterACursor() {
+        for (int i = 0; i < 3; i++) {
+            storage.store(new MockMultipartFile("file", "a.txt", "text/plain", new byte[i + 1]));
+        }
+        List<StoredObject> all = storage.list(null, 10);
+
+        assertThat(all).extracting(StoredObject::getKey).isSorted().hasSize(3);
+        assertThat(storage.list(all.get(0).getKey(), 1)).extracting(StoredObject::getFilename).containsExactly(all.get(1).getFilename());
+        assertThat(storage.list(all.get(2).getKey(), 10)).isEmpty();
+    }
+
+    @Test
+    void encodesLikeSignatureVersion4() {
+        assertThat(S3Client.encode("a b/c~d.e_f-g")).isEqualTo("a%20b%2Fc~d.e_f-g");
+        assertThat(S3Client.encode("é")).isEqualTo("%C3%A9");
+        assertThat(URI.create("http://host/" + S3Client.encode("x y.txt")).getRawPath()).isEqualTo("/x%20y.txt");
+    }
+}
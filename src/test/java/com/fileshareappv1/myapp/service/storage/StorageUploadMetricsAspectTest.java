@@ -0,0 +1,71 @@
+package com.fileshareappv1.myapp.service.storage;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import com.fileshareappv1.myapp.config.StorageProperties;
+import com.fileshareappv1.myapp.management.TransferMetersService;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.aop.aspectj.annotation.AspectJProxyFactory;
+import org.springframework.mock.web.MockMultipartFile;
+
+/**
+ * Test class for the {@link StorageUploadMetricsAspect}.
+ */
+class StorageUploadMetricsAspectTest {
+
+    private static final byte[] CONTENT = "stored bytes".getBytes(StandardCharsets.UTF_8);
+
+    @TempDir
+    Path root;
+
+    private SimpleMeterRegistry meterRegistry;
+
+    private StorageRepository storage;
+
+    @BeforeEach
+    void setUp() {
+        StorageProperties properties = new StorageProperties();
+        properties.setLocation(root.resolve("storage"));
+        meterRegistry = new SimpleMeterRegistry();
+        AspectJProxyFactory factory = new AspectJProxyFactory(new LocalStorageService(properties));
+        factory.addAspect(new StorageUploadMetricsAspect(new TransferMetersService(meterRegistry)));
+        storage = factory.getProxy();
+    }
+
+    @Test
+    void everyWayOfStoringCountsAsAnUpload() throws Exception {
+        storage.store(new MockMultipartFile("file", "a.txt", "text/plain", CONTENT));
+        storage.store(new ByteArrayInputStream(CONTENT), "b.txt");
+        Path received = Files.write(root.resolve("received.tmp"), CONTENT);
+        storage.store(received, "c.txt");
+
+        assertThat(uploads("success")).isEqualTo(3);
+        double bytes = meterRegistry.get(TransferMetersService.TRANSFER_BYTES_METER_NAME).tag("direction", "upload").counter().count();
+        assertThat(bytes).isEqualTo(3 * CONTENT.length);
+    }
+
+    @Test
+    void failedStoresAreCountedAsErrors() {
+        assertThatThrownBy(() -> storage.store(new ByteArrayInputStream(new byte[0]), "empty.txt")).isInstanceOf(RuntimeException.class);
+
+        assertThat(uploads("error")).isEqualTo(1);
+        assertThat(meterRegistry.get(TransferMetersService.TRANSFER_ACTIVE_METER_NAME).tag("direction", "upload").gauge().value()).isZero();
+    }
+
+    private long uploads(String outcome) {
+        return meterRegistry
+            .get(TransferMetersService.TRANSFER_DURATION_METER_NAME)
+            .tag("direction", "upload")
+            .tag("outcome", outcome)
+            .timer()
+            .count();
+    }
+}
@@ -0,0 +1,68 @@
+package com.fileshareappv1.myapp.web.filter;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import io.undertow.server.HttpServerExchange;
+import io.undertow.util.Headers;
+import java.util.List;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Test class for the {@link ResponseCompressionPolicy}.
+ */
+class ResponseCompressionPolicyTest {
+
+    private SimpleMeterRegistry meterRegistry;
+
+    private ResponseCompressionPolicy policy;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        policy = new ResponseCompressionPolicy(List.of("application/json", "text/*", "image/svg+xml"), 2048, meterRegistry);
+    }
+
+    @Test
+    void compressesLargeTextPayloads() {
+        assertThat(policy.resolve(response(200, "application/json;charset=UTF-8", 10_000))).isTrue();
+        assertThat(policy.resolve(response(200, "image/svg+xml", 10_000))).isTrue();
+        assertThat(policy.resolve(response(200, "text/plain", -1))).isTrue();
+        assertThat(meterRegistry.get("http.server.compression.responses").tag("outcome", "compressed").counter().count()).isEqualTo(3);
+    }
+
+    @Test
+    void skipsAlreadyCompressedMedia() {
+        assertThat(policy.resolve(response(200, "image/jpeg", 5_000_000))).isFalse();
+        assertThat(policy.resolve(response(200, "application/octet-stream", 1_000))).isFalse();
+        assertThat(
+            meterRegistry.get("http.server.compression.skipped.bytes").tag("outcome", "skipped_incompressible").counter().count()
+        ).isEqualTo(5_001_000);
+    }
+
+    @Test
+    void skipsRangeEncodedAndSmallResponses() {
+        assertThat(policy.resolve(response(206, "text/plain", 10_000))).isFalse();
+
+        HttpServerExchange encoded = response(200, "text/css", 10_000);
+        encoded.getResponseHeaders().put(Headers.CONTENT_ENCODING, "br");
+        assertThat(policy.resolve(encoded)).isFalse();
+
+        assertThat(policy.resolve(response(200, "application/json", 100))).isFalse();
+
+        assertThat(meterRegistry.get("http.server.compression.responses").tag("outcome", "skipped_range").counter().count()).isEqualTo(1);
+        assertThat(meterRegistry.get("http.server.compression.responses").tag("outcome", "skipped_encoded").counter().count()).isEqualTo(1);
+        assertThat(meterRegistry.get("http.server.compression.responses").tag("outcome", "skipped_small").counter().count()).isEqualTo(1);
+    }
+
+    private static HttpServerExchange response(int status, String contentType, long contentLength) {
+        HttpServerExchange exchange = new HttpServerExchange(null);
+        exchange.setStatusCode(status);
+        exchange.getResponseHeaders().put(Headers.CONTENT_TYPE, contentType);
+        if (contentLength >= 0) {
+            exchange.setResponseContentLength(contentLength);
+        }
+        return exchange;
+    }
+}
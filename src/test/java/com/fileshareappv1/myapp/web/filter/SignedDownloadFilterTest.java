@@ -0,0 +1,77 @@
+package com.fileshareappv1.myapp.web.filter;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import com.fileshareappv1.myapp.security.DownloadUrlSigner;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.servlet.http.HttpServletResponse;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockFilterChain;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+/**
+ * Test class for the {@link SignedDownloadFilter}.
+ */
+class SignedDownloadFilterTest {
+
+    private DownloadUrlSigner signer;
+
+    private SimpleMeterRegistry meterRegistry;
+
+    private SignedDownloadFilter filter;
+
+    private MockHttpServletRequest lastRequest;
+
+    @BeforeEach
+    void setUp() {
+        signer = mock(DownloadUrlSigner.class);
+        when(signer.verify(anyString(), anyLong(), anyString())).thenReturn(DownloadUrlSigner.Verification.INVALID);
+        when(signer.verify(eq("a b.png"), eq(1000L), eq("good"))).thenReturn(DownloadUrlSigner.Verification.VALID);
+        meterRegistry = new SimpleMeterRegistry();
+        filter = new SignedDownloadFilter(signer, meterRegistry);
+    }
+
+    @Test
+    void forwardsValidRequestsToTheDownloadEndpoint() throws Exception {
+        MockHttpServletResponse response = filter("/api/files/signed/a%20b.png", "1000", "good");
+
+        assertThat(response.getForwardedUrl()).isEqualTo("/api/files/download/a%20b.png");
+        assertThat(lastRequest.getAttribute(SignedDownloadFilter.VERIFIED_ATTRIBUTE)).isEqualTo("a b.png");
+        assertThat(meterRegistry.counter("http.server.signed.downloads", "result", "valid").count()).isEqualTo(1);
+    }
+
+    @Test
+    void refusesInvalidSignaturesAndMalformedExpiries() throws Exception {
+        assertThat(filter("/api/files/signed/a%20b.png", "1000", "bad").getStatus()).isEqualTo(HttpServletResponse.SC_FORBIDDEN);
+        assertThat(filter("/api/files/signed/a%20b.png", "soon", "good").getStatus()).isEqualTo(HttpServletResponse.SC_FORBIDDEN);
+        assertThat(filter("/api/files/signed/x%2Fa%20b.png", "1000", "good").getStatus()).isEqualTo(HttpServletResponse.SC_FORBIDDEN);
+        assertThat(meterRegistry.counter("http.server.signed.downloads", "result", "invalid").count()).isEqualTo(3);
+    }
+
+    @Test
+    void leavesOtherPathsToTheChain() throws Exception {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/api/files/download/a.png");
+        MockFilterChain chain = new MockFilterChain();
+
+        filter.doFilter(request, new MockHttpServletResponse(), chain);
+
+        assertThat(chain.getRequest()).isSameAs(request);
+    }
+
+    private MockHttpServletResponse filter(String uri, String expires, String signature) throws Exception {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", uri);
+        lastRequest = request;
+        request.setParameter(SignedDownloadFilter.EXPIRES_PARAMETER, expires);
+        request.setParameter(SignedDownloadFilter.SIGNATURE_PARAMETER, signature);
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        filter.doFilter(request, response, new MockFilterChain());
+        return response;
+    }
+}
@@ -12,6 +12,7 @@ import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fileshareappv1.myapp.IntegrationTest;
 import com.fileshareappv1.myapp.domain.File;
+import com.fileshareappv1.myapp.domain.Post;
 import com.fileshareappv1.myapp.repository.FileRepository;
 import com.fileshareappv1.myapp.repository.search.FileSearchRepository;
 import com.fileshareappv1.myapp.service.dto.FileDTO;
@@ -620,6 +621,63 @@ class FileResourceIT {
             .andExpect(jsonPath("$.[*].uploadedAt").value(hasItem(DEFAULT_UPLOADED_AT.toString())));
     }
 
+    @Test
+    @WithUnauthenticatedMockUser
+    void downloadFileWithoutSignatureRequiresAuthentication() throws Exception {
+        // Signed URLs are enabled: anonymous clients only download through /api/files/signed/
+        restFileMockMvc.perform(get("/api/files/download/{filename}", "unsigned.txt")).andExpect(status().isUnauthorized());
+    }
+
+    @Test
+    @Transactional
+    void streamingUploadWithAnEmptyFileIsRejected() throws Exception {
+        long databaseSizeBeforeUpload = getRepositoryCount();
+        String boundary = "----boundary42";
+        String body =
+            "--" +
+            boundary +
+            "\r\nContent-Disposition: form-data; name=\"files\"; filename=\"a.txt\"\r\nContent-Type: text/plain\r\n\r\n" +
+            "content\r\n--" +
+            boundary +
+            "\r\nContent-Disposition: form-data; name=\"files\"; filename=\"empty.txt\"\r\nContent-Type: text/plain\r\n\r\n" +
+            "\r\n--" +
+            boundary +
+            "--\r\n";
+
+        restFileMockMvc
+            .perform(post(ENTITY_API_URL + "/upload-stream").contentType("multipart/form-data; boundary=" + boundary).content(body))
+            .andExpect(status().isBadRequest());
+
+        assertSameRepositoryCount(databaseSizeBeforeUpload);
+    }
+
+    @Test
+    @Transactional
+    void streamingUploadToThePostOfAnotherUserIsForbidden() throws Exception {
+        Post post = new Post().content("AAAAAAAAAA").createdAt(Instant.now());
+        em.persist(post);
+        em.flush();
+        long databaseSizeBeforeUpload = getRepositoryCount();
+        String boundary = "----boundary42";
+        String body =
+            "--" +
+            boundary +
+            "\r\nContent-Disposition: form-data; name=\"postId\"\r\n\r\n" +
+            post.getId() +
+            "\r\n--" +
+            boundary +
+            "\r\nContent-Disposition: form-data; name=\"files\"; filename=\"a.txt\"\r\nContent-Type: text/plain\r\n\r\n" +
+            "content\r\n--" +
+            boundary +
+            "--\r\n";
+
+        restFileMockMvc
+            .perform(post(ENTITY_API_URL + "/upload-stream").contentType("multipart/form-data; boundary=" + boundary).content(body))
+            .andExpect(status().isForbidden());
+
+        assertSameRepositoryCount(databaseSizeBeforeUpload);
+    }
+
     protected long getRepositoryCount() {
         return fileRepository.count();
     }
@@ -6,6 +6,7 @@ import static com.fileshareappv1.myapp.web.rest.TestUtil.sameNumber;
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.awaitility.Awaitility.await;
 import static org.hamcrest.Matchers.hasItem;
+import static org.hamcrest.Matchers.not;
 import static org.mockito.Mockito.*;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
@@ -638,10 +639,56 @@ class PostResourceIT {
 
         // Validate the database contains one less item
         assertDecrementedRepositoryCount(databaseSizeBeforeDelete);
+        // The post is in the trash: its search document is dropped until it is restored
         int searchDatabaseSizeAfter = IterableUtil.sizeOf(postSearchRepository.findAll());
         assertThat(searchDatabaseSizeAfter).isEqualTo(searchDatabaseSizeBefore - 1);
     }
 
+    @Test
+    @Transactional
+    void deletedPostIsHiddenUntilRestored() throws Exception {
+        // Initialize the database
+        insertedPost = postRepository.saveAndFlush(post);
+        postSearchRepository.save(post);
+
+        restPostMockMvc.perform(delete(ENTITY_API_URL_ID, post.getId())).andExpect(status().isNoContent());
+        em.flush();
+        em.clear();
+
+        // Trashed posts are left out of queries and searches
+        restPostMockMvc.perform(get(ENTITY_API_URL_ID, post.getId())).andExpect(status().isNotFound());
+        restPostMockMvc
+            .perform(get(ENTITY_SEARCH_API_URL + "?query=id:" + post.getId()))
+            .andExpect(status().isOk())
+            .andExpect(header().string("X-Total-Count", "0"))
+            .andExpect(jsonPath("$.[*].id").value(not(hasItem(post.getId().intValue()))));
+        assertThat(postRepository.findById(post.getId())).isEmpty();
+        assertThat(postRepository.findTrashedById(post.getId())).isPresent();
+
+        restPostMockMvc
+            .perform(post(ENTITY_API_URL_ID + "/restore", post.getId()))
+            .andExpect(status().isOk())
+            .andExpect(jsonPath("$.id").value(post.getId().intValue()));
+        em.flush();
+        em.clear();
+
+        restPostMockMvc.perform(get(ENTITY_API_URL_ID, post.getId())).andExpect(status().isOk());
+        restPostMockMvc
+            .perform(get(ENTITY_SEARCH_API_URL + "?query=id:" + post.getId()))
+            .andExpect(header().string("X-Total-Count", "1"))
+            .andExpect(jsonPath("$.[*].id").value(hasItem(post.getId().intValue())));
+        assertThat(postRepository.findTrashedById(post.getId())).isEmpty();
+    }
+
+    @Test
+    @Transactional
+    void restoreUntrashedPostIsNotFound() throws Exception {
+        // Initialize the database
+        insertedPost = postRepository.saveAndFlush(post);
+
+        restPostMockMvc.perform(post(ENTITY_API_URL_ID + "/restore", post.getId())).andExpect(status().isNotFound());
+    }
+
     @Test
     @Transactional
     void searchPost() throws Exception {
@@ -0,0 +1,91 @@
+package com.fileshareappv1.myapp.web.rest.bandwidth;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.within;
+
+import com.fileshareappv1.myapp.config.ApplicationProperties;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.util.unit.DataSize;
+
+/**
+ * Test class for the {@link BandwidthLimiter}.
+ */
+class BandwidthLimiterTest {
+
+    private static final long SECOND = TimeUnit.SECONDS.toNanos(1);
+
+    @Test
+    void tokenBucketLetsABurstThroughThenPacesToItsRate() {
+        TokenBucket bucket = new TokenBucket(1000, 2000, 0);
+
+        assertThat(bucket.reserve(2000, 0)).isZero();
+        assertThat(bucket.reserve(500, 0)).isCloseTo(SECOND / 2, within(1000L));
+        // Half a second later the debt is paid, and another half second buys 500 bytes
+        assertThat(bucket.reserve(500, SECOND)).isZero();
+        // Idle time refills the bucket up to its capacity only
+        assertThat(bucket.reserve(3000, 10 * SECOND)).isCloseTo(SECOND, within(1000L));
+    }
+
+    @Test
+    void noLimitLeavesStreamsAlone() {
+        BandwidthLimiter limiter = new BandwidthLimiter(new ApplicationProperties(), new SimpleMeterRegistry());
+        InputStream in = new ByteArrayInputStream(new byte[1]);
+        OutputStream out = new ByteArrayOutputStream();
+
+        BandwidthLimiter.Throttle throttle = limiter.throttle(BandwidthLimiter.Direction.DOWNLOAD, new MockHttpServletRequest());
+
+        assertThat(throttle).isSameAs(BandwidthLimiter.Throttle.UNLIMITED);
+        assertThat(throttle.wrap(in)).isSameAs(in);
+        assertThat(throttle.wrap(out)).isSameAs(out);
+    }
+
+    @Test
+    void transfersBeyondTheBurstAreHeldToThePerIpLimit() throws Exception {
+        ApplicationProperties properties = new ApplicationProperties();
+        properties.getBandwidth().setPerIp(DataSize.ofKilobytes(1024));
+        properties.getBandwidth().setBurst(Duration.ofMillis(100));
+        SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+        BandwidthLimiter limiter = new BandwidthLimiter(properties, meterRegistry);
+        ByteArrayOutputStream body = new ByteArrayOutputStream();
+
+        long start = System.nanoTime();
+        try (OutputStream out = limiter.throttle(BandwidthLimiter.Direction.DOWNLOAD, new MockHttpServletRequest()).wrap(body)) {
+            out.write(new byte[300 * 1024]);
+        }
+        long elapsed = System.nanoTime() - start;
+
+        // 300 KiB at 1 MiB/s, less the 100 KiB burst
+        assertThat(body.size()).isEqualTo(300 * 1024);
+        assertThat(elapsed).isGreaterThanOrEqualTo(TimeUnit.MILLISECONDS.toNanos(180));
+        Timer delay = meterRegistry.find("transfer.throttle.delay").tag("direction", "download").tag("scope", "ip").timer();
+        assertThat(delay).isNotNull();
+        assertThat(delay.count()).isPositive();
+        assertThat(delay.totalTime(TimeUnit.MILLISECONDS)).isPositive();
+    }
+
+    @Test
+    void uploadsAndDownloadsAreLimitedSeparately() throws Exception {
+        ApplicationProperties properties = new ApplicationProperties();
+        properties.getBandwidth().setGlobal(DataSize.ofKilobytes(64));
+        BandwidthLimiter limiter = new BandwidthLimiter(properties, new SimpleMeterRegistry());
+        MockHttpServletRequest request = new MockHttpServletRequest();
+
+        limiter.throttle(BandwidthLimiter.Direction.DOWNLOAD, request).acquire(64 * 1024);
+        long start = System.nanoTime();
+        BandwidthLimiter.Throttle upload = limiter.throttle(BandwidthLimiter.Direction.UPLOAD, request);
+        try (InputStream in = upload.wrap(new ByteArrayInputStream(new byte[32 * 1024]))) {
+            assertThat(in.readAllBytes()).hasSize(32 * 1024);
+        }
+
+        assertThat(System.nanoTime() - start).isLessThan(TimeUnit.MILLISECONDS.toNanos(400));
+    }
+}
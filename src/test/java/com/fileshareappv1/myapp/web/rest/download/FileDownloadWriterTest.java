@@ -0,0 +1,164 @@
+package com.fileshareappv1.myapp.web.rest.download;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import com.fileshareappv1.myapp.config.ApplicationProperties;
+import com.fileshareappv1.myapp.management.TransferMetersService;
+import com.fileshareappv1.myapp.web.rest.bandwidth.BandwidthLimiter;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.core.io.FileSystemResource;
+import org.springframework.http.HttpHeaders;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+/**
+ * Test class for the {@link FileDownloadWriter}.
+ */
+class FileDownloadWriterTest {
+
+    private static final String CONTENT = "0123456789abcdefghij";
+
+    @TempDir
+    Path tempDir;
+
+    private FileDownloadWriter writer;
+
+    private DownloadTarget target;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        Path file = tempDir.resolve("sample.txt");
+        Files.writeString(file, CONTENT);
+        SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+        writer = new FileDownloadWriter(
+            new BandwidthLimiter(new ApplicationProperties(), meterRegistry),
+            new TransferMetersService(meterRegistry)
+        );
+        target = DownloadTarget.of(new FileSystemResource(file), "text/plain").etag("\"v1\"");
+    }
+
+    @Test
+    void writesWholeFileWithoutRange() throws Exception {
+        MockHttpServletResponse response = download(new MockHttpServletRequest("GET", "/"));
+
+        assertThat(response.getStatus()).isEqualTo(200);
+        assertThat(response.getHeader(HttpHeaders.ACCEPT_RANGES)).isEqualTo("bytes");
+        assertThat(response.getContentLengthLong()).isEqualTo(CONTENT.length());
+        assertThat(response.getContentAsString()).isEqualTo(CONTENT);
+    }
+
+    @Test
+    void answersConditionalRequestWithNotModified() {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/");
+        request.addHeader(HttpHeaders.IF_NONE_MATCH, "\"v1\"");
+        MockHttpServletResponse response = new MockHttpServletResponse();
+
+        boolean notModified = writer.checkNotModified("\"v1\"", 1_000_000L, "public, max-age=60", request, response);
+
+        assertThat(notModified).isTrue();
+        assertThat(response.getStatus()).isEqualTo(304);
+        assertThat(response.getHeader(HttpHeaders.ETAG)).isEqualTo("\"v1\"");
+        assertThat(response.getHeader(HttpHeaders.CACHE_CONTROL)).isEqualTo("public, max-age=60");
+        assertThat(response.getContentLength()).isZero();
+    }
+
+    @Test
+    void letsChangedFileThroughConditionalCheck() {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/");
+        request.addHeader(HttpHeaders.IF_NONE_MATCH, "\"v0\"");
+
+        assertThat(writer.checkNotModified("\"v1\"", 1_000_000L, null, request, new MockHttpServletResponse())).isFalse();
+    }
+
+    @Test
+    void writesSingleRange() throws Exception {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/");
+        request.addHeader(HttpHeaders.RANGE, "bytes=5-9");
+
+        MockHttpServletResponse response = download(request);
+
+        assertThat(response.getStatus()).isEqualTo(206);
+        assertThat(response.getHeader(HttpHeaders.CONTENT_RANGE)).isEqualTo("bytes 5-9/20");
+        assertThat(response.getContentAsString()).isEqualTo("56789");
+    }
+
+    @Test
+    void writesSuffixAndOpenEndedRanges() throws Exception {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/");
+        request.addHeader(HttpHeaders.RANGE, "bytes=-3");
+        assertThat(download(request).getContentAsString()).isEqualTo("hij");
+
+        request = new MockHttpServletRequest("GET", "/");
+        request.addHeader(HttpHeaders.RANGE, "bytes=15-");
+        assertThat(download(request).getContentAsString()).isEqualTo("fghij");
+    }
+
+    @Test
+    void writesMultipleRangesAsMultipartByteranges() throws Exception {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/");
+        request.addHeader(HttpHeaders.RANGE, "bytes=0-1,10-11");
+
+        MockHttpServletResponse response = download(request);
+
+        assertThat(response.getStatus()).isEqualTo(206);
+        assertThat(response.getContentType()).startsWith("multipart/byteranges; boundary=");
+        String body = response.getContentAsString(StandardCharsets.US_ASCII);
+        assertThat(body).contains("Content-Range: bytes 0-1/20\r\n\r\n01").contains("Content-Range: bytes 10-11/20\r\n\r\nab");
+        assertThat(response.getContentLengthLong()).isEqualTo(body.length());
+    }
+
+    @Test
+    void coalescesOverlappingRanges() throws Exception {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/");
+        request.addHeader(HttpHeaders.RANGE, "bytes=0-4,3-7");
+
+        MockHttpServletResponse response = download(request);
+
+        assertThat(response.getHeader(HttpHeaders.CONTENT_RANGE)).isEqualTo("bytes 0-7/20");
+        assertThat(response.getContentAsString()).isEqualTo("01234567");
+    }
+
+    @Test
+    void rejectsUnsatisfiableRange() throws Exception {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/");
+        request.addHeader(HttpHeaders.RANGE, "bytes=50-60");
+
+        MockHttpServletResponse response = download(request);
+
+        assertThat(response.getStatus()).isEqualTo(416);
+        assertThat(response.getHeader(HttpHeaders.CONTENT_RANGE)).isEqualTo("bytes */20");
+    }
+
+    @Test
+    void ignoresRangeWhenIfRangeDoesNotMatch() throws Exception {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/");
+        request.addHeader(HttpHeaders.RANGE, "bytes=5-9");
+        request.addHeader(HttpHeaders.IF_RANGE, "\"v0\"");
+
+        MockHttpServletResponse response = download(request);
+
+        assertThat(response.getStatus()).isEqualTo(200);
+        assertThat(response.getContentAsString()).isEqualTo(CONTENT);
+    }
+
+    @Test
+    void appliesRangeWhenIfRangeMatches() throws Exception {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/");
+        request.addHeader(HttpHeaders.RANGE, "bytes=5-9");
+        request.addHeader(HttpHeaders.IF_RANGE, "\"v1\"");
+
+        assertThat(download(request).getStatus()).isEqualTo(206);
+    }
+
+    private MockHttpServletResponse download(MockHttpServletRequest request) throws Exception {
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        writer.write(target, request, response);
+        return response;
+    }
+}
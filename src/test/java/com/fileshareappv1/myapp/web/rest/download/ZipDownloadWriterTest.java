@@ -0,0 +1,89 @@
+package com.fileshareappv1.myapp.web.rest.download;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import com.fileshareappv1.myapp.config.ApplicationProperties;
+import com.fileshareappv1.myapp.config.StorageProperties;
+import com.fileshareappv1.myapp.management.TransferMetersService;
+import com.fileshareappv1.myapp.service.storage.LocalStorageService;
+import com.fileshareappv1.myapp.web.rest.bandwidth.BandwidthLimiter;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipInputStream;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.http.HttpHeaders;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.mock.web.MockMultipartFile;
+
+/**
+ * Test class for the {@link ZipDownloadWriter}.
+ */
+class ZipDownloadWriterTest {
+
+    @TempDir
+    Path root;
+
+    private LocalStorageService storage;
+
+    private ZipDownloadWriter writer;
+
+    @BeforeEach
+    void setUp() {
+        StorageProperties properties = new StorageProperties();
+        properties.setLocation(root);
+        storage = new LocalStorageService(properties);
+        SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+        writer = new ZipDownloadWriter(
+            storage,
+            new BandwidthLimiter(new ApplicationProperties(), meterRegistry),
+            new TransferMetersService(meterRegistry)
+        );
+    }
+
+    @Test
+    void storesCompressedMediaAndDeflatesTheRest() throws Exception {
+        String text = storage.store(new MockMultipartFile("file", "notes.txt", "text/plain", "a".repeat(10_000).getBytes()));
+        String image = storage.store(new MockMultipartFile("file", "photo.jpg", "image/jpeg", new byte[] { 1, 2, 3, 4 }));
+        Map<String, String> entries = new LinkedHashMap<>();
+        entries.put("notes.txt", text);
+        entries.put("photo.jpg", image);
+        entries.put("missing.txt", "missing.txt");
+        MockHttpServletResponse response = new MockHttpServletResponse();
+
+        writer.write(entries, "files.zip", new MockHttpServletRequest(), response);
+
+        assertThat(response.getContentType()).isEqualTo("application/zip");
+        assertThat(response.getHeader(HttpHeaders.CONTENT_DISPOSITION)).isEqualTo("attachment; filename=\"files.zip\"");
+        try (ZipInputStream zip = new ZipInputStream(new ByteArrayInputStream(response.getContentAsByteArray()))) {
+            ZipEntry first = zip.getNextEntry();
+            assertThat(first.getName()).isEqualTo("notes.txt");
+            assertThat(first.getMethod()).isEqualTo(ZipEntry.DEFLATED);
+            assertThat(new String(zip.readAllBytes(), StandardCharsets.US_ASCII)).isEqualTo("a".repeat(10_000));
+
+            ZipEntry second = zip.getNextEntry();
+            assertThat(second.getName()).isEqualTo("photo.jpg");
+            assertThat(second.getMethod()).isEqualTo(ZipEntry.STORED);
+            assertThat(zip.readAllBytes()).containsExactly(1, 2, 3, 4);
+
+            assertThat(zip.getNextEntry()).isNull();
+        }
+    }
+
+    @Test
+    void detectsAlreadyCompressedMedia() {
+        assertThat(ZipDownloadWriter.isCompressed("a.png")).isTrue();
+        assertThat(ZipDownloadWriter.isCompressed("a.mp4")).isTrue();
+        assertThat(ZipDownloadWriter.isCompressed("a.zip")).isTrue();
+        assertThat(ZipDownloadWriter.isCompressed("a.svg")).isFalse();
+        assertThat(ZipDownloadWriter.isCompressed("a.json")).isFalse();
+        assertThat(ZipDownloadWriter.isCompressed("a")).isFalse();
+    }
+}
@@ -0,0 +1,105 @@
+package com.fileshareappv1.myapp.web.rest.idempotency;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import com.fileshareappv1.myapp.config.ApplicationProperties;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.mock.web.MockHttpServletRequest;
+
+/**
+ * Test class for the {@link IdempotentRequests}.
+ */
+class IdempotentRequestsTest {
+
+    private IdempotentRequests idempotentRequests;
+
+    private MockHttpServletRequest request;
+
+    private final AtomicInteger runs = new AtomicInteger();
+
+    @BeforeEach
+    void setUp() {
+        idempotentRequests = new IdempotentRequests(new ApplicationProperties(), new SimpleMeterRegistry());
+        request = new MockHttpServletRequest("POST", "/api/posts/with-files");
+        request.addHeader(IdempotentRequests.HEADER, "key-1");
+    }
+
+    @Test
+    void retriesGetTheFirstResponse() {
+        ResponseEntity<Integer> first = idempotentRequests.execute("key-1", request, this::created);
+        ResponseEntity<Integer> retry = idempotentRequests.execute("key-1", request, this::created);
+
+        assertThat(runs).hasValue(1);
+        assertThat(retry.getStatusCode()).isEqualTo(HttpStatus.CREATED);
+        assertThat(retry.getBody()).isEqualTo(first.getBody());
+        assertThat(retry.getHeaders().getFirst(IdempotentRequests.REPLAYED_HEADER)).isEqualTo("true");
+        assertThat(idempotentRequests.isReplay(request)).isTrue();
+    }
+
+    @Test
+    void requestsWithoutTheSameKeyAllRun() {
+        idempotentRequests.execute(null, request, this::created);
+        idempotentRequests.execute(null, request, this::created);
+        idempotentRequests.execute("key-2", request, this::created);
+        idempotentRequests.execute("key-1", new MockHttpServletRequest("POST", "/api/files/upload-multiple"), this::created);
+
+        assertThat(runs).hasValue(4);
+        assertThat(idempotentRequests.isReplay(request)).isFalse();
+    }
+
+    @Test
+    void failedRequestsAreNotRemembered() {
+        assertThatThrownBy(() ->
+            idempotentRequests.execute("key-1", request, () -> {
+                runs.incrementAndGet();
+                throw new IllegalStateException("storage unavailable");
+            })
+        ).isInstanceOf(IllegalStateException.class);
+
+        ResponseEntity<Integer> retry = idempotentRequests.execute("key-1", request, this::created);
+
+        assertThat(runs).hasValue(2);
+        assertThat(retry.getHeaders().containsKey(IdempotentRequests.REPLAYED_HEADER)).isFalse();
+    }
+
+    @Test
+    void concurrentDuplicatesWaitForTheRequestInProgress() throws Exception {
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        try {
+            Future<ResponseEntity<Integer>> first = executor.submit(() ->
+                idempotentRequests.execute("key-1", request, () -> {
+                    started.countDown();
+                    release.await();
+                    return created();
+                })
+            );
+            started.await();
+            Future<ResponseEntity<Integer>> duplicate = executor.submit(() -> idempotentRequests.execute("key-1", request, this::created));
+
+            assertThat(duplicate.isDone()).isFalse();
+            release.countDown();
+
+            assertThat(duplicate.get(5, TimeUnit.SECONDS).getBody()).isEqualTo(first.get(5, TimeUnit.SECONDS).getBody());
+            assertThat(runs).hasValue(1);
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private ResponseEntity<Integer> created() {
+        return ResponseEntity.status(HttpStatus.CREATED).body(runs.incrementAndGet());
+    }
+}
@@ -0,0 +1,137 @@
+package com.fileshareappv1.myapp.web.rest.upload;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Random;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Test class for the {@link MultipartStreamReader}.
+ */
+class MultipartStreamReaderTest {
+
+    private static final String BOUNDARY = "----boundary42";
+
+    @Test
+    void readsFieldsAndFilesInOrder() throws IOException {
+        byte[] file = randomBytes(200_000);
+        byte[] body = body(file);
+
+        MultipartStreamReader reader = new MultipartStreamReader(new ByteArrayInputStream(body), BOUNDARY);
+
+        MultipartStreamReader.Part field = reader.nextPart();
+        assertThat(field.getName()).isEqualTo("postId");
+        assertThat(field.isFile()).isFalse();
+        assertThat(new String(field.getInputStream().readAllBytes(), StandardCharsets.US_ASCII)).isEqualTo("12");
+
+        MultipartStreamReader.Part filePart = reader.nextPart();
+        assertThat(filePart.getName()).isEqualTo("files");
+        assertThat(filePart.isFile()).isTrue();
+        assertThat(filePart.getFilename()).isEqualTo("photo.jpg");
+        assertThat(filePart.getContentType()).isEqualTo("image/jpeg");
+        assertThat(filePart.getInputStream().readAllBytes()).isEqualTo(file);
+
+        assertThat(reader.nextPart()).isNull();
+    }
+
+    @Test
+    void handlesBodyArrivingOneByteAtATime() throws IOException {
+        byte[] file = randomBytes(5_000);
+        InputStream trickle = new FilterInputStream(new ByteArrayInputStream(body(file))) {
+            @Override
+            public int read(byte[] b, int off, int len) throws IOException {
+                return super.read(b, off, Math.min(len, 1));
+            }
+        };
+
+        MultipartStreamReader reader = new MultipartStreamReader(trickle, BOUNDARY);
+
+        reader.nextPart();
+        assertThat(reader.nextPart().getInputStream().readAllBytes()).isEqualTo(file);
+        assertThat(reader.nextPart()).isNull();
+    }
+
+    @Test
+    void skipsUnreadPartRemainder() throws IOException {
+        MultipartStreamReader reader = new MultipartStreamReader(new ByteArrayInputStream(body(randomBytes(100_000))), BOUNDARY);
+
+        assertThat(reader.nextPart().getName()).isEqualTo("postId");
+        assertThat(reader.nextPart().getFilename()).isEqualTo("photo.jpg");
+        assertThat(reader.nextPart()).isNull();
+    }
+
+    @Test
+    void rejectsTruncatedBody() throws IOException {
+        byte[] body = body(randomBytes(1_000));
+        byte[] truncated = Arrays.copyOf(body, body.length - 20);
+
+        MultipartStreamReader reader = new MultipartStreamReader(new ByteArrayInputStream(truncated), BOUNDARY);
+        reader.nextPart();
+        MultipartStreamReader.Part filePart = reader.nextPart();
+
+        assertThatThrownBy(() -> filePart.getInputStream().readAllBytes()).isInstanceOf(
+            MultipartStreamReader.MalformedMultipartException.class
+        );
+    }
+
+    @Test
+    void rejectsPartsOverTheLimit() throws IOException {
+        MultipartStreamReader reader = new MultipartStreamReader(new ByteArrayInputStream(body(randomBytes(1_000))), BOUNDARY, 999, -1);
+        reader.nextPart();
+        MultipartStreamReader.Part filePart = reader.nextPart();
+
+        assertThatThrownBy(() -> filePart.getInputStream().readAllBytes()).isInstanceOf(
+            MultipartStreamReader.SizeLimitExceededException.class
+        );
+
+        reader = new MultipartStreamReader(new ByteArrayInputStream(body(randomBytes(1_000))), BOUNDARY, 1_000, -1);
+        reader.nextPart();
+        assertThat(reader.nextPart().getInputStream().readAllBytes()).hasSize(1_000);
+    }
+
+    @Test
+    void rejectsBodiesOverTheLimit() throws IOException {
+        byte[] body = body(randomBytes(100_000));
+
+        MultipartStreamReader reader = new MultipartStreamReader(new ByteArrayInputStream(body), BOUNDARY, -1, body.length - 1);
+        reader.nextPart();
+        MultipartStreamReader.Part filePart = reader.nextPart();
+
+        assertThatThrownBy(() -> filePart.getInputStream().readAllBytes()).isInstanceOf(
+            MultipartStreamReader.SizeLimitExceededException.class
+        );
+    }
+
+    private static byte[] body(byte[] file) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        out.write(
+            ("--" +
+                BOUNDARY +
+                "\r\n" +
+                "Content-Disposition: form-data; name=\"postId\"\r\n\r\n" +
+                "12\r\n" +
+                "--" +
+                BOUNDARY +
+                "\r\n" +
+                "Content-Disposition: form-data; name=\"files\"; filename=\"photo.jpg\"\r\n" +
+                "Content-Type: image/jpeg\r\n\r\n").getBytes(StandardCharsets.US_ASCII)
+        );
+        out.write(file);
+        out.write(("\r\n--" + BOUNDARY + "--\r\n").getBytes(StandardCharsets.US_ASCII));
+        return out.toByteArray();
+    }
+
+    private static byte[] randomBytes(int length) {
+        byte[] bytes = new byte[length];
+        new Random(length).nextBytes(bytes);
+        return bytes;
+    }
+}
@@ -0,0 +1,110 @@
+package com.fileshareappv1.myapp.web.rest.upload;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import com.fileshareappv1.myapp.config.ApplicationProperties;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpHeaders;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+/**
+ * Test class for the {@link UploadAdmissionInterceptor}.
+ */
+class UploadAdmissionInterceptorTest {
+
+    private ApplicationProperties properties;
+
+    private SimpleMeterRegistry meterRegistry;
+
+    @BeforeEach
+    void setUp() {
+        properties = new ApplicationProperties();
+        properties.getUploadAdmission().setMaxConcurrent(2);
+        properties.getUploadAdmission().setMaxConcurrentPerUser(1);
+        properties.getUploadAdmission().setMaxWait(Duration.ofMillis(50));
+        properties.getUploadAdmission().setRetryAfter(Duration.ofSeconds(7));
+        meterRegistry = new SimpleMeterRegistry();
+    }
+
+    @Test
+    void uploadsBeyondTheCapsAreRefusedWithRetryAfter() {
+        UploadAdmissionInterceptor interceptor = new UploadAdmissionInterceptor(properties, meterRegistry);
+        assertThat(interceptor.preHandle(upload("10.0.0.1"), new MockHttpServletResponse(), null)).isTrue();
+
+        MockHttpServletResponse sameClient = new MockHttpServletResponse();
+        assertThatThrownBy(() -> interceptor.preHandle(upload("10.0.0.1"), sameClient, null)).isInstanceOf(
+            UploadCapacityExceededException.class
+        );
+        assertThat(sameClient.getHeader(HttpHeaders.RETRY_AFTER)).isEqualTo("7");
+
+        assertThat(interceptor.preHandle(upload("10.0.0.2"), new MockHttpServletResponse(), null)).isTrue();
+        assertThatThrownBy(() -> interceptor.preHandle(upload("10.0.0.3"), new MockHttpServletResponse(), null)).isInstanceOf(
+            UploadCapacityExceededException.class
+        );
+
+        assertThat(meterRegistry.get("http.server.uploads.active").gauge().value()).isEqualTo(2);
+        assertThat(meterRegistry.get("http.server.uploads.rejected").tag("limit", "user").counter().count()).isEqualTo(1);
+        assertThat(meterRegistry.get("http.server.uploads.rejected").tag("limit", "global").counter().count()).isEqualTo(1);
+    }
+
+    @Test
+    void queuedUploadsAreAdmittedOnceASlotIsFree() throws Exception {
+        properties.getUploadAdmission().setMaxWait(Duration.ofSeconds(5));
+        UploadAdmissionInterceptor interceptor = new UploadAdmissionInterceptor(properties, meterRegistry);
+        MockHttpServletRequest first = upload("10.0.0.1");
+        interceptor.preHandle(first, new MockHttpServletResponse(), null);
+
+        CompletableFuture<Boolean> second = CompletableFuture.supplyAsync(() ->
+            interceptor.preHandle(upload("10.0.0.1"), new MockHttpServletResponse(), null)
+        );
+        while (meterRegistry.get("http.server.uploads.queued").gauge().value() < 1) {
+            Thread.onSpinWait();
+        }
+        interceptor.afterCompletion(first, new MockHttpServletResponse(), null, null);
+
+        assertThat(second.get(5, TimeUnit.SECONDS)).isTrue();
+        assertThat(meterRegistry.get("http.server.uploads.queued").gauge().value()).isZero();
+        assertThat(meterRegistry.get("http.server.uploads.active").gauge().value()).isEqualTo(1);
+    }
+
+    @Test
+    void uploadsAreRefusedRightAwayWhenTheQueueIsFull() {
+        properties.getUploadAdmission().setMaxWait(Duration.ofSeconds(5));
+        properties.getUploadAdmission().setMaxQueued(0);
+        UploadAdmissionInterceptor interceptor = new UploadAdmissionInterceptor(properties, meterRegistry);
+        interceptor.preHandle(upload("10.0.0.1"), new MockHttpServletResponse(), null);
+
+        long start = System.nanoTime();
+        assertThatThrownBy(() -> interceptor.preHandle(upload("10.0.0.1"), new MockHttpServletResponse(), null)).isInstanceOf(
+            UploadCapacityExceededException.class
+        );
+        assertThat(System.nanoTime() - start).isLessThan(TimeUnit.SECONDS.toNanos(1));
+    }
+
+    @Test
+    void chunksOfResumableUploadsTakeASlot() {
+        UploadAdmissionInterceptor interceptor = new UploadAdmissionInterceptor(properties, meterRegistry);
+        MockHttpServletRequest chunk = new MockHttpServletRequest("PATCH", "/api/uploads/abc");
+        chunk.setRemoteAddr("10.0.0.1");
+        interceptor.preHandle(chunk, new MockHttpServletResponse(), null);
+
+        assertThatThrownBy(() -> interceptor.preHandle(upload("10.0.0.1"), new MockHttpServletResponse(), null)).isInstanceOf(
+            UploadCapacityExceededException.class
+        );
+        interceptor.afterCompletion(chunk, new MockHttpServletResponse(), null, null);
+        assertThat(interceptor.preHandle(upload("10.0.0.1"), new MockHttpServletResponse(), null)).isTrue();
+    }
+
+    private static MockHttpServletRequest upload(String remoteAddr) {
+        MockHttpServletRequest request = new MockHttpServletRequest("POST", "/api/files/upload");
+        request.setRemoteAddr(remoteAddr);
+        return request;
+    }
+}